@@ -0,0 +1,53 @@
+package com.example.openvpn.bench;
+
+import java.nio.charset.StandardCharsets;
+
+// 基准测试用的输入数据
+final class BenchFixtures {
+    private BenchFixtures() {
+    }
+
+    // /proc/net/dev 格式内容：interfaces 个网卡，其中一个为 tun0
+    static byte[] procNetDev(int interfaces, long seed) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Inter-|   Receive                                                |  Transmit\n");
+        sb.append(" face |bytes    packets errs drop fifo frame compressed multicast|")
+                .append("bytes    packets errs drop fifo colls carrier compressed\n");
+        for (int i = 0; i < interfaces; i++) {
+            String name = i == interfaces / 2 ? "tun0" : "eth" + i;
+            long rx = 1_000_000_000L + seed * 1500 + i;
+            long tx = 500_000_000L + seed * 700 + i;
+            sb.append(String.format("%6s: %d %d 0 0 0 0 0 0 %d %d 0 0 0 0 0 0\n",
+                    name, rx, rx / 1400, tx, tx / 1400));
+        }
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // 带内联证书的大配置，约 sizeKb KB
+    static String largeConfig(int sizeKb) {
+        StringBuilder sb = new StringBuilder(sizeKb * 1024 + 1024);
+        sb.append("client\ndev tun\nproto udp\n");
+        for (int i = 0; i < 4; i++) {
+            sb.append("remote vpn").append(i).append(".example.com 1194\n");
+        }
+        sb.append("resolv-retry infinite\nnobind\npersist-key\npersist-tun\n")
+                .append("cipher AES-256-GCM\nauth SHA256\nverb 3\n");
+        String[] blocks = {"ca", "cert", "key", "tls-auth"};
+        int perBlock = sizeKb * 1024 / blocks.length;
+        for (String block : blocks) {
+            sb.append('<').append(block).append(">\n-----BEGIN CERTIFICATE-----\n");
+            int written = 0;
+            int line = 0;
+            while (written < perBlock) {
+                for (int c = 0; c < 64; c++) {
+                    sb.append((char) ('A' + (line * 7 + c) % 26));
+                }
+                sb.append('\n');
+                written += 65;
+                line++;
+            }
+            sb.append("-----END CERTIFICATE-----\n</").append(block).append(">\n");
+        }
+        return sb.toString();
+    }
+}
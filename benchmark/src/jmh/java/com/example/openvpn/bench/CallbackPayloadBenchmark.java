@@ -0,0 +1,107 @@
+package com.example.openvpn.bench;
+
+import com.example.openvpn.BridgePayload;
+import com.example.openvpn.EventStream;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// 状态/统计回调载荷的构造与序列化开销
+// statusPayload/statsPayload 为原做法（双括号初始化的匿名 JSONObject 子类，每个事件一个），
+// statsEvent 为现在的做法：从 EventStream 取复用的事件写入固定字段表再发布，投递时才生成 JSON
+// 两种编码与原格式的字段一致、发布复用的事件不分配，见 BridgePayloadTest；用 -prof gc 可以比较各路径的分配量
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CallbackPayloadBenchmark {
+    private String currentStatus = "CONNECTED";
+    private long bytesSent = 123_456_789L;
+    private long bytesReceived = 987_654_321L;
+    private long timeConnected = 3600;
+
+    private EventStream stream;
+    private EventStream.Subscription objectSubscription;
+    private EventStream.Subscription packedSubscription;
+    private final EventStream.Event[] held = new EventStream.Event[1];
+    private long now;
+
+    @Setup
+    public void setUp() throws Exception {
+        stream = new EventStream();
+        stream.subscribe("stats", null, 0, EventStream.POLICY_LATEST, 0, (s, events, count, dropped) -> {
+        });
+        EventStream formats = new EventStream();
+        objectSubscription = formats.subscribe("stats", null, 0, null, EventStream.ENCODING_OBJECT, 0,
+                (s, events, count, dropped) -> {
+                });
+        packedSubscription = formats.subscribe("stats", null, 0, null, EventStream.ENCODING_PACKED, 0,
+                (s, events, count, dropped) -> {
+                });
+        // 不发布，一直持有，用来单独测量投递时的序列化
+        held[0] = formats.obtain(EventStream.TYPE_STATS);
+        fill(held[0].payload);
+    }
+
+    @Benchmark
+    public JSONObject statusPayload() {
+        return new JSONObject() {{
+            put("status", currentStatus);
+        }};
+    }
+
+    @Benchmark
+    public JSONObject statsPayload() {
+        return new JSONObject() {{
+            put("status", currentStatus);
+            put("networkStats", new JSONObject() {{
+                put("bytesSent", bytesSent);
+                put("bytesReceived", bytesReceived);
+                put("timeConnected", timeConnected);
+            }});
+        }};
+    }
+
+    // 桥接层最终会把载荷序列化为字符串
+    @Benchmark
+    public String statsPayloadSerialized() {
+        return statsPayload().toString();
+    }
+
+    // 现在的统计推送：每 64 个事件模拟一帧投递
+    @Benchmark
+    public boolean statsEvent() {
+        EventStream.Event event = stream.obtain(EventStream.TYPE_STATS);
+        fill(event.payload);
+        boolean schedule = stream.publish(event, now);
+        if ((++now & 63) == 0) {
+            stream.flush(now);
+        }
+        return schedule;
+    }
+
+    // 投递给 JS 的一批（一个统计事件）序列化为字符串
+    @Benchmark
+    public String statsBatchSerialized() throws Exception {
+        return EventStream.toBatch(objectSubscription, held, 1, 0).toString();
+    }
+
+    @Benchmark
+    public String statsBatchPackedSerialized() throws Exception {
+        return EventStream.toBatch(packedSubscription, held, 1, 0).toString();
+    }
+
+    private void fill(BridgePayload payload) {
+        payload.set(BridgePayload.STATUS, currentStatus)
+                .set(BridgePayload.BYTES_SENT, bytesSent)
+                .set(BridgePayload.BYTES_RECEIVED, bytesReceived)
+                .set(BridgePayload.TIME_CONNECTED, timeConnected);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.openvpn.bench;
+
+import com.example.openvpn.CommandPipeline;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// 连接命令管道：测量的是提交并执行一个空命令的开销，legacy/serial 为原来直接执行的做法
+// 命令交错和随机重连下隧道状态与最后一个用户命令一致、断开能取消进行中的连接，见 CommandPipelineTest
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CommandPipelineBenchmark {
+    @Param({"legacy", "serial", "pipeline"})
+    public String mode;
+
+    private CommandPipeline direct;
+    private Runnable noop;
+    private CommandPipeline.Command noopCommand;
+    private long generation;
+
+    @Setup
+    public void setUp() {
+        direct = new CommandPipeline(Runnable::run);
+        noop = () -> {
+        };
+        noopCommand = token -> token.checkpoint();
+    }
+
+    @Benchmark
+    public long dispatch() {
+        if (mode.equals("pipeline")) {
+            return direct.submit("noop", noopCommand);
+        }
+        noop.run();
+        return ++generation;
+    }
+}
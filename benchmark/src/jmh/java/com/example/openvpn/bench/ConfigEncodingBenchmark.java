@@ -0,0 +1,44 @@
+package com.example.openvpn.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+// connect 在交给 Profile.parseVpnProfile 之前的开销：配置编码和计算缓存句柄（SHA-256）
+// Profile 本身来自 OpenVPN core 库，无法在纯 JVM 上加载，因此不在此测量
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConfigEncodingBenchmark {
+    @Param({"8", "100"})
+    public int sizeKb;
+
+    private String config;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        config = BenchFixtures.largeConfig(sizeKb);
+    }
+
+    @Benchmark
+    public byte[] encodeUtf8() {
+        return config.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] encodeAndHash() throws NoSuchAlgorithmException {
+        byte[] bytes = config.getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.getInstance("SHA-256").digest(bytes);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.openvpn.bench;
+
+import com.example.openvpn.DnsCache;
+import com.example.openvpn.DnsStubServer;
+import com.example.openvpn.LoopbackIo;
+import com.example.openvpn.PacketEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.TimeUnit;
+
+// DNS 缓存：查询经过数据包引擎，“核心”一端接一个本地的 DNS 替身服务器
+// 测量命中与未命中时的往返耗时；命中、合并查询和过期后返回旧应答的行为见 DnsCacheTest
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DnsCacheBenchmark {
+    private PacketEngine engine;
+    private DnsCache cache;
+    private DnsStubServer server;
+    private DatagramChannel app;
+    private final ByteBuffer received = ByteBuffer.allocate(2048);
+    private int nextId;
+    private long nextName;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        DatagramChannel tunSide = LoopbackIo.open();
+        DatagramChannel coreSide = LoopbackIo.open();
+        app = LoopbackIo.open();
+        DatagramChannel serverSide = LoopbackIo.open();
+        LoopbackIo.connect(tunSide, app);
+        LoopbackIo.connect(coreSide, serverSide);
+
+        engine = new PacketEngine();
+        cache = new DnsCache(engine);
+        engine.addHandler(cache);
+        engine.start(new LoopbackIo(tunSide, coreSide));
+        server = new DnsStubServer(serverSide);
+        server.start();
+        // 先让 hit 的域名进入缓存
+        query("cached.example.com", nextId++);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        engine.stop();
+        server.close();
+        app.close();
+    }
+
+    @Benchmark
+    public int hit() throws IOException {
+        return query("cached.example.com", nextId++);
+    }
+
+    @Benchmark
+    public int miss() throws IOException {
+        return query("host" + (nextName++) + ".example.com", nextId++);
+    }
+
+    // 发出查询并等待应答，返回应答中的 DNS ID
+    private int query(String name, int id) throws IOException {
+        app.write(DnsStubServer.query(name, id & 0xffff));
+        return receive();
+    }
+
+    private int receive() throws IOException {
+        received.clear();
+        app.read(received);
+        return received.getShort(28) & 0xffff;
+    }
+}
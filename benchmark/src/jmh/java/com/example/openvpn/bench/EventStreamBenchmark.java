@@ -0,0 +1,57 @@
+package com.example.openvpn.bench;
+
+import com.example.openvpn.BridgePayload;
+import com.example.openvpn.EventStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// 事件订阅分发：测量 publish 的开销
+// 多线程发布时队列长度有上限、投递批次不超过帧数和频率限制、丢弃计数准确，见 EventStreamTest
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EventStreamBenchmark {
+    @Param({"1", "4"})
+    public int subscribers;
+
+    private EventStream stream;
+    private long now;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        stream = new EventStream();
+        for (int i = 0; i < subscribers; i++) {
+            stream.subscribe(null, null, 0, i % 2 == 0 ? EventStream.POLICY_LATEST : EventStream.POLICY_DROP_OLDEST, 0,
+                    (subscription, events, count, dropped) -> {
+                    });
+        }
+    }
+
+    // 每 64 次发布模拟一帧
+    @Benchmark
+    public boolean publish() {
+        boolean schedule = stream.publish(stats(stream, "CONNECTED", now), now);
+        if ((++now & 63) == 0) {
+            stream.flush(now);
+        }
+        return schedule;
+    }
+
+    private static EventStream.Event stats(EventStream stream, String status, long bytesSent) {
+        EventStream.Event event = stream.obtain(EventStream.TYPE_STATS);
+        event.payload.set(BridgePayload.STATUS, status)
+                .set(BridgePayload.BYTES_SENT, bytesSent)
+                .set(BridgePayload.BYTES_RECEIVED, 2);
+        return event;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.openvpn.bench;
+
+import com.example.openvpn.MtuDiscovery;
+import com.example.openvpn.MtuStandIn;
+import com.example.openvpn.models.Profile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// 路径 MTU 探测：Setup 中对本机的 UDP 回显替身探测一次，测量的是命中缓存时连接前这一步的开销
+// 各路径 MTU 下的探测结果、缓存和不探测的情况见 MtuDiscoveryTest
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MtuDiscoveryBenchmark {
+    private MtuStandIn server;
+    private MtuDiscovery discovery;
+    private Profile original;
+    private Profile profile;
+    private long now;
+
+    @Setup
+    public void setUp() throws Exception {
+        server = new MtuStandIn();
+        server.pathMtu = 1400;
+        discovery = new MtuDiscovery(50, 2, 3000);
+        discovery.setTarget("127.0.0.1", server.port());
+        original = udpProfile();
+        profile = udpProfile();
+        discovery.applyTo(profile, original, "wifi:\"bench\"", now, true);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public int cachedApply() {
+        return discovery.applyTo(profile, original, "wifi:\"bench\"", ++now, true);
+    }
+
+    private static Profile udpProfile() {
+        return Profile.parseVpnProfile("remote vpn.example.com 1194 udp\n".getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.openvpn.bench;
+
+import com.example.openvpn.HandoverSimulation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// 网络切换的脚本化模拟（HandoverSimulation）：测量的是回放一次脚本的开销
+// legacy 按原来的做法处理，handover 使用 NetworkHandover；各场景的中断时长见 NetworkHandoverTest
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NetworkHandoverBenchmark {
+    @Param({"wifiJoin", "wifiLeave", "wifiDegrade", "flapping"})
+    public String scenario;
+
+    @Param({"legacy", "handover"})
+    public String mode;
+
+    @Benchmark
+    public long replay() {
+        return new HandoverSimulation(mode.equals("handover")).run(scenario);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.openvpn.bench;
+
+import android.content.Context;
+
+import com.example.openvpn.ConfigParseException;
+import com.example.openvpn.OvpnConfigReader;
+import com.example.openvpn.ProfileCache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+// 流式配置读取器的开销。读取器不在正常的连接路径上：ProfileCache 只在 core 解析失败后才调用 validate 定位出错行，
+// 因此这里衡量的是解析失败时额外付出的代价，不代表连接耗时的节省
+// register 为正常注册的基准（UTF-8 编码、计算句柄、core 解析、整理路由）；readLineSplit 按 core ConfigParser 的做法
+// 用 BufferedReader 读行、按空白切分、内联块逐行拼接，是 core 读取阶段的近似（core 无法在纯 JVM 上加载）
+// 用 -prof gc 可以看到各路径的分配量；读取器的行为见 OvpnConfigReaderTest
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OvpnConfigReaderBenchmark {
+    @Param({"8", "100"})
+    public int sizeKb;
+
+    private final Context context = new Context();
+    private String config;
+    private ProfileCache cache;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        config = BenchFixtures.largeConfig(sizeKb);
+    }
+
+    @Setup(Level.Invocation)
+    public void newCache() {
+        cache = new ProfileCache(context);
+    }
+
+    @Benchmark
+    public ProfileCache.Entry register() throws ConfigParseException {
+        return cache.register(config);
+    }
+
+    @Benchmark
+    public int readLineSplit() throws IOException {
+        BufferedReader reader = new BufferedReader(new StringReader(config));
+        int tokens = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#") || line.startsWith(";")) {
+                continue;
+            }
+            if (line.startsWith("<") && line.endsWith(">")) {
+                String end = "</" + line.substring(1);
+                StringBuilder content = new StringBuilder();
+                String inner;
+                while ((inner = reader.readLine()) != null && !inner.trim().equals(end)) {
+                    content.append(inner).append('\n');
+                }
+                tokens += content.toString().length() > 0 ? 1 : 0;
+                continue;
+            }
+            tokens += line.split("\\s+").length;
+        }
+        return tokens;
+    }
+
+    // 只切分指令，内联块只记录位置
+    @Benchmark
+    public int tokenize() throws ConfigParseException {
+        OvpnConfigReader reader = new OvpnConfigReader(config);
+        int tokens = 0;
+        while (reader.next()) {
+            tokens += reader.isInline() ? 1 : reader.argCount() + 1;
+        }
+        return tokens;
+    }
+
+    // ProfileCache 在 core 解析失败后用来定位出错行的结构检查（不在正常注册的路径上）
+    @Benchmark
+    public void validate() throws ConfigParseException {
+        OvpnConfigReader.validate(config);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.openvpn.bench;
+
+import com.example.openvpn.LoopbackIo;
+import com.example.openvpn.PacketEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.TimeUnit;
+
+// 数据包引擎的转发吞吐量，tun 和核心两端由 LoopbackIo 代替
+// 每次调用向“tun”写入一批包，再从“核心”一端全部收回，结果为每秒转发的包数
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PacketEngineBenchmark {
+    private static final int BATCH = 16;
+
+    @Param({"64", "1400"})
+    public int packetSize;
+
+    // 处理链长度
+    @Param({"0", "4"})
+    public int handlers;
+
+    private PacketEngine engine;
+    private DatagramChannel tunPeer;
+    private DatagramChannel corePeer;
+    private ByteBuffer packet;
+    private ByteBuffer received;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        DatagramChannel tunSide = LoopbackIo.open();
+        DatagramChannel coreSide = LoopbackIo.open();
+        tunPeer = LoopbackIo.open();
+        corePeer = LoopbackIo.open();
+        LoopbackIo.connect(tunSide, tunPeer);
+        LoopbackIo.connect(coreSide, corePeer);
+
+        engine = new PacketEngine();
+        for (int i = 0; i < handlers; i++) {
+            // 与真实处理器类似，只看 IP 头的几个字节
+            engine.addHandler((direction, p) -> (p.get(0) >> 4) == 4 && p.get(9) == 1
+                    ? PacketEngine.DROP : PacketEngine.PASS);
+        }
+        engine.start(new LoopbackIo(tunSide, coreSide));
+
+        packet = ByteBuffer.allocateDirect(packetSize);
+        packet.put(0, (byte) 0x45);
+        packet.put(9, (byte) 17);
+        received = ByteBuffer.allocateDirect(2048);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        engine.stop();
+        tunPeer.close();
+        corePeer.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int forwardOutbound() throws IOException {
+        for (int i = 0; i < BATCH; i++) {
+            packet.clear();
+            tunPeer.write(packet);
+        }
+        int total = 0;
+        for (int i = 0; i < BATCH; i++) {
+            received.clear();
+            total += corePeer.read(received);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.openvpn.bench;
+
+import com.example.openvpn.PluginSimulation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// 插件整体的确定性模拟：测量的是回放一个序列（约 40 个事件、数分钟虚拟时间）的耗时
+// 回放结果的确定性和各项不变量（不重复上报状态、不泄漏唤醒锁和前台、不新建线程、中断能恢复）见 PluginSimulationTest
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PluginSimulationBenchmark {
+    private static final int EVENTS = 40;
+
+    private File dir;
+    private long seed = 1_000_000;
+
+    @Setup
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("plugin-sim").toFile();
+    }
+
+    @Benchmark
+    public long replay() {
+        return PluginSimulation.replay(seed++, 1, EVENTS, dir).callbacks;
+    }
+
+    @TearDown
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.openvpn.bench;
+
+import android.content.Context;
+
+import com.example.openvpn.ConfigParseException;
+import com.example.openvpn.ProfileCache;
+import com.example.openvpn.models.Profile;
+import com.example.openvpn.models.ProfileManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// connect/重连取得 Profile 的开销：
+// reparse 为引入缓存前的做法（按默认字符集编码、core 解析、addProfile + saveProfile，每次连接和每次重连都走一遍）；
+// miss 为首次连接（编码、计算句柄、解析、整理路由、首次保存）；hit 为再次传入同一份原始配置（编码和哈希后命中）；
+// handle 为传入 registerConfig 返回的句柄（不编码也不哈希）
+// 替身的 parseVpnProfile 只扫描 remote 和路由行，saveProfile 不写盘，因此 reparse 和 miss 的实际开销比这里更大
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProfileCacheBenchmark {
+    @Param({"8", "100"})
+    public int sizeKb;
+
+    private final Context context = new Context();
+    private String config;
+    private ProfileCache cache;
+    private String handle;
+    private ProfileCache fresh;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ConfigParseException {
+        config = BenchFixtures.largeConfig(sizeKb);
+        cache = new ProfileCache(context);
+        handle = cache.register(config).handle;
+        cache.checkout(cache.resolve(handle), "user", "secret");
+    }
+
+    @Setup(Level.Invocation)
+    public void newCache() {
+        fresh = new ProfileCache(context);
+    }
+
+    @Benchmark
+    public Profile reparse() {
+        Profile profile = Profile.parseVpnProfile(config.getBytes());
+        profile.mUsername = "user";
+        profile.mPassword = "secret";
+        ProfileManager profileManager = ProfileManager.getInstance(context);
+        profileManager.addProfile(profile);
+        profileManager.saveProfile(context, profile);
+        return profile;
+    }
+
+    @Benchmark
+    public Profile miss() throws ConfigParseException {
+        return fresh.checkout(fresh.resolve(config), "user", "secret");
+    }
+
+    @Benchmark
+    public Profile hit() throws ConfigParseException {
+        return cache.checkout(cache.resolve(config), "user", "secret");
+    }
+
+    @Benchmark
+    public Profile handle() throws ConfigParseException {
+        return cache.checkout(cache.resolve(handle), "user", "secret");
+    }
+}
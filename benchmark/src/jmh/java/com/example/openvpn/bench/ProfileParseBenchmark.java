@@ -0,0 +1,57 @@
+package com.example.openvpn.bench;
+
+import android.content.Context;
+
+import com.example.openvpn.ConfigParseException;
+import com.example.openvpn.ProfileCache;
+import com.example.openvpn.models.Profile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// 带内联证书的大配置解析成 Profile：parse 只调用 Profile.parseVpnProfile，register 为插件实际走的
+// ProfileCache 未命中路径（编码、计算句柄、解析、建立路由前缀树）
+// parseVpnProfile 由替身提供，只按行扫描 remote 和路由；core 读取阶段的近似开销见 OvpnConfigReaderBenchmark.readLineSplit
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProfileParseBenchmark {
+    @Param({"8", "100"})
+    public int sizeKb;
+
+    private final Context context = new Context();
+    private String config;
+    private byte[] bytes;
+    private ProfileCache cache;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        config = BenchFixtures.largeConfig(sizeKb);
+        bytes = config.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Setup(Level.Invocation)
+    public void newCache() {
+        cache = new ProfileCache(context);
+    }
+
+    @Benchmark
+    public Profile parse() {
+        return Profile.parseVpnProfile(bytes);
+    }
+
+    @Benchmark
+    public ProfileCache.Entry register() throws ConfigParseException {
+        return cache.register(config);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.openvpn.bench;
+
+import com.example.openvpn.QualityMonitor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// 隧道质量探测：测量的是一次探测的记账开销（发送、收到回显、评估）
+// 各场景测得的时延/丢包、是否触发降级以及空闲时的探测频率见 QualityMonitorTest
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class QualityMonitorBenchmark {
+    private QualityMonitor monitor;
+    private long now;
+
+    @Setup
+    public void setUp() {
+        monitor = new QualityMonitor();
+        monitor.setThresholds(1500, 300, 30);
+    }
+
+    @Benchmark
+    public String probe() {
+        long seq = monitor.onProbeSent(now);
+        now += 7;
+        monitor.onProbeReply(seq, now);
+        now += 2000;
+        return monitor.evaluate(now);
+    }
+}
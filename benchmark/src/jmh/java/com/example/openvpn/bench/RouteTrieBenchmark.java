@@ -0,0 +1,79 @@
+package com.example.openvpn.bench;
+
+import com.example.openvpn.RouteOracle;
+import com.example.openvpn.RouteTrie;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// 路由前缀树：构建、最长前缀匹配查询、计算最少路由集
+// 前缀集由 RouteOracle 随机生成，结果的正确性由 RouteTrieTest 对照暴力实现核对
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RouteTrieBenchmark {
+    private static final int LOOKUPS = 1024;
+
+    @Param({"10000", "50000"})
+    public int prefixes;
+
+    private RouteOracle oracle4;
+    private RouteTrie trie4;
+    private RouteTrie trie6;
+    private int[] lookups4;
+    private byte[][] lookups6;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        oracle4 = RouteOracle.random(RouteTrie.IPV4_BITS, prefixes, random);
+        trie4 = oracle4.build();
+        RouteOracle oracle6 = RouteOracle.random(RouteTrie.IPV6_BITS, prefixes, random);
+        trie6 = oracle6.build();
+
+        lookups4 = new int[LOOKUPS];
+        lookups6 = new byte[LOOKUPS][];
+        for (int i = 0; i < LOOKUPS; i++) {
+            byte[] address = oracle4.sample(random);
+            lookups4[i] = (address[0] & 0xff) << 24 | (address[1] & 0xff) << 16 | (address[2] & 0xff) << 8
+                    | (address[3] & 0xff);
+            lookups6[i] = oracle6.sample(random);
+        }
+    }
+
+    @Benchmark
+    public boolean lookupV4() {
+        next = (next + 1) & (LOOKUPS - 1);
+        return trie4.isTunneledV4(lookups4[next]);
+    }
+
+    @Benchmark
+    public boolean lookupV6() {
+        next = (next + 1) & (LOOKUPS - 1);
+        return trie6.isTunneled(lookups6[next]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public RouteTrie build() {
+        return oracle4.build();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<String> minimalRoutes() {
+        return trie4.minimalRoutes();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.openvpn.bench;
+
+import com.example.openvpn.PluginSimulation;
+
+import io.dcloud.feature.uniapp.bridge.UniJSCallback;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// 冷/热启动：每次调用在模拟环境中新建一个已 init 的插件，warm 时先调用 warmUp 预热（注册网络监听、创建服务、
+// 打开使用记录、预解析配置），测量 connect() 到插件进入 CONNECTING 的实际耗时；配置带约 64KB 的内联证书
+// getPerfMetrics 按冷/热启动分别报告的次数见 StandbyTest
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StandbyBenchmark {
+    // 只保留一个 remote，避免连接时探测外部地址
+    static final String CONFIG = BenchFixtures.largeConfig(64).replaceAll("remote vpn[1-9].*\n", "");
+    private static final UniJSCallback IGNORE = result -> { };
+
+    @Param({"cold", "warm"})
+    public String mode;
+
+    private File dir;
+    private long seed;
+    private PluginSimulation simulation;
+
+    @Setup
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("plugin-standby").toFile();
+    }
+
+    @Setup(Level.Invocation)
+    public void prepare() {
+        simulation = PluginSimulation.open(seed++, dir);
+        if ("warm".equals(mode)) {
+            simulation.getPlugin().warmUp(CONFIG, IGNORE);
+            simulation.advance(1);
+        }
+    }
+
+    @Benchmark
+    public long connect() {
+        simulation.getPlugin().connect("user", "secret", CONFIG, IGNORE);
+        // 只执行当前时刻的任务：连接命令运行到插件进入 CONNECTING，core 的握手还未开始
+        simulation.advance(0);
+        return simulation.now();
+    }
+
+    @TearDown(Level.Invocation)
+    public void finish() {
+        simulation.close();
+    }
+
+    @TearDown
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.openvpn.bench;
+
+import com.example.openvpn.ThroughputSeries;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// 吞吐量序列：写入一个样本的开销，以及按窗口计算速率/百分位的开销
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ThroughputSeriesBenchmark {
+    @Param({"60", "600"})
+    public int windowSec;
+
+    private ThroughputSeries series;
+    private final ThroughputSeries.Throughput result = new ThroughputSeries.Throughput();
+    private long time;
+    private long rx;
+    private long tx;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        series = new ThroughputSeries(720);
+        for (int i = 0; i < 720; i++) {
+            record();
+        }
+    }
+
+    private void record() {
+        time += 1000;
+        rx += 100_000 + (time * 31 % 50_000);
+        tx += 20_000 + (time * 17 % 10_000);
+        series.record(time, rx, tx);
+    }
+
+    @Benchmark
+    public long recordSample() {
+        record();
+        return time;
+    }
+
+    @Benchmark
+    public long queryWindow() {
+        series.query(windowSec * 1000L, result);
+        return result.rxP95Rate;
+    }
+}
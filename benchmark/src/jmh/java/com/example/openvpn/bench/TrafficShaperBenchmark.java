@@ -0,0 +1,93 @@
+package com.example.openvpn.bench;
+
+import com.example.openvpn.LoopbackIo;
+import com.example.openvpn.PacketEngine;
+import com.example.openvpn.TrafficShaper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.TimeUnit;
+
+// 限速和流量配额；令牌桶的放行量、配额阈值的回调顺序、用尽后断开/降速、按采样记账和逐包不分配见 TrafficShaperTest
+// 测量的是 1400 字节的包经过数据包引擎（LoopbackIo 两端）的转发吞吐量：不加处理器、只记配额、限速加配额（速率足够高，不丢包）
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TrafficShaperBenchmark {
+    private static final int BATCH = 16;
+    private static final int PACKET_SIZE = 1400;
+    private static final long MB = 1024 * 1024;
+
+    @Param({"none", "quota", "shaped"})
+    public String mode;
+
+    private PacketEngine engine;
+    private DatagramChannel tunPeer;
+    private DatagramChannel corePeer;
+    private ByteBuffer packet;
+    private ByteBuffer received;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        DatagramChannel tunSide = LoopbackIo.open();
+        DatagramChannel coreSide = LoopbackIo.open();
+        tunPeer = LoopbackIo.open();
+        corePeer = LoopbackIo.open();
+        LoopbackIo.connect(tunSide, tunPeer);
+        LoopbackIo.connect(coreSide, corePeer);
+
+        engine = new PacketEngine();
+        if (!"none".equals(mode)) {
+            TrafficShaper shaper = new TrafficShaper((percent, used, quota) -> {
+            });
+            shaper.setCountingPackets(true);
+            shaper.setQuota(Long.MAX_VALUE / 2, TrafficShaper.PERIOD_SESSION, TrafficShaper.ACTION_STOP, 0,
+                    new int[]{50, 80, 90});
+            if ("shaped".equals(mode)) {
+                // 远高于回环转发的速率，只测开销
+                shaper.setRateLimit(100_000 * MB, 64 * MB);
+            }
+            engine.addHandler(shaper);
+        }
+        engine.start(new LoopbackIo(tunSide, coreSide));
+
+        packet = ByteBuffer.allocateDirect(PACKET_SIZE);
+        packet.put(0, (byte) 0x45);
+        received = ByteBuffer.allocateDirect(2048);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        engine.stop();
+        tunPeer.close();
+        corePeer.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int forwardOutbound() throws IOException {
+        for (int i = 0; i < BATCH; i++) {
+            packet.clear();
+            tunPeer.write(packet);
+        }
+        int total = 0;
+        for (int i = 0; i < BATCH; i++) {
+            received.clear();
+            total += corePeer.read(received);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.openvpn.bench;
+
+import com.example.openvpn.TunTrafficReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// 每次流量采样的开销：纯解析，以及含文件读取的完整一次采样
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TunTrafficReaderBenchmark {
+    private byte[] fixture;
+    private File file;
+    private TunTrafficReader parser;
+    private TunTrafficReader fileReader;
+    private long counter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = BenchFixtures.procNetDev(12, 0);
+        parser = new TunTrafficReader("/dev/null", "tun");
+        parser.reset();
+        parser.parse(fixture, fixture.length);
+
+        file = File.createTempFile("net_dev", null);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(fixture);
+        }
+        fileReader = new TunTrafficReader(file.getPath(), "tun");
+        fileReader.reset();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fileReader.close();
+        file.delete();
+    }
+
+    @Benchmark
+    public long parse() {
+        parser.parse(fixture, fixture.length);
+        return parser.getTotalRxBytes() + counter++;
+    }
+
+    @Benchmark
+    public boolean sampleFile() {
+        return fileReader.sample();
+    }
+}
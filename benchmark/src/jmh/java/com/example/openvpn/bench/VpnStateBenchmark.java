@@ -0,0 +1,70 @@
+package com.example.openvpn.bench;
+
+import com.example.openvpn.OpenVPNPlugin;
+import com.example.openvpn.PluginSimulation;
+
+import io.dcloud.feature.uniapp.bridge.UniJSCallback;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// core 上报状态后插件的处理（setVpnState）：模拟环境中已连接的插件，
+// transition 为一次 RECONNECTING -> CONNECTED（前台通知、唤醒锁、开始统计、状态回调），
+// duplicate 为同一状态的重复上报（只比较错误信息）；两者都执行到当前时刻已投递的任务为止
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VpnStateBenchmark {
+    private static final UniJSCallback IGNORE = result -> { };
+
+    private File dir;
+    private PluginSimulation simulation;
+    private OpenVPNPlugin plugin;
+
+    @Setup
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("plugin-state").toFile();
+        simulation = PluginSimulation.open(1, dir);
+        plugin = simulation.getPlugin();
+        plugin.connect("user", "secret", PluginSimulation.CONFIG, IGNORE);
+        simulation.advance(5_000);
+    }
+
+    @Benchmark
+    public long transition() {
+        plugin.updateState("RECONNECTING", "", 0, null);
+        plugin.updateState("CONNECTED", "", 0, null);
+        simulation.advance(0);
+        return simulation.now();
+    }
+
+    @Benchmark
+    public long duplicate() {
+        plugin.updateState("CONNECTED", "", 0, null);
+        plugin.updateState("CONNECTED", "", 0, null);
+        simulation.advance(0);
+        return simulation.now();
+    }
+
+    @TearDown
+    public void tearDown() {
+        simulation.close();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+}
@@ -0,0 +1,8 @@
+package android.app;
+
+// JVM 上的 android.app.Notification 替身
+public class Notification {
+    public CharSequence title;
+    public CharSequence text;
+    public CharSequence subText;
+}
@@ -0,0 +1,19 @@
+package android.app;
+
+// JVM 上的 android.app.NotificationChannel 替身
+public class NotificationChannel {
+    private final String id;
+    private String description;
+
+    public NotificationChannel(String id, CharSequence name, int importance) {
+        this.id = id;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getId() {
+        return id;
+    }
+}
@@ -0,0 +1,34 @@
+package android.app;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// JVM 上的 android.app.NotificationManager 替身，只统计发布次数并保留最近一次发布的通知
+public class NotificationManager {
+    public static final int IMPORTANCE_DEFAULT = 3;
+
+    private final AtomicLong notifies = new AtomicLong();
+    private final AtomicLong channels = new AtomicLong();
+    private volatile Notification lastNotification;
+
+    public void notify(int id, Notification notification) {
+        lastNotification = notification;
+        notifies.incrementAndGet();
+    }
+
+    public void createNotificationChannel(NotificationChannel channel) {
+        channels.incrementAndGet();
+    }
+
+    // 替身专用
+    public long getNotifyCount() {
+        return notifies.get();
+    }
+
+    public long getChannelCount() {
+        return channels.get();
+    }
+
+    public Notification getLastNotification() {
+        return lastNotification;
+    }
+}
@@ -0,0 +1,42 @@
+package android.app;
+
+import android.content.Context;
+import android.content.Intent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// JVM 上的 android.app.Service 替身，统计进入/退出前台的次数
+public class Service extends Context {
+    public static final int START_STICKY = 1;
+
+    private final AtomicLong foregroundStarts = new AtomicLong();
+    private final AtomicLong foregroundStops = new AtomicLong();
+    private volatile boolean foreground;
+
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        return START_STICKY;
+    }
+
+    public final void startForeground(int id, Notification notification) {
+        foregroundStarts.incrementAndGet();
+        foreground = true;
+    }
+
+    public final void stopForeground(boolean removeNotification) {
+        foregroundStops.incrementAndGet();
+        foreground = false;
+    }
+
+    // 替身专用
+    public long getForegroundStarts() {
+        return foregroundStarts.get();
+    }
+
+    public long getForegroundStops() {
+        return foregroundStops.get();
+    }
+
+    public boolean isForeground() {
+        return foreground;
+    }
+}
@@ -0,0 +1,6 @@
+package android.content;
+
+// JVM 上的 android.content.BroadcastReceiver 替身
+public abstract class BroadcastReceiver {
+    public abstract void onReceive(Context context, Intent intent);
+}
@@ -0,0 +1,65 @@
+package android.content;
+
+import android.content.pm.PackageManager;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+// JVM 上的 android.content.Context 替身：系统服务由模拟环境注册，广播接收器只记录不分发
+public class Context {
+    public static final String CONNECTIVITY_SERVICE = "connectivity";
+    public static final String POWER_SERVICE = "power";
+    public static final String NOTIFICATION_SERVICE = "notification";
+    public static final String WIFI_SERVICE = "wifi";
+    public static final String TELEPHONY_SERVICE = "phone";
+
+    private final Map<String, Object> services = new HashMap<>();
+    private final Map<BroadcastReceiver, IntentFilter> receivers = new HashMap<>();
+    private File filesDir = new File(System.getProperty("java.io.tmpdir"));
+    private PackageManager packageManager = new PackageManager();
+
+    public Object getSystemService(String name) {
+        return services.get(name);
+    }
+
+    public File getFilesDir() {
+        return filesDir;
+    }
+
+    public PackageManager getPackageManager() {
+        return packageManager;
+    }
+
+    public Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter) {
+        receivers.put(receiver, filter);
+        return null;
+    }
+
+    public void unregisterReceiver(BroadcastReceiver receiver) {
+        if (receivers.remove(receiver) == null) {
+            throw new IllegalArgumentException("Receiver not registered: " + receiver);
+        }
+    }
+
+    // 替身专用：注册系统服务、设置文件目录、向已注册的接收器发送广播
+    public void putSystemService(String name, Object service) {
+        services.put(name, service);
+    }
+
+    public void setFilesDir(File filesDir) {
+        this.filesDir = filesDir;
+    }
+
+    public void sendBroadcast(Intent intent) {
+        for (Map.Entry<BroadcastReceiver, IntentFilter> entry : new HashMap<>(receivers).entrySet()) {
+            if (entry.getValue().hasAction(intent.getAction())) {
+                entry.getKey().onReceive(this, intent);
+            }
+        }
+    }
+
+    public int getReceiverCount() {
+        return receivers.size();
+    }
+}
@@ -0,0 +1,14 @@
+package android.content;
+
+// JVM 上的 android.content.Intent 替身，只保存 action
+public class Intent {
+    private final String action;
+
+    public Intent(String action) {
+        this.action = action;
+    }
+
+    public String getAction() {
+        return action;
+    }
+}
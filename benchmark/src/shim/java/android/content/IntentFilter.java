@@ -0,0 +1,21 @@
+package android.content;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// JVM 上的 android.content.IntentFilter 替身
+public class IntentFilter {
+    private final List<String> actions = new ArrayList<>();
+
+    public IntentFilter(String action) {
+        actions.add(action);
+    }
+
+    public final void addAction(String action) {
+        actions.add(action);
+    }
+
+    public final boolean hasAction(String action) {
+        return actions.contains(action);
+    }
+}
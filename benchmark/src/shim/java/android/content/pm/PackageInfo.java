@@ -0,0 +1,6 @@
+package android.content.pm;
+
+// JVM 上的 android.content.pm.PackageInfo 替身
+public class PackageInfo {
+    public String packageName;
+}
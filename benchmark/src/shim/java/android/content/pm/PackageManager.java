@@ -0,0 +1,29 @@
+package android.content.pm;
+
+import java.util.HashSet;
+import java.util.Set;
+
+// JVM 上的 android.content.pm.PackageManager 替身，已安装的包名由模拟环境添加
+public class PackageManager {
+    private final Set<String> installed = new HashSet<>();
+
+    public PackageInfo getPackageInfo(String packageName, int flags) throws NameNotFoundException {
+        if (!installed.contains(packageName)) {
+            throw new NameNotFoundException(packageName);
+        }
+        PackageInfo info = new PackageInfo();
+        info.packageName = packageName;
+        return info;
+    }
+
+    // 替身专用
+    public void addPackage(String packageName) {
+        installed.add(packageName);
+    }
+
+    public static class NameNotFoundException extends Exception {
+        public NameNotFoundException(String name) {
+            super(name);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package android.net;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// JVM 上的 android.net.ConnectivityManager 替身：网络的出现、能力变化和丢失由模拟环境驱动，
+// 回调在调用线程上同步执行（相当于系统的 ConnectivityThread）
+public class ConnectivityManager {
+    public static class NetworkCallback {
+        public void onAvailable(Network network) {
+        }
+
+        public void onCapabilitiesChanged(Network network, NetworkCapabilities networkCapabilities) {
+        }
+
+        public void onLinkPropertiesChanged(Network network, LinkProperties linkProperties) {
+        }
+
+        public void onLost(Network network) {
+        }
+    }
+
+    private final Map<NetworkCallback, NetworkRequest> callbacks = new LinkedHashMap<>();
+    private final Map<Network, NetworkCapabilities> capabilities = new LinkedHashMap<>();
+    private final Map<Network, LinkProperties> links = new LinkedHashMap<>();
+
+    // 与系统一样，注册后立即回调当前已有的网络
+    public void registerNetworkCallback(NetworkRequest request, NetworkCallback callback) {
+        callbacks.put(callback, request);
+        for (Map.Entry<Network, NetworkCapabilities> entry : new ArrayList<>(capabilities.entrySet())) {
+            Network network = entry.getKey();
+            callback.onAvailable(network);
+            callback.onCapabilitiesChanged(network, new NetworkCapabilities(entry.getValue()));
+            callback.onLinkPropertiesChanged(network, links.get(network));
+        }
+    }
+
+    public void unregisterNetworkCallback(NetworkCallback callback) {
+        if (callbacks.remove(callback) == null) {
+            throw new IllegalArgumentException("NetworkCallback was not registered");
+        }
+    }
+
+    public NetworkCapabilities getNetworkCapabilities(Network network) {
+        NetworkCapabilities caps = capabilities.get(network);
+        return caps != null ? new NetworkCapabilities(caps) : null;
+    }
+
+    public LinkProperties getLinkProperties(Network network) {
+        return links.get(network);
+    }
+
+    // 替身专用：网络连上（能力和链路信息随后单独回调，与 8.0 以后的系统一致）
+    public void addNetwork(Network network, NetworkCapabilities caps, LinkProperties link) {
+        capabilities.put(network, caps);
+        links.put(network, link);
+        for (NetworkCallback callback : snapshot()) {
+            callback.onAvailable(network);
+            callback.onCapabilitiesChanged(network, new NetworkCapabilities(caps));
+            callback.onLinkPropertiesChanged(network, link);
+        }
+    }
+
+    public void updateCapabilities(Network network, NetworkCapabilities caps) {
+        if (!capabilities.containsKey(network)) {
+            return;
+        }
+        capabilities.put(network, caps);
+        for (NetworkCallback callback : snapshot()) {
+            callback.onCapabilitiesChanged(network, new NetworkCapabilities(caps));
+        }
+    }
+
+    public void removeNetwork(Network network) {
+        if (capabilities.remove(network) == null) {
+            return;
+        }
+        links.remove(network);
+        for (NetworkCallback callback : snapshot()) {
+            callback.onLost(network);
+        }
+    }
+
+    public boolean hasNetwork(Network network) {
+        return capabilities.containsKey(network);
+    }
+
+    public int getCallbackCount() {
+        return callbacks.size();
+    }
+
+    private List<NetworkCallback> snapshot() {
+        return new ArrayList<>(callbacks.keySet());
+    }
+}
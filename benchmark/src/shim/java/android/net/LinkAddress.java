@@ -0,0 +1,15 @@
+package android.net;
+
+// JVM 上的 android.net.LinkAddress 替身
+public class LinkAddress {
+    private final String address;
+
+    public LinkAddress(String address) {
+        this.address = address;
+    }
+
+    @Override
+    public String toString() {
+        return address;
+    }
+}
@@ -0,0 +1,19 @@
+package android.net;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// JVM 上的 android.net.LinkProperties 替身
+public class LinkProperties {
+    private final List<LinkAddress> addresses = new ArrayList<>();
+
+    public List<LinkAddress> getLinkAddresses() {
+        return new ArrayList<>(addresses);
+    }
+
+    // 替身专用
+    public LinkProperties addLinkAddress(LinkAddress address) {
+        addresses.add(address);
+        return this;
+    }
+}
@@ -0,0 +1,25 @@
+package android.net;
+
+// JVM 上的 android.net.Network 替身，toString 与系统一样返回网络编号
+public class Network {
+    private final int netId;
+
+    public Network(int netId) {
+        this.netId = netId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Network && ((Network) o).netId == netId;
+    }
+
+    @Override
+    public int hashCode() {
+        return netId;
+    }
+
+    @Override
+    public String toString() {
+        return Integer.toString(netId);
+    }
+}
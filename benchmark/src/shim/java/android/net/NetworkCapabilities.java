@@ -0,0 +1,49 @@
+package android.net;
+
+// JVM 上的 android.net.NetworkCapabilities 替身，常量取值与系统一致
+public class NetworkCapabilities {
+    public static final int TRANSPORT_CELLULAR = 0;
+    public static final int TRANSPORT_WIFI = 1;
+    public static final int TRANSPORT_ETHERNET = 3;
+    public static final int TRANSPORT_VPN = 4;
+
+    public static final int NET_CAPABILITY_NOT_METERED = 11;
+    public static final int NET_CAPABILITY_INTERNET = 12;
+    public static final int NET_CAPABILITY_NOT_VPN = 15;
+    public static final int NET_CAPABILITY_VALIDATED = 16;
+
+    private long transports;
+    private long capabilities;
+
+    public NetworkCapabilities() {
+    }
+
+    public NetworkCapabilities(NetworkCapabilities other) {
+        transports = other.transports;
+        capabilities = other.capabilities;
+    }
+
+    public boolean hasTransport(int transport) {
+        return (transports & (1L << transport)) != 0;
+    }
+
+    public boolean hasCapability(int capability) {
+        return (capabilities & (1L << capability)) != 0;
+    }
+
+    // 替身专用
+    public NetworkCapabilities addTransportType(int transport) {
+        transports |= 1L << transport;
+        return this;
+    }
+
+    public NetworkCapabilities addCapability(int capability) {
+        capabilities |= 1L << capability;
+        return this;
+    }
+
+    public NetworkCapabilities removeCapability(int capability) {
+        capabilities &= ~(1L << capability);
+        return this;
+    }
+}
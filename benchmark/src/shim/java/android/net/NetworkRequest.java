@@ -0,0 +1,28 @@
+package android.net;
+
+// JVM 上的 android.net.NetworkRequest 替身，只记录请求的能力
+public class NetworkRequest {
+    final NetworkCapabilities capabilities;
+
+    NetworkRequest(NetworkCapabilities capabilities) {
+        this.capabilities = capabilities;
+    }
+
+    public static class Builder {
+        private final NetworkCapabilities capabilities = new NetworkCapabilities();
+
+        public Builder addCapability(int capability) {
+            capabilities.addCapability(capability);
+            return this;
+        }
+
+        public Builder addTransportType(int transport) {
+            capabilities.addTransportType(transport);
+            return this;
+        }
+
+        public NetworkRequest build() {
+            return new NetworkRequest(new NetworkCapabilities(capabilities));
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package android.net;
+
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+
+import java.net.DatagramSocket;
+import java.net.Socket;
+
+// JVM 上的 android.net.VpnService 替身，视为已授权
+public class VpnService extends Service {
+    public static Intent prepare(Context context) {
+        return null;
+    }
+
+    public boolean protect(Socket socket) {
+        return true;
+    }
+
+    public boolean protect(DatagramSocket socket) {
+        return true;
+    }
+}
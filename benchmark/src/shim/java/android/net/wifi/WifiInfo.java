@@ -0,0 +1,16 @@
+package android.net.wifi;
+
+// JVM 上的 android.net.wifi.WifiInfo 替身，只有 SSID
+public class WifiInfo {
+    static final String UNKNOWN_SSID = "<unknown ssid>";
+
+    private final String ssid;
+
+    WifiInfo(String ssid) {
+        this.ssid = ssid;
+    }
+
+    public String getSSID() {
+        return ssid;
+    }
+}
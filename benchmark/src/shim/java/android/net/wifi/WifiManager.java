@@ -0,0 +1,15 @@
+package android.net.wifi;
+
+// JVM 上的 android.net.wifi.WifiManager 替身，当前连接的 Wi-Fi 由模拟环境设置
+public class WifiManager {
+    private volatile WifiInfo connectionInfo = new WifiInfo(WifiInfo.UNKNOWN_SSID);
+
+    public WifiInfo getConnectionInfo() {
+        return connectionInfo;
+    }
+
+    // 替身专用
+    public void setSsid(String ssid) {
+        connectionInfo = new WifiInfo(ssid);
+    }
+}
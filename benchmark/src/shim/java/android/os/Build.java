@@ -0,0 +1,13 @@
+package android.os;
+
+// JVM 上的 android.os.Build 替身，按 Android 13 处理
+public class Build {
+    public static class VERSION {
+        public static final int SDK_INT = 33;
+    }
+
+    public static class VERSION_CODES {
+        public static final int M = 23;
+        public static final int O = 26;
+    }
+}
@@ -0,0 +1,50 @@
+package android.os;
+
+// JVM 上的 android.os.Handler 替身：任务按虚拟时间排进 Looper 的队列，只在 advanceTo/advanceBy 时执行
+// 用于按脚本确定性地回放事件序列；无参构造的 Handler 有自己的 Looper，互不影响
+public class Handler {
+    private final Looper looper;
+
+    public Handler() {
+        this(new Looper());
+    }
+
+    public Handler(Looper looper) {
+        this.looper = looper;
+    }
+
+    public final Looper getLooper() {
+        return looper;
+    }
+
+    public final boolean post(Runnable r) {
+        return postDelayed(r, 0);
+    }
+
+    public final boolean postDelayed(Runnable r, long delayMillis) {
+        looper.enqueue(r, delayMillis);
+        return true;
+    }
+
+    public final void removeCallbacks(Runnable r) {
+        looper.remove(r);
+    }
+
+    // 当前虚拟时间（毫秒）
+    public long now() {
+        return looper.now();
+    }
+
+    // 按时间顺序执行到期的任务（包括执行过程中新加入的），然后把时间推进到 time
+    public void advanceTo(long time) {
+        looper.advanceTo(time);
+    }
+
+    public void advanceBy(long millis) {
+        looper.advanceBy(millis);
+    }
+
+    public int pending() {
+        return looper.pending();
+    }
+}
@@ -0,0 +1,87 @@
+package android.os;
+
+import java.util.PriorityQueue;
+
+// JVM 上的 android.os.Looper 替身：一个按虚拟时间排序的任务队列，只在 advanceTo/advanceBy 时执行
+// 同一个 Looper 上的 Handler 共用队列和时钟；getMainLooper 返回的主 Looper 可用 prepareMainLooper 换成新的
+public final class Looper {
+    private static volatile Looper mainLooper = new Looper();
+
+    private final PriorityQueue<Task> queue = new PriorityQueue<>();
+    private long now;
+    private long sequence;
+    private long executed;
+
+    public static Looper getMainLooper() {
+        return mainLooper;
+    }
+
+    // 替身专用：为新的一次模拟换一个空的主 Looper，时间从 0 开始
+    public static Looper prepareMainLooper() {
+        mainLooper = new Looper();
+        return mainLooper;
+    }
+
+    synchronized void enqueue(Runnable r, long delayMillis) {
+        queue.add(new Task(now + Math.max(0, delayMillis), sequence++, r));
+    }
+
+    synchronized void remove(Runnable r) {
+        queue.removeIf(task -> task.runnable == r);
+    }
+
+    // 当前虚拟时间（毫秒）
+    public synchronized long now() {
+        return now;
+    }
+
+    // 按时间顺序执行到期的任务（包括执行过程中新加入的），然后把时间推进到 time
+    public void advanceTo(long time) {
+        while (true) {
+            Task task;
+            synchronized (this) {
+                if (queue.isEmpty() || queue.peek().when > time) {
+                    now = Math.max(now, time);
+                    return;
+                }
+                task = queue.poll();
+                now = task.when;
+                executed++;
+            }
+            task.runnable.run();
+        }
+    }
+
+    public void advanceBy(long millis) {
+        advanceTo(now() + millis);
+    }
+
+    public synchronized int pending() {
+        return queue.size();
+    }
+
+    // 已执行的任务数
+    public synchronized long executed() {
+        return executed;
+    }
+
+    private static final class Task implements Comparable<Task> {
+        final long when;
+        final long sequence;
+        final Runnable runnable;
+
+        Task(long when, long sequence, Runnable runnable) {
+            this.when = when;
+            this.sequence = sequence;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            if (when != other.when) {
+                return when < other.when ? -1 : 1;
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package android.os;
+
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.net.DatagramSocket;
+
+// JVM 上的 android.os.ParcelFileDescriptor 替身，模拟环境中没有真实的 tun
+public class ParcelFileDescriptor implements Closeable {
+    private final FileDescriptor fd = new FileDescriptor();
+
+    public FileDescriptor getFileDescriptor() {
+        return fd;
+    }
+
+    public static ParcelFileDescriptor[] createReliableSocketPair() throws IOException {
+        throw new IOException("socketpair is not available on the JVM");
+    }
+
+    public static ParcelFileDescriptor fromDatagramSocket(DatagramSocket socket) {
+        return new ParcelFileDescriptor();
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+}
@@ -0,0 +1,99 @@
+package android.os;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// JVM 上的 android.os.PowerManager 替身：唤醒锁按 SystemClock 统计持有时长（带超时的获取在超时后视为已释放），
+// 屏幕状态由模拟环境设置
+public class PowerManager {
+    public static final int PARTIAL_WAKE_LOCK = 1;
+
+    private final List<WakeLock> wakeLocks = new CopyOnWriteArrayList<>();
+    private volatile boolean interactive = true;
+
+    public WakeLock newWakeLock(int levelAndFlags, String tag) {
+        WakeLock wakeLock = new WakeLock(tag);
+        wakeLocks.add(wakeLock);
+        return wakeLock;
+    }
+
+    public boolean isInteractive() {
+        return interactive;
+    }
+
+    // 替身专用
+    public void setInteractive(boolean interactive) {
+        this.interactive = interactive;
+    }
+
+    public List<WakeLock> getWakeLocks() {
+        return wakeLocks;
+    }
+
+    public static final class WakeLock {
+        private final String tag;
+        private boolean referenceCounted = true;
+        private int count;
+        private long heldSince;
+        private long expiresAt = Long.MAX_VALUE;
+        private long heldTotalMs;
+        private long acquires;
+
+        WakeLock(String tag) {
+            this.tag = tag;
+        }
+
+        public synchronized void setReferenceCounted(boolean value) {
+            referenceCounted = value;
+        }
+
+        public synchronized void acquire(long timeout) {
+            long now = SystemClock.elapsedRealtime();
+            expire(now);
+            if (count == 0) {
+                heldSince = now;
+            }
+            count = referenceCounted ? count + 1 : 1;
+            expiresAt = now + timeout;
+            acquires++;
+        }
+
+        public synchronized void release() {
+            long now = SystemClock.elapsedRealtime();
+            expire(now);
+            if (count == 0) {
+                if (referenceCounted) {
+                    throw new RuntimeException("WakeLock under-locked " + tag);
+                }
+                return;
+            }
+            count--;
+            if (count == 0) {
+                heldTotalMs += now - heldSince;
+            }
+        }
+
+        public synchronized boolean isHeld() {
+            expire(SystemClock.elapsedRealtime());
+            return count > 0;
+        }
+
+        // 替身专用：累计持有时长和获取次数
+        public synchronized long getHeldTimeMs() {
+            long now = SystemClock.elapsedRealtime();
+            expire(now);
+            return count > 0 ? heldTotalMs + (now - heldSince) : heldTotalMs;
+        }
+
+        public synchronized long getAcquires() {
+            return acquires;
+        }
+
+        private void expire(long now) {
+            if (count > 0 && now >= expiresAt) {
+                heldTotalMs += expiresAt - heldSince;
+                count = 0;
+            }
+        }
+    }
+}
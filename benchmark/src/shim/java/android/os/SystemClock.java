@@ -0,0 +1,24 @@
+package android.os;
+
+// JVM 上的 android.os.SystemClock 替身，默认用单调时钟代替开机时长
+// 模拟时可以改为读取某个 Looper 的虚拟时间
+public final class SystemClock {
+    private static volatile Looper virtualClock;
+
+    private SystemClock() {
+    }
+
+    // 替身专用：传入 null 恢复真实时钟
+    public static void useVirtualClock(Looper looper) {
+        virtualClock = looper;
+    }
+
+    public static long elapsedRealtime() {
+        Looper clock = virtualClock;
+        return clock != null ? clock.now() : System.nanoTime() / 1_000_000L;
+    }
+
+    public static long uptimeMillis() {
+        return elapsedRealtime();
+    }
+}
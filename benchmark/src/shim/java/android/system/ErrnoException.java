@@ -0,0 +1,11 @@
+package android.system;
+
+// JVM 上的 android.system.ErrnoException 替身
+public final class ErrnoException extends Exception {
+    public final int errno;
+
+    public ErrnoException(String functionName, int errno) {
+        super(functionName + " failed: errno " + errno);
+        this.errno = errno;
+    }
+}
@@ -0,0 +1,36 @@
+package android.system;
+
+import java.io.FileDescriptor;
+import java.io.InterruptedIOException;
+
+// JVM 上的 android.system.Os 替身，模拟环境不使用原生描述符，调用均失败
+public final class Os {
+    private Os() {
+    }
+
+    public static FileDescriptor[] pipe() throws ErrnoException {
+        throw new ErrnoException("pipe", OsConstants.ENOSYS);
+    }
+
+    public static int read(FileDescriptor fd, byte[] bytes, int byteOffset, int byteCount)
+            throws ErrnoException, InterruptedIOException {
+        throw new ErrnoException("read", OsConstants.ENOSYS);
+    }
+
+    public static int write(FileDescriptor fd, byte[] bytes, int byteOffset, int byteCount)
+            throws ErrnoException, InterruptedIOException {
+        throw new ErrnoException("write", OsConstants.ENOSYS);
+    }
+
+    public static void close(FileDescriptor fd) throws ErrnoException {
+        throw new ErrnoException("close", OsConstants.ENOSYS);
+    }
+
+    public static void setsockoptInt(FileDescriptor fd, int level, int option, int value) throws ErrnoException {
+        throw new ErrnoException("setsockopt", OsConstants.ENOSYS);
+    }
+
+    public static int poll(StructPollfd[] fds, int timeoutMs) throws ErrnoException {
+        throw new ErrnoException("poll", OsConstants.ENOSYS);
+    }
+}
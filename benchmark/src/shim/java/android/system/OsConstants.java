@@ -0,0 +1,13 @@
+package android.system;
+
+// JVM 上的 android.system.OsConstants 替身，取值与 Linux 一致
+public final class OsConstants {
+    public static final int POLLIN = 0x1;
+    public static final int POLLERR = 0x8;
+    public static final int POLLHUP = 0x10;
+    public static final int EINTR = 4;
+    public static final int ENOSYS = 38;
+
+    private OsConstants() {
+    }
+}
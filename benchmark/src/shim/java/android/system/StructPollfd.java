@@ -0,0 +1,10 @@
+package android.system;
+
+import java.io.FileDescriptor;
+
+// JVM 上的 android.system.StructPollfd 替身
+public final class StructPollfd {
+    public FileDescriptor fd;
+    public short events;
+    public short revents;
+}
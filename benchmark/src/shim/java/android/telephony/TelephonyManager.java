@@ -0,0 +1,15 @@
+package android.telephony;
+
+// JVM 上的 android.telephony.TelephonyManager 替身，运营商代码由模拟环境设置
+public class TelephonyManager {
+    private volatile String networkOperator = "";
+
+    public String getNetworkOperator() {
+        return networkOperator;
+    }
+
+    // 替身专用
+    public void setNetworkOperator(String networkOperator) {
+        this.networkOperator = networkOperator;
+    }
+}
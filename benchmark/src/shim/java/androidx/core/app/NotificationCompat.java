@@ -0,0 +1,62 @@
+package androidx.core.app;
+
+import android.app.Notification;
+import android.app.PendingIntent;
+import android.content.Context;
+
+// JVM 上的 NotificationCompat 替身，只保留插件用到的 Builder 方法
+public class NotificationCompat {
+    public static final int PRIORITY_DEFAULT = 0;
+
+    public static class Builder {
+        private CharSequence title;
+        private CharSequence text;
+        private CharSequence subText;
+
+        public Builder(Context context, String channelId) {
+        }
+
+        public Builder setSmallIcon(int icon) {
+            return this;
+        }
+
+        public Builder addAction(int icon, CharSequence title, PendingIntent intent) {
+            return this;
+        }
+
+        public Builder setPriority(int priority) {
+            return this;
+        }
+
+        public Builder setOnlyAlertOnce(boolean onlyAlertOnce) {
+            return this;
+        }
+
+        public Builder setOngoing(boolean ongoing) {
+            return this;
+        }
+
+        public Builder setContentTitle(CharSequence title) {
+            this.title = title;
+            return this;
+        }
+
+        public Builder setContentText(CharSequence text) {
+            this.text = text;
+            return this;
+        }
+
+        public Builder setSubText(CharSequence text) {
+            this.subText = text;
+            return this;
+        }
+
+        public Notification build() {
+            Notification notification = new Notification();
+            notification.title = title;
+            notification.text = text;
+            notification.subText = subText;
+            return notification;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.openvpn;
+
+// 资源 ID 替身
+public final class R {
+    public static final class drawable {
+        public static final int ic_vpn = 0x7f010001;
+        public static final int ic_stop = 0x7f010002;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.openvpn.core;
+
+import android.net.VpnService;
+import android.os.ParcelFileDescriptor;
+
+import com.example.openvpn.models.Profile;
+
+// core 的 OpenVPNService 替身：启动/停止交给模拟环境设置的 Backend，由它通过 VpnStatus 上报状态
+public class OpenVPNService extends VpnService {
+    public interface Backend {
+        void start(OpenVPNService service, Profile profile);
+
+        void stop(OpenVPNService service);
+    }
+
+    private static volatile Backend backend;
+
+    // 替身专用
+    public static void setBackend(Backend value) {
+        backend = value;
+    }
+
+    public void startVPN(Profile profile) {
+        Backend b = backend;
+        if (b != null) {
+            b.start(this, profile);
+        }
+    }
+
+    public void stopVPN(boolean clearNotification) {
+        Backend b = backend;
+        if (b != null) {
+            b.stop(this);
+        }
+    }
+
+    public ParcelFileDescriptor openTun() {
+        return new ParcelFileDescriptor();
+    }
+
+    public void onRevoke() {
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.openvpn.core;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// core 的 VpnStatus 替身：与 core 一样，添加监听时立即回放最近一次状态
+public class VpnStatus {
+    public interface StateListener {
+        void updateState(String state, String logmessage, int localizedResId, Throwable throwable);
+
+        void setConnectedVPN(String uuid);
+    }
+
+    public interface ByteCountListener {
+        void updateByteCount(long in, long out, long diffIn, long diffOut);
+    }
+
+    private static final CopyOnWriteArrayList<StateListener> listeners = new CopyOnWriteArrayList<>();
+    private static final CopyOnWriteArrayList<ByteCountListener> byteCountListeners = new CopyOnWriteArrayList<>();
+    private static volatile String lastState = "NOPROCESS";
+    private static volatile String lastMessage = "";
+    private static long lastIn;
+    private static long lastOut;
+    private static long lastDiffIn;
+    private static long lastDiffOut;
+
+    public static void addStateListener(StateListener listener) {
+        if (listeners.addIfAbsent(listener)) {
+            listener.updateState(lastState, lastMessage, 0, null);
+        }
+    }
+
+    public static void removeStateListener(StateListener listener) {
+        listeners.remove(listener);
+    }
+
+    public static void updateStateString(String state, String message) {
+        lastState = state;
+        lastMessage = message != null ? message : "";
+        for (StateListener listener : listeners) {
+            listener.updateState(state, lastMessage, 0, null);
+        }
+    }
+
+    // 与 core 一样，添加监听时立即回放最近一次计数
+    public static synchronized void addByteCountListener(ByteCountListener listener) {
+        listener.updateByteCount(lastIn, lastOut, lastDiffIn, lastDiffOut);
+        byteCountListeners.addIfAbsent(listener);
+    }
+
+    public static void removeByteCountListener(ByteCountListener listener) {
+        byteCountListeners.remove(listener);
+    }
+
+    // in/out 为本次连接的累计字节数
+    public static synchronized void updateByteCount(long in, long out) {
+        lastDiffIn = Math.max(0, in - lastIn);
+        lastDiffOut = Math.max(0, out - lastOut);
+        lastIn = in;
+        lastOut = out;
+        for (ByteCountListener listener : byteCountListeners) {
+            listener.updateByteCount(in, out, lastDiffIn, lastDiffOut);
+        }
+    }
+
+    // 替身专用：为新的一次模拟清空监听和状态
+    public static synchronized void reset() {
+        listeners.clear();
+        byteCountListeners.clear();
+        lastState = "NOPROCESS";
+        lastMessage = "";
+        lastIn = 0;
+        lastOut = 0;
+        lastDiffIn = 0;
+        lastDiffOut = 0;
+    }
+}
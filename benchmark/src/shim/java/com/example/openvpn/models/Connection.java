@@ -0,0 +1,13 @@
+package com.example.openvpn.models;
+
+// core 的 Connection 替身
+public class Connection implements Cloneable {
+    public String mServerName = "openvpn.example.com";
+    public String mServerPort = "1194";
+    public boolean mUseUdp = true;
+
+    @Override
+    public Connection clone() throws CloneNotSupportedException {
+        return (Connection) super.clone();
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.openvpn.models;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+// core 的 Profile 替身：只解析 remote 和路由相关的行，没有 remote 时与 core 一样返回 null
+// 路由与 core 的 ConfigParser 一致：route 的网络和掩码转成 CIDR，网关为 net_gateway 的进入排除列表，
+// 各项以空格分隔；没有 redirect-gateway 而有 route 行时不使用默认路由
+public class Profile implements Cloneable {
+    public Connection[] mConnections = new Connection[0];
+    public String mUsername;
+    public String mPassword;
+    public boolean mUseDefaultRoute = true;
+    public boolean mUseDefaultRoutev6 = true;
+    public String mCustomRoutes = "";
+    public String mCustomRoutesv6 = "";
+    public String mExcludedRoutes = "";
+    public String mExcludedRoutesv6 = "";
+    public boolean mRoutenopull = false;
+    public HashSet<String> mAllowedAppsVpn = new HashSet<>();
+    public boolean mAllowedAppsVpnAreDisallowed = true;
+    public int mMssFix = 0;
+    public int mTunMtu;
+
+    // 与 core 一样深拷贝连接列表和应用列表
+    @Override
+    public Profile clone() throws CloneNotSupportedException {
+        Profile copy = (Profile) super.clone();
+        copy.mConnections = new Connection[mConnections.length];
+        for (int i = 0; i < mConnections.length; i++) {
+            copy.mConnections[i] = mConnections[i].clone();
+        }
+        copy.mAllowedAppsVpn = new HashSet<>(mAllowedAppsVpn);
+        return copy;
+    }
+
+    public static Profile parseVpnProfile(byte[] config) {
+        List<Connection> connections = new ArrayList<>();
+        StringBuilder routes = new StringBuilder();
+        StringBuilder excluded = new StringBuilder();
+        StringBuilder routes6 = new StringBuilder();
+        StringBuilder excluded6 = new StringBuilder();
+        boolean redirectGateway = false;
+        boolean routeNoPull = false;
+        for (String line : new String(config, StandardCharsets.UTF_8).split("\n")) {
+            String[] parts = line.trim().split("\\s+");
+            if ("redirect-gateway".equals(parts[0])) {
+                redirectGateway = true;
+            } else if ("route-nopull".equals(parts[0])) {
+                routeNoPull = true;
+            } else if (parts.length >= 2 && "route".equals(parts[0])) {
+                int length = parts.length >= 3 ? prefixLength(parts[2]) : 32;
+                boolean netGateway = parts.length >= 4 && "net_gateway".equals(parts[3]);
+                append(netGateway ? excluded : routes, parts[1] + "/" + length);
+            } else if (parts.length >= 2 && "route-ipv6".equals(parts[0])) {
+                boolean netGateway = parts.length >= 3 && "net_gateway".equals(parts[2]);
+                append(netGateway ? excluded6 : routes6, parts[1]);
+            } else if (parts.length >= 2 && "remote".equals(parts[0])) {
+                Connection connection = new Connection();
+                connection.mServerName = parts[1];
+                if (parts.length >= 3) {
+                    connection.mServerPort = parts[2];
+                }
+                if (parts.length >= 4) {
+                    connection.mUseUdp = !parts[3].startsWith("tcp");
+                }
+                connections.add(connection);
+            }
+        }
+        if (connections.isEmpty()) {
+            return null;
+        }
+        Profile profile = new Profile();
+        profile.mConnections = connections.toArray(new Connection[0]);
+        profile.mCustomRoutes = routes.toString();
+        profile.mExcludedRoutes = excluded.toString();
+        profile.mCustomRoutesv6 = routes6.toString();
+        profile.mExcludedRoutesv6 = excluded6.toString();
+        profile.mUseDefaultRoute = redirectGateway || routes.length() == 0;
+        profile.mUseDefaultRoutev6 = redirectGateway || routes6.length() == 0;
+        profile.mRoutenopull = routeNoPull;
+        return profile;
+    }
+
+    private static void append(StringBuilder list, String route) {
+        if (list.length() > 0) {
+            list.append(' ');
+        }
+        list.append(route);
+    }
+
+    // 点分掩码转前缀长度
+    private static int prefixLength(String netmask) {
+        int length = 0;
+        for (String part : netmask.split("\\.")) {
+            length += Integer.bitCount(Integer.parseInt(part) & 0xff);
+        }
+        return length;
+    }
+}
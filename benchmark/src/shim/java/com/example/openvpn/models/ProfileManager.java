@@ -0,0 +1,31 @@
+package com.example.openvpn.models;
+
+import android.content.Context;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// core 的 ProfileManager 替身，只统计保存次数
+public class ProfileManager {
+    private static final ProfileManager INSTANCE = new ProfileManager();
+
+    private final AtomicLong saves = new AtomicLong();
+
+    public static ProfileManager getInstance(Context context) {
+        return INSTANCE;
+    }
+
+    public void addProfile(Profile profile) {
+    }
+
+    public void saveProfile(Context context, Profile profile) {
+        saves.incrementAndGet();
+    }
+
+    public void removeProfile(Context context, Profile profile) {
+    }
+
+    // 替身专用
+    public long getSaveCount() {
+        return saves.get();
+    }
+}
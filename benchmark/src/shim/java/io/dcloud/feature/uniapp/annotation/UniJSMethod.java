@@ -0,0 +1,13 @@
+package io.dcloud.feature.uniapp.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// uni-app SDK 注解替身
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface UniJSMethod {
+    boolean uiThread() default true;
+}
@@ -0,0 +1,10 @@
+package io.dcloud.feature.uniapp.bridge;
+
+// uni-app SDK 回调替身
+public interface UniJSCallback {
+    void invoke(Object data);
+
+    default void invokeAndKeepAlive(Object data) {
+        invoke(data);
+    }
+}
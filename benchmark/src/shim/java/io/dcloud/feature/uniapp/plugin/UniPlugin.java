@@ -0,0 +1,16 @@
+package io.dcloud.feature.uniapp.plugin;
+
+import android.content.Context;
+
+// uni-app SDK 插件基类替身
+public abstract class UniPlugin {
+    protected Context mContext;
+
+    public void onDestroy() {
+    }
+
+    // 替身专用：相当于 SDK 创建插件后注入宿主 Context
+    public void attachContext(Context context) {
+        mContext = context;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.openvpn;
+
+import android.content.pm.PackageManager;
+import android.util.Log;
+
+import com.example.openvpn.models.Profile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// 按应用分流策略：包名只在设置时解析一次（过滤掉未安装的），之后每次建立隧道直接写入 profile
+// 同时累计策略生效以来的隧道流量，便于对比切换策略前后的发送量
+public class AppPolicy {
+    private static final String TAG = "AppPolicy";
+
+    public static final String MODE_ALL = "all";     // 所有应用走隧道
+    public static final String MODE_ALLOW = "allow"; // 只有列表中的应用走隧道
+    public static final String MODE_DENY = "deny";   // 列表中的应用绕过隧道
+
+    public final String mode;
+    public final Set<String> packages;
+    public final List<String> missing;
+
+    private long appliedAt;
+    private long bytesSent;
+    private long bytesReceived;
+    // 上一个策略生效期间的平均发送速率（字节/秒），-1 表示没有
+    private long previousSendRate = -1;
+
+    private AppPolicy(String mode, Set<String> packages, List<String> missing) {
+        this.mode = mode;
+        this.packages = packages;
+        this.missing = missing;
+    }
+
+    public static AppPolicy all() {
+        return new AppPolicy(MODE_ALL, Collections.<String>emptySet(), Collections.<String>emptyList());
+    }
+
+    // 解析策略；packages 为以逗号或空白分隔的包名。模式无效或允许列表为空时抛出 IllegalArgumentException
+    public static AppPolicy resolve(PackageManager packageManager, String mode, String packages) {
+        if (MODE_ALL.equals(mode)) {
+            return all();
+        }
+        if (!MODE_ALLOW.equals(mode) && !MODE_DENY.equals(mode)) {
+            throw new IllegalArgumentException("无效的模式: " + mode);
+        }
+
+        Set<String> resolved = new LinkedHashSet<>();
+        List<String> missing = new ArrayList<>();
+        if (packages != null) {
+            for (String name : packages.split("[,\\s]+")) {
+                if (name.isEmpty() || resolved.contains(name)) {
+                    continue;
+                }
+                try {
+                    packageManager.getPackageInfo(name, 0);
+                    resolved.add(name);
+                } catch (PackageManager.NameNotFoundException e) {
+                    // 未安装（或对本应用不可见）的包，VpnService.Builder 同样会拒绝
+                    missing.add(name);
+                }
+            }
+        }
+        if (MODE_ALLOW.equals(mode) && resolved.isEmpty()) {
+            throw new IllegalArgumentException("允许列表中没有已安装的应用");
+        }
+        if (!missing.isEmpty()) {
+            Log.w(TAG, "忽略未安装的应用: " + missing);
+        }
+        return new AppPolicy(mode, Collections.unmodifiableSet(resolved), Collections.unmodifiableList(missing));
+    }
+
+    // 写入 profile，核心在建立 tun 时读取
+    public void applyTo(Profile profile) {
+        profile.mAllowedAppsVpn = new HashSet<>(packages);
+        profile.mAllowedAppsVpnAreDisallowed = !MODE_ALLOW.equals(mode);
+    }
+
+    public boolean sameAs(AppPolicy other) {
+        return other != null && mode.equals(other.mode) && packages.equals(other.packages);
+    }
+
+    // 替换旧策略时调用，记录旧策略期间的平均发送速率作为对比基准
+    public synchronized void replace(AppPolicy previous, long now) {
+        appliedAt = now;
+        if (previous != null) {
+            previousSendRate = previous.getSendRate(now);
+        }
+    }
+
+    public synchronized void onTraffic(long rxDelta, long txDelta) {
+        bytesReceived += Math.max(0, rxDelta);
+        bytesSent += Math.max(0, txDelta);
+    }
+
+    public synchronized long getBytesSent() {
+        return bytesSent;
+    }
+
+    public synchronized long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    public synchronized long getAppliedAt() {
+        return appliedAt;
+    }
+
+    // 策略生效以来的平均发送速率（字节/秒）
+    public synchronized long getSendRate(long now) {
+        long elapsed = now - appliedAt;
+        return elapsed <= 0 ? 0 : bytesSent * 1000 / elapsed;
+    }
+
+    public synchronized long getPreviousSendRate() {
+        return previousSendRate;
+    }
+}
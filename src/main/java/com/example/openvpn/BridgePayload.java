@@ -0,0 +1,160 @@
+package com.example.openvpn;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+
+// 状态/统计/配额事件的载荷：每种事件一个固定字段表，字段值按下标存进数组，发布时不建 JSONObject、不装箱
+// 载荷随 EventStream.Event 一起复用（见 EventStream.obtain），只在投递时按订阅者的字段和编码生成 JSON，每帧每个订阅者一次
+// 紧凑编码按字段表顺序输出数组 [type, time, 值...]，字段名只在订阅确认中给出一次
+public final class BridgePayload {
+    static final int TEXT = 0;
+    static final int LONG = 1;
+    static final int BOOLEAN = 2;
+
+    // status 和 stats 事件的字段下标（两者的第 0 个字段都是 status）
+    public static final int STATUS = 0;
+    public static final int ERROR = 1;
+    public static final int BYTES_SENT = 1;
+    public static final int BYTES_RECEIVED = 2;
+    public static final int TIME_CONNECTED = 3;
+    // quota 事件的字段下标
+    public static final int PERCENT = 0;
+    public static final int USED = 1;
+    public static final int QUOTA = 2;
+    public static final int EXHAUSTED = 3;
+    public static final int PERIOD = 4;
+    public static final int ACTION = 5;
+
+    static final class Schema {
+        final String[] keys;
+        final int[] kinds;
+
+        Schema(String[] keys, int[] kinds) {
+            this.keys = keys;
+            this.kinds = kinds;
+        }
+
+        // fields 中属于本表的字段下标（按 fields 的顺序），fields 为 null 时为全部字段
+        int[] columns(String[] fields) {
+            int[] columns = new int[fields == null ? keys.length : fields.length];
+            int count = 0;
+            for (int i = 0; i < columns.length; i++) {
+                int index = fields == null ? i : indexOf(fields[i]);
+                if (index >= 0) {
+                    columns[count++] = index;
+                }
+            }
+            return count == columns.length ? columns : Arrays.copyOf(columns, count);
+        }
+
+        private int indexOf(String key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    // 按事件类型（EventStream.TYPE_*）排列
+    static final Schema[] SCHEMAS = {
+            new Schema(new String[]{"status", "error"}, new int[]{TEXT, TEXT}),
+            new Schema(new String[]{"status", "bytesSent", "bytesReceived", "timeConnected"},
+                    new int[]{TEXT, LONG, LONG, LONG}),
+            new Schema(new String[]{"percent", "used", "quota", "exhausted", "period", "action"},
+                    new int[]{LONG, LONG, LONG, BOOLEAN, TEXT, TEXT}),
+    };
+
+    final Schema schema;
+    private final long[] numbers;
+    private final String[] texts;
+
+    BridgePayload(Schema schema) {
+        this.schema = schema;
+        this.numbers = new long[schema.keys.length];
+        this.texts = new String[schema.keys.length];
+    }
+
+    public BridgePayload set(int field, String value) {
+        texts[field] = value;
+        return this;
+    }
+
+    public BridgePayload set(int field, long value) {
+        numbers[field] = value;
+        return this;
+    }
+
+    public BridgePayload set(int field, boolean value) {
+        numbers[field] = value ? 1 : 0;
+        return this;
+    }
+
+    public String getText(int field) {
+        return texts[field];
+    }
+
+    public long getLong(int field) {
+        return numbers[field];
+    }
+
+    public boolean getBoolean(int field) {
+        return numbers[field] != 0;
+    }
+
+    void clear() {
+        Arrays.fill(numbers, 0);
+        Arrays.fill(texts, null);
+    }
+
+    // 对象编码：为空的文本字段省略
+    void writeTo(JSONObject out, int[] columns) throws JSONException {
+        for (int column : columns) {
+            String key = schema.keys[column];
+            switch (schema.kinds[column]) {
+                case TEXT:
+                    if (texts[column] != null) {
+                        out.put(key, texts[column]);
+                    }
+                    break;
+                case BOOLEAN:
+                    out.put(key, numbers[column] != 0);
+                    break;
+                default:
+                    out.put(key, numbers[column]);
+                    break;
+            }
+        }
+    }
+
+    // 紧凑编码：按 columns 的顺序，为空的文本字段写 null 占位
+    void writeTo(JSONArray out, int[] columns) throws JSONException {
+        for (int column : columns) {
+            switch (schema.kinds[column]) {
+                case TEXT:
+                    out.put(texts[column] != null ? texts[column] : JSONObject.NULL);
+                    break;
+                case BOOLEAN:
+                    out.put(numbers[column] != 0);
+                    break;
+                default:
+                    out.put(numbers[column]);
+                    break;
+            }
+        }
+    }
+
+    // 回调结果 {success}
+    public static JSONObject result(boolean success) throws JSONException {
+        return new JSONObject().put("success", success);
+    }
+
+    // 错误回调 {success: false, message}
+    public static JSONObject error(String message) throws JSONException {
+        return new JSONObject().put("success", false).put("message", message);
+    }
+}
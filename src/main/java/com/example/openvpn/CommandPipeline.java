@@ -0,0 +1,144 @@
+package com.example.openvpn;
+
+import android.util.Log;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 连接/断开/重连命令的串行管道：所有命令在同一个单线程 executor 上按提交顺序执行，每个命令带一个代号（generation）
+// 用户命令（submit）使之前的命令全部失效：排队中的直接跳过，执行中的在 checkpoint 处停止，可中断的步骤（如 remote 探测）立即中断
+// 重连等内部命令用 submitIf 提交，只在期间没有新的用户命令时执行，避免断开之后旧的重连又把隧道拉起来
+public class CommandPipeline {
+    private static final String TAG = "CommandPipeline";
+
+    public interface Command {
+        void run(Token token) throws Exception;
+    }
+
+    // 命令执行时持有的令牌
+    public final class Token {
+        public final long generation;
+        public final String name;
+        // 正在执行可中断步骤的线程
+        private Thread blocked;
+
+        Token(long generation, String name) {
+            this.generation = generation;
+            this.name = name;
+        }
+
+        // 是否已有更新的用户命令
+        public boolean isCancelled() {
+            return generation != CommandPipeline.this.generation.get();
+        }
+
+        // 已被取代时抛出 CancellationException，由管道统计后丢弃
+        public void checkpoint() {
+            if (isCancelled()) {
+                throw new CancellationException(name + " 已被取代");
+            }
+        }
+
+        // 执行可响应中断的耗时步骤；命令在此期间被取代时中断执行线程，步骤结束后再检查一次
+        public void interruptibly(Runnable step) {
+            checkpoint();
+            synchronized (this) {
+                blocked = Thread.currentThread();
+            }
+            try {
+                step.run();
+            } finally {
+                synchronized (this) {
+                    blocked = null;
+                }
+                // 清除可能残留的中断标记，不影响后续步骤
+                Thread.interrupted();
+            }
+            checkpoint();
+        }
+
+        synchronized void interrupt() {
+            if (blocked != null) {
+                blocked.interrupt();
+            }
+        }
+    }
+
+    private final Executor executor;
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Token running;
+
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+
+    // executor 必须是单线程的
+    public CommandPipeline(Executor executor) {
+        this.executor = executor;
+    }
+
+    // 提交用户命令，返回它的代号
+    public long submit(String name, Command command) {
+        long next = generation.incrementAndGet();
+        Token active = running;
+        if (active != null) {
+            active.interrupt();
+        }
+        enqueue(new Token(next, name), command);
+        return next;
+    }
+
+    // 仅当当前代号仍为 expected 时提交，返回是否已提交
+    public boolean submitIf(long expected, String name, Command command) {
+        if (generation.get() != expected) {
+            skipped.incrementAndGet();
+            Log.d(TAG, "忽略过期的 " + name);
+            return false;
+        }
+        enqueue(new Token(expected, name), command);
+        return true;
+    }
+
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    private void enqueue(Token token, Command command) {
+        executor.execute(() -> {
+            if (token.isCancelled()) {
+                skipped.incrementAndGet();
+                Log.d(TAG, "跳过已被取代的 " + token.name);
+                return;
+            }
+            running = token;
+            try {
+                command.run(token);
+                executed.incrementAndGet();
+            } catch (CancellationException e) {
+                cancelled.incrementAndGet();
+                Log.d(TAG, token.name + " 执行中被取代");
+            } catch (Exception e) {
+                executed.incrementAndGet();
+                Log.e(TAG, token.name + " 执行失败", e);
+            } finally {
+                running = null;
+                Thread.interrupted();
+            }
+        });
+    }
+
+    public long getExecuted() {
+        return executed.get();
+    }
+
+    // 排队期间被取代而未执行的命令数
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    // 执行中被取代而中止的命令数
+    public long getCancelled() {
+        return cancelled.get();
+    }
+}
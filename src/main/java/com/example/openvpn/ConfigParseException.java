@@ -0,0 +1,17 @@
+package com.example.openvpn;
+
+// 配置文件格式错误，带出错的行号（从1开始）
+public class ConfigParseException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final int line;
+
+    public ConfigParseException(int line, String message) {
+        super("第" + line + "行: " + message);
+        this.line = line;
+    }
+
+    public int getLine() {
+        return line;
+    }
+}
@@ -0,0 +1,591 @@
+package com.example.openvpn;
+
+import android.os.SystemClock;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// 隧道内的 DNS 缓存，作为 PacketEngine 的处理器运行在 I/O 线程上
+// 出站的 UDP/53 查询命中缓存时直接在本地构造应答注入回 tun，不再经过隧道；未命中时转发并记录
+// 入站应答按 TTL 缓存（LRU，条目数有上限）；相同查询在途时只转发一次，其余等待同一个应答
+// 过期不久的条目先返回旧应答，同时向上游发起一次刷新
+public class DnsCache implements PacketEngine.Handler {
+    static final int DEFAULT_MAX_ENTRIES = 1024;
+    // 超过该长度的应答不缓存
+    static final int MAX_RESPONSE_SIZE = 1232;
+    static final long MAX_TTL_SEC = 24 * 60 * 60;
+    // 没有 TTL 可参考的否定应答的缓存时间
+    static final long NEGATIVE_TTL_SEC = 60;
+    // 过期后仍可返回旧应答的时长，以及旧应答中填写的 TTL（RFC 8767）
+    static final long MAX_STALE_MS = 6 * 60 * 60 * 1000L;
+    static final int STALE_TTL_SEC = 30;
+    // 在途查询超过该时间没有应答，视为丢失
+    static final long INFLIGHT_TIMEOUT_MS = 5000;
+    // 每个在途查询最多合并的等待者
+    static final int MAX_WAITERS = 8;
+
+    private static final int DNS_PORT = 53;
+    private static final int DNS_HEADER = 12;
+    private static final int TYPE_OPT = 41;
+
+    private final PacketEngine engine;
+    private final int maxEntries;
+
+    private final LinkedHashMap<Key, Entry> entries;
+    private final HashMap<Key, InFlight> inFlight = new HashMap<>();
+
+    // 仅在 I/O 线程上使用的临时缓冲
+    private final Key scratchKey = new Key(new byte[260]);
+    private final Packet query = new Packet();
+    private final Endpoint scratchEndpoint = new Endpoint();
+    private final ByteBuffer reply = ByteBuffer.allocate(60 + 8 + MAX_RESPONSE_SIZE);
+    private int nextRefreshId = 1;
+
+    // 统计
+    private long hits;
+    private long staleHits;
+    private long misses;
+    private long coalesced;
+    private long refreshes;
+    private long evictions;
+
+    public DnsCache(PacketEngine engine) {
+        this(engine, DEFAULT_MAX_ENTRIES);
+    }
+
+    public DnsCache(PacketEngine engine, int maxEntries) {
+        this.engine = engine;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, DnsCache.Entry> eldest) {
+                if (size() <= DnsCache.this.maxEntries) {
+                    return false;
+                }
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public int onPacket(int direction, ByteBuffer packet) {
+        // 先用端口快速过滤，非 DNS 包不进锁
+        int port = udpPort(packet, direction == PacketEngine.OUTBOUND);
+        if (port != DNS_PORT) {
+            return PacketEngine.PASS;
+        }
+        synchronized (this) {
+            if (!query.parse(packet)) {
+                return PacketEngine.PASS;
+            }
+            long now = SystemClock.elapsedRealtime();
+            return direction == PacketEngine.OUTBOUND ? onQuery(packet, now) : onResponse(packet, now);
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        inFlight.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getStaleHits() {
+        return staleHits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getCoalesced() {
+        return coalesced;
+    }
+
+    public synchronized long getRefreshes() {
+        return refreshes;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    private int onQuery(ByteBuffer packet, long now) {
+        if (query.isResponse || !query.key(packet, scratchKey)) {
+            return PacketEngine.PASS;
+        }
+
+        Entry entry = entries.get(scratchKey);
+        if (entry != null && now < entry.expiresAt) {
+            hits++;
+            answer(entry, query.endpoint(packet, scratchEndpoint), now, false);
+            return PacketEngine.DROP;
+        }
+
+        InFlight pending = inFlight.get(scratchKey);
+        if (pending != null && now - pending.sentAt >= INFLIGHT_TIMEOUT_MS) {
+            inFlight.remove(scratchKey);
+            pending = null;
+        }
+
+        if (entry != null && now - entry.expiresAt < MAX_STALE_MS) {
+            staleHits++;
+            answer(entry, query.endpoint(packet, scratchEndpoint), now, true);
+            if (pending == null) {
+                // 改用内部 ID 转发，刷新结果只用于更新缓存，不会再交给应用
+                int refreshId = nextRefreshId++ & 0xffff;
+                inFlight.put(scratchKey.copy(), new InFlight(refreshId, true, now));
+                query.rewriteId(packet, refreshId);
+                refreshes++;
+                return PacketEngine.PASS;
+            }
+            return PacketEngine.DROP;
+        }
+
+        if (pending != null) {
+            if (pending.addWaiter(query, packet)) {
+                coalesced++;
+                return PacketEngine.DROP;
+            }
+            return PacketEngine.PASS;
+        }
+
+        misses++;
+        inFlight.put(scratchKey.copy(), new InFlight(query.dnsId(packet), false, now));
+        return PacketEngine.PASS;
+    }
+
+    private int onResponse(ByteBuffer packet, long now) {
+        if (!query.isResponse || !query.key(packet, scratchKey)) {
+            return PacketEngine.PASS;
+        }
+        InFlight pending = inFlight.get(scratchKey);
+        if (pending == null || pending.upstreamId != query.dnsId(packet)) {
+            return PacketEngine.PASS;
+        }
+        Key key = scratchKey.copy();
+        inFlight.remove(key);
+
+        Entry entry = Entry.parse(packet, query, now);
+        if (entry != null) {
+            entries.put(key, entry);
+        }
+        // 合并的等待者各自收到一份应答
+        for (int i = 0; i < pending.waiterCount; i++) {
+            if (entry != null) {
+                answer(entry, pending.waiters[i], now, false);
+            } else {
+                answerRaw(packet, query, pending.waiters[i]);
+            }
+        }
+        return pending.internal ? PacketEngine.DROP : PacketEngine.PASS;
+    }
+
+    // 用缓存条目构造应答并注入 tun
+    private void answer(Entry entry, Endpoint endpoint, long now, boolean stale) {
+        int dnsStart = writeHeaders(endpoint, entry.response.length);
+        reply.position(dnsStart);
+        reply.put(entry.response);
+        reply.putShort(dnsStart, (short) endpoint.dnsId);
+        long elapsedSec = (now - entry.storedAt) / 1000;
+        for (int i = 0; i < entry.ttlOffsets.length; i++) {
+            long ttl = stale ? STALE_TTL_SEC : Math.max(0, entry.ttls[i] - elapsedSec);
+            reply.putInt(dnsStart + entry.ttlOffsets[i], (int) ttl);
+        }
+        finish(endpoint, dnsStart + entry.response.length);
+    }
+
+    // 无法缓存的应答原样转给等待者（只改 ID）
+    private void answerRaw(ByteBuffer response, Packet parsed, Endpoint endpoint) {
+        int length = parsed.dnsLength;
+        if (length > MAX_RESPONSE_SIZE) {
+            return;
+        }
+        int dnsStart = writeHeaders(endpoint, length);
+        for (int i = 0; i < length; i++) {
+            reply.put(dnsStart + i, response.get(parsed.dnsOffset + i));
+        }
+        reply.putShort(dnsStart, (short) endpoint.dnsId);
+        finish(endpoint, dnsStart + length);
+    }
+
+    // 写入 IP/UDP 头（源/目的互换），返回 DNS 报文起始位置
+    private int writeHeaders(Endpoint endpoint, int dnsLength) {
+        reply.clear();
+        int udpLength = 8 + dnsLength;
+        int udpStart;
+        if (endpoint.version == 4) {
+            reply.put(0, (byte) 0x45);
+            reply.put(1, (byte) 0);
+            reply.putShort(2, (short) (20 + udpLength));
+            reply.putInt(4, 0x4000); // 不分片
+            reply.put(8, (byte) 64);
+            reply.put(9, (byte) 17);
+            reply.putShort(10, (short) 0);
+            putBytes(12, endpoint.server, 4);
+            putBytes(16, endpoint.client, 4);
+            reply.putShort(10, (short) checksum(reply, 0, 20, 0));
+            udpStart = 20;
+        } else {
+            reply.putInt(0, 0x60000000);
+            reply.putShort(4, (short) udpLength);
+            reply.put(6, (byte) 17);
+            reply.put(7, (byte) 64);
+            putBytes(8, endpoint.server, 16);
+            putBytes(24, endpoint.client, 16);
+            udpStart = 40;
+        }
+        reply.putShort(udpStart, (short) DNS_PORT);
+        reply.putShort(udpStart + 2, (short) endpoint.clientPort);
+        reply.putShort(udpStart + 4, (short) udpLength);
+        reply.putShort(udpStart + 6, (short) 0);
+        return udpStart + 8;
+    }
+
+    private void finish(Endpoint endpoint, int end) {
+        if (endpoint.version == 6) {
+            // IPv6 的 UDP 校验和不可省略
+            int udpStart = 40;
+            int length = end - udpStart;
+            int sum = checksumPartial(reply, 8, 32, 17 + length);
+            int value = checksum(reply, udpStart, length, sum);
+            reply.putShort(udpStart + 6, (short) (value == 0 ? 0xffff : value));
+        }
+        reply.position(0);
+        reply.limit(end);
+        engine.inject(PacketEngine.INBOUND, reply);
+    }
+
+    private void putBytes(int offset, byte[] bytes, int length) {
+        for (int i = 0; i < length; i++) {
+            reply.put(offset + i, bytes[i]);
+        }
+    }
+
+    // 出站取目的端口、入站取源端口；不是 UDP 时返回-1
+    private static int udpPort(ByteBuffer packet, boolean destination) {
+        int limit = packet.limit();
+        if (limit < 28) {
+            return -1;
+        }
+        int version = (packet.get(0) >> 4) & 0xf;
+        int udpStart;
+        if (version == 4) {
+            if (packet.get(9) != 17 || (packet.getShort(6) & 0x3fff) != 0) {
+                return -1; // 非 UDP 或分片
+            }
+            udpStart = (packet.get(0) & 0xf) * 4;
+        } else if (version == 6) {
+            if (limit < 48 || packet.get(6) != 17) {
+                return -1;
+            }
+            udpStart = 40;
+        } else {
+            return -1;
+        }
+        if (udpStart + 8 > limit) {
+            return -1;
+        }
+        return packet.getShort(udpStart + (destination ? 2 : 0)) & 0xffff;
+    }
+
+    // 反码求和（未取反），sum 为初始值
+    private static int checksumPartial(ByteBuffer buffer, int offset, int length, int sum) {
+        int end = offset + length;
+        int i = offset;
+        for (; i + 1 < end; i += 2) {
+            sum += buffer.getShort(i) & 0xffff;
+        }
+        if (i < end) {
+            sum += (buffer.get(i) & 0xff) << 8;
+        }
+        return sum;
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset, int length, int initial) {
+        int sum = checksumPartial(buffer, offset, length, initial);
+        while ((sum >>> 16) != 0) {
+            sum = (sum & 0xffff) + (sum >>> 16);
+        }
+        return ~sum & 0xffff;
+    }
+
+    // 解析后的 IP/UDP/DNS 位置信息，复用同一个实例
+    private static class Packet {
+        int version;
+        int addressOffset; // 源地址位置
+        int addressLength;
+        int udpOffset;
+        int dnsOffset;
+        int dnsLength;
+        int questionEnd;
+        boolean isResponse;
+
+        boolean parse(ByteBuffer packet) {
+            int limit = packet.limit();
+            version = (packet.get(0) >> 4) & 0xf;
+            if (version == 4) {
+                udpOffset = (packet.get(0) & 0xf) * 4;
+                addressOffset = 12;
+                addressLength = 4;
+            } else {
+                udpOffset = 40;
+                addressOffset = 8;
+                addressLength = 16;
+            }
+            dnsOffset = udpOffset + 8;
+            dnsLength = Math.min(limit, udpOffset + (packet.getShort(udpOffset + 4) & 0xffff)) - dnsOffset;
+            if (dnsLength < DNS_HEADER) {
+                return false;
+            }
+            isResponse = (packet.get(dnsOffset + 2) & 0x80) != 0;
+            // 只处理单个问题的标准查询
+            return (packet.get(dnsOffset + 2) & 0x78) == 0 && packet.getShort(dnsOffset + 4) == 1;
+        }
+
+        int dnsId(ByteBuffer packet) {
+            return packet.getShort(dnsOffset) & 0xffff;
+        }
+
+        // 问题部分（小写域名 + 类型 + 类）写入 key；同时记下问题结束位置
+        boolean key(ByteBuffer packet, Key key) {
+            int end = dnsOffset + dnsLength;
+            int p = dnsOffset + DNS_HEADER;
+            int n = 0;
+            while (true) {
+                if (p >= end) {
+                    return false;
+                }
+                int len = packet.get(p) & 0xff;
+                if (len > 63 || p + 1 + len > end || n + 1 + len + 4 > key.bytes.length) {
+                    return false; // 问题中不应出现压缩指针
+                }
+                key.bytes[n++] = (byte) len;
+                p++;
+                if (len == 0) {
+                    break;
+                }
+                for (int i = 0; i < len; i++) {
+                    byte b = packet.get(p++);
+                    key.bytes[n++] = b >= 'A' && b <= 'Z' ? (byte) (b + 32) : b;
+                }
+            }
+            if (p + 4 > end) {
+                return false;
+            }
+            for (int i = 0; i < 4; i++) {
+                key.bytes[n++] = packet.get(p++);
+            }
+            key.set(n);
+            questionEnd = p;
+            return true;
+        }
+
+        void rewriteId(ByteBuffer packet, int id) {
+            packet.putShort(dnsOffset, (short) id);
+            // 修改了载荷，IPv4 直接清除可选的 UDP 校验和；IPv6 需重新计算
+            if (version == 4) {
+                packet.putShort(udpOffset + 6, (short) 0);
+            } else {
+                int length = dnsOffset + dnsLength - udpOffset;
+                packet.putShort(udpOffset + 6, (short) 0);
+                int sum = checksumPartial(packet, 8, 32, 17 + length);
+                int value = checksum(packet, udpOffset, length, sum);
+                packet.putShort(udpOffset + 6, (short) (value == 0 ? 0xffff : value));
+            }
+        }
+
+        // 记下查询方的地址，用于之后构造应答
+        Endpoint endpoint(ByteBuffer packet, Endpoint out) {
+            out.version = version;
+            for (int i = 0; i < addressLength; i++) {
+                out.client[i] = packet.get(addressOffset + i);
+                out.server[i] = packet.get(addressOffset + addressLength + i);
+            }
+            out.clientPort = packet.getShort(udpOffset) & 0xffff;
+            out.dnsId = dnsId(packet);
+            return out;
+        }
+    }
+
+    // 查询方的地址、端口和 DNS ID
+    private static class Endpoint {
+        int version;
+        final byte[] client = new byte[16];
+        final byte[] server = new byte[16];
+        int clientPort;
+        int dnsId;
+    }
+
+    private static class InFlight {
+        final int upstreamId;
+        final boolean internal;
+        final long sentAt;
+        Endpoint[] waiters;
+        int waiterCount;
+
+        InFlight(int upstreamId, boolean internal, long sentAt) {
+            this.upstreamId = upstreamId;
+            this.internal = internal;
+            this.sentAt = sentAt;
+        }
+
+        boolean addWaiter(Packet parsed, ByteBuffer packet) {
+            if (waiterCount == MAX_WAITERS) {
+                return false;
+            }
+            if (waiters == null) {
+                waiters = new Endpoint[MAX_WAITERS];
+            }
+            waiters[waiterCount++] = parsed.endpoint(packet, new Endpoint());
+            return true;
+        }
+    }
+
+    // 缓存的应答：DNS 报文、各记录 TTL 的位置和原始值
+    private static class Entry {
+        final byte[] response;
+        final int[] ttlOffsets;
+        final long[] ttls;
+        final long storedAt;
+        final long expiresAt;
+
+        Entry(byte[] response, int[] ttlOffsets, long[] ttls, long storedAt, long expiresAt) {
+            this.response = response;
+            this.ttlOffsets = ttlOffsets;
+            this.ttls = ttls;
+            this.storedAt = storedAt;
+            this.expiresAt = expiresAt;
+        }
+
+        // 解析应答中各记录的 TTL；截断、出错或 TTL 为0的应答不缓存
+        static Entry parse(ByteBuffer packet, Packet parsed, long now) {
+            int base = parsed.dnsOffset;
+            int length = parsed.dnsLength;
+            int flags = packet.getShort(base + 2) & 0xffff;
+            int rcode = flags & 0xf;
+            if ((flags & 0x0200) != 0 || (rcode != 0 && rcode != 3) || length > MAX_RESPONSE_SIZE) {
+                return null;
+            }
+            int answers = packet.getShort(base + 6) & 0xffff;
+            int authority = packet.getShort(base + 8) & 0xffff;
+            int additional = packet.getShort(base + 10) & 0xffff;
+            int records = answers + authority + additional;
+
+            int[] offsets = new int[records];
+            long[] ttls = new long[records];
+            int count = 0;
+            long minTtl = Long.MAX_VALUE;
+            int end = base + length;
+            int p = parsed.questionEnd;
+            for (int r = 0; r < records; r++) {
+                p = skipName(packet, p, end);
+                if (p < 0 || p + 10 > end) {
+                    return null;
+                }
+                int type = packet.getShort(p) & 0xffff;
+                long ttl = packet.getInt(p + 4) & 0xffffffffL;
+                int rdLength = packet.getShort(p + 8) & 0xffff;
+                if (type != TYPE_OPT) {
+                    offsets[count] = p + 4 - base;
+                    ttls[count] = Math.min(ttl, MAX_TTL_SEC);
+                    count++;
+                    if (r < answers + authority) {
+                        minTtl = Math.min(minTtl, ttl);
+                    }
+                }
+                p += 10 + rdLength;
+                if (p > end) {
+                    return null;
+                }
+            }
+            if (minTtl == Long.MAX_VALUE) {
+                minTtl = NEGATIVE_TTL_SEC;
+            }
+            minTtl = Math.min(minTtl, MAX_TTL_SEC);
+            if (minTtl == 0) {
+                return null;
+            }
+
+            byte[] response = new byte[length];
+            for (int i = 0; i < length; i++) {
+                response[i] = packet.get(base + i);
+            }
+            return new Entry(response, Arrays.copyOf(offsets, count), Arrays.copyOf(ttls, count),
+                    now, now + minTtl * 1000);
+        }
+
+        private static int skipName(ByteBuffer packet, int p, int end) {
+            while (p < end) {
+                int len = packet.get(p) & 0xff;
+                if (len == 0) {
+                    return p + 1;
+                }
+                if ((len & 0xc0) == 0xc0) {
+                    return p + 2; // 压缩指针
+                }
+                p += 1 + len;
+            }
+            return -1;
+        }
+    }
+
+    // 问题部分的字节作为键；查找时复用同一个实例，存入时复制
+    private static class Key {
+        final byte[] bytes;
+        int length;
+        int hash;
+
+        Key(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        void set(int length) {
+            this.length = length;
+            int h = 1;
+            for (int i = 0; i < length; i++) {
+                h = 31 * h + bytes[i];
+            }
+            hash = h;
+        }
+
+        Key copy() {
+            Key key = new Key(Arrays.copyOf(bytes, length));
+            key.length = length;
+            key.hash = hash;
+            return key;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            if (other.length != length || other.hash != hash) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (bytes[i] != other.bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
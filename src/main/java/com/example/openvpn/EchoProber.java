@@ -0,0 +1,141 @@
+package com.example.openvpn;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+
+// 隧道内的 UDP 回显探测：按 QualityMonitor 给出的间隔向网关或指定主机（如 echo 端口 7）发送 12 字节的探测包，
+// 对端原样返回；socket 不调用 protect，流量走隧道，测到的是隧道本身的时延和丢包
+// 探测线程只在隧道已连接时运行，等待回显时阻塞在 receive 上，不额外唤醒
+public class EchoProber {
+    private static final String TAG = "EchoProber";
+    private static final int MAGIC = 0x4f56514d; // "OVQM"
+    static final int PACKET_SIZE = 12;
+
+    public interface Listener {
+        // 在探测线程上调用
+        void onDegraded(String reason);
+    }
+
+    private final QualityMonitor monitor;
+    private final Listener listener;
+    private final String host;
+    private final int port;
+
+    // 当前的探测线程，stop 后置空，旧线程发现自己不是当前线程即退出
+    private volatile Thread thread;
+    private volatile DatagramSocket socket;
+
+    public EchoProber(QualityMonitor monitor, String host, int port, Listener listener) {
+        this.monitor = monitor;
+        this.host = host;
+        this.port = port;
+        this.listener = listener;
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        monitor.reset();
+        thread = new Thread(this::run, "vpn-quality");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        thread = null;
+        DatagramSocket current = socket;
+        if (current != null) {
+            current.close(); // 打断阻塞的 receive
+        }
+    }
+
+    public boolean isRunning() {
+        return thread != null;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    private void run() {
+        byte[] out = new byte[PACKET_SIZE];
+        byte[] in = new byte[PACKET_SIZE];
+        DatagramPacket reply = new DatagramPacket(in, in.length);
+        try (DatagramSocket s = new DatagramSocket()) {
+            socket = s;
+            if (thread != Thread.currentThread()) {
+                return;
+            }
+            s.connect(InetAddress.getByName(host), port);
+            DatagramPacket probe = new DatagramPacket(out, out.length);
+            long nextSend = SystemClock.elapsedRealtime();
+            while (thread == Thread.currentThread()) {
+                long now = SystemClock.elapsedRealtime();
+                if (now >= nextSend) {
+                    long seq = monitor.onProbeSent(now);
+                    writeInt(out, 0, MAGIC);
+                    writeLong(out, 4, seq);
+                    try {
+                        s.send(probe);
+                    } catch (IOException e) {
+                        // 隧道暂时不可用时发送可能失败，按丢包处理
+                        Log.d(TAG, "探测发送失败: " + e.getMessage());
+                    }
+                    nextSend = now + monitor.nextInterval();
+                }
+
+                s.setSoTimeout((int) Math.max(1, nextSend - SystemClock.elapsedRealtime()));
+                try {
+                    s.receive(reply);
+                    if (reply.getLength() == PACKET_SIZE && readInt(in, 0) == MAGIC) {
+                        monitor.onProbeReply(readLong(in, 4), SystemClock.elapsedRealtime());
+                    }
+                } catch (SocketTimeoutException e) {
+                    // 到了下一次发送时间
+                }
+
+                String reason = monitor.evaluate(SystemClock.elapsedRealtime());
+                if (reason != null && thread == Thread.currentThread()) {
+                    Log.w(TAG, "隧道质量下降: " + reason);
+                    listener.onDegraded(reason);
+                }
+            }
+        } catch (Exception e) {
+            if (thread == Thread.currentThread()) {
+                Log.e(TAG, "质量探测失败", e);
+                thread = null;
+            }
+        }
+    }
+
+    private static void writeInt(byte[] b, int off, int v) {
+        b[off] = (byte) (v >>> 24);
+        b[off + 1] = (byte) (v >>> 16);
+        b[off + 2] = (byte) (v >>> 8);
+        b[off + 3] = (byte) v;
+    }
+
+    private static void writeLong(byte[] b, int off, long v) {
+        writeInt(b, off, (int) (v >>> 32));
+        writeInt(b, off + 4, (int) v);
+    }
+
+    private static int readInt(byte[] b, int off) {
+        return (b[off] & 0xff) << 24 | (b[off + 1] & 0xff) << 16 | (b[off + 2] & 0xff) << 8 | (b[off + 3] & 0xff);
+    }
+
+    private static long readLong(byte[] b, int off) {
+        return (long) readInt(b, off) << 32 | (readInt(b, off + 4) & 0xffffffffL);
+    }
+}
@@ -0,0 +1,446 @@
+package com.example.openvpn;
+
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 状态/统计事件的订阅分发：每个订阅者选择事件类型、字段和最大投递频率
+// 事件按订阅者合并：latest 每种类型只保留最新一条，dropOldest 为有界队列、满了丢弃最旧的
+// publish 可在任意线程调用，只把同一个事件对象放进各订阅者的队列；flush 在主线程上每帧最多给每个订阅者投递一批
+// 队列长度固定，JS 端处理得慢时也不会在主线程上积压
+// 事件对象（含固定字段表的载荷）按引用计数复用：被合并、丢弃或投递后归还，高频的统计事件稳定后发布不分配内存
+public class EventStream {
+    private static final String TAG = "EventStream";
+
+    public static final int TYPE_STATUS = 0;
+    public static final int TYPE_STATS = 1;
+    public static final int TYPE_QUOTA = 2;
+    static final String[] TYPE_NAMES = {"status", "stats", "quota"};
+
+    public static final String POLICY_LATEST = "latest";
+    public static final String POLICY_DROP_OLDEST = "dropOldest";
+    // 投递编码：object 为 {type, time, 字段...}，packed 为按字段表顺序的数组 [type序号, time, 值...]
+    public static final String ENCODING_OBJECT = "object";
+    public static final String ENCODING_PACKED = "packed";
+
+    // 一帧的时长，同一帧内的事件合并为一批
+    public static final long FRAME_MS = 16;
+    static final int DEFAULT_QUEUE_SIZE = 16;
+    static final int MAX_QUEUE_SIZE = 256;
+    // 每种类型最多缓存的空闲事件数
+    static final int POOL_SIZE = 32;
+
+    public interface Sink {
+        // 在主线程上调用，events[0..count) 按发布顺序排列；dropped 为上次投递以来丢弃的事件数
+        // 事件在返回后会被复用，不能保留
+        void deliver(Subscription subscription, Event[] events, int count, long dropped) throws Exception;
+    }
+
+    public static final class Event {
+        public final int type;
+        public final BridgePayload payload;
+        long time;
+        long sequence;
+        // 发布者和持有它的各订阅者队列各一个引用，归零时放回池中
+        private final AtomicInteger refs = new AtomicInteger();
+
+        Event(int type) {
+            this.type = type;
+            this.payload = new BridgePayload(BridgePayload.SCHEMAS[type]);
+        }
+
+        public long getTime() {
+            return time;
+        }
+    }
+
+    public static final class Subscription {
+        public final int id;
+        final int typeMask;
+        // null 表示全部字段
+        final String[] fields;
+        final long minIntervalMs;
+        final boolean latest;
+        final boolean packed;
+        // 按类型的输出字段下标
+        final int[][] columns;
+        final Sink sink;
+
+        // latest：按类型一个槽位；dropOldest：环形队列
+        private final Event[] queue;
+        private int head;
+        private int size;
+        private long dropped;
+        private long lastDelivery = Long.MIN_VALUE / 2;
+        private long delivered;
+        private long coalesced;
+        private int maxSize;
+        // 只在主线程上使用的投递缓冲
+        private final Event[] batch;
+
+        Subscription(int id, int typeMask, String[] fields, int maxRate, boolean latest, boolean packed, int queueSize,
+                     Sink sink) {
+            this.id = id;
+            this.typeMask = typeMask;
+            this.fields = fields;
+            this.minIntervalMs = maxRate > 0 ? 1000 / maxRate : 0;
+            this.latest = latest;
+            this.packed = packed;
+            this.columns = new int[TYPE_NAMES.length][];
+            for (int type = 0; type < TYPE_NAMES.length; type++) {
+                columns[type] = BridgePayload.SCHEMAS[type].columns(fields);
+            }
+            this.sink = sink;
+            this.queue = new Event[latest ? TYPE_NAMES.length : queueSize];
+            this.batch = new Event[queue.length];
+        }
+
+        // 返回被替换（合并或丢弃）的事件，由调用方释放
+        synchronized Event offer(Event event) {
+            Event replaced = null;
+            if (latest) {
+                replaced = queue[event.type];
+                if (replaced == null) {
+                    size++;
+                } else {
+                    coalesced++;
+                }
+                queue[event.type] = event;
+            } else if (size == queue.length) {
+                replaced = queue[head];
+                queue[head] = event;
+                head = (head + 1) % queue.length;
+                dropped++;
+            } else {
+                queue[(head + size) % queue.length] = event;
+                size++;
+            }
+            maxSize = Math.max(maxSize, size);
+            return replaced;
+        }
+
+        // 取出全部待投递事件到 batch，返回个数
+        private synchronized int drain() {
+            int count = 0;
+            if (latest) {
+                for (int i = 0; i < queue.length; i++) {
+                    if (queue[i] != null) {
+                        batch[count++] = queue[i];
+                        queue[i] = null;
+                    }
+                }
+                // 按发布顺序投递（最多每种类型一条，插入排序即可）
+                for (int i = 1; i < count; i++) {
+                    Event event = batch[i];
+                    int j = i - 1;
+                    while (j >= 0 && batch[j].sequence > event.sequence) {
+                        batch[j + 1] = batch[j];
+                        j--;
+                    }
+                    batch[j + 1] = event;
+                }
+            } else {
+                for (int i = 0; i < size; i++) {
+                    int index = (head + i) % queue.length;
+                    batch[count++] = queue[index];
+                    queue[index] = null;
+                }
+                head = 0;
+            }
+            size = 0;
+            delivered += count;
+            return count;
+        }
+
+        // 取消订阅时释放队列中的事件；不使用 batch，可在任意线程调用
+        private synchronized void clear(EventStream stream) {
+            for (int i = 0; i < queue.length; i++) {
+                if (queue[i] != null) {
+                    stream.release(queue[i]);
+                    queue[i] = null;
+                }
+            }
+            head = 0;
+            size = 0;
+        }
+
+        private synchronized long takeDropped() {
+            long value = dropped;
+            dropped = 0;
+            return value;
+        }
+
+        public synchronized int getQueued() {
+            return size;
+        }
+
+        // 队列曾达到的最大长度
+        public synchronized int getMaxQueued() {
+            return maxSize;
+        }
+
+        public synchronized long getDelivered() {
+            return delivered;
+        }
+
+        public synchronized long getCoalesced() {
+            return coalesced;
+        }
+
+        boolean wants(int type) {
+            return (typeMask & (1 << type)) != 0;
+        }
+    }
+
+    // 订阅者数组写时复制，publish 无锁遍历
+    private volatile Subscription[] subscriptions = new Subscription[0];
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicLong sequence = new AtomicLong();
+    private int nextId = 1;
+    // 按类型的空闲事件
+    private final Event[][] pool = new Event[TYPE_NAMES.length][POOL_SIZE];
+    private final int[] pooled = new int[TYPE_NAMES.length];
+
+    public Subscription subscribe(String types, String fields, int maxRate, String policy, int queueSize, Sink sink) {
+        return subscribe(types, fields, maxRate, policy, ENCODING_OBJECT, queueSize, sink);
+    }
+
+    // types/fields 为逗号分隔，空表示全部；maxRate 为每秒最多投递的批次数，0 表示每帧；非法参数抛出 IllegalArgumentException
+    public synchronized Subscription subscribe(String types, String fields, int maxRate, String policy,
+                                               String encoding, int queueSize, Sink sink) {
+        int typeMask = 0;
+        for (String name : split(types)) {
+            int type = typeOf(name);
+            if (type < 0) {
+                throw new IllegalArgumentException("未知的事件类型: " + name);
+            }
+            typeMask |= 1 << type;
+        }
+        if (typeMask == 0) {
+            typeMask = (1 << TYPE_NAMES.length) - 1;
+        }
+        boolean latest;
+        if (policy == null || policy.isEmpty() || POLICY_LATEST.equals(policy)) {
+            latest = true;
+        } else if (POLICY_DROP_OLDEST.equals(policy)) {
+            latest = false;
+        } else {
+            throw new IllegalArgumentException("未知的合并策略: " + policy);
+        }
+        boolean packed;
+        if (encoding == null || encoding.isEmpty() || ENCODING_OBJECT.equals(encoding)) {
+            packed = false;
+        } else if (ENCODING_PACKED.equals(encoding)) {
+            packed = true;
+        } else {
+            throw new IllegalArgumentException("未知的编码: " + encoding);
+        }
+        if (maxRate < 0) {
+            throw new IllegalArgumentException("无效的频率: " + maxRate);
+        }
+        String[] fieldList = split(fields);
+        int size = queueSize <= 0 ? DEFAULT_QUEUE_SIZE : Math.min(queueSize, MAX_QUEUE_SIZE);
+
+        Subscription subscription = new Subscription(nextId++, typeMask, fieldList.length == 0 ? null : fieldList,
+                maxRate, latest, packed, size, sink);
+        Subscription[] current = subscriptions;
+        Subscription[] next = new Subscription[current.length + 1];
+        System.arraycopy(current, 0, next, 0, current.length);
+        next[current.length] = subscription;
+        subscriptions = next;
+        return subscription;
+    }
+
+    public synchronized boolean unsubscribe(int id) {
+        Subscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].id == id) {
+                Subscription[] next = new Subscription[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                subscriptions = next;
+                current[i].clear(this);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 是否有订阅者关心该类型，没有时调用方可以不构造事件
+    public boolean hasSubscribers(int type) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.wants(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 取一个字段已清空的事件，写好载荷后交给 publish
+    public Event obtain(int type) {
+        Event event = null;
+        synchronized (pool) {
+            int count = pooled[type];
+            if (count > 0) {
+                event = pool[type][--count];
+                pool[type][count] = null;
+                pooled[type] = count;
+            }
+        }
+        if (event == null) {
+            event = new Event(type);
+        } else {
+            event.payload.clear();
+        }
+        event.refs.set(1);
+        return event;
+    }
+
+    private void release(Event event) {
+        if (event.refs.decrementAndGet() != 0) {
+            return;
+        }
+        synchronized (pool) {
+            int count = pooled[event.type];
+            if (count < POOL_SIZE) {
+                pool[event.type][count] = event;
+                pooled[event.type] = count + 1;
+            }
+        }
+    }
+
+    // 发布 obtain 得到的事件，之后调用方不能再使用它；返回 true 时调用方应在 FRAME_MS 后调用 flush
+    public boolean publish(Event event, long now) {
+        Subscription[] current = subscriptions;
+        event.time = now;
+        event.sequence = sequence.getAndIncrement();
+        boolean offered = false;
+        for (Subscription subscription : current) {
+            if (!subscription.wants(event.type)) {
+                continue;
+            }
+            offered = true;
+            event.refs.incrementAndGet();
+            Event replaced = subscription.offer(event);
+            if (replaced != null) {
+                release(replaced);
+            }
+        }
+        release(event);
+        return offered && flushScheduled.compareAndSet(false, true);
+    }
+
+    // 在主线程上调用：给到了投递时间的订阅者各投递一批
+    // 返回下一次需要 flush 的延迟（有订阅者因频率限制还有事件未投递），不需要时返回 -1
+    public long flush(long now) {
+        flushScheduled.set(false);
+        long nextDelay = -1;
+        for (Subscription subscription : subscriptions) {
+            if (subscription.getQueued() == 0) {
+                continue;
+            }
+            long due = subscription.lastDelivery + subscription.minIntervalMs;
+            if (now < due) {
+                long delay = due - now;
+                nextDelay = nextDelay < 0 ? delay : Math.min(nextDelay, delay);
+                continue;
+            }
+            int count = subscription.drain();
+            if (count == 0) {
+                continue;
+            }
+            subscription.lastDelivery = now;
+            long dropped = subscription.takeDropped();
+            try {
+                subscription.sink.deliver(subscription, subscription.batch, count, dropped);
+            } catch (Exception e) {
+                Log.e(TAG, "事件投递失败", e);
+            }
+            for (int i = 0; i < count; i++) {
+                release(subscription.batch[i]);
+                subscription.batch[i] = null;
+            }
+        }
+        if (nextDelay >= 0 && !flushScheduled.compareAndSet(false, true)) {
+            // 期间有新的 publish 已安排了下一帧
+            return -1;
+        }
+        return nextDelay;
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.length;
+    }
+
+    // 订阅者的一批事件：{subscription, events: [{type, time, ...字段}], dropped}
+    // 紧凑编码时 events 为 [[type序号, time, ...字段值]]，字段顺序见 describe
+    public static JSONObject toBatch(Subscription subscription, Event[] events, int count, long dropped)
+            throws JSONException {
+        JSONArray items = new JSONArray();
+        for (int i = 0; i < count; i++) {
+            Event event = events[i];
+            int[] columns = subscription.columns[event.type];
+            if (subscription.packed) {
+                JSONArray item = new JSONArray();
+                item.put(event.type);
+                item.put(event.time);
+                event.payload.writeTo(item, columns);
+                items.put(item);
+            } else {
+                JSONObject item = new JSONObject();
+                item.put("type", TYPE_NAMES[event.type]);
+                item.put("time", event.time);
+                event.payload.writeTo(item, columns);
+                items.put(item);
+            }
+        }
+        JSONObject batch = new JSONObject();
+        batch.put("subscription", subscription.id);
+        batch.put("events", items);
+        batch.put("dropped", dropped);
+        return batch;
+    }
+
+    // 订阅的格式说明：{encoding, types: [类型名，下标即紧凑编码中的类型序号], fields: {类型名: [字段名...]}}
+    public static JSONObject describe(Subscription subscription) throws JSONException {
+        JSONObject fields = new JSONObject();
+        for (int type = 0; type < TYPE_NAMES.length; type++) {
+            if (!subscription.wants(type)) {
+                continue;
+            }
+            JSONArray keys = new JSONArray();
+            for (int column : subscription.columns[type]) {
+                keys.put(BridgePayload.SCHEMAS[type].keys[column]);
+            }
+            fields.put(TYPE_NAMES[type], keys);
+        }
+        JSONObject result = new JSONObject();
+        result.put("encoding", subscription.packed ? ENCODING_PACKED : ENCODING_OBJECT);
+        result.put("types", new JSONArray(Arrays.asList(TYPE_NAMES)));
+        result.put("fields", fields);
+        return result;
+    }
+
+    private static int typeOf(String name) {
+        for (int i = 0; i < TYPE_NAMES.length; i++) {
+            if (TYPE_NAMES[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String[] split(String csv) {
+        if (csv == null || csv.trim().isEmpty()) {
+            return new String[0];
+        }
+        return csv.trim().split("\\s*,\\s*");
+    }
+}
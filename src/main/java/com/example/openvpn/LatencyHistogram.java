@@ -0,0 +1,75 @@
+package com.example.openvpn;
+
+// 固定分桶的延迟直方图（毫秒），按 1-2-5 序列分桶，记录时不分配对象
+// 百分位按桶内线性插值估算
+public class LatencyHistogram {
+    // 各桶上界（含），最后一个桶收纳所有更大的值
+    static final long[] BOUNDS_MS = {
+            1, 2, 5, 10, 20, 50, 100, 200, 500,
+            1_000, 2_000, 5_000, 10_000, 20_000, 50_000, 100_000, Long.MAX_VALUE
+    };
+
+    private final long[] counts = new long[BOUNDS_MS.length];
+    private long total;
+    private long sum;
+    private long max;
+
+    public synchronized void record(long valueMs) {
+        if (valueMs < 0) {
+            return;
+        }
+        int bucket = 0;
+        while (valueMs > BOUNDS_MS[bucket]) {
+            bucket++;
+        }
+        counts[bucket]++;
+        total++;
+        sum += valueMs;
+        if (valueMs > max) {
+            max = valueMs;
+        }
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+        total = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    public synchronized long getCount() {
+        return total;
+    }
+
+    public synchronized long getMax() {
+        return max;
+    }
+
+    public synchronized long getMean() {
+        return total == 0 ? 0 : sum / total;
+    }
+
+    // pct 取 0-100
+    public synchronized long percentile(double pct) {
+        if (total == 0) {
+            return 0;
+        }
+        double rank = pct / 100.0 * total;
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            if (seen + counts[i] >= rank) {
+                long lower = i == 0 ? 0 : BOUNDS_MS[i - 1];
+                long upper = Math.min(BOUNDS_MS[i], max);
+                double fraction = (rank - seen) / counts[i];
+                return Math.max(lower, lower + Math.round((upper - lower) * fraction));
+            }
+            seen += counts[i];
+        }
+        return max;
+    }
+}
@@ -0,0 +1,385 @@
+package com.example.openvpn;
+
+import android.os.ParcelFileDescriptor;
+import android.system.Os;
+import android.util.Log;
+
+import com.example.openvpn.models.Connection;
+import com.example.openvpn.models.Profile;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 连接前探测底层网络的路径 MTU，结果写入 Profile 的 tun-mtu/mssfix
+// 向 UDP 回显服务（应部署在服务器旁边，如服务器的 echo 端口 7）发送设置了 DF 的探测包：先试最大尺寸，
+// 不通再从最小尺寸起二分，逐步缩小到 STEP 以内；路径上超过 MTU 的包被丢弃或在本机报 EMSGSIZE
+// 没有回显也可能只是丢包，二分结束后再确认一次上界，通过了就继续往上找
+// 结果按网络标识（Wi-Fi 的 SSID、蜂窝的运营商加传输类型）缓存，同一网络再次连接不再探测；
+// 比以太网小的结果只缓存 REDUCED_TTL_MS，超时或被取消而没有确认上界的结果不缓存
+public class MtuDiscovery {
+    private static final String TAG = "MtuDiscovery";
+    private static final int MAGIC = 0x4f564d54; // "OVMT"
+
+    static final int MIN_MTU = 576;
+    static final int MAX_MTU = 1500;
+    // 二分的精度，探测结果向下取到已确认可通过的尺寸
+    static final int STEP = 8;
+    static final int IPV4_UDP_HEADER = 28;
+    static final int IPV6_UDP_HEADER = 48;
+    // OpenVPN 数据包的封装开销（opcode/peer-id、packet id、认证和 CBC 填充的最坏情况），tun-mtu = mssfix - 这部分
+    static final int TUNNEL_OVERHEAD = 60;
+    static final int DEFAULT_TIMEOUT_MS = 250;
+    static final int DEFAULT_ATTEMPTS = 2;
+    static final int DEFAULT_DEADLINE_MS = 3000;
+    static final long CACHE_TTL_MS = 24 * 3600_000L;
+    static final long REDUCED_TTL_MS = 3600_000L;
+    private static final int MAX_CACHED = 32;
+
+    // Linux 的 IP(V6)_MTU_DISCOVER / PMTUDISC_DO，android.system.OsConstants 中没有公开
+    private static final int IPPROTO_IP = 0;
+    private static final int IPPROTO_IPV6 = 41;
+    private static final int IP_MTU_DISCOVER = 10;
+    private static final int IPV6_MTU_DISCOVER = 23;
+    private static final int PMTUDISC_DO = 2;
+
+    private static final class Cached {
+        final int mtu;
+        final boolean ipv6;
+        final long at;
+        final long ttl;
+
+        Cached(int mtu, boolean ipv6, long at, long ttl) {
+            this.mtu = mtu;
+            this.ipv6 = ipv6;
+            this.at = at;
+            this.ttl = ttl;
+        }
+    }
+
+    // 一次探测的结果：mtu 为已确认可通过的最大尺寸；confirmed 表示上界也确认过，而不是因超时或取消停下
+    static final class Probe {
+        final int mtu;
+        final boolean confirmed;
+
+        Probe(int mtu, boolean confirmed) {
+            this.mtu = mtu;
+            this.confirmed = confirmed;
+        }
+    }
+
+    private final int timeoutMs;
+    private final int attempts;
+    private final int deadlineMs;
+    private volatile String host;
+    private volatile int port;
+    private volatile SocketProtector protector;
+
+    // 网络（Network.toString()）到网络标识，网络回调中更新
+    private final Map<String, String> identities = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, Cached> cache = new LinkedHashMap<String, Cached>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+            return size() > MAX_CACHED;
+        }
+    };
+
+    // 统计
+    private volatile long probesSent;
+    private volatile long discoveries;
+    private volatile long cacheHits;
+    private volatile int lastMtu = -1;
+    private volatile long lastProbeMs;
+    private boolean dfWarned;
+
+    public MtuDiscovery() {
+        this(DEFAULT_TIMEOUT_MS, DEFAULT_ATTEMPTS, DEFAULT_DEADLINE_MS);
+    }
+
+    // timeoutMs：每个探测包等待回显的时间；deadlineMs：整个二分过程的时限
+    public MtuDiscovery(int timeoutMs, int attempts, int deadlineMs) {
+        this.timeoutMs = timeoutMs;
+        this.attempts = attempts;
+        this.deadlineMs = deadlineMs;
+    }
+
+    // host 为空时关闭探测，已缓存的结果保留
+    public void setTarget(String host, int port) {
+        this.host = host == null || host.isEmpty() ? null : host;
+        this.port = port;
+    }
+
+    public boolean isEnabled() {
+        return host != null;
+    }
+
+    // 设置后探测 socket 绕过隧道，否则重连时探测的是旧隧道内部的路径
+    public void setProtector(SocketProtector protector) {
+        this.protector = protector;
+    }
+
+    public void onNetwork(String network, String identity) {
+        if (identity != null) {
+            identities.put(network, identity);
+        } else {
+            identities.remove(network);
+        }
+    }
+
+    public void onLost(String network) {
+        identities.remove(network);
+    }
+
+    // 网络的标识，未知时（如拿不到 SSID）返回 null，这类网络每次都探测
+    public String identityOf(String network) {
+        return network == null ? null : identities.get(network);
+    }
+
+    // 网络标识：传输类型加 SSID 或运营商代码（MCC+MNC），都拿不到时为 null
+    public static String identity(String transport, String name) {
+        if (transport == null || name == null || name.isEmpty()) {
+            return null;
+        }
+        return transport + ":" + name;
+    }
+
+    // 探测（probe 为 false 时只查缓存，用于快速重连）并按结果设置 profile，返回应用的路径 MTU，未应用时返回 -1
+    // 总是从 original（配置中原本的 mssfix/tun-mtu）推算，未应用时恢复原值，上一个网络的结果不会留到下一个网络
+    public int applyTo(Profile profile, Profile original, String identity, long now, boolean probe) {
+        profile.mMssFix = original.mMssFix;
+        profile.mTunMtu = original.mTunMtu;
+        Connection[] connections = profile.mConnections;
+        if (host == null || connections == null || connections.length == 0 || !connections[0].mUseUdp) {
+            return -1;
+        }
+        Cached result = probe ? discover(identity, now) : getCached(identity, now);
+        if (result == null) {
+            return -1;
+        }
+        applyTo(profile, original, result.mtu, result.ipv6);
+        return result.mtu;
+    }
+
+    // 命中缓存直接返回，否则探测并缓存；探测目标不可达时返回 null
+    private Cached discover(String identity, long now) {
+        Cached cached = getCached(identity, now);
+        if (cached != null) {
+            cacheHits++;
+            lastMtu = cached.mtu;
+            return cached;
+        }
+        String target = host;
+        if (target == null) {
+            return null;
+        }
+
+        long start = System.nanoTime();
+        InetAddress address;
+        Probe probe;
+        try {
+            address = InetAddress.getByName(target);
+            probe = probe(address, port);
+        } catch (IOException e) {
+            Log.w(TAG, "MTU探测失败: " + e.getMessage());
+            return null;
+        }
+        lastProbeMs = (System.nanoTime() - start) / 1_000_000;
+        // 被取消时结果不完整，不使用
+        if (probe == null || Thread.currentThread().isInterrupted()) {
+            return null;
+        }
+        int mtu = probe.mtu;
+        Cached result = new Cached(mtu, address instanceof Inet6Address, now,
+                mtu >= MAX_MTU ? CACHE_TTL_MS : REDUCED_TTL_MS);
+        discoveries++;
+        lastMtu = mtu;
+        // 超过总时限时只是下界，本次使用但不缓存，下次连接重新探测
+        if (identity != null && probe.confirmed) {
+            synchronized (cache) {
+                cache.put(identity, result);
+            }
+        }
+        Log.d(TAG, "网络 " + identity + " 的路径MTU为 " + mtu + (probe.confirmed ? "" : "（未确认）")
+                + "，耗时 " + lastProbeMs + "ms");
+        return result;
+    }
+
+    private Cached getCached(String identity, long now) {
+        if (identity == null) {
+            return null;
+        }
+        synchronized (cache) {
+            Cached cached = cache.get(identity);
+            return cached != null && now - cached.at < cached.ttl ? cached : null;
+        }
+    }
+
+    public void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    // 二分探测路径 MTU（含 IP/UDP 头）；最小尺寸也不通时返回 null；超过总时限时返回已确认的尺寸（未确认上界）
+    Probe probe(InetAddress address, int port) throws IOException {
+        int header = address instanceof Inet6Address ? IPV6_UDP_HEADER : IPV4_UDP_HEADER;
+        long deadline = System.nanoTime() + deadlineMs * 1_000_000L;
+        byte[] out = new byte[MAX_MTU - header];
+        byte[] in = new byte[MAX_MTU];
+        try (DatagramSocket socket = new DatagramSocket()) {
+            SocketProtector protector = this.protector;
+            if (protector != null) {
+                protector.protect(socket);
+            }
+            socket.connect(address, port);
+            socket.setSoTimeout(timeoutMs);
+            setDontFragment(socket, header == IPV6_UDP_HEADER);
+
+            if (passes(socket, out, in, MAX_MTU - header)) {
+                return new Probe(MAX_MTU, true);
+            }
+            if (!passes(socket, out, in, MIN_MTU - header)) {
+                return null;
+            }
+            // low 已确认可通过，high 没有通过（可能只是丢包）
+            int low = MIN_MTU;
+            int high = MAX_MTU;
+            while (true) {
+                while (high - low > STEP) {
+                    if (Thread.currentThread().isInterrupted() || System.nanoTime() > deadline) {
+                        return new Probe(low, false);
+                    }
+                    int mid = (low + high) >>> 1;
+                    if (passes(socket, out, in, mid - header)) {
+                        low = mid;
+                    } else {
+                        high = mid;
+                    }
+                }
+                if (Thread.currentThread().isInterrupted() || System.nanoTime() > deadline) {
+                    return new Probe(low, false);
+                }
+                // 再确认一次上界：仍不通过才认为是路径 MTU，通过了说明之前是丢包，从这里继续往上找
+                if (!passes(socket, out, in, high - header)) {
+                    return new Probe(low, true);
+                }
+                if (high == MAX_MTU) {
+                    return new Probe(MAX_MTU, true);
+                }
+                low = high;
+                high = MAX_MTU;
+            }
+        }
+    }
+
+    // 发送 size 字节的探测包，attempts 次内收到同样长度的回显即为通过
+    private boolean passes(DatagramSocket socket, byte[] out, byte[] in, int size) throws IOException {
+        DatagramPacket reply = new DatagramPacket(in, in.length);
+        for (int i = 0; i < attempts; i++) {
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            long seq = ++probesSent;
+            writeInt(out, 0, MAGIC);
+            writeInt(out, 4, (int) seq);
+            writeInt(out, 8, size);
+            try {
+                socket.send(new DatagramPacket(out, size));
+            } catch (IOException e) {
+                // 超过本机接口 MTU 时设置了 DF 的包直接返回 EMSGSIZE
+                return false;
+            }
+            long until = System.nanoTime() + timeoutMs * 1_000_000L;
+            while (true) {
+                try {
+                    reply.setLength(in.length);
+                    socket.receive(reply);
+                } catch (SocketTimeoutException e) {
+                    break;
+                }
+                if (reply.getLength() == size && readInt(in, 0) == MAGIC && readInt(in, 4) == (int) seq) {
+                    return true;
+                }
+                // 上一个尺寸迟到的回显，继续等本次的
+                int remaining = (int) ((until - System.nanoTime()) / 1_000_000);
+                if (remaining <= 0) {
+                    break;
+                }
+                socket.setSoTimeout(remaining);
+            }
+            socket.setSoTimeout(timeoutMs);
+        }
+        return false;
+    }
+
+    // 设置 DF，超过路径 MTU 的包不会被分片；设置失败时仍然探测（中途路由器自行分片时结果会偏大）
+    private void setDontFragment(DatagramSocket socket, boolean ipv6) {
+        try (ParcelFileDescriptor pfd = ParcelFileDescriptor.fromDatagramSocket(socket)) {
+            Os.setsockoptInt(pfd.getFileDescriptor(), ipv6 ? IPPROTO_IPV6 : IPPROTO_IP,
+                    ipv6 ? IPV6_MTU_DISCOVER : IP_MTU_DISCOVER, PMTUDISC_DO);
+        } catch (Exception e) {
+            if (!dfWarned) {
+                dfWarned = true;
+                Log.w(TAG, "无法设置DF: " + e.getMessage());
+            }
+        }
+    }
+
+    // 路径比以太网小时，按路径 MTU 调小 mssfix（隧道外 UDP 包的最大载荷）和 tun-mtu，避免大包在路径上被静默丢弃；
+    // 配置里本来更小的值保留，完整路径上保持配置原样。只用于 UDP 连接，TCP 由系统的 MSS 协商处理
+    static void applyTo(Profile profile, Profile original, int pathMtu, boolean ipv6) {
+        profile.mMssFix = original.mMssFix;
+        profile.mTunMtu = original.mTunMtu;
+        if (pathMtu >= MAX_MTU) {
+            return;
+        }
+        int payload = pathMtu - (ipv6 ? IPV6_UDP_HEADER : IPV4_UDP_HEADER);
+        int tunMtu = payload - TUNNEL_OVERHEAD;
+        // 0 表示配置中没有设置
+        profile.mMssFix = original.mMssFix > 0 ? Math.min(original.mMssFix, payload) : payload;
+        profile.mTunMtu = original.mTunMtu > 0 ? Math.min(original.mTunMtu, tunMtu) : tunMtu;
+    }
+
+    public long getProbesSent() {
+        return probesSent;
+    }
+
+    public long getDiscoveries() {
+        return discoveries;
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public int getLastMtu() {
+        return lastMtu;
+    }
+
+    public long getLastProbeMs() {
+        return lastProbeMs;
+    }
+
+    public int getCacheSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private static void writeInt(byte[] b, int off, int v) {
+        b[off] = (byte) (v >>> 24);
+        b[off + 1] = (byte) (v >>> 16);
+        b[off + 2] = (byte) (v >>> 8);
+        b[off + 3] = (byte) v;
+    }
+
+    private static int readInt(byte[] b, int off) {
+        return (b[off] & 0xff) << 24 | (b[off + 1] & 0xff) << 16 | (b[off + 2] & 0xff) << 8 | (b[off + 3] & 0xff);
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.openvpn;
+
+import android.os.Handler;
+import android.util.Log;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// 网络切换：按网络分别跟踪传输类型、是否验证通过和链路状态
+// 更好的网络（如 Wi-Fi 相对蜂窝）验证通过并稳定 SETTLE_MS 后，在旧网络仍可用时就在新网络上重建隧道（先建后断）；
+// 隧道所在网络先丢失时立即切到剩余最好的网络，不再进入 ERROR 和退避。记录每次切换的中断时长
+// 先建后断只是指旧网络在重建期间仍然可用：重建由 core 完成，core 无法指定网络，总是在系统默认网络上建立连接，
+// 这里假设系统已把默认网络切到了选中的网络（验证通过的更好网络会成为默认网络），所以回调不带网络参数
+// 所有方法都应在 handler 所在线程调用
+public class NetworkHandover {
+    private static final String TAG = "NetworkHandover";
+
+    public static final int TRANSPORT_OTHER = 0;
+    public static final int TRANSPORT_CELLULAR = 1;
+    public static final int TRANSPORT_WIFI = 2;
+    public static final int TRANSPORT_ETHERNET = 3;
+
+    // 新网络需稳定这么久才切换，避免信号边缘的 Wi-Fi 来回切换
+    static final long SETTLE_MS = 1_500;
+
+    public interface Callback {
+        // 重建隧道（落在系统默认网络上）；proactive 为 true 表示隧道所在网络仍可用
+        void onHandover(boolean proactive);
+
+        // 最后一个可用网络丢失
+        void onAllNetworksLost();
+    }
+
+    private static final class Tracked {
+        int transport = TRANSPORT_OTHER;
+        boolean validated;
+        boolean unmetered;
+        boolean hasLink;
+    }
+
+    private final Handler handler;
+    private final Callback callback;
+    private final LinkedHashMap<String, Tracked> networks = new LinkedHashMap<>();
+    private final Runnable settleRunnable = this::settle;
+
+    private boolean tunnelUp;
+    // 隧道所在的网络，null 表示未知
+    private String current;
+    // 等待稳定后切换的网络
+    private String pending;
+    private long pendingSince;
+    private boolean handingOver;
+    private long handoverStart;
+
+    // 切换统计
+    private final LatencyHistogram gaps = new LatencyHistogram();
+    private long proactiveHandovers;
+    private long reactiveHandovers;
+    private long failedHandovers;
+    private long lastGapMs;
+
+    public NetworkHandover(Handler handler, Callback callback) {
+        this.handler = handler;
+        this.callback = callback;
+    }
+
+    public void onAvailable(String network, long now) {
+        if (!networks.containsKey(network)) {
+            networks.put(network, new Tracked());
+        }
+        evaluate(now);
+    }
+
+    public void onCapabilitiesChanged(String network, int transport, boolean validated, boolean unmetered, long now) {
+        Tracked tracked = track(network);
+        tracked.transport = transport;
+        tracked.validated = validated;
+        tracked.unmetered = unmetered;
+        evaluate(now);
+    }
+
+    // hasLink：链路上至少有一个地址
+    public void onLinkPropertiesChanged(String network, boolean hasLink, long now) {
+        track(network).hasLink = hasLink;
+        evaluate(now);
+    }
+
+    public void onLost(String network, long now) {
+        networks.remove(network);
+        if (network.equals(pending)) {
+            cancelPending();
+        }
+        String best = best();
+        if (best == null) {
+            Log.d(TAG, "没有可用网络");
+            current = null;
+            tunnelUp = false;
+            handingOver = false;
+            callback.onAllNetworksLost();
+            return;
+        }
+        if (!network.equals(current)) {
+            evaluate(now);
+            return;
+        }
+
+        current = null;
+        if (!tunnelUp || handingOver) {
+            // 切换进行中，中断时间已经从切换开始计算
+            return;
+        }
+        cancelPending();
+        start(best, now, false);
+    }
+
+    // 隧道已建立（首次连接、重连或切换完成）
+    public void onTunnelConnected(long now) {
+        if (handingOver) {
+            lastGapMs = now - handoverStart;
+            gaps.record(lastGapMs);
+            Log.d(TAG, "网络切换完成，中断 " + lastGapMs + "ms");
+        }
+        handingOver = false;
+        tunnelUp = true;
+        if (current != null && !networks.containsKey(current)) {
+            current = null;
+        }
+        evaluate(now);
+    }
+
+    // 隧道出错，交给重连引擎；进行中的切换记为失败
+    public void onTunnelFailed() {
+        if (handingOver) {
+            failedHandovers++;
+        }
+        handingOver = false;
+        tunnelUp = false;
+        cancelPending();
+    }
+
+    // 用户主动断开
+    public void onTunnelClosed() {
+        handingOver = false;
+        tunnelUp = false;
+        current = null;
+        cancelPending();
+    }
+
+    // 按网络优劣选出可用网络中最好的一个，分数相同时优先保留当前网络
+    String best() {
+        String best = null;
+        int bestScore = -1;
+        for (Map.Entry<String, Tracked> entry : networks.entrySet()) {
+            String network = entry.getKey();
+            int score = score(entry.getValue());
+            if (score > bestScore || (score == bestScore && score >= 0 && network.equals(current))) {
+                best = network;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    private void evaluate(long now) {
+        if (!tunnelUp || handingOver) {
+            return;
+        }
+        if (current == null) {
+            // 隧道建立时网络信息还没到，以最先可用的最好网络作为隧道所在网络
+            current = best();
+            return;
+        }
+        String best = best();
+        Tracked tracked = networks.get(current);
+        int currentScore = tracked == null ? -1 : score(tracked);
+        if (best == null || best.equals(current) || score(networks.get(best)) <= currentScore) {
+            cancelPending();
+            return;
+        }
+        if (!best.equals(pending)) {
+            pending = best;
+            pendingSince = now;
+            handler.removeCallbacks(settleRunnable);
+            handler.postDelayed(settleRunnable, SETTLE_MS);
+            Log.d(TAG, "发现更好的网络 " + best + "，稳定后切换");
+        }
+    }
+
+    private void settle() {
+        String target = pending;
+        pending = null;
+        if (target == null || !tunnelUp || handingOver || !networks.containsKey(target)) {
+            return;
+        }
+        // 切换从稳定期结束时开始，不依赖任务实际执行的时刻
+        start(target, pendingSince + SETTLE_MS, current != null && networks.containsKey(current));
+    }
+
+    private void start(String network, long now, boolean proactive) {
+        Log.d(TAG, (proactive ? "先建后断" : "网络丢失") + "，切换到 " + network);
+        handingOver = true;
+        handoverStart = now;
+        current = network;
+        if (proactive) {
+            proactiveHandovers++;
+        } else {
+            reactiveHandovers++;
+        }
+        callback.onHandover(proactive);
+    }
+
+    private void cancelPending() {
+        if (pending != null) {
+            handler.removeCallbacks(settleRunnable);
+            pending = null;
+        }
+    }
+
+    private Tracked track(String network) {
+        Tracked tracked = networks.get(network);
+        if (tracked == null) {
+            tracked = new Tracked();
+            networks.put(network, tracked);
+        }
+        return tracked;
+    }
+
+    // 不可用为 -1；有线 > Wi-Fi > 蜂窝 > 其他，同类中不计流量的优先
+    private static int score(Tracked tracked) {
+        if (!tracked.validated || !tracked.hasLink) {
+            return -1;
+        }
+        return tracked.transport * 2 + (tracked.unmetered ? 1 : 0);
+    }
+
+    public boolean isHandingOver() {
+        return handingOver;
+    }
+
+    public String getCurrentNetwork() {
+        return current;
+    }
+
+    public LatencyHistogram getGaps() {
+        return gaps;
+    }
+
+    public long getProactiveHandovers() {
+        return proactiveHandovers;
+    }
+
+    public long getReactiveHandovers() {
+        return reactiveHandovers;
+    }
+
+    public long getFailedHandovers() {
+        return failedHandovers;
+    }
+
+    public long getLastGapMs() {
+        return lastGapMs;
+    }
+}
@@ -1,55 +1,132 @@
 package com.example.openvpn;
 
 import android.content.Context;
-import android.net.TrafficStats;
 import android.os.SystemClock;
 import android.util.Log;
 
-public class NetworkStatsMonitor {
+import com.example.openvpn.core.VpnStatus;
+
+// 只统计 VPN 的流量，不用 TrafficStats 的全网卡总数（隧道内外的流量会被重复计算）
+// 优先读 /proc/net/dev 中 tun 接口的计数；targetSdk 29 起应用读不到这个文件，改用 core 通过 VpnStatus 上报的字节数
+// （隧道链路上收发的字节，含加密封装开销）
+public class NetworkStatsMonitor implements VpnStatus.ByteCountListener {
     private static final String TAG = "NetworkStatsMonitor";
     private Context context;
-    private long startRxBytes;
-    private long startTxBytes;
     private long startTime;
     private boolean isTracking = false;
+    private final TunTrafficReader tunReader;
+    private boolean useTunCounters = true;
+    // core 上报的累计字节数，开始跟踪后第一次上报作为基线；计数变小说明 core 重新开始计数
+    // 单独加锁：core 在持有 VpnStatus 的锁时回调，不能再等本对象的锁
+    private final Object coreLock = new Object();
+    private boolean coreBaseline;
+    private long lastCoreIn;
+    private long lastCoreOut;
+    private long coreRx;
+    private long coreTx;
+    // 吞吐量时间序列，按1秒采样可覆盖最近12分钟
+    private final ThroughputSeries throughput = new ThroughputSeries(720);
     
     public NetworkStatsMonitor(Context context) {
+        this(context, new TunTrafficReader());
+    }
+
+    NetworkStatsMonitor(Context context, TunTrafficReader tunReader) {
         this.context = context;
+        this.tunReader = tunReader;
     }
     
     // 开始跟踪网络流量
-    public void startTracking() {
-        // 获取VPN启动时的初始流量值
-        startRxBytes = TrafficStats.getTotalRxBytes();
-        startTxBytes = TrafficStats.getTotalTxBytes();
+    public synchronized void startTracking() {
+        // 以开始跟踪时的计数为基线
+        tunReader.reset();
+        useTunCounters = tunReader.sample();
+        resetCoreCounters(0, 0);
+        if (!useTunCounters) {
+            Log.d(TAG, "无法读取tun接口计数，改用core上报的字节数");
+            VpnStatus.addByteCountListener(this);
+        }
         startTime = SystemClock.elapsedRealtime();
+        throughput.clear();
+        throughput.record(startTime, 0, 0);
         isTracking = true;
         Log.d(TAG, "开始跟踪网络流量");
     }
     
     // 停止跟踪
-    public void stopTracking() {
+    public synchronized void stopTracking() {
         isTracking = false;
+        tunReader.close();
+        VpnStatus.removeByteCountListener(this);
+    }
+
+    // core 的管理线程上调用；in/out 为本次连接的累计值
+    @Override
+    public void updateByteCount(long in, long out, long diffIn, long diffOut) {
+        synchronized (coreLock) {
+            if (!coreBaseline) {
+                coreBaseline = true;
+            } else {
+                coreRx += in >= lastCoreIn ? in - lastCoreIn : in;
+                coreTx += out >= lastCoreOut ? out - lastCoreOut : out;
+            }
+            lastCoreIn = in;
+            lastCoreOut = out;
+        }
+    }
+
+    private void resetCoreCounters(long rx, long tx) {
+        synchronized (coreLock) {
+            coreBaseline = false;
+            coreRx = rx;
+            coreTx = tx;
+        }
     }
     
     // 获取VPN网络统计
-    public NetworkStats getVPNNetworkStats() {
+    public synchronized NetworkStats getVPNNetworkStats() {
         if (!isTracking) {
             startTracking();
         }
         
-        long currentRx = TrafficStats.getTotalRxBytes();
-        long currentTx = TrafficStats.getTotalTxBytes();
         long currentTime = SystemClock.elapsedRealtime();
-        
-        // 计算VPN使用的流量（总流量 - 初始流量）
-        long bytesReceived = currentRx - startRxBytes;
-        long bytesSent = currentTx - startTxBytes;
+        long bytesReceived;
+        long bytesSent;
+
+        if (useTunCounters && tunReader.sample()) {
+            // tun 接口的累计流量（已处理计数器重置和接口重建）
+            bytesReceived = tunReader.getTotalRxBytes();
+            bytesSent = tunReader.getTotalTxBytes();
+        } else {
+            if (useTunCounters) {
+                // 中途读不到了：之后改用 core 的计数，已统计的 tun 流量保留
+                Log.w(TAG, "无法读取tun接口计数，改用core上报的字节数");
+                useTunCounters = false;
+                resetCoreCounters(tunReader.getTotalRxBytes(), tunReader.getTotalTxBytes());
+                VpnStatus.addByteCountListener(this);
+            }
+            synchronized (coreLock) {
+                bytesReceived = coreRx;
+                bytesSent = coreTx;
+            }
+        }
         long timeConnected = (currentTime - startTime) / 1000; // 转换为秒
+        throughput.record(currentTime, bytesReceived, bytesSent);
         
         return new NetworkStats(bytesSent, bytesReceived, timeConnected);
     }
     
+    // 获取最近 windowSec 秒内的吞吐量统计；只读已有样本（由统计调度定期采样），
+    // 不触发采样，也不会在未连接时开始跟踪
+    public synchronized void getThroughput(int windowSec, ThroughputSeries.Throughput out) {
+        throughput.query(windowSec * 1000L, out);
+    }
+
+    // 最近几秒的速率，直接使用已有样本，不触发新的采样
+    public synchronized void getLatestThroughput(ThroughputSeries.Throughput out) {
+        throughput.query(5000, out);
+    }
+
     // 网络统计数据类
     public static class NetworkStats {
         public long bytesSent;
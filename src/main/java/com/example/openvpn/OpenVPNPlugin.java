@@ -1,37 +1,46 @@
 package com.example.openvpn;
 
-import android.app.Notification;
-import android.app.NotificationChannel;
-import android.app.NotificationManager;
-import android.app.PendingIntent;
 import android.content.Intent;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.IntentFilter;
 import android.net.ConnectivityManager;
+import android.net.LinkProperties;
 import android.net.Network;
 import android.net.NetworkCapabilities;
 import android.net.NetworkRequest;
 import android.net.VpnService;
+import android.net.wifi.WifiManager;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.PowerManager;
+import android.os.SystemClock;
+import android.telephony.TelephonyManager;
 import android.util.Log;
 
-import androidx.core.app.NotificationCompat;
+import com.example.openvpn.NetworkStatsMonitor.NetworkStats;
 
-import com.example.openvpn.core.OpenVPNService;
 import com.example.openvpn.core.VpnStatus;
+import com.example.openvpn.models.Connection;
 import com.example.openvpn.models.Profile;
-import com.example.openvpn.models.ProfileManager;
 
+import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import io.dcloud.feature.uniapp.annotation.UniJSMethod;
 import io.dcloud.feature.uniapp.bridge.UniJSCallback;
@@ -42,8 +51,10 @@ public class OpenVPNPlugin extends UniPlugin implements VpnStatus.StateListener
     private static final int NOTIFICATION_ID = 1;
     private static final String CHANNEL_ID = "openvpn_channel";
     private static final String ACTION_STOP_VPN = "com.example.openvpn.STOP_VPN";
-    private static final int MAX_RECONNECT_ATTEMPTS = 5;
-    private static final long RECONNECT_DELAY_MS = 5000;
+    // 隧道质量持续下降时的处理：只上报、重连、换到下一个服务器
+    private static final String QUALITY_ACTION_NONE = "none";
+    private static final String QUALITY_ACTION_RECONNECT = "reconnect";
+    private static final String QUALITY_ACTION_SWITCH = "switchServer";
 
     private enum VpnState {
         DISCONNECTED,
@@ -54,15 +65,57 @@ public class OpenVPNPlugin extends UniPlugin implements VpnStatus.StateListener
     }
 
     private OpenVPNService vpnService;
-    private ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final ExecutorService executor;
+    // 连接/断开/重连在 executor 上串行执行，新的用户命令取消之前未完成的命令
+    private final CommandPipeline commands;
+    // 流量统计的调度线程，默认所有实例共用一个
+    private final ScheduledExecutorService statsExecutor;
+    // 重连退避的随机抖动
+    private final Random random;
+    // 当前连接会话所属的命令代号，重连只在没有更新的用户命令时执行
+    private volatile long sessionGeneration;
     private Handler mainHandler = new Handler(Looper.getMainLooper());
-    private UniJSCallback statusCallback;
-    private VpnState vpnState = VpnState.DISCONNECTED;
-    private String lastError = "";
-    private Timer networkMonitorTimer;
-    private PowerManager.WakeLock wakeLock;
+    // 状态/统计事件按订阅者合并后每帧投递；setStatusCallback 设置的回调也是其中一个订阅者
+    private final EventStream eventStream = new EventStream();
+    private final Runnable flushEvents = this::flushEvents;
+    private volatile EventStream.Subscription statusSubscription;
+    private volatile VpnState vpnState = VpnState.DISCONNECTED;
+    private volatile String lastError = "";
+    // 最近一次上报的状态（core 的原始状态字符串）
+    private volatile String currentStatus = VpnState.DISCONNECTED.name();
+    private StatsScheduler statsScheduler;
+    private WakeLockScheduler wakeLockScheduler;
     private NetworkStatsMonitor networkStatsMonitor;
-    private int reconnectAttempts = 0;
+    private ProfileCache profileCache;
+    private volatile ProfileCache.Entry lastEntry;
+    // 当前会话使用的配置副本，快速重连和切换服务器时在它上面修改
+    private volatile Profile lastProfile;
+    private ReconnectEngine reconnectEngine;
+    private NetworkHandover networkHandover;
+    private final RemoteProber remoteProber = new RemoteProber();
+    // 路径 MTU 探测，未设置探测主机时不运行；underlyingNetwork 为当前最好的底层网络，在主线程上更新
+    private final MtuDiscovery mtuDiscovery = new MtuDiscovery();
+    private volatile String underlyingNetwork;
+    // 隧道质量探测，未设置探测主机时不运行
+    private final QualityMonitor qualityMonitor = new QualityMonitor();
+    private volatile EchoProber echoProber;
+    private volatile String qualityAction = QUALITY_ACTION_NONE;
+    private final PerfMetrics perfMetrics = new PerfMetrics();
+    private VpnNotificationController notificationController;
+    private volatile UsageJournal usageJournal;
+    private volatile PacketEngine packetEngine;
+    private volatile DnsCache dnsCache;
+    // 限速和流量配额，未设置时不创建
+    private volatile TrafficShaper trafficShaper;
+    // 按应用分流策略，未设置时不改动配置
+    private volatile AppPolicy appPolicy;
+    private volatile boolean packetEngineEnabled = false;
+    // 当前会话ID（连接发起时的时间戳），写入使用记录
+    private volatile long sessionId;
+    private final ThroughputSeries.Throughput notificationRates = new ThroughputSeries.Throughput();
+    // 用户主动断开后不再自动重连
+    private volatile boolean reconnectEnabled = false;
+    private final AtomicInteger reconnectAttempts = new AtomicInteger();
     private String lastUsername;
     private String lastPassword;
     private String lastConfig;
@@ -80,6 +133,18 @@ public class OpenVPNPlugin extends UniPlugin implements VpnStatus.StateListener
         }
     };
 
+    public OpenVPNPlugin() {
+        this(Executors.newSingleThreadExecutor(), StatsScheduler.SHARED, new Random());
+    }
+
+    // 供模拟环境注入线程和随机源，使整个插件可以在虚拟时钟上确定性地运行
+    OpenVPNPlugin(ExecutorService executor, ScheduledExecutorService statsExecutor, Random random) {
+        this.executor = executor;
+        this.commands = new CommandPipeline(executor);
+        this.statsExecutor = statsExecutor;
+        this.random = random;
+    }
+
     @Override
     public void onDestroy() {
         super.onDestroy();
@@ -93,6 +158,15 @@ public class OpenVPNPlugin extends UniPlugin implements VpnStatus.StateListener
 
         // 停止网络监控
         stopNetworkMonitoring();
+        EchoProber prober = echoProber;
+        if (prober != null) {
+            prober.stop();
+        }
+
+        // 保存使用记录
+        if (usageJournal != null) {
+            usageJournal.close(System.currentTimeMillis());
+        }
 
         // 释放唤醒锁
         releaseWakeLock();
@@ -128,32 +202,21 @@ public class OpenVPNPlugin extends UniPlugin implements VpnStatus.StateListener
             IntentFilter filter = new IntentFilter(ACTION_STOP_VPN);
             mContext.registerReceiver(stopReceiver, filter);
 
-            // 初始化网络监听
-            initNetworkMonitor();
-
-            // 初始化网络统计监控
-            networkStatsMonitor = new NetworkStatsMonitor(mContext);
-
-            // 获取唤醒锁，确保锁屏时运行
-            PowerManager powerManager = (PowerManager) mContext.getSystemService(Context.POWER_SERVICE);
-            wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK,
-                    "OpenVPN:WakeLock");
+            // 网络监听、服务和状态监听在 warmUp 或第一次连接时准备，流量统计和唤醒锁在用到时才创建
 
             // 请求VPN权限
             Intent intent = VpnService.prepare(mContext);
             if (intent != null) {
                 // 需要用户授权
-                callback.invoke(new JSONObject() {{
-                    put("success", false);
-                    put("needPermission", true);
-                    put("intent", intent);
-                }});
+                callback.invoke(new JSONObject()
+                        .put("success", false)
+                        .put("needPermission", true)
+                        .put("intent", intent));
             } else {
                 // 已授权
-                callback.invoke(new JSONObject() {{
-                    put("success", true);
-                    put("needPermission", false);
-                }});
+                callback.invoke(new JSONObject()
+                        .put("success", true)
+                        .put("needPermission", false));
             }
         } catch (Exception e) {
             Log.e(TAG, "初始化失败", e);
@@ -161,49 +224,134 @@ public class OpenVPNPlugin extends UniPlugin implements VpnStatus.StateListener
         }
     }
 
+    // 预先注册配置，返回的句柄可代替配置内容传给 connect
+    @UniJSMethod(uiThread = false)
+    public void registerConfig(String config, UniJSCallback callback) {
+        executor.execute(() -> {
+            try {
+                ProfileCache.Entry entry = getProfileCache().register(config);
+                if (entry == null) {
+                    invokeErrorCallback(callback, "配置文件解析失败");
+                    return;
+                }
+                callback.invoke(new JSONObject()
+                        .put("success", true)
+                        .put("handle", entry.handle));
+            } catch (ConfigParseException e) {
+                invokeErrorCallback(callback, "配置文件解析失败: " + e.getMessage());
+            } catch (Exception e) {
+                Log.e(TAG, "注册配置失败", e);
+                invokeErrorCallback(callback, "注册配置失败: " + e.getMessage());
+            }
+        });
+    }
+
+    // 预热：应用即将连接时调用（如进入连接页面），在后台线程上提前注册网络监听、创建服务并注册状态监听、打开使用记录，
+    // 并预先解析和校验配置（config 可为空）；之后的 connect 只需写入认证信息并启动
+    @UniJSMethod(uiThread = false)
+    public void warmUp(String config, UniJSCallback callback) {
+        executor.execute(() -> {
+            try {
+                long start = SystemClock.elapsedRealtime();
+                ensureStandby();
+                getUsageJournal();
+                ProfileCache.Entry entry = config == null || config.isEmpty() ? null : getProfileCache().resolve(config);
+                if (config != null && !config.isEmpty() && entry == null) {
+                    invokeErrorCallback(callback, ProfileCache.isHandle(config) ? "配置句柄无效" : "配置文件解析失败");
+                    return;
+                }
+                long elapsed = SystemClock.elapsedRealtime() - start;
+                if (callback != null) {
+                    JSONObject result = new JSONObject();
+                    result.put("success", true);
+                    if (entry != null) {
+                        result.put("handle", entry.handle);
+                    }
+                    result.put("elapsedMs", elapsed);
+                    callback.invoke(result);
+                }
+            } catch (ConfigParseException e) {
+                invokeErrorCallback(callback, "配置文件解析失败: " + e.getMessage());
+            } catch (Exception e) {
+                Log.e(TAG, "预热失败", e);
+                invokeErrorCallback(callback, "预热失败: " + e.getMessage());
+            }
+        });
+    }
+
     @UniJSMethod(uiThread = false)
     public void connect(String username, String password, String config, UniJSCallback callback) {
         // 保存连接参数用于重连
         lastUsername = username;
         lastPassword = password;
         lastConfig = config;
+        reconnectEnabled = true;
+        perfMetrics.onConnectRequested(SystemClock.elapsedRealtime());
+        sessionId = System.currentTimeMillis();
 
-        executor.execute(() -> {
+        commands.submit("connect", token -> {
             try {
+                sessionGeneration = token.generation;
                 // 申请唤醒锁
                 acquireWakeLock();
 
-                // 创建VPN配置文件
-                Profile profile = Profile.parseVpnProfile(config.getBytes());
-                if (profile == null) {
-                    invokeErrorCallback(callback, "配置文件解析失败");
+                // 服务和配置都已提前准备好时为热启动，分别统计冷/热启动的耗时
+                boolean ready = ensureStandby();
+                long parses = getProfileCache().getParseCount();
+
+                // 取得VPN配置（config 可以是配置内容或 registerConfig 返回的句柄），相同内容只解析一次
+                ProfileCache.Entry entry = getProfileCache().resolve(config);
+                if (entry == null) {
+                    invokeErrorCallback(callback, ProfileCache.isHandle(config) ? "配置句柄无效" : "配置文件解析失败");
                     return;
                 }
+                lastEntry = entry;
+
+                // 设置认证信息（内容未变化时不再重复保存），之后只修改这次连接的副本
+                Profile profile = getProfileCache().checkout(entry, username, password);
+                lastProfile = profile;
+
+                // 新会话开始配额记账，已用尽且设置为断开时不再连接
+                TrafficShaper shaper = trafficShaper;
+                if (shaper != null) {
+                    startQuotaPeriod(shaper, System.currentTimeMillis(), true);
+                    if (shaper.isExhausted() && TrafficShaper.ACTION_STOP.equals(shaper.getAction())) {
+                        invokeErrorCallback(callback, "流量配额已用完");
+                        releaseWakeLock();
+                        return;
+                    }
+                }
 
-                // 设置认证信息
-                profile.mUsername = username;
-                profile.mPassword = password;
-
-                // 保存配置
-                ProfileManager.getInstance(mContext).addProfile(profile);
-                ProfileManager.getInstance(mContext).saveProfile(mContext, profile);
+                boolean warm = ready && parses == getProfileCache().getParseCount();
+                perfMetrics.onStandbyChecked(warm);
+                vpnService.setPacketEngine(packetEngineEnabled ? getPacketEngine() : null);
 
-                // 初始化并启动VPN服务
-                if (vpnService == null) {
-                    vpnService = new OpenVPNService();
-                    VpnStatus.addStateListener(this);
-                }
+                // 有多个remote时先并发探测，把最快的服务器排在前面；期间被取消时立即中断探测
+                token.interruptibly(() -> remoteProber.reorder(profile));
+                // 按当前网络的路径 MTU 设置 tun-mtu/mssfix，同一网络只探测一次
+                token.interruptibly(() -> applyMtu(profile, entry.profile, true));
+                applyAppPolicy(profile);
 
-                // 启动VPN
+                // 启动VPN前最后一次检查，已被断开或新的连接取代时不再启动
+                token.checkpoint();
                 vpnService.startVPN(profile);
+                perfMetrics.onSetupDone(SystemClock.elapsedRealtime());
                 setVpnState(VpnState.CONNECTING, null);
 
                 // 开始网络监控
+                getUsageJournal();
                 startNetworkMonitoring();
 
-                callback.invoke(new JSONObject() {{
-                    put("success", true);
-                }});
+                callback.invoke(new JSONObject()
+                        .put("success", true)
+                        .put("warm", warm));
+            } catch (CancellationException e) {
+                // 唤醒锁和状态由取代它的命令处理
+                invokeErrorCallback(callback, "连接已取消");
+                throw e;
+            } catch (ConfigParseException e) {
+                invokeErrorCallback(callback, "配置文件解析失败: " + e.getMessage());
+                releaseWakeLock();
             } catch (Exception e) {
                 Log.e(TAG, "VPN连接失败", e);
                 setVpnState(VpnState.ERROR, "连接失败: " + e.getMessage());
@@ -215,34 +363,36 @@ public class OpenVPNPlugin extends UniPlugin implements VpnStatus.StateListener
 
     @UniJSMethod(uiThread = false)
     public void disconnect(UniJSCallback callback) {
-        try {
-            reconnectAttempts = 0; // 重置重连计数器
+        // 立即停止自动重连并取消进行中的连接，停止服务在之前的命令退出后串行执行
+        reconnectEnabled = false;
+        mainHandler.post(() -> getReconnectEngine().cancel());
+        commands.submit("disconnect", token -> {
+            try {
+                reconnectAttempts.set(0); // 重置重连计数器
 
-            if (vpnService != null) {
-                vpnService.stopVPN(false);
-            }
+                if (vpnService != null) {
+                    vpnService.stopVPN(false);
+                }
 
-            setVpnState(VpnState.DISCONNECTED, null);
+                setVpnState(VpnState.DISCONNECTED, null);
 
-            if (callback != null) {
-                callback.invoke(new JSONObject() {{
-                    put("success", true);
-                }});
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "VPN断开失败", e);
-            if (callback != null) {
-                invokeErrorCallback(callback, "断开失败: " + e.getMessage());
+                if (callback != null) {
+                    callback.invoke(BridgePayload.result(true));
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "VPN断开失败", e);
+                if (callback != null) {
+                    invokeErrorCallback(callback, "断开失败: " + e.getMessage());
+                }
             }
-        }
+        });
     }
 
     @UniJSMethod(uiThread = false)
     public void getStatus(UniJSCallback callback) {
         try {
-            callback.invoke(new JSONObject() {{
-                put("status", currentStatus);
-            }});
+            callback.invoke(new JSONObject()
+                    .put("status", currentStatus));
         } catch (Exception e) {
             invokeErrorCallback(callback, "获取状态失败");
         }
@@ -250,49 +400,798 @@ public class OpenVPNPlugin extends UniPlugin implements VpnStatus.StateListener
 
     @UniJSMethod(uiThread = false)
     public void setStatusCallback(UniJSCallback callback) {
-        this.statusCallback = callback;
+        EventStream.Subscription previous = statusSubscription;
+        if (previous != null) {
+            eventStream.unsubscribe(previous.id);
+        }
+        if (callback == null) {
+            statusSubscription = null;
+            return;
+        }
+        statusSubscription = eventStream.subscribe("status,stats", null, 0, EventStream.POLICY_LATEST, 0,
+                (subscription, events, count, dropped) -> {
+                    for (int i = 0; i < count; i++) {
+                        callback.invoke(legacyStatusPayload(events[i]));
+                    }
+                });
         // 立即返回当前状态
         updateStatusCallback();
     }
 
+    // 订阅状态/统计事件：types、fields 为逗号分隔（空表示全部），maxRate 为每秒最多投递的批次数（0 表示每帧）
+    // policy 为 latest（每种事件只保留最新一条）或 dropOldest（按顺序保留最近16条，多出的丢弃最旧的）
+    // 先回调 {success, subscription, format}，之后每批回调 {subscription, events: [{type, time, ...}], dropped}
     @UniJSMethod(uiThread = false)
-    public void getNetworkStats(UniJSCallback callback) {
+    public void subscribe(String types, String fields, int maxRate, String policy, UniJSCallback callback) {
+        subscribe(types, fields, maxRate, policy, EventStream.ENCODING_OBJECT, callback);
+    }
+
+    // 与 subscribe 相同，但每个事件为数组 [type序号, time, ...字段值]，类型名和字段顺序见确认中的 format，适合高频的统计事件
+    @UniJSMethod(uiThread = false)
+    public void subscribePacked(String types, String fields, int maxRate, String policy, UniJSCallback callback) {
+        subscribe(types, fields, maxRate, policy, EventStream.ENCODING_PACKED, callback);
+    }
+
+    private void subscribe(String types, String fields, int maxRate, String policy, String encoding,
+                           UniJSCallback callback) {
         try {
-            if (networkStatsMonitor == null) {
-                networkStatsMonitor = new NetworkStatsMonitor(mContext);
+            EventStream.Subscription subscription = eventStream.subscribe(types, fields, maxRate, policy, encoding, 0,
+                    (s, events, count, dropped) -> callback.invokeAndKeepAlive(
+                            EventStream.toBatch(s, events, count, dropped)));
+            // 确认先于第一批事件到达（事件最早在一帧之后投递）
+            mainHandler.post(() -> {
+                try {
+                    callback.invokeAndKeepAlive(new JSONObject()
+                            .put("success", true)
+                            .put("subscription", subscription.id)
+                            .put("format", EventStream.describe(subscription)));
+                } catch (Exception e) {
+                    Log.e(TAG, "订阅回调失败", e);
+                }
+            });
+        } catch (IllegalArgumentException e) {
+            invokeErrorCallback(callback, e.getMessage());
+        } catch (Exception e) {
+            Log.e(TAG, "订阅失败", e);
+            invokeErrorCallback(callback, "订阅失败: " + e.getMessage());
+        }
+    }
+
+    @UniJSMethod(uiThread = false)
+    public void unsubscribe(int subscription, UniJSCallback callback) {
+        boolean removed = eventStream.unsubscribe(subscription);
+        if (callback != null) {
+            try {
+                callback.invoke(BridgePayload.result(removed));
+            } catch (Exception e) {
+                Log.e(TAG, "取消订阅失败", e);
+                invokeErrorCallback(callback, "取消订阅失败: " + e.getMessage());
             }
+        }
+    }
 
-            NetworkStats stats = networkStatsMonitor.getVPNNetworkStats();
-            callback.invoke(new JSONObject() {{
-                put("bytesSent", stats.bytesSent);
-                put("bytesReceived", stats.bytesReceived);
-                put("timeConnected", stats.timeConnected);
-            }});
+    // 通知栏选项：是否显示实时上下行速率
+    @UniJSMethod(uiThread = false)
+    public void setNotificationOptions(boolean showRates, UniJSCallback callback) {
+        getNotificationController().setShowRates(showRates);
+        if (callback != null) {
+            try {
+                callback.invoke(BridgePayload.result(true));
+            } catch (Exception e) {
+                Log.e(TAG, "设置通知选项失败", e);
+                invokeErrorCallback(callback, "设置通知选项失败: " + e.getMessage());
+            }
+        }
+    }
+
+    @UniJSMethod(uiThread = false)
+    public void getNetworkStats(UniJSCallback callback) {
+        try {
+            NetworkStats stats = getNetworkStatsMonitor().getVPNNetworkStats();
+            AppPolicy policy = appPolicy;
+            JSONObject result = new JSONObject();
+            result.put("bytesSent", stats.bytesSent);
+            result.put("bytesReceived", stats.bytesReceived);
+            result.put("timeConnected", stats.timeConnected);
+            if (policy != null) {
+                result.put("appPolicy", appPolicyStats(policy));
+            }
+            if (echoProber != null) {
+                result.put("quality", qualityStats());
+            }
+            callback.invoke(result);
         } catch (Exception e) {
             Log.e(TAG, "获取网络统计失败", e);
             invokeErrorCallback(callback, "获取网络统计失败: " + e.getMessage());
         }
     }
 
-    // 状态更新回调
-    @Override
-    public void updateState(String state, String logmessage, int localizedResId, Throwable throwable) {
-        Log.d(TAG, "VPN状态更新: " + state);
-        currentStatus = state;
+    @UniJSMethod(uiThread = false)
+    public void getThroughput(int windowSec, UniJSCallback callback) {
+        try {
+            ThroughputSeries.Throughput t = new ThroughputSeries.Throughput();
+            getNetworkStatsMonitor().getThroughput(windowSec > 0 ? windowSec : 60, t);
+            // 速率单位：字节/秒
+            callback.invoke(new JSONObject()
+                    .put("samples", t.samples)
+                    .put("rxRate", t.rxRate)
+                    .put("txRate", t.txRate)
+                    .put("rxEwmaRate", t.rxEwmaRate)
+                    .put("txEwmaRate", t.txEwmaRate)
+                    .put("rxPeakRate", t.rxPeakRate)
+                    .put("txPeakRate", t.txPeakRate)
+                    .put("rxP50Rate", t.rxP50Rate)
+                    .put("txP50Rate", t.txP50Rate)
+                    .put("rxP95Rate", t.rxP95Rate)
+                    .put("txP95Rate", t.txP95Rate));
+        } catch (Exception e) {
+            Log.e(TAG, "获取吞吐量失败", e);
+            invokeErrorCallback(callback, "获取吞吐量失败: " + e.getMessage());
+        }
+    }
 
-        // 更新通知
-        if (state.equals("CONNECTED")) {
-            showForegroundNotification("VPN已连接", "OpenVPN连接已建立");
-            networkStatsMonitor.startTracking();
-        } else if (state.equals("DISCONNECTED")) {
-            stopForegroundNotification();
-            stopNetworkMonitoring();
-            releaseWakeLock();
-        } else if (state.equals("ERROR")) {
-            showForegroundNotification("VPN错误", logmessage);
+    // 历史流量，from/to 为毫秒时间戳，granularity 为 "day" 或 "month"；直接读取汇总，不扫描日志
+    @UniJSMethod(uiThread = false)
+    public void getUsageHistory(long from, long to, String granularity, UniJSCallback callback) {
+        executor.execute(() -> {
+            try {
+                UsageJournal journal = getUsageJournal();
+                if (journal == null) {
+                    invokeErrorCallback(callback, "使用记录不可用");
+                    return;
+                }
+                boolean monthly = "month".equals(granularity);
+                long[] usage = new long[2];
+                long totalRx = 0;
+                long totalTx = 0;
+                JSONArray items = new JSONArray();
+
+                long firstDay = journal.localDay(from);
+                long lastDay = journal.localDay(to);
+                if (monthly) {
+                    long lastMonth = UsageJournal.monthKey(lastDay);
+                    long firstMonth = Math.max(UsageJournal.monthKey(firstDay), lastMonth - UsageJournal.MONTH_SLOTS + 1);
+                    for (long month = firstMonth; month <= lastMonth; month++) {
+                        journal.getMonthUsage(month, usage);
+                        items.put(usageItem(String.format(Locale.US, "%04d-%02d", month / 12, month % 12 + 1), usage));
+                        totalRx += usage[0];
+                        totalTx += usage[1];
+                    }
+                } else {
+                    firstDay = Math.max(firstDay, lastDay - UsageJournal.DAY_SLOTS + 1);
+                    SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+                    for (long day = firstDay; day <= lastDay; day++) {
+                        journal.getDayUsage(day, usage);
+                        items.put(usageItem(format.format(new Date(journal.dayStartMs(day))), usage));
+                        totalRx += usage[0];
+                        totalTx += usage[1];
+                    }
+                }
+
+                JSONObject result = new JSONObject();
+                result.put("granularity", monthly ? "month" : "day");
+                result.put("items", items);
+                result.put("bytesReceived", totalRx);
+                result.put("bytesSent", totalTx);
+                callback.invoke(result);
+            } catch (Exception e) {
+                Log.e(TAG, "获取历史流量失败", e);
+                invokeErrorCallback(callback, "获取历史流量失败: " + e.getMessage());
+            }
+        });
+    }
+
+    private static JSONObject usageItem(String period, long[] usage) throws JSONException {
+        JSONObject item = new JSONObject();
+        item.put("period", period);
+        item.put("bytesReceived", usage[0]);
+        item.put("bytesSent", usage[1]);
+        return item;
+    }
+
+    // 断线到恢复的耗时统计
+    @UniJSMethod(uiThread = false)
+    public void getReconnectStats(UniJSCallback callback) {
+        mainHandler.post(() -> {
+            try {
+                ReconnectEngine engine = getReconnectEngine();
+                callback.invoke(new JSONObject()
+                        .put("recovering", engine.isRecovering())
+                        .put("recoveries", engine.getRecoveries())
+                        .put("lastRecoveryMs", engine.getLastRecoveryMs())
+                        .put("medianRecoveryMs", engine.getMedianRecoveryMs())
+                        .put("averageRecoveryMs", engine.getAverageRecoveryMs())
+                        .put("maxRecoveryMs", engine.getMaxRecoveryMs())
+                        .put("handover", handoverStats(getNetworkHandover())));
+            } catch (Exception e) {
+                Log.e(TAG, "获取重连统计失败", e);
+                invokeErrorCallback(callback, "获取重连统计失败: " + e.getMessage());
+            }
+        });
+    }
+
+    // 网络切换次数及每次切换的隧道中断时长（毫秒）
+    private static JSONObject handoverStats(NetworkHandover handover) throws JSONException {
+        LatencyHistogram gaps = handover.getGaps();
+        JSONObject result = new JSONObject();
+        result.put("network", handover.getCurrentNetwork());
+        result.put("handingOver", handover.isHandingOver());
+        result.put("proactive", handover.getProactiveHandovers());
+        result.put("reactive", handover.getReactiveHandovers());
+        result.put("failed", handover.getFailedHandovers());
+        result.put("lastGapMs", handover.getLastGapMs());
+        result.put("p50GapMs", gaps.percentile(50));
+        result.put("p90GapMs", gaps.percentile(90));
+        result.put("maxGapMs", gaps.getMax());
+        return result;
+    }
+
+    // 隧道质量探测：host/port 为隧道内的 UDP 回显服务（如网关的 echo 端口 7），host 为空时关闭
+    // 阈值 <= 0 表示不检查该项；action 为 none、reconnect 或 switchServer，质量持续低于阈值时执行
+    @UniJSMethod(uiThread = false)
+    public void setQualityProbe(String host, int port, int maxRttMs, int maxJitterMs, int maxLossPercent,
+                                String action, UniJSCallback callback) {
+        String mode = action == null || action.isEmpty() ? QUALITY_ACTION_NONE : action;
+        if (!QUALITY_ACTION_NONE.equals(mode) && !QUALITY_ACTION_RECONNECT.equals(mode)
+                && !QUALITY_ACTION_SWITCH.equals(mode)) {
+            invokeErrorCallback(callback, "未知的处理方式: " + action);
+            return;
+        }
+        if (host != null && !host.isEmpty() && (port <= 0 || port > 65535)) {
+            invokeErrorCallback(callback, "无效的端口: " + port);
+            return;
+        }
+        qualityMonitor.setThresholds(maxRttMs, maxJitterMs, maxLossPercent);
+        qualityAction = mode;
+        synchronized (this) {
+            EchoProber previous = echoProber;
+            if (previous != null) {
+                previous.stop();
+            }
+            echoProber = host == null || host.isEmpty() ? null
+                    : new EchoProber(qualityMonitor, host, port, reason -> mainHandler.post(() -> onQualityDegraded(reason)));
+            if (echoProber != null && vpnState == VpnState.CONNECTED) {
+                echoProber.start();
+            }
+        }
+        if (callback != null) {
+            try {
+                callback.invoke(new JSONObject()
+                        .put("success", true)
+                        .put("enabled", echoProber != null));
+            } catch (Exception e) {
+                Log.e(TAG, "设置质量探测失败", e);
+                invokeErrorCallback(callback, "设置质量探测失败: " + e.getMessage());
+            }
         }
+    }
 
-        updateStatusCallback();
+    // 路径 MTU 探测：host/port 为服务器一侧的 UDP 回显服务（不经过隧道），host 为空时关闭，已探测的结果保留
+    // 开启后每次连接前按当前网络设置 tun-mtu/mssfix，同一网络（SSID 或运营商）24 小时内不再重复探测
+    @UniJSMethod(uiThread = false)
+    public void setMtuDiscovery(String host, int port, UniJSCallback callback) {
+        if (host != null && !host.isEmpty() && (port <= 0 || port > 65535)) {
+            invokeErrorCallback(callback, "无效的端口: " + port);
+            return;
+        }
+        mtuDiscovery.setTarget(host, port);
+        if (callback != null) {
+            try {
+                callback.invoke(new JSONObject()
+                        .put("success", true)
+                        .put("enabled", mtuDiscovery.isEnabled()));
+            } catch (Exception e) {
+                Log.e(TAG, "设置MTU探测失败", e);
+                invokeErrorCallback(callback, "设置MTU探测失败: " + e.getMessage());
+            }
+        }
+    }
+
+    @UniJSMethod(uiThread = false)
+    public void getMtuInfo(UniJSCallback callback) {
+        String identity = mtuDiscovery.identityOf(underlyingNetwork);
+        try {
+            callback.invoke(new JSONObject()
+                    .put("enabled", mtuDiscovery.isEnabled())
+                    .put("network", identity)
+                    .put("mtu", mtuDiscovery.getLastMtu())
+                    .put("probes", mtuDiscovery.getProbesSent())
+                    .put("discoveries", mtuDiscovery.getDiscoveries())
+                    .put("cacheHits", mtuDiscovery.getCacheHits())
+                    .put("cached", mtuDiscovery.getCacheSize())
+                    .put("lastProbeMs", mtuDiscovery.getLastProbeMs()));
+        } catch (Exception e) {
+            Log.e(TAG, "获取MTU信息失败", e);
+            invokeErrorCallback(callback, "获取MTU信息失败: " + e.getMessage());
+        }
+    }
+
+    // original 为缓存中的配置模板，探测关闭或没有结果时恢复其中的 mssfix/tun-mtu
+    private void applyMtu(Profile profile, Profile original, boolean probe) {
+        String identity = mtuDiscovery.identityOf(underlyingNetwork);
+        int mtu = mtuDiscovery.applyTo(profile, original, identity, System.currentTimeMillis(), probe);
+        if (mtu > 0) {
+            Log.d(TAG, "网络 " + identity + " 路径MTU " + mtu + "，mssfix " + profile.mMssFix + "，tun-mtu " + profile.mTunMtu);
+        }
+    }
+
+    // 在主线程上处理持续的质量下降
+    private void onQualityDegraded(String reason) {
+        Log.w(TAG, "隧道质量持续下降: " + reason + "，处理方式 " + qualityAction);
+        if (!reconnectEnabled || vpnState != VpnState.CONNECTED || QUALITY_ACTION_NONE.equals(qualityAction)) {
+            return;
+        }
+        Profile profile = lastProfile;
+        if (QUALITY_ACTION_SWITCH.equals(qualityAction) && profile != null) {
+            rotateRemotes(profile);
+        }
+        reconnect();
+    }
+
+    // 把当前服务器移到最后，重连时 core 从下一个 remote 开始尝试
+    private static void rotateRemotes(Profile profile) {
+        Connection[] connections = profile.mConnections;
+        if (connections == null || connections.length < 2) {
+            return;
+        }
+        Connection first = connections[0];
+        System.arraycopy(connections, 1, connections, 0, connections.length - 1);
+        connections[connections.length - 1] = first;
+    }
+
+    private JSONObject qualityStats() throws JSONException {
+        EchoProber prober = echoProber;
+        QualityMonitor.Quality quality = new QualityMonitor.Quality();
+        qualityMonitor.getQuality(quality);
+        JSONObject result = new JSONObject();
+        result.put("running", prober != null && prober.isRunning());
+        result.put("samples", quality.samples);
+        result.put("rttMs", quality.rttMs);
+        result.put("minRttMs", quality.minRttMs);
+        result.put("maxRttMs", quality.maxRttMs);
+        result.put("jitterMs", quality.jitterMs);
+        result.put("lossPercent", quality.lossPercent);
+        result.put("degraded", quality.degraded);
+        result.put("intervalMs", quality.intervalMs);
+        result.put("probesSent", quality.probesSent);
+        result.put("triggers", quality.triggers);
+        return result;
+    }
+
+    // 连接各阶段耗时（毫秒），含 p50/p90/p99 和次数
+    @UniJSMethod(uiThread = false)
+    public void getPerfMetrics(UniJSCallback callback) {
+        try {
+            JSONObject result = new JSONObject();
+            for (PerfMetrics.Phase phase : PerfMetrics.Phase.values()) {
+                LatencyHistogram histogram = perfMetrics.get(phase);
+                result.put(phase.key, new JSONObject()
+                        .put("count", histogram.getCount())
+                        .put("mean", histogram.getMean())
+                        .put("p50", histogram.percentile(50))
+                        .put("p90", histogram.percentile(90))
+                        .put("p99", histogram.percentile(99))
+                        .put("max", histogram.getMax()));
+            }
+            if (wakeLockScheduler != null) {
+                long now = SystemClock.elapsedRealtime();
+                result.put("wakeLock", new JSONObject()
+                        .put("held", wakeLockScheduler.isHeld())
+                        .put("heldMs", wakeLockScheduler.getHeldTimeMs(now))
+                        .put("acquisitions", wakeLockScheduler.getAcquisitions()));
+            }
+            callback.invoke(result);
+        } catch (Exception e) {
+            Log.e(TAG, "获取性能指标失败", e);
+            invokeErrorCallback(callback, "获取性能指标失败: " + e.getMessage());
+        }
+    }
+
+    // 唤醒锁策略：空闲多少秒后释放；返回累计持有时长
+    @UniJSMethod(uiThread = false)
+    public void setWakeLockPolicy(int idleSec, UniJSCallback callback) {
+        WakeLockScheduler wakeLockScheduler = getWakeLockScheduler();
+        if (idleSec >= 0) {
+            wakeLockScheduler.setIdleWindowMs(idleSec * 1000L);
+        }
+        long now = SystemClock.elapsedRealtime();
+        try {
+            callback.invoke(new JSONObject()
+                    .put("success", true)
+                    .put("idleSec", wakeLockScheduler.getIdleWindowMs() / 1000)
+                    .put("held", wakeLockScheduler.isHeld())
+                    .put("heldMs", wakeLockScheduler.getHeldTimeMs(now))
+                    .put("acquisitions", wakeLockScheduler.getAcquisitions()));
+        } catch (Exception e) {
+            Log.e(TAG, "设置唤醒锁策略失败", e);
+            invokeErrorCallback(callback, "设置唤醒锁策略失败: " + e.getMessage());
+        }
+    }
+
+    // 按应用分流：mode 为 all/allow/deny，packages 为逗号分隔的包名
+    // 包名只在这里解析一次；已连接时通过快速重连重建隧道接口，不重新解析配置
+    @UniJSMethod(uiThread = false)
+    public void setAppPolicy(String mode, String packages, UniJSCallback callback) {
+        executor.execute(() -> {
+            try {
+                AppPolicy policy = AppPolicy.resolve(mContext.getPackageManager(), mode, packages);
+                AppPolicy previous = appPolicy;
+                boolean changed = !policy.sameAs(previous);
+                if (changed) {
+                    policy.replace(previous, SystemClock.elapsedRealtime());
+                    appPolicy = policy;
+                    VpnState state = vpnState;
+                    if (state == VpnState.CONNECTED || state == VpnState.CONNECTING) {
+                        reconnect();
+                    }
+                }
+                if (callback != null) {
+                    callback.invoke(new JSONObject()
+                            .put("success", true)
+                            .put("mode", policy.mode)
+                            .put("packages", new JSONArray(policy.packages))
+                            .put("missing", new JSONArray(policy.missing))
+                            .put("changed", changed));
+                }
+            } catch (IllegalArgumentException e) {
+                invokeErrorCallback(callback, e.getMessage());
+            } catch (Exception e) {
+                Log.e(TAG, "设置应用分流失败", e);
+                invokeErrorCallback(callback, "设置应用分流失败: " + e.getMessage());
+            }
+        });
+    }
+
+    @UniJSMethod(uiThread = false)
+    public void getAppPolicy(UniJSCallback callback) {
+        try {
+            AppPolicy policy = appPolicy;
+            JSONObject result = policy != null ? appPolicyStats(policy) : new JSONObject();
+            if (policy != null) {
+                result.put("packages", new JSONArray(policy.packages));
+                result.put("missing", new JSONArray(policy.missing));
+            } else {
+                result.put("mode", AppPolicy.MODE_ALL);
+            }
+            callback.invoke(result);
+        } catch (Exception e) {
+            Log.e(TAG, "获取应用分流失败", e);
+            invokeErrorCallback(callback, "获取应用分流失败: " + e.getMessage());
+        }
+    }
+
+    // 策略生效以来的隧道流量和平均发送速率，与上一个策略的发送速率对比即可估算节省的流量
+    private static JSONObject appPolicyStats(AppPolicy policy) throws JSONException {
+        long now = SystemClock.elapsedRealtime();
+        JSONObject stats = new JSONObject();
+        stats.put("mode", policy.mode);
+        stats.put("sinceMs", now - policy.getAppliedAt());
+        stats.put("bytesSent", policy.getBytesSent());
+        stats.put("bytesReceived", policy.getBytesReceived());
+        stats.put("sendRate", policy.getSendRate(now));
+        stats.put("previousSendRate", policy.getPreviousSendRate());
+        return stats;
+    }
+
+    private void applyAppPolicy(Profile profile) {
+        AppPolicy policy = appPolicy;
+        if (policy != null) {
+            policy.applyTo(profile);
+        }
+    }
+
+    // 按当前配置的路由判断目的地址（IP 字面量）是否走隧道
+    // 只看配置中的路由和排除项，不含服务器推送的路由；complete 为 false 时（未设 route-nopull）
+    // 推送的路由可能让结果为 false 的地址实际也走隧道
+    @UniJSMethod(uiThread = false)
+    public void checkRoute(String address, UniJSCallback callback) {
+        ProfileCache.Entry entry = lastEntry;
+        if (entry == null) {
+            invokeErrorCallback(callback, "尚未加载配置");
+            return;
+        }
+        Boolean tunneled = entry.isTunneled(address);
+        if (tunneled == null) {
+            invokeErrorCallback(callback, "无效的IP地址: " + address);
+            return;
+        }
+        try {
+            callback.invoke(new JSONObject()
+                    .put("address", address)
+                    .put("tunneled", tunneled)
+                    .put("complete", entry.isRouteSetComplete()));
+        } catch (Exception e) {
+            Log.e(TAG, "查询路由失败", e);
+            invokeErrorCallback(callback, "查询路由失败: " + e.getMessage());
+        }
+    }
+
+    // 启用/停用数据包引擎（由插件自己转发 tun 上的包），在下一次建立隧道时生效
+    @UniJSMethod(uiThread = false)
+    public void setPacketEngineEnabled(boolean enabled, UniJSCallback callback) {
+        packetEngineEnabled = enabled;
+        OpenVPNService service = vpnService;
+        if (service != null) {
+            service.setPacketEngine(enabled ? getPacketEngine() : null);
+        }
+        if (callback != null) {
+            try {
+                callback.invoke(new JSONObject()
+                        .put("success", true)
+                        .put("enabled", enabled));
+            } catch (Exception e) {
+                Log.e(TAG, "设置数据包引擎失败", e);
+                invokeErrorCallback(callback, "设置数据包引擎失败: " + e.getMessage());
+            }
+        }
+    }
+
+    // 本地 DNS 缓存，依赖数据包引擎，启用时会一并启用引擎（下一次建立隧道时生效）
+    @UniJSMethod(uiThread = false)
+    public void setDnsCacheEnabled(boolean enabled, UniJSCallback callback) {
+        synchronized (this) {
+            PacketEngine engine = getPacketEngine();
+            if (enabled && dnsCache == null) {
+                dnsCache = new DnsCache(engine);
+                engine.addHandler(dnsCache);
+            } else if (!enabled && dnsCache != null) {
+                engine.removeHandler(dnsCache);
+                dnsCache = null;
+            }
+        }
+        if (enabled && !packetEngineEnabled) {
+            setPacketEngineEnabled(true, null);
+        }
+        if (callback != null) {
+            try {
+                callback.invoke(new JSONObject()
+                        .put("success", true)
+                        .put("enabled", enabled));
+            } catch (Exception e) {
+                Log.e(TAG, "设置DNS缓存失败", e);
+                invokeErrorCallback(callback, "设置DNS缓存失败: " + e.getMessage());
+            }
+        }
+    }
+
+    @UniJSMethod(uiThread = false)
+    public void getDnsStats(UniJSCallback callback) {
+        DnsCache cache = dnsCache;
+        try {
+            JSONObject result = new JSONObject();
+            result.put("enabled", cache != null);
+            if (cache != null) {
+                result.put("entries", cache.size());
+                result.put("hits", cache.getHits());
+                result.put("staleHits", cache.getStaleHits());
+                result.put("misses", cache.getMisses());
+                result.put("coalesced", cache.getCoalesced());
+                result.put("refreshes", cache.getRefreshes());
+                result.put("evictions", cache.getEvictions());
+            }
+            callback.invoke(result);
+        } catch (Exception e) {
+            Log.e(TAG, "获取DNS统计失败", e);
+            invokeErrorCallback(callback, "获取DNS统计失败: " + e.getMessage());
+        }
+    }
+
+    // 限速：rate 为字节/秒（<= 0 关闭），burst 为允许的突发字节数
+    // 丢包限速而不是整形：超出速率的包直接丢弃，不排队延后，TCP 的实际吞吐会低于 rate
+    // 依赖数据包引擎，启用时会一并启用引擎（下一次建立隧道时生效）
+    @UniJSMethod(uiThread = false)
+    public void setRateLimit(long rate, long burst, UniJSCallback callback) {
+        TrafficShaper shaper = getTrafficShaper();
+        shaper.setRateLimit(rate, burst > 0 ? burst : rate);
+        ensureShaperEngine(shaper);
+        if (callback != null) {
+            try {
+                callback.invoke(new JSONObject()
+                        .put("success", true)
+                        .put("rate", shaper.getRate())
+                        .put("burst", shaper.getBurst()));
+            } catch (Exception e) {
+                Log.e(TAG, "设置限速失败", e);
+                invokeErrorCallback(callback, "设置限速失败: " + e.getMessage());
+            }
+        }
+    }
+
+    // 流量配额：quota 为字节数（<= 0 关闭），period 为 session/day/month（按日/月时计入当天/当月之前的会话）
+    // thresholds 为逗号分隔的百分比，用量越过时发布 quota 事件（100% 始终发布）
+    // action 为 stop（用尽后断开）或 throttle（用尽后降到 throttleRate 字节/秒，依赖数据包引擎）
+    @UniJSMethod(uiThread = false)
+    public void setQuota(long quota, String period, String thresholds, String action, long throttleRate,
+                         UniJSCallback callback) {
+        String periodMode = period == null || period.isEmpty() ? TrafficShaper.PERIOD_SESSION : period;
+        String mode = action == null || action.isEmpty() ? TrafficShaper.ACTION_STOP : action;
+        if (!TrafficShaper.PERIOD_SESSION.equals(periodMode) && !TrafficShaper.PERIOD_DAY.equals(periodMode)
+                && !TrafficShaper.PERIOD_MONTH.equals(periodMode)) {
+            invokeErrorCallback(callback, "未知的配额周期: " + period);
+            return;
+        }
+        if (!TrafficShaper.ACTION_STOP.equals(mode) && !TrafficShaper.ACTION_THROTTLE.equals(mode)) {
+            invokeErrorCallback(callback, "未知的处理方式: " + action);
+            return;
+        }
+        if (TrafficShaper.ACTION_THROTTLE.equals(mode) && throttleRate <= 0) {
+            invokeErrorCallback(callback, "无效的降速速率: " + throttleRate);
+            return;
+        }
+        int[] percents;
+        try {
+            percents = parsePercents(thresholds);
+        } catch (NumberFormatException e) {
+            invokeErrorCallback(callback, "无效的阈值: " + thresholds);
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                TrafficShaper shaper = getTrafficShaper();
+                boolean periodChanged = !periodMode.equals(shaper.getPeriod());
+                shaper.setQuota(quota, periodMode, mode, throttleRate, percents);
+                // 按日/月的配额从使用记录取本周期已用的流量；会话配额保留本次会话已记的用量
+                if (periodChanged || !TrafficShaper.PERIOD_SESSION.equals(periodMode)) {
+                    startQuotaPeriod(shaper, System.currentTimeMillis(), false);
+                }
+                ensureShaperEngine(shaper);
+                if (callback != null) {
+                    callback.invoke(new JSONObject()
+                            .put("success", true)
+                            .put("used", shaper.getUsed())
+                            .put("exhausted", shaper.isExhausted()));
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "设置流量配额失败", e);
+                invokeErrorCallback(callback, "设置流量配额失败: " + e.getMessage());
+            }
+        });
+    }
+
+    @UniJSMethod(uiThread = false)
+    public void getShapingStats(UniJSCallback callback) {
+        TrafficShaper shaper = trafficShaper;
+        try {
+            JSONObject result = new JSONObject();
+            result.put("enabled", shaper != null);
+            if (shaper != null) {
+                result.put("rate", shaper.getRate());
+                result.put("burst", shaper.getBurst());
+                result.put("quota", shaper.getQuota());
+                result.put("period", shaper.getPeriod());
+                result.put("action", shaper.getAction());
+                result.put("throttleRate", shaper.getThrottleRate());
+                result.put("used", shaper.getUsed());
+                result.put("remaining", shaper.getQuota() > 0 ? Math.max(0, shaper.getQuota() - shaper.getUsed()) : -1);
+                result.put("exhausted", shaper.isExhausted());
+                result.put("perPacket", shaper.isCountingPackets());
+                result.put("passedBytes", shaper.getPassedBytes());
+                result.put("droppedPackets", shaper.getDroppedPackets());
+                result.put("droppedBytes", shaper.getDroppedBytes());
+            }
+            callback.invoke(result);
+        } catch (Exception e) {
+            Log.e(TAG, "获取限速统计失败", e);
+            invokeErrorCallback(callback, "获取限速统计失败: " + e.getMessage());
+        }
+    }
+
+    private static int[] parsePercents(String csv) {
+        if (csv == null || csv.trim().isEmpty()) {
+            return new int[0];
+        }
+        String[] parts = csv.trim().split("\\s*,\\s*");
+        int[] percents = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            percents[i] = Integer.parseInt(parts[i]);
+        }
+        return percents;
+    }
+
+    private synchronized TrafficShaper getTrafficShaper() {
+        if (trafficShaper == null) {
+            trafficShaper = new TrafficShaper(this::onQuotaThreshold);
+            if (packetEngine != null) {
+                packetEngine.addHandler(trafficShaper);
+            }
+        }
+        return trafficShaper;
+    }
+
+    // 限速和用尽后降速要在数据包引擎上逐包处理
+    private void ensureShaperEngine(TrafficShaper shaper) {
+        if (shaper.needsPacketEngine() && !packetEngineEnabled) {
+            setPacketEngineEnabled(true, null);
+        }
+    }
+
+    // 开始新的配额周期：会话配额从0开始（newSession 为 false 时保留当前用量），按日/月的配额从使用记录取本周期已用的流量
+    private void startQuotaPeriod(TrafficShaper shaper, long nowMs, boolean newSession) {
+        String period = shaper.getPeriod();
+        if (TrafficShaper.PERIOD_SESSION.equals(period)) {
+            if (newSession) {
+                shaper.reset(sessionId, 0);
+            }
+            return;
+        }
+        UsageJournal journal = getUsageJournal();
+        if (journal == null) {
+            shaper.reset(0, 0);
+            return;
+        }
+        long day = journal.localDay(nowMs);
+        long[] usage = new long[2];
+        if (TrafficShaper.PERIOD_DAY.equals(period)) {
+            journal.getDayUsage(day, usage);
+            shaper.reset(day, usage[0] + usage[1]);
+        } else {
+            long month = UsageJournal.monthKey(day);
+            journal.getMonthUsage(month, usage);
+            shaper.reset(month, usage[0] + usage[1]);
+        }
+    }
+
+    // 在记账线程（数据包 I/O 线程或统计线程）上调用
+    private void onQuotaThreshold(int percent, long used, long quota) {
+        TrafficShaper shaper = trafficShaper;
+        Log.d(TAG, "流量配额已用 " + percent + "%: " + used + "/" + quota);
+        if (eventStream.hasSubscribers(EventStream.TYPE_QUOTA)) {
+            EventStream.Event event = eventStream.obtain(EventStream.TYPE_QUOTA);
+            event.payload.set(BridgePayload.PERCENT, percent)
+                    .set(BridgePayload.USED, used)
+                    .set(BridgePayload.QUOTA, quota)
+                    .set(BridgePayload.EXHAUSTED, percent == 100);
+            if (shaper != null) {
+                event.payload.set(BridgePayload.PERIOD, shaper.getPeriod())
+                        .set(BridgePayload.ACTION, shaper.getAction());
+            }
+            publishEvent(event);
+        }
+        // 数据包引擎已在丢弃所有包，这里停止隧道
+        if (percent == 100 && shaper != null && TrafficShaper.ACTION_STOP.equals(shaper.getAction())) {
+            mainHandler.post(() -> disconnect(null));
+        }
+    }
+
+    @UniJSMethod(uiThread = false)
+    public void getPacketStats(UniJSCallback callback) {
+        try {
+            PacketEngine engine = packetEngine;
+            JSONObject result = new JSONObject();
+            result.put("enabled", packetEngineEnabled);
+            result.put("running", engine != null && engine.isRunning());
+            if (engine != null) {
+                result.put("outbound", packetDirectionStats(engine, PacketEngine.OUTBOUND));
+                result.put("inbound", packetDirectionStats(engine, PacketEngine.INBOUND));
+                result.put("injected", engine.getInjections());
+                result.put("poolExhausted", engine.getPoolExhausted());
+            }
+            callback.invoke(result);
+        } catch (Exception e) {
+            Log.e(TAG, "获取数据包统计失败", e);
+            invokeErrorCallback(callback, "获取数据包统计失败: " + e.getMessage());
+        }
+    }
+
+    private static JSONObject packetDirectionStats(PacketEngine engine, int direction) throws JSONException {
+        JSONObject stats = new JSONObject();
+        stats.put("packets", engine.getPackets(direction));
+        stats.put("bytes", engine.getBytes(direction));
+        stats.put("dropped", engine.getDrops(direction));
+        return stats;
+    }
+
+    @UniJSMethod(uiThread = false)
+    public void resetPerfMetrics(UniJSCallback callback) {
+        perfMetrics.reset();
+        if (callback != null) {
+            try {
+                callback.invoke(BridgePayload.result(true));
+            } catch (Exception e) {
+                Log.e(TAG, "重置性能指标失败", e);
+                invokeErrorCallback(callback, "重置性能指标失败: " + e.getMessage());
+            }
+        }
     }
 
     @Override
@@ -300,125 +1199,216 @@ public class OpenVPNPlugin extends UniPlugin implements VpnStatus.StateListener
         // 处理VPN连接UUID
     }
 
-    // 显示前台通知(用于后台运行)
+    // 显示前台通知(用于后台运行)，内容未变化时不会重复发布
     private void showForegroundNotification(String title, String message) {
-        createNotificationChannel();
-
-        // 停止VPN的意图
-        Intent stopIntent = new Intent(ACTION_STOP_VPN);
-        PendingIntent stopPendingIntent = PendingIntent.getBroadcast(
-                mContext, 0, stopIntent, PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT
-        );
-
-        Notification notification = new NotificationCompat.Builder(mContext, CHANNEL_ID)
-                .setContentTitle(title)
-                .setContentText(message)
-                .setSmallIcon(R.drawable.ic_vpn)
-                .addAction(R.drawable.ic_stop, "断开连接", stopPendingIntent)
-                .setPriority(NotificationCompat.PRIORITY_DEFAULT)
-                .setOngoing(true)
-                .build();
-
-        // 启动前台服务，确保后台运行
-        if (vpnService != null) {
-            vpnService.startForeground(NOTIFICATION_ID, notification);
-        }
+        getNotificationController().show(vpnService, title, message);
     }
 
     // 停止前台通知
     private void stopForegroundNotification() {
-        if (vpnService != null) {
-            vpnService.stopForeground(true);
+        getNotificationController().stop();
+    }
+
+    private synchronized VpnNotificationController getNotificationController() {
+        if (notificationController == null) {
+            notificationController = new VpnNotificationController(
+                    mContext, mainHandler, CHANNEL_ID, NOTIFICATION_ID, ACTION_STOP_VPN);
+        }
+        return notificationController;
+    }
+
+    // 首次使用时打开使用记录（会从日志重建汇总，需在后台线程调用）
+    private synchronized UsageJournal getUsageJournal() {
+        if (usageJournal == null) {
+            UsageJournal journal = new UsageJournal(new File(mContext.getFilesDir(), "usage.journal"));
+            try {
+                journal.open();
+                usageJournal = journal;
+            } catch (IOException e) {
+                Log.e(TAG, "打开使用记录失败", e);
+            }
+        }
+        return usageJournal;
+    }
+
+    // 缓冲池占用直接内存，首次启用时才创建
+    private synchronized PacketEngine getPacketEngine() {
+        if (packetEngine == null) {
+            packetEngine = new PacketEngine();
+            if (trafficShaper != null) {
+                packetEngine.addHandler(trafficShaper);
+            }
+        }
+        return packetEngine;
+    }
+
+    private synchronized ProfileCache getProfileCache() {
+        if (profileCache == null) {
+            profileCache = new ProfileCache(mContext);
+        }
+        return profileCache;
+    }
+
+    private synchronized NetworkStatsMonitor getNetworkStatsMonitor() {
+        if (networkStatsMonitor == null) {
+            networkStatsMonitor = new NetworkStatsMonitor(mContext);
         }
+        return networkStatsMonitor;
     }
 
-    // 创建通知渠道
-    private void createNotificationChannel() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            CharSequence name = "VPN通知";
-            String description = "OpenVPN连接状态通知";
-            int importance = NotificationManager.IMPORTANCE_DEFAULT;
-            NotificationChannel channel = new NotificationChannel(CHANNEL_ID, name, importance);
-            channel.setDescription(description);
+    // 唤醒锁在第一次连接时才创建
+    private synchronized WakeLockScheduler getWakeLockScheduler() {
+        if (wakeLockScheduler == null) {
+            PowerManager powerManager = (PowerManager) mContext.getSystemService(Context.POWER_SERVICE);
+            PowerManager.WakeLock wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK,
+                    "OpenVPN:WakeLock");
+            wakeLockScheduler = new WakeLockScheduler(wakeLock);
+        }
+        return wakeLockScheduler;
+    }
 
-            NotificationManager notificationManager = mContext.getSystemService(NotificationManager.class);
-            notificationManager.createNotificationChannel(channel);
+    // 连接前的准备：注册网络监听、创建服务并注册状态监听，只做一次；返回之前是否已准备好
+    private synchronized boolean ensureStandby() {
+        boolean ready = vpnService != null;
+        if (networkCallback == null) {
+            initNetworkMonitor();
         }
+        if (vpnService == null) {
+            vpnService = new OpenVPNService();
+            remoteProber.setProtector(vpnService);
+            mtuDiscovery.setProtector(vpnService);
+            VpnStatus.addStateListener(this);
+        }
+        return ready;
     }
 
     // 开始网络监控
     private void startNetworkMonitoring() {
-        stopNetworkMonitoring(); // 先停止已有的监控
+        NetworkStatsMonitor networkStatsMonitor = getNetworkStatsMonitor();
+        if (statsScheduler == null) {
+            PowerManager powerManager = (PowerManager) mContext.getSystemService(Context.POWER_SERVICE);
+            statsScheduler = new StatsScheduler(networkStatsMonitor, powerManager, statsExecutor, new StatsScheduler.Listener() {
+                @Override
+                public boolean isActive() {
+                    return "CONNECTED".equals(currentStatus);
+                }
 
-        networkMonitorTimer = new Timer();
-        networkMonitorTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                if (currentStatus.equals("CONNECTED") && networkStatsMonitor != null) {
-                    try {
-                        NetworkStats stats = networkStatsMonitor.getVPNNetworkStats();
-                        if (statusCallback != null) {
-                            mainHandler.post(() -> {
-                                try {
-                                    statusCallback.invoke(new JSONObject() {{
-                                        put("status", currentStatus);
-                                        put("networkStats", new JSONObject() {{
-                                            put("bytesSent", stats.bytesSent);
-                                            put("bytesReceived", stats.bytesReceived);
-                                            put("timeConnected", stats.timeConnected);
-                                        }});
-                                    }});
-                                } catch (Exception e) {
-                                    Log.e(TAG, "网络统计回调失败", e);
-                                }
-                            });
+                @Override
+                public void onSample(long now, long rxDelta, long txDelta) {
+                    // 有流量时保持唤醒，空闲一段时间后释放
+                    if (wakeLockScheduler != null) {
+                        wakeLockScheduler.onTraffic(now, rxDelta + txDelta);
+                    }
+                    AppPolicy policy = appPolicy;
+                    if (policy != null) {
+                        policy.onTraffic(rxDelta, txDelta);
+                    }
+                    // 有流量时质量探测回到最短间隔
+                    qualityMonitor.onTraffic(rxDelta + txDelta);
+                    // 配额记账：数据包引擎运行时已按包记账，否则按采样记账；跨日/跨月时开始新的周期
+                    TrafficShaper shaper = trafficShaper;
+                    if (shaper != null) {
+                        PacketEngine engine = packetEngine;
+                        shaper.setCountingPackets(engine != null && engine.isRunning());
+                        UsageJournal quotaJournal = usageJournal;
+                        if (quotaJournal != null && !TrafficShaper.PERIOD_SESSION.equals(shaper.getPeriod())) {
+                            long day = quotaJournal.localDay(System.currentTimeMillis());
+                            long key = TrafficShaper.PERIOD_DAY.equals(shaper.getPeriod()) ? day : UsageJournal.monthKey(day);
+                            if (key != shaper.getPeriodKey()) {
+                                shaper.reset(key, 0);
+                            }
                         }
-                    } catch (Exception e) {
-                        Log.e(TAG, "网络监控失败", e);
+                        shaper.onSample(rxDelta + txDelta);
+                    }
+                    // 写入持久化的使用记录
+                    UsageJournal journal = usageJournal;
+                    if (journal != null) {
+                        journal.addUsage(sessionId, System.currentTimeMillis(), rxDelta, txDelta);
                     }
                 }
-            }
-        }, 0, 5000); // 每5秒更新一次
+
+                @Override
+                public void onStats(NetworkStats stats) {
+                    // 通知栏实时速率直接取已有样本，不额外采样
+                    if (notificationController != null) {
+                        networkStatsMonitor.getLatestThroughput(notificationRates);
+                        notificationController.updateRates(notificationRates.rxRate, notificationRates.txRate);
+                    }
+                    if (!eventStream.hasSubscribers(EventStream.TYPE_STATS)) {
+                        return;
+                    }
+                    EventStream.Event event = eventStream.obtain(EventStream.TYPE_STATS);
+                    event.payload.set(BridgePayload.STATUS, currentStatus)
+                            .set(BridgePayload.BYTES_SENT, stats.bytesSent)
+                            .set(BridgePayload.BYTES_RECEIVED, stats.bytesReceived)
+                            .set(BridgePayload.TIME_CONNECTED, stats.timeConnected);
+                    publishEvent(event);
+                }
+            });
+        }
+        // 重复调用会替换旧的循环，不会并发运行两个
+        statsScheduler.start();
     }
 
     // 停止网络监控
     private void stopNetworkMonitoring() {
-        if (networkMonitorTimer != null) {
-            networkMonitorTimer.cancel();
-            networkMonitorTimer = null;
+        if (statsScheduler != null) {
+            statsScheduler.stop();
         }
         if (networkStatsMonitor != null) {
             networkStatsMonitor.stopTracking();
         }
     }
 
-    // 获取唤醒锁，确保锁屏时运行
+    // 获取唤醒锁，确保握手期间锁屏时也能运行
     private void acquireWakeLock() {
-        if (wakeLock != null && !wakeLock.isHeld()) {
-            wakeLock.acquire(10 * 60 * 1000L /* 10分钟 */);
-        }
+        getWakeLockScheduler().onHandshakeStarted(SystemClock.elapsedRealtime());
     }
 
     // 释放唤醒锁
     private void releaseWakeLock() {
-        if (wakeLock != null && wakeLock.isHeld()) {
-            wakeLock.release();
+        if (wakeLockScheduler != null) {
+            wakeLockScheduler.stop(SystemClock.elapsedRealtime());
         }
     }
 
     // 更新状态回调
     private void updateStatusCallback() {
-        if (statusCallback != null) {
-            mainHandler.post(() -> {
-                try {
-                    statusCallback.invoke(new JSONObject() {{
-                        put("status", currentStatus);
-                    }});
-                } catch (Exception e) {
-                    Log.e(TAG, "状态回调失败", e);
-                }
-            });
+        if (!eventStream.hasSubscribers(EventStream.TYPE_STATUS)) {
+            return;
         }
+        EventStream.Event event = eventStream.obtain(EventStream.TYPE_STATUS);
+        event.payload.set(BridgePayload.STATUS, currentStatus)
+                .set(BridgePayload.ERROR, lastError);
+        publishEvent(event);
+    }
+
+    // 同一帧内的事件只安排一次投递
+    private void publishEvent(EventStream.Event event) {
+        if (eventStream.publish(event, System.currentTimeMillis())) {
+            mainHandler.postDelayed(flushEvents, EventStream.FRAME_MS);
+        }
+    }
+
+    private void flushEvents() {
+        long delay = eventStream.flush(SystemClock.uptimeMillis());
+        if (delay >= 0) {
+            mainHandler.postDelayed(flushEvents, delay);
+        }
+    }
+
+    // setStatusCallback 的回调格式保持不变：{status} 或 {status, networkStats}
+    private static JSONObject legacyStatusPayload(EventStream.Event event) throws JSONException {
+        JSONObject result = new JSONObject();
+        result.put("status", event.payload.getText(BridgePayload.STATUS));
+        if (event.type == EventStream.TYPE_STATS) {
+            JSONObject networkStats = new JSONObject();
+            networkStats.put("bytesSent", event.payload.getLong(BridgePayload.BYTES_SENT));
+            networkStats.put("bytesReceived", event.payload.getLong(BridgePayload.BYTES_RECEIVED));
+            networkStats.put("timeConnected", event.payload.getLong(BridgePayload.TIME_CONNECTED));
+            result.put("networkStats", networkStats);
+        }
+        return result;
     }
 
     // 调用错误回调
@@ -426,10 +1416,7 @@ public class OpenVPNPlugin extends UniPlugin implements VpnStatus.StateListener
         if (callback != null) {
             mainHandler.post(() -> {
                 try {
-                    callback.invoke(new JSONObject() {{
-                        put("success", false);
-                        put("message", message);
-                    }});
+                    callback.invoke(BridgePayload.error(message));
                 } catch (Exception e) {
                     Log.e(TAG, "错误回调失败", e);
                 }
@@ -442,84 +1429,283 @@ public class OpenVPNPlugin extends UniPlugin implements VpnStatus.StateListener
         ConnectivityManager connectivityManager =
                 (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
 
+        // 排除本应用的 VPN 网络，只跟踪底层的 Wi-Fi/蜂窝/以太网
         networkRequest = new NetworkRequest.Builder()
                 .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                .addCapability(NetworkCapabilities.NET_CAPABILITY_NOT_VPN)
                 .addTransportType(NetworkCapabilities.TRANSPORT_WIFI)
                 .addTransportType(NetworkCapabilities.TRANSPORT_CELLULAR)
+                .addTransportType(NetworkCapabilities.TRANSPORT_ETHERNET)
                 .build();
 
+        // 按网络分别跟踪，由 NetworkHandover 决定何时切换；回调在系统线程上，统一转到主线程处理
         networkCallback = new ConnectivityManager.NetworkCallback() {
             @Override
             public void onAvailable(Network network) {
                 super.onAvailable(network);
-                Log.d(TAG, "网络可用");
-                // 网络恢复时尝试重连
-                if (vpnState == VpnState.ERROR) {
-                    scheduleReconnect();
-                }
+                Log.d(TAG, "网络可用: " + network);
+                long now = SystemClock.elapsedRealtime();
+                // Android 8.0 以前不保证 onAvailable 之后立即回调能力和链路信息，这里主动取一次
+                NetworkCapabilities capabilities = connectivityManager.getNetworkCapabilities(network);
+                LinkProperties linkProperties = connectivityManager.getLinkProperties(network);
+                String identity = capabilities != null ? networkIdentity(capabilities) : null;
+                mainHandler.post(() -> {
+                    NetworkHandover handover = getNetworkHandover();
+                    handover.onAvailable(network.toString(), now);
+                    if (capabilities != null) {
+                        mtuDiscovery.onNetwork(network.toString(), identity);
+                        onNetworkCapabilities(handover, network, capabilities, now);
+                    }
+                    if (linkProperties != null) {
+                        handover.onLinkPropertiesChanged(network.toString(),
+                                !linkProperties.getLinkAddresses().isEmpty(), now);
+                    }
+                    underlyingNetwork = handover.best();
+                    // 隧道已中断时，网络恢复立即重连，不再等待退避
+                    if (vpnState == VpnState.ERROR || vpnState == VpnState.RECONNECTING) {
+                        getReconnectEngine().onNetworkAvailable();
+                    }
+                });
+            }
+
+            @Override
+            public void onCapabilitiesChanged(Network network, NetworkCapabilities capabilities) {
+                super.onCapabilitiesChanged(network, capabilities);
+                long now = SystemClock.elapsedRealtime();
+                String identity = networkIdentity(capabilities);
+                mainHandler.post(() -> {
+                    NetworkHandover handover = getNetworkHandover();
+                    mtuDiscovery.onNetwork(network.toString(), identity);
+                    onNetworkCapabilities(handover, network, capabilities, now);
+                    underlyingNetwork = handover.best();
+                });
+            }
+
+            @Override
+            public void onLinkPropertiesChanged(Network network, LinkProperties linkProperties) {
+                super.onLinkPropertiesChanged(network, linkProperties);
+                long now = SystemClock.elapsedRealtime();
+                boolean hasLink = !linkProperties.getLinkAddresses().isEmpty();
+                mainHandler.post(() -> {
+                    NetworkHandover handover = getNetworkHandover();
+                    handover.onLinkPropertiesChanged(network.toString(), hasLink, now);
+                    underlyingNetwork = handover.best();
+                });
             }
 
             @Override
             public void onLost(Network network) {
                 super.onLost(network);
-                Log.d(TAG, "网络丢失");
-                // 网络丢失时更新状态
-                if (vpnState != VpnState.DISCONNECTED) {
-                    setVpnState(VpnState.ERROR, "网络连接丢失");
-                }
+                Log.d(TAG, "网络丢失: " + network);
+                long now = SystemClock.elapsedRealtime();
+                mainHandler.post(() -> {
+                    NetworkHandover handover = getNetworkHandover();
+                    mtuDiscovery.onLost(network.toString());
+                    handover.onLost(network.toString(), now);
+                    underlyingNetwork = handover.best();
+                });
             }
         };
 
         connectivityManager.registerNetworkCallback(networkRequest, networkCallback);
     }
 
-    private void scheduleReconnect() {
-        if (reconnectAttempts < MAX_RECONNECT_ATTEMPTS) {
-            reconnectAttempts++;
-            Log.d(TAG, "调度重连，尝试 " + reconnectAttempts + "/" + MAX_RECONNECT_ATTEMPTS);
+    private static void onNetworkCapabilities(NetworkHandover handover, Network network,
+                                              NetworkCapabilities capabilities, long now) {
+        int transport = NetworkHandover.TRANSPORT_OTHER;
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)) {
+            transport = NetworkHandover.TRANSPORT_ETHERNET;
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
+            transport = NetworkHandover.TRANSPORT_WIFI;
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
+            transport = NetworkHandover.TRANSPORT_CELLULAR;
+        }
+        // 6.0 以前没有 VALIDATED，视为已验证
+        boolean validated = Build.VERSION.SDK_INT < Build.VERSION_CODES.M
+                || capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+        boolean unmetered = capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+        handover.onCapabilitiesChanged(network.toString(), transport, validated, unmetered, now);
+    }
 
-            mainHandler.postDelayed(() -> {
-                if (lastUsername != null && lastPassword != null && lastConfig != null) {
-                    setVpnState(VpnState.RECONNECTING, null);
-                    connect(lastUsername, lastPassword, lastConfig, new UniJSCallback() {
-                        @Override
-                        public void invoke(Object o) {
-                            // 处理重连结果
-                            Log.d(TAG, "重连结果: " + o.toString());
-                        }
-                    });
+    // MTU 缓存用的网络标识：Wi-Fi 取 SSID（没有位置权限时拿不到），蜂窝取运营商代码（MCC+MNC），其他为 null
+    private String networkIdentity(NetworkCapabilities capabilities) {
+        try {
+            if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
+                WifiManager wifiManager = (WifiManager) mContext.getSystemService(Context.WIFI_SERVICE);
+                String ssid = wifiManager != null ? wifiManager.getConnectionInfo().getSSID() : null;
+                return "<unknown ssid>".equals(ssid) ? null : MtuDiscovery.identity("wifi", ssid);
+            }
+            if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
+                TelephonyManager telephonyManager =
+                        (TelephonyManager) mContext.getSystemService(Context.TELEPHONY_SERVICE);
+                return telephonyManager != null
+                        ? MtuDiscovery.identity("cellular", telephonyManager.getNetworkOperator()) : null;
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "获取网络标识失败", e);
+        }
+        return null;
+    }
+
+    // 网络回调和 JS 线程都会用到，创建过程加锁
+    private synchronized NetworkHandover getNetworkHandover() {
+        if (networkHandover == null) {
+            networkHandover = new NetworkHandover(mainHandler, new NetworkHandover.Callback() {
+                @Override
+                public void onHandover(boolean proactive) {
+                    VpnState state = vpnState;
+                    if (reconnectEnabled && (state == VpnState.CONNECTED || state == VpnState.CONNECTING
+                            || state == VpnState.RECONNECTING)) {
+                        // 复用已解析的配置快速重连；core 不能绑定到指定网络，连接建立在系统当前的默认网络上
+                        reconnect();
+                    }
                 }
-            }, RECONNECT_DELAY_MS);
-        } else {
-            Log.d(TAG, "已达到最大重连次数，停止重连");
-            setVpnState(VpnState.ERROR, "已达到最大重连次数");
-            disconnect(null);
+
+                @Override
+                public void onAllNetworksLost() {
+                    if (vpnState != VpnState.DISCONNECTED && vpnState != VpnState.ERROR) {
+                        setVpnState(VpnState.ERROR, "网络连接丢失");
+                    }
+                }
+            });
+        }
+        return networkHandover;
+    }
+
+    private ReconnectEngine getReconnectEngine() {
+        if (reconnectEngine == null) {
+            reconnectEngine = new ReconnectEngine(mainHandler, new ReconnectEngine.Callback() {
+                @Override
+                public void onReconnect(int attempt) {
+                    reconnectAttempts.set(attempt);
+                    reconnect();
+                }
+
+                @Override
+                public void onGiveUp() {
+                    setVpnState(VpnState.ERROR, "已达到最大重连次数，等待网络恢复");
+                }
+            }, random);
         }
+        return reconnectEngine;
     }
 
-    private void setVpnState(VpnState state, String error) {
+    // 快速重连：复用已运行的服务和已解析的配置，不再重新申请唤醒锁、解析和保存配置
+    // 只在当前会话仍有效时执行，用户断开或重新连接后，排队中的旧重连直接丢弃
+    private void reconnect() {
+        if (!reconnectEnabled) {
+            return;
+        }
+        long generation = sessionGeneration;
+        ProfileCache.Entry entry = lastEntry;
+        Profile profile = lastProfile;
+        if (entry == null || profile == null || vpnService == null) {
+            if (commands.getGeneration() == generation
+                    && lastUsername != null && lastPassword != null && lastConfig != null) {
+                connect(lastUsername, lastPassword, lastConfig, new UniJSCallback() {
+                    @Override
+                    public void invoke(Object o) {
+                        // 处理重连结果
+                        Log.d(TAG, "重连结果: " + o.toString());
+                    }
+                });
+            }
+            return;
+        }
+
+        commands.submitIf(generation, "reconnect", token -> {
+            try {
+                Log.d(TAG, "快速重连，尝试 " + reconnectAttempts.get());
+                setVpnState(VpnState.RECONNECTING, null);
+                // 快速重连不探测，切换到已探测过的网络时使用缓存的结果
+                applyMtu(profile, entry.profile, false);
+                applyAppPolicy(profile);
+                token.checkpoint();
+                vpnService.startVPN(profile);
+            } catch (Exception e) {
+                Log.e(TAG, "重连失败", e);
+                setVpnState(VpnState.ERROR, "重连失败: " + e.getMessage());
+            }
+        });
+    }
+
+    // 可能同时在 core 的状态线程、命令线程和主线程上调用，状态和随之执行的操作整体加锁
+    private synchronized void setVpnState(VpnState state, String error) {
+        String message = error != null ? error : "";
+        // 同一状态常由插件和 core 各上报一次（如 CONNECTING、DISCONNECTED），重复的只更新错误信息，不再重复执行下面的操作
+        if (state == vpnState) {
+            this.currentStatus = state.name();
+            if (!message.equals(lastError)) {
+                this.lastError = message;
+                if (state == VpnState.ERROR) {
+                    showForegroundNotification("VPN错误", error);
+                }
+                updateStatusCallback();
+            }
+            return;
+        }
         this.vpnState = state;
-        this.lastError = error != null ? error : "";
+        this.currentStatus = state.name();
+        this.lastError = message;
+        recordPhase(state);
+
+        // 质量探测只在隧道已连接时运行，每次连接重新开始统计
+        EchoProber prober = echoProber;
+        if (prober != null) {
+            if (state == VpnState.CONNECTED) {
+                prober.start();
+            } else {
+                prober.stop();
+            }
+        }
 
         // 根据状态执行相应操作
         switch (state) {
             case CONNECTED:
                 showForegroundNotification("VPN已连接", "OpenVPN连接已建立");
-                networkStatsMonitor.startTracking();
-                reconnectAttempts = 0;
+                getNetworkStatsMonitor().startTracking();
+                if (statsScheduler != null) {
+                    statsScheduler.poke(); // 连接建立后立即按最短间隔采样
+                }
+                reconnectAttempts.set(0);
+                long connectedAt = SystemClock.elapsedRealtime();
+                if (wakeLockScheduler != null) {
+                    wakeLockScheduler.onHandshakeFinished(connectedAt);
+                }
+                mainHandler.post(() -> {
+                    getReconnectEngine().onConnected(connectedAt);
+                    getNetworkHandover().onTunnelConnected(connectedAt);
+                });
                 break;
             case CONNECTING:
                 showForegroundNotification("VPN连接中", "正在建立VPN连接...");
+                acquireWakeLock();
                 break;
             case RECONNECTING:
                 showForegroundNotification("VPN重新连接", "尝试重新连接...");
+                acquireWakeLock();
                 break;
             case ERROR:
                 showForegroundNotification("VPN错误", error);
+                if (wakeLockScheduler != null) {
+                    wakeLockScheduler.onHandshakeFinished(SystemClock.elapsedRealtime());
+                }
+                // 非用户主动断开时进入退避重连
+                long failedAt = SystemClock.elapsedRealtime();
+                mainHandler.post(() -> {
+                    getNetworkHandover().onTunnelFailed();
+                    if (reconnectEnabled) {
+                        getReconnectEngine().onFailure(failedAt);
+                    }
+                });
                 break;
             case DISCONNECTED:
+                mainHandler.post(() -> getNetworkHandover().onTunnelClosed());
                 stopForegroundNotification();
                 stopNetworkMonitoring();
+                if (usageJournal != null) {
+                    usageJournal.flush(System.currentTimeMillis());
+                }
                 releaseWakeLock();
                 break;
         }
@@ -527,10 +1713,33 @@ public class OpenVPNPlugin extends UniPlugin implements VpnStatus.StateListener
         updateStatusCallback();
     }
 
+    // 记录状态切换时间点，用于各阶段耗时统计
+    private void recordPhase(VpnState state) {
+        long now = SystemClock.elapsedRealtime();
+        switch (state) {
+            case CONNECTING:
+                perfMetrics.onConnecting(now);
+                break;
+            case CONNECTED:
+                perfMetrics.onConnected(now);
+                break;
+            case RECONNECTING:
+                perfMetrics.onReconnecting(now);
+                break;
+            case ERROR:
+                perfMetrics.onError(now);
+                break;
+            case DISCONNECTED:
+                perfMetrics.onDisconnected();
+                break;
+        }
+    }
+
     // 状态更新回调
     @Override
     public void updateState(String state, String logmessage, int localizedResId, Throwable throwable) {
         Log.d(TAG, "VPN状态更新: " + state);
+        currentStatus = state;
 
         switch (state) {
             case "CONNECTED":
@@ -2,12 +2,44 @@ package com.example.openvpn;
 
 import android.content.Intent;
 import android.os.ParcelFileDescriptor;
+import android.util.Log;
 
-import com.example.openvpn.core.OpenVPNService;
 import com.example.openvpn.models.Profile;
 
-public class OpenVPNService extends com.example.openvpn.core.OpenVPNService {
+import java.io.IOException;
+
+// protect(Socket)/protect(DatagramSocket) 由 VpnService 提供
+public class OpenVPNService extends com.example.openvpn.core.OpenVPNService implements SocketProtector {
+    private static final String TAG = "OpenVPNService";
+
     private ParcelFileDescriptor vpnInterface;
+    // 设置后，核心拿到的是 socketpair 的一端，tun 的读写由数据包引擎接管
+    private volatile PacketEngine packetEngine;
+
+    public void setPacketEngine(PacketEngine packetEngine) {
+        this.packetEngine = packetEngine;
+    }
+
+    @Override
+    public ParcelFileDescriptor openTun() {
+        ParcelFileDescriptor tun = super.openTun();
+        PacketEngine engine = packetEngine;
+        // 重连时会重新建立 tun，先停掉旧的转发并关闭旧的 tun
+        stopPacketEngine(engine);
+        if (tun == null || engine == null) {
+            return tun;
+        }
+        try {
+            ParcelFileDescriptor[] pair = ParcelFileDescriptor.createReliableSocketPair();
+            engine.start(new TunPacketIo(tun, pair[0]));
+            // 核心只拿到 socketpair，tun 由这里持有并在停止时关闭
+            vpnInterface = tun;
+            return pair[1];
+        } catch (IOException e) {
+            Log.e(TAG, "启动数据包引擎失败，直接使用tun", e);
+            return tun;
+        }
+    }
     
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
@@ -22,12 +54,20 @@ public class OpenVPNService extends com.example.openvpn.core.OpenVPNService {
     public void stopVPN(boolean clearNotification) {
         // 调用父类方法停止VPN
         super.stopVPN(clearNotification);
+        stopPacketEngine(packetEngine);
+    }
+
+    private void stopPacketEngine(PacketEngine engine) {
+        if (engine != null) {
+            engine.stop();
+        }
         if (vpnInterface != null) {
             try {
                 vpnInterface.close();
             } catch (Exception e) {
                 // 忽略异常
             }
+            vpnInterface = null;
         }
     }
     
@@ -0,0 +1,316 @@
+package com.example.openvpn;
+
+import java.nio.CharBuffer;
+
+// .ovpn 配置的流式读取器：直接在 CharSequence 上逐行切分指令，一次遍历完成
+// 指令名、参数和内联块（<ca> 等）都以位置记录，需要时返回 CharBuffer 视图，不复制内容
+// 用法：while (reader.next()) { ... }，格式错误时抛出带行号的 ConfigParseException
+public class OvpnConfigReader {
+    // 与 OpenVPN 的 MAX_PARMS 一致
+    static final int MAX_TOKENS = 16;
+
+    // 内容应为 PEM 格式的内联块
+    private static final String[] PEM_BLOCKS = {"ca", "cert", "key", "extra-certs", "tls-auth", "tls-crypt",
+            "tls-crypt-v2", "secret", "dh"};
+    private static final String[] PROTOCOLS = {"udp", "tcp", "udp4", "udp6", "tcp4", "tcp6", "tcp-client",
+            "tcp4-client", "tcp6-client"};
+
+    private final CharSequence config;
+    private final int limit;
+    private int pos;
+    private int line;
+
+    // 当前指令：第0个为指令名（内联块为标签名）
+    private final int[] starts = new int[MAX_TOKENS];
+    private final int[] ends = new int[MAX_TOKENS];
+    private int tokenCount;
+    private int directiveLine;
+    private boolean inline;
+    private int contentStart;
+    private int contentEnd;
+
+    public OvpnConfigReader(CharSequence config) {
+        this(config, 0, config.length(), 0);
+    }
+
+    // 只读取 [start, end) 范围，firstLine 为范围之前的行数；读取嵌套块（如 <connection>）时
+    // 直接在同一份内容上读，行号保持准确，也不会让 charAt 调用点出现多种实现
+    private OvpnConfigReader(CharSequence config, int start, int end, int firstLine) {
+        this.config = config;
+        this.pos = start;
+        this.limit = end;
+        this.line = firstLine;
+    }
+
+    // 读取下一条指令，没有更多指令时返回 false
+    public boolean next() throws ConfigParseException {
+        while (pos < limit) {
+            int lineStart = pos;
+            int lineEnd = newline(lineStart);
+            pos = Math.min(limit, lineEnd + 1);
+            line++;
+
+            int p = skipSpace(lineStart, lineEnd);
+            int end = trimEnd(p, lineEnd);
+            if (p == end || config.charAt(p) == '#' || config.charAt(p) == ';') {
+                continue;
+            }
+            directiveLine = line;
+            if (config.charAt(p) == '<') {
+                readInline(p, end);
+            } else {
+                tokenize(p, end);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    // 当前指令所在行（内联块为起始标签所在行）
+    public int line() {
+        return directiveLine;
+    }
+
+    public boolean isInline() {
+        return inline;
+    }
+
+    public CharSequence name() {
+        return CharBuffer.wrap(config, starts[0], ends[0]);
+    }
+
+    // 不分配对象地比较指令名
+    public boolean nameEquals(String name) {
+        return regionEquals(starts[0], ends[0], name);
+    }
+
+    public int argCount() {
+        return tokenCount - 1;
+    }
+
+    public CharSequence arg(int index) {
+        return CharBuffer.wrap(config, starts[index + 1], ends[index + 1]);
+    }
+
+    // 内联块的内容（不含起止标签行）
+    public CharSequence inlineContent() {
+        return CharBuffer.wrap(config, contentStart, contentEnd);
+    }
+
+    // 只检查结构：内联块是否闭合、PEM 块是否完整、remote/proto 参数是否合法；<connection> 内部同样检查
+    public static void validate(CharSequence config) throws ConfigParseException {
+        validate(new OvpnConfigReader(config));
+    }
+
+    private static void validate(OvpnConfigReader reader) throws ConfigParseException {
+        while (reader.next()) {
+            if (reader.isInline()) {
+                if (reader.nameEquals("connection")) {
+                    validate(new OvpnConfigReader(reader.config, reader.contentStart, reader.contentEnd, reader.line()));
+                } else if (reader.nameIn(PEM_BLOCKS) && !reader.isPem()) {
+                    throw new ConfigParseException(reader.line(), "内联块 <" + reader.name() + "> 不是完整的 PEM 内容");
+                }
+            } else if (reader.nameEquals("remote")) {
+                if (reader.argCount() < 1) {
+                    throw new ConfigParseException(reader.line(), "remote 缺少服务器地址");
+                }
+                if (reader.argCount() >= 2 && !isPort(reader.arg(1))) {
+                    throw new ConfigParseException(reader.line(), "无效的端口: " + reader.arg(1));
+                }
+            } else if (reader.nameEquals("port") || reader.nameEquals("rport")) {
+                if (reader.argCount() < 1 || !isPort(reader.arg(0))) {
+                    throw new ConfigParseException(reader.line(), "无效的端口");
+                }
+            } else if (reader.nameEquals("proto")) {
+                if (reader.argCount() < 1 || !reader.argIn(0, PROTOCOLS)) {
+                    throw new ConfigParseException(reader.line(), "无效的协议: "
+                            + (reader.argCount() < 1 ? "" : reader.arg(0)));
+                }
+            }
+        }
+    }
+
+    // <tag> 到 </tag> 之间为内联内容
+    private void readInline(int p, int end) throws ConfigParseException {
+        if (p + 1 < end && config.charAt(p + 1) == '/') {
+            throw new ConfigParseException(line, "多余的结束标签");
+        }
+        if (config.charAt(end - 1) != '>' || end - p < 3) {
+            throw new ConfigParseException(line, "无效的内联块标签");
+        }
+        inline = true;
+        tokenCount = 1;
+        starts[0] = p + 1;
+        ends[0] = end - 1;
+        contentStart = pos;
+
+        while (pos < limit) {
+            int lineStart = pos;
+            int lineEnd = newline(lineStart);
+            pos = Math.min(limit, lineEnd + 1);
+            line++;
+            int s = skipSpace(lineStart, lineEnd);
+            int e = trimEnd(s, lineEnd);
+            if (e - s == ends[0] - starts[0] + 3 && config.charAt(s) == '<' && config.charAt(s + 1) == '/'
+                    && config.charAt(e - 1) == '>' && regionEquals(s + 2, e - 1, starts[0], ends[0])) {
+                contentEnd = lineStart;
+                return;
+            }
+        }
+        throw new ConfigParseException(directiveLine, "内联块 <" + name() + "> 没有结束标签");
+    }
+
+    // 按空白切分参数，支持单/双引号；参数开头的 # 或 ; 表示行尾注释
+    private void tokenize(int p, int end) throws ConfigParseException {
+        inline = false;
+        tokenCount = 0;
+        while (p < end) {
+            char c = config.charAt(p);
+            if (c == '#' || c == ';') {
+                break;
+            }
+            if (tokenCount == MAX_TOKENS) {
+                throw new ConfigParseException(line, "参数过多");
+            }
+            int start;
+            int stop;
+            if (c == '"' || c == '\'') {
+                start = p + 1;
+                stop = start;
+                while (stop < end && config.charAt(stop) != c) {
+                    if (c == '"' && config.charAt(stop) == '\\') {
+                        stop++; // 转义字符原样保留在视图中
+                    }
+                    stop++;
+                }
+                if (stop >= end) {
+                    throw new ConfigParseException(line, "引号没有闭合");
+                }
+                p = stop + 1;
+            } else {
+                start = p;
+                stop = p;
+                while (stop < end && !isSpace(config.charAt(stop))) {
+                    stop++;
+                }
+                p = stop;
+            }
+            starts[tokenCount] = start;
+            ends[tokenCount] = stop;
+            tokenCount++;
+            p = skipSpace(p, end);
+        }
+        if (tokenCount == 0) {
+            throw new ConfigParseException(line, "缺少指令名");
+        }
+    }
+
+    private boolean nameIn(String[] names) {
+        for (String name : names) {
+            if (nameEquals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean argIn(int index, String[] values) {
+        for (String value : values) {
+            if (regionEquals(starts[index + 1], ends[index + 1], value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // BEGIN 从块首向后找、END 从块尾向前找，正常的 PEM 内容两边都只需看几十个字符
+    private boolean isPem() {
+        int begin = -1;
+        for (int i = contentStart; i <= contentEnd - 11; i++) {
+            if (regionEquals(i, i + 11, "-----BEGIN ")) {
+                begin = i;
+                break;
+            }
+        }
+        if (begin < 0) {
+            return false;
+        }
+        for (int i = contentEnd - 9; i > begin; i--) {
+            if (regionEquals(i, i + 9, "-----END ")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean regionEquals(int start, int end, String value) {
+        if (end - start != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (config.charAt(start + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean regionEquals(int start, int end, int otherStart, int otherEnd) {
+        if (end - start != otherEnd - otherStart) {
+            return false;
+        }
+        for (int i = 0; i < end - start; i++) {
+            if (config.charAt(start + i) != config.charAt(otherStart + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 下一个换行符的位置，没有时为 limit；行尾的 \r 由 trimEnd 去掉
+    // 内联块占配置的绝大部分，String 的 indexOf 比逐个 charAt 快得多
+    private int newline(int from) {
+        if (config instanceof String) {
+            int i = ((String) config).indexOf('\n', from);
+            return i < 0 || i > limit ? limit : i;
+        }
+        int i = from;
+        while (i < limit && config.charAt(i) != '\n') {
+            i++;
+        }
+        return i;
+    }
+
+    private int skipSpace(int p, int end) {
+        while (p < end && isSpace(config.charAt(p))) {
+            p++;
+        }
+        return p;
+    }
+
+    private int trimEnd(int start, int end) {
+        while (end > start && isSpace(config.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\f';
+    }
+
+    private static boolean isPort(CharSequence value) {
+        if (value.length() == 0 || value.length() > 5) {
+            return false;
+        }
+        int port = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            port = port * 10 + (c - '0');
+        }
+        return port > 0 && port <= 65535;
+    }
+}
@@ -0,0 +1,385 @@
+package com.example.openvpn;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// 可选的数据包引擎：在 tun 设备和 OpenVPN 核心之间转发每一个 IP 包，中间经过可插拔的处理链
+// 单独一个 I/O 线程，批量读写；缓冲区全部来自预分配的直接内存池，稳态下不产生任何分配
+public class PacketEngine {
+    private static final String TAG = "PacketEngine";
+
+    // 方向：出站 = 应用发出的包（tun -> 核心），入站 = 隧道收到的包（核心 -> tun）
+    public static final int OUTBOUND = 0;
+    public static final int INBOUND = 1;
+
+    // 处理结果
+    public static final int PASS = 0;
+    public static final int DROP = 1;
+
+    static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+    static final int DEFAULT_POOL_SIZE = 128;
+    // 每个方向每轮最多读取的包数
+    static final int BATCH_SIZE = 32;
+    // 无数据时的最长等待；有待写出的包时只短暂等待后重试
+    private static final long IDLE_WAIT_MS = 1000;
+    private static final long RETRY_WAIT_MS = 1;
+
+    // 包处理器，在 I/O 线程上调用，不能阻塞
+    // packet 的 position 为0、limit 为包长，可以原地修改内容或 limit；返回 PASS 或 DROP
+    public interface Handler {
+        int onPacket(int direction, ByteBuffer packet);
+    }
+
+    // 两端的读写抽象：Android 上是 tun 和与核心之间的 socketpair，基准测试中可用任意成对的 socket 替代
+    public interface Io {
+        // 从 direction 方向的来源端读一个包，非阻塞；没有数据返回0，已关闭返回-1
+        int read(int direction, ByteBuffer dst) throws IOException;
+
+        // 写一个包到 direction 方向的目的端；暂时写不进时返回0
+        int write(int direction, ByteBuffer src) throws IOException;
+
+        // 等待任一来源端可读、被唤醒或超时
+        void await(long timeoutMs) throws IOException;
+
+        void wakeup();
+
+        void close();
+    }
+
+    private final int bufferSize;
+    private final ByteBuffer[] pool;
+    private int poolCount;
+
+    // 每个方向待写出的包（环形队列），只由 I/O 线程访问
+    private final ByteBuffer[][] pending = new ByteBuffer[2][];
+    private final int[] pendingHead = new int[2];
+    private final int[] pendingCount = new int[2];
+
+    // 其它线程注入的包，由 I/O 线程取出
+    private final ByteBuffer[] injected;
+    private final int[] injectedDirection;
+    private int injectedHead;
+    private int injectedCount;
+
+    // 处理链，修改时整体替换数组，遍历时不加锁也不分配
+    private volatile Handler[] handlers = new Handler[0];
+
+    private volatile Io io;
+    private volatile boolean running;
+    private volatile Thread thread;
+
+    // 统计值仅由 I/O 线程写入，其它线程读取；单写者用 lazySet 发布，不需要 CAS
+    private final AtomicLongArray packets = new AtomicLongArray(2);
+    private final AtomicLongArray bytes = new AtomicLongArray(2);
+    private final AtomicLongArray drops = new AtomicLongArray(2);
+    private volatile long injections;
+    private volatile long poolExhausted;
+
+    public PacketEngine() {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_POOL_SIZE);
+    }
+
+    public PacketEngine(int bufferSize, int poolSize) {
+        this.bufferSize = bufferSize;
+        this.pool = new ByteBuffer[poolSize];
+        for (int i = 0; i < poolSize; i++) {
+            pool[i] = ByteBuffer.allocateDirect(bufferSize);
+        }
+        poolCount = poolSize;
+        pending[OUTBOUND] = new ByteBuffer[poolSize];
+        pending[INBOUND] = new ByteBuffer[poolSize];
+        injected = new ByteBuffer[poolSize];
+        injectedDirection = new int[poolSize];
+    }
+
+    public synchronized void addHandler(Handler handler) {
+        Handler[] current = handlers;
+        Handler[] next = new Handler[current.length + 1];
+        System.arraycopy(current, 0, next, 0, current.length);
+        next[current.length] = handler;
+        handlers = next;
+    }
+
+    public synchronized void removeHandler(Handler handler) {
+        Handler[] current = handlers;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == handler) {
+                Handler[] next = new Handler[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                handlers = next;
+                return;
+            }
+        }
+    }
+
+    // 开始转发；已在运行时先停止旧的循环
+    public synchronized void start(Io io) {
+        stop();
+        this.io = io;
+        running = true;
+        thread = new Thread(this::loop, "vpn-packet-io");
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+        Log.d(TAG, "数据包引擎已启动");
+    }
+
+    public synchronized void stop() {
+        Thread current = thread;
+        if (current == null) {
+            return;
+        }
+        running = false;
+        io.wakeup();
+        boolean interrupted = false;
+        try {
+            current.join(1000);
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+        if (current.isAlive()) {
+            Log.w(TAG, "I/O 线程未及时退出，关闭读写端");
+        }
+        // 关闭后 await/read/write 立即返回或抛异常；旧线程退出并归还缓冲区之后才能重新 start，
+        // 否则两个线程会同时使用缓冲池和待写队列
+        io.close();
+        while (current.isAlive()) {
+            try {
+                current.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+        io = null;
+        Log.d(TAG, "数据包引擎已停止");
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    // 向某个方向注入一个包（例如处理器生成的应答），内容会被复制；缓冲区用尽时返回 false
+    public boolean inject(int direction, ByteBuffer packet) {
+        Io current = io;
+        if (!running || current == null || packet.remaining() > bufferSize) {
+            return false;
+        }
+        ByteBuffer buffer = acquire();
+        if (buffer == null) {
+            return false;
+        }
+        buffer.clear();
+        buffer.put(packet.duplicate());
+        buffer.flip();
+        synchronized (injected) {
+            if (injectedCount == injected.length) {
+                release(buffer);
+                return false;
+            }
+            int tail = (injectedHead + injectedCount) % injected.length;
+            injected[tail] = buffer;
+            injectedDirection[tail] = direction;
+            injectedCount++;
+        }
+        if (Thread.currentThread() != thread) {
+            current.wakeup();
+        }
+        return true;
+    }
+
+    public long getPackets(int direction) {
+        return packets.get(direction);
+    }
+
+    public long getBytes(int direction) {
+        return bytes.get(direction);
+    }
+
+    public long getDrops(int direction) {
+        return drops.get(direction);
+    }
+
+    public long getInjections() {
+        return injections;
+    }
+
+    // 缓冲池耗尽（暂停读取）的次数，持续增长说明对端写不进或池太小
+    public long getPoolExhausted() {
+        return poolExhausted;
+    }
+
+    // 池中空闲的缓冲区数，停止后应等于池大小
+    int getFreeBuffers() {
+        synchronized (pool) {
+            return poolCount;
+        }
+    }
+
+    private void loop() {
+        Io io = this.io;
+        try {
+            while (running) {
+                drainInjected();
+                int outbound = pump(io, OUTBOUND);
+                int inbound = pump(io, INBOUND);
+                boolean flushed = flush(io, OUTBOUND);
+                flushed &= flush(io, INBOUND);
+                if (outbound < 0 || inbound < 0) {
+                    Log.d(TAG, "对端已关闭");
+                    break;
+                }
+                if (outbound + inbound == 0) {
+                    io.await(flushed ? IDLE_WAIT_MS : RETRY_WAIT_MS);
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                Log.e(TAG, "数据包转发失败", e);
+            }
+        } finally {
+            running = false;
+            recycleQueued();
+        }
+    }
+
+    // 从 direction 的来源端批量读取并经过处理链，返回读到的包数，来源端关闭时返回-1
+    private int pump(Io io, int direction) throws IOException {
+        ByteBuffer[] queue = pending[direction];
+        int count = 0;
+        while (count < BATCH_SIZE && pendingCount[direction] < queue.length) {
+            ByteBuffer buffer = acquire();
+            if (buffer == null) {
+                poolExhausted = poolExhausted + 1;
+                break;
+            }
+            buffer.clear();
+            int n = io.read(direction, buffer);
+            if (n <= 0) {
+                release(buffer);
+                if (n < 0) {
+                    return -1;
+                }
+                break;
+            }
+            buffer.flip();
+            count++;
+            add(packets, direction, 1);
+            add(bytes, direction, n);
+            if (dispatch(direction, buffer) == DROP) {
+                add(drops, direction, 1);
+                release(buffer);
+            } else {
+                enqueue(direction, buffer);
+            }
+        }
+        return count;
+    }
+
+    // 只在 I/O 线程上调用
+    private static void add(AtomicLongArray counters, int index, long delta) {
+        counters.lazySet(index, counters.get(index) + delta);
+    }
+
+    private int dispatch(int direction, ByteBuffer packet) {
+        Handler[] chain = handlers;
+        for (int i = 0; i < chain.length; i++) {
+            int verdict;
+            try {
+                verdict = chain[i].onPacket(direction, packet);
+            } catch (RuntimeException e) {
+                // 处理器出错时放行，不能让单个处理器中断转发
+                Log.e(TAG, "包处理器异常", e);
+                verdict = PASS;
+            }
+            packet.position(0);
+            if (verdict == DROP) {
+                return DROP;
+            }
+        }
+        return PASS;
+    }
+
+    // 写出 direction 方向排队的包；对端暂时写不进时返回 false
+    private boolean flush(Io io, int direction) throws IOException {
+        ByteBuffer[] queue = pending[direction];
+        while (pendingCount[direction] > 0) {
+            ByteBuffer buffer = queue[pendingHead[direction]];
+            io.write(direction, buffer);
+            if (buffer.hasRemaining()) {
+                return false;
+            }
+            queue[pendingHead[direction]] = null;
+            pendingHead[direction] = (pendingHead[direction] + 1) % queue.length;
+            pendingCount[direction]--;
+            release(buffer);
+        }
+        return true;
+    }
+
+    private void enqueue(int direction, ByteBuffer buffer) {
+        ByteBuffer[] queue = pending[direction];
+        queue[(pendingHead[direction] + pendingCount[direction]) % queue.length] = buffer;
+        pendingCount[direction]++;
+    }
+
+    private void drainInjected() {
+        synchronized (injected) {
+            while (injectedCount > 0) {
+                int direction = injectedDirection[injectedHead];
+                if (pendingCount[direction] == pending[direction].length) {
+                    return;
+                }
+                enqueue(direction, injected[injectedHead]);
+                injected[injectedHead] = null;
+                injectedHead = (injectedHead + 1) % injected.length;
+                injectedCount--;
+                injections = injections + 1;
+            }
+        }
+    }
+
+    // 停止后把排队中的缓冲区还回池中
+    private void recycleQueued() {
+        for (int direction = 0; direction < 2; direction++) {
+            while (pendingCount[direction] > 0) {
+                int head = pendingHead[direction];
+                release(pending[direction][head]);
+                pending[direction][head] = null;
+                pendingHead[direction] = (head + 1) % pending[direction].length;
+                pendingCount[direction]--;
+            }
+        }
+        synchronized (injected) {
+            while (injectedCount > 0) {
+                release(injected[injectedHead]);
+                injected[injectedHead] = null;
+                injectedHead = (injectedHead + 1) % injected.length;
+                injectedCount--;
+            }
+        }
+    }
+
+    private ByteBuffer acquire() {
+        synchronized (pool) {
+            if (poolCount == 0) {
+                return null;
+            }
+            ByteBuffer buffer = pool[--poolCount];
+            pool[poolCount] = null;
+            return buffer;
+        }
+    }
+
+    private void release(ByteBuffer buffer) {
+        synchronized (pool) {
+            pool[poolCount++] = buffer;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.openvpn;
+
+// 连接各阶段的耗时统计，时间戳均来自单调时钟（SystemClock.elapsedRealtime）
+public class PerfMetrics {
+    public enum Phase {
+        // connect() 调用到 startVPN 返回（唤醒锁、配置解析、探测、启动服务）
+        SETUP("setup"),
+        // connect() 调用到进入 CONNECTING
+        CONNECTING("connecting"),
+        // CONNECTING 到 CONNECTED（握手）
+        HANDSHAKE("handshake"),
+        // connect() 调用到 CONNECTED
+        CONNECT("connect"),
+        // 进入 RECONNECTING 到 CONNECTED
+        RECONNECT("reconnect"),
+        // 连接/重连开始到 ERROR
+        ERROR("error"),
+        // 按冷/热启动分别统计的 connect() 到 CONNECTING、connect() 到 CONNECTED
+        // 热启动指服务和配置都已由 warmUp 或之前的连接准备好
+        COLD_CONNECTING("coldConnecting"),
+        COLD_CONNECT("coldConnect"),
+        WARM_CONNECTING("warmConnecting"),
+        WARM_CONNECT("warmConnect");
+
+        public final String key;
+
+        Phase(String key) {
+            this.key = key;
+        }
+    }
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Phase.values().length];
+
+    // 各阶段的起点，0 表示未开始
+    private long connectStart;
+    private long connectingStart;
+    private long reconnectStart;
+    // 本次连接是否为热启动
+    private boolean warm;
+
+    public PerfMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public LatencyHistogram get(Phase phase) {
+        return histograms[phase.ordinal()];
+    }
+
+    public synchronized void onConnectRequested(long now) {
+        connectStart = now;
+        warm = false;
+        connectingStart = 0;
+        reconnectStart = 0;
+    }
+
+    // 启动服务前确定本次是冷启动还是热启动
+    public synchronized void onStandbyChecked(boolean warm) {
+        this.warm = warm;
+    }
+
+    public synchronized void onSetupDone(long now) {
+        if (connectStart != 0) {
+            get(Phase.SETUP).record(now - connectStart);
+        }
+    }
+
+    // CONNECTING 可能由插件和 core 各上报一次，只记录第一次
+    public synchronized void onConnecting(long now) {
+        if (connectingStart != 0) {
+            return;
+        }
+        connectingStart = now;
+        if (connectStart != 0) {
+            get(Phase.CONNECTING).record(now - connectStart);
+            get(warm ? Phase.WARM_CONNECTING : Phase.COLD_CONNECTING).record(now - connectStart);
+        }
+    }
+
+    public synchronized void onReconnecting(long now) {
+        if (reconnectStart == 0) {
+            reconnectStart = now;
+        }
+    }
+
+    public synchronized void onConnected(long now) {
+        if (connectingStart != 0) {
+            get(Phase.HANDSHAKE).record(now - connectingStart);
+        }
+        if (connectStart != 0) {
+            get(Phase.CONNECT).record(now - connectStart);
+            get(warm ? Phase.WARM_CONNECT : Phase.COLD_CONNECT).record(now - connectStart);
+        }
+        if (reconnectStart != 0) {
+            get(Phase.RECONNECT).record(now - reconnectStart);
+        }
+        connectStart = 0;
+        connectingStart = 0;
+        reconnectStart = 0;
+    }
+
+    public synchronized void onError(long now) {
+        long start = reconnectStart != 0 ? reconnectStart : connectStart;
+        if (start != 0) {
+            get(Phase.ERROR).record(now - start);
+        }
+        connectStart = 0;
+        connectingStart = 0;
+        reconnectStart = 0;
+    }
+
+    public synchronized void onDisconnected() {
+        connectStart = 0;
+        connectingStart = 0;
+        reconnectStart = 0;
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+}
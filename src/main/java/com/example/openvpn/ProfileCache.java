@@ -0,0 +1,227 @@
+package com.example.openvpn;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.openvpn.models.Profile;
+import com.example.openvpn.models.ProfileManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+// 已解析配置的 LRU 缓存，以配置内容的哈希作为句柄
+// 相同内容的配置只解析一次；只有内容或认证信息变化时才写入 ProfileManager
+// 缓存中的 Profile 作为模板不再修改，每次连接通过 checkout 取得一份副本
+public class ProfileCache {
+    private static final String TAG = "ProfileCache";
+    private static final String HANDLE_PREFIX = "ovpn:";
+    private static final int MAX_ENTRIES = 8;
+
+    private final Context context;
+    // 实际解析配置的次数，用于判断连接时是否命中预解析的配置
+    private long parses;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // 最近一次连接使用的条目，淘汰时跳过，避免把正在使用的配置从 ProfileManager 中移除
+    private Entry active;
+
+    public ProfileCache(Context context) {
+        this.context = context;
+    }
+
+    // 缓存条目
+    public static class Entry {
+        public final String handle;
+        public final Profile profile;
+        private boolean saved;
+        private String savedUsername;
+        // 只保留密码的摘要，用来判断认证信息是否变化
+        private byte[] savedPasswordDigest;
+        // 按配置中的路由建立的前缀树，用于判断目的地址是否走隧道
+        private RouteTrie routes4;
+        private RouteTrie routes6;
+
+        Entry(String handle, Profile profile) {
+            this.handle = handle;
+            this.profile = profile;
+        }
+
+        // 目的地址（IP 字面量）按配置中的路由是否走隧道；无法解析时返回 null
+        // 服务器推送的路由要到连接后才知道，不在判断范围内，见 isRouteSetComplete
+        public Boolean isTunneled(String address) {
+            byte[] bytes = RouteTrie.parseAddress(address);
+            if (bytes == null) {
+                return null;
+            }
+            return bytes.length == 4 ? routes4.isTunneled(bytes) : routes6.isTunneled(bytes);
+        }
+
+        // 配置了 route-nopull 时核心忽略推送的路由，isTunneled 的结果就是实际路由
+        public boolean isRouteSetComplete() {
+            return profile.mRoutenopull;
+        }
+    }
+
+    public synchronized long getParseCount() {
+        return parses;
+    }
+
+    public static boolean isHandle(String value) {
+        return value != null && value.startsWith(HANDLE_PREFIX);
+    }
+
+    // 注册配置并返回句柄；core 解析失败时，能定位到出错行的抛出 ConfigParseException，否则返回 null
+    public synchronized Entry register(String config) throws ConfigParseException {
+        // 只编码一次，哈希和解析共用同一份字节
+        byte[] bytes = config.getBytes(StandardCharsets.UTF_8);
+        String handle = handleOf(bytes);
+        Entry entry = entries.get(handle);
+        if (entry != null) {
+            return entry;
+        }
+
+        Profile profile = Profile.parseVpnProfile(bytes);
+        parses++;
+        if (profile == null) {
+            // core 解析失败时只返回 null，这时再检查一遍结构给出准确的出错行；正常的配置不多走这一遍
+            OvpnConfigReader.validate(config);
+            return null;
+        }
+        entry = new Entry(handle, profile);
+        optimizeRoutes(entry);
+        entries.put(handle, entry);
+        trim();
+        return entry;
+    }
+
+    // 超出容量时按最近使用顺序淘汰，跳过正在使用的条目
+    private void trim() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > MAX_ENTRIES && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            if (eldest == active) {
+                continue;
+            }
+            iterator.remove();
+            forget(eldest);
+        }
+    }
+
+    // 按句柄或原始配置取得缓存条目，未命中的原始配置会被解析并缓存
+    public synchronized Entry resolve(String configOrHandle) throws ConfigParseException {
+        if (isHandle(configOrHandle)) {
+            return entries.get(configOrHandle);
+        }
+        return register(configOrHandle);
+    }
+
+    // 写入认证信息并返回这次连接使用的配置副本（remote 排序、MTU、分流等只改副本），条目同时成为正在使用的条目
+    // 仅在首次使用或认证信息变化时保存到 ProfileManager
+    public synchronized Profile checkout(Entry entry, String username, String password) {
+        active = entry;
+        Profile profile = entry.profile;
+        profile.mUsername = username;
+        profile.mPassword = password;
+
+        byte[] passwordDigest = password == null ? null : sha256(password.getBytes(StandardCharsets.UTF_8));
+        if (!entry.saved || !equals(entry.savedUsername, username)
+                || !MessageDigest.isEqual(entry.savedPasswordDigest, passwordDigest)) {
+            ProfileManager profileManager = ProfileManager.getInstance(context);
+            if (!entry.saved) {
+                profileManager.addProfile(profile);
+            }
+            profileManager.saveProfile(context, profile);
+            entry.saved = true;
+            entry.savedUsername = username;
+            entry.savedPasswordDigest = passwordDigest;
+        }
+
+        try {
+            return profile.clone();
+        } catch (CloneNotSupportedException e) {
+            // Profile 实现了 Cloneable
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // 合并相邻路由并扣除排除的网段，只把最少的路由交给 VpnService.Builder（路由多时建立隧道很慢甚至失败）
+    // 排除项原样保留：核心还要用它们扣除服务器推送的路由；使用默认路由时这里只建立前缀树用于查询
+    private static void optimizeRoutes(Entry entry) {
+        Profile profile = entry.profile;
+        entry.routes4 = buildRoutes(RouteTrie.IPV4_BITS, profile.mUseDefaultRoute,
+                profile.mCustomRoutes, profile.mExcludedRoutes);
+        entry.routes6 = buildRoutes(RouteTrie.IPV6_BITS, profile.mUseDefaultRoutev6,
+                profile.mCustomRoutesv6, profile.mExcludedRoutesv6);
+
+        if (!profile.mUseDefaultRoute && entry.routes4.getPrefixCount() > 0) {
+            List<String> routes = entry.routes4.minimalRoutes();
+            Log.d(TAG, "IPv4路由 " + entry.routes4.getPrefixCount() + " 条合并为 " + routes.size() + " 条");
+            profile.mCustomRoutes = join(routes);
+        }
+        if (!profile.mUseDefaultRoutev6 && entry.routes6.getPrefixCount() > 0) {
+            List<String> routes = entry.routes6.minimalRoutes();
+            Log.d(TAG, "IPv6路由 " + entry.routes6.getPrefixCount() + " 条合并为 " + routes.size() + " 条");
+            profile.mCustomRoutesv6 = join(routes);
+        }
+    }
+
+    private static RouteTrie buildRoutes(int bits, boolean defaultRoute, String included, String excluded) {
+        RouteTrie trie = new RouteTrie(bits);
+        if (defaultRoute) {
+            trie.add(new byte[bits / 8], 0, true);
+        }
+        trie.addAll(included, true);
+        trie.addAll(excluded, false);
+        return trie;
+    }
+
+    private static String join(List<String> routes) {
+        StringBuilder sb = new StringBuilder(routes.size() * 20);
+        for (String route : routes) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(route);
+        }
+        return sb.toString();
+    }
+
+    // 淘汰时把配置从 ProfileManager 中移除，避免存储无限增长
+    private void forget(Entry entry) {
+        if (!entry.saved) {
+            return;
+        }
+        try {
+            ProfileManager.getInstance(context).removeProfile(context, entry.profile);
+        } catch (Exception e) {
+            Log.e(TAG, "移除缓存配置失败", e);
+        }
+    }
+
+    static String handleOf(byte[] config) {
+        byte[] hash = sha256(config);
+        StringBuilder sb = new StringBuilder(HANDLE_PREFIX.length() + hash.length * 2);
+        sb.append(HANDLE_PREFIX);
+        for (byte b : hash) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            // 所有 Android 版本都提供 SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
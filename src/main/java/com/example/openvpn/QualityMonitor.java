@@ -0,0 +1,237 @@
+package com.example.openvpn;
+
+// 隧道质量窗口：记录最近 WINDOW 个探测的往返时延，计算平均/最小/最大 RTT、抖动（RFC 3550 的平滑算法）和丢包率
+// 质量持续低于阈值 SUSTAIN_MS 后返回一次降级原因，之后冷却 COOLDOWN_MS
+// 探测间隔随空闲逐步拉长，有流量、出现丢包或超过阈值的样本时回到最短间隔
+// 不依赖时钟，所有时间由调用方传入；方法加锁，可在探测线程和查询线程上同时调用
+public class QualityMonitor {
+    static final int WINDOW = 32;
+    // 窗口内至少有这么多个结果才判断质量
+    static final int MIN_SAMPLES = 8;
+    static final long PROBE_TIMEOUT_MS = 2000;
+    static final long ACTIVE_INTERVAL_MS = 2000;
+    static final long IDLE_INTERVAL_MS = 30_000;
+    static final long SUSTAIN_MS = 15_000;
+    static final long COOLDOWN_MS = 60_000;
+    // 采样间隔内的流量达到该值时视为活跃（与 StatsScheduler 的推送阈值相同）
+    static final long TRAFFIC_THRESHOLD_BYTES = 1024;
+
+    private static final long EMPTY = -3;
+    private static final long PENDING = -2;
+    private static final long LOST = -1;
+
+    // 某一时刻的质量快照，时间单位为毫秒，没有结果时为 -1
+    public static final class Quality {
+        public int samples;
+        public int lost;
+        public long rttMs;
+        public long minRttMs;
+        public long maxRttMs;
+        public long jitterMs;
+        public int lossPercent;
+        public boolean degraded;
+        public long intervalMs;
+        public long probesSent;
+        public long triggers;
+    }
+
+    private final long activeIntervalMs;
+    private final long idleIntervalMs;
+    private final long timeoutMs;
+    private final long sustainMs;
+    private final long cooldownMs;
+
+    private final long[] sentAt = new long[WINDOW];
+    private final long[] rtts = new long[WINDOW];
+    private long nextSeq;
+    private long probesSent;
+    private double jitter;
+    private long lastRtt = -1;
+
+    private long maxRttMs = 1500;
+    private long maxJitterMs = 300;
+    private int maxLossPercent = 30;
+
+    private long intervalMs;
+    // 最近一次丢包或超阈值样本之后连续正常的探测数，够 MIN_SAMPLES 个才开始拉长间隔
+    private int cleanStreak;
+    private long degradedSince = -1;
+    private long lastTrigger = Long.MIN_VALUE / 2;
+    private long triggers;
+
+    public QualityMonitor() {
+        this(ACTIVE_INTERVAL_MS, IDLE_INTERVAL_MS, PROBE_TIMEOUT_MS, SUSTAIN_MS, COOLDOWN_MS);
+    }
+
+    public QualityMonitor(long activeIntervalMs, long idleIntervalMs, long timeoutMs, long sustainMs, long cooldownMs) {
+        this.activeIntervalMs = activeIntervalMs;
+        this.idleIntervalMs = idleIntervalMs;
+        this.timeoutMs = timeoutMs;
+        this.sustainMs = sustainMs;
+        this.cooldownMs = cooldownMs;
+        reset();
+    }
+
+    // 阈值，<= 0 表示不检查该项
+    public synchronized void setThresholds(long maxRttMs, long maxJitterMs, int maxLossPercent) {
+        this.maxRttMs = maxRttMs;
+        this.maxJitterMs = maxJitterMs;
+        this.maxLossPercent = maxLossPercent;
+    }
+
+    // 新的隧道：清空窗口，回到最短间隔
+    public synchronized void reset() {
+        for (int i = 0; i < WINDOW; i++) {
+            rtts[i] = EMPTY;
+        }
+        jitter = 0;
+        lastRtt = -1;
+        intervalMs = activeIntervalMs;
+        cleanStreak = 0;
+        degradedSince = -1;
+    }
+
+    // 发出一个探测，返回它的序号
+    public synchronized long onProbeSent(long now) {
+        long seq = nextSeq++;
+        probesSent++;
+        int slot = (int) (seq % WINDOW);
+        sentAt[slot] = now;
+        rtts[slot] = PENDING;
+        return seq;
+    }
+
+    // 收到回显；过期、重复或窗口外的序号忽略，返回是否有效
+    public synchronized boolean onProbeReply(long seq, long now) {
+        if (seq >= nextSeq || seq < nextSeq - WINDOW) {
+            return false;
+        }
+        int slot = (int) (seq % WINDOW);
+        if (rtts[slot] != PENDING) {
+            return false;
+        }
+        long rtt = Math.max(0, now - sentAt[slot]);
+        rtts[slot] = rtt;
+        // 单个样本已超过阈值时回到最短间隔，尽快攒够样本做判断
+        if ((maxRttMs > 0 && rtt > maxRttMs) || (maxJitterMs > 0 && lastRtt >= 0 && Math.abs(rtt - lastRtt) > maxJitterMs)) {
+            suspect();
+        } else {
+            cleanStreak++;
+        }
+        if (lastRtt >= 0) {
+            jitter += (Math.abs(rtt - lastRtt) - jitter) / 16.0;
+        }
+        lastRtt = rtt;
+        return true;
+    }
+
+    // 有流量时回到最短间隔
+    public synchronized void onTraffic(long bytes) {
+        if (bytes >= TRAFFIC_THRESHOLD_BYTES) {
+            intervalMs = activeIntervalMs;
+        }
+    }
+
+    // 超时的探测记为丢失，然后判断质量；持续降级时返回原因（每个冷却期至多一次），否则返回 null
+    public synchronized String evaluate(long now) {
+        int samples = 0;
+        int lost = 0;
+        long sum = 0;
+        for (int i = 0; i < WINDOW; i++) {
+            long rtt = rtts[i];
+            if (rtt == EMPTY) {
+                continue;
+            }
+            if (rtt == PENDING) {
+                if (now - sentAt[i] < timeoutMs) {
+                    continue;
+                }
+                rtts[i] = rtt = LOST;
+                suspect();
+            }
+            samples++;
+            if (rtt == LOST) {
+                lost++;
+            } else {
+                sum += rtt;
+            }
+        }
+
+        String reason = null;
+        if (samples >= MIN_SAMPLES) {
+            int loss = lost * 100 / samples;
+            long mean = samples > lost ? sum / (samples - lost) : -1;
+            if (maxLossPercent > 0 && loss > maxLossPercent) {
+                reason = "丢包率 " + loss + "%";
+            } else if (maxRttMs > 0 && mean > maxRttMs) {
+                reason = "时延 " + mean + "ms";
+            } else if (maxJitterMs > 0 && (long) jitter > maxJitterMs) {
+                reason = "抖动 " + (long) jitter + "ms";
+            }
+        }
+
+        if (reason == null) {
+            degradedSince = -1;
+            return null;
+        }
+        // 质量变差时按最短间隔探测，尽快确认
+        intervalMs = activeIntervalMs;
+        if (degradedSince < 0) {
+            degradedSince = now;
+            return null;
+        }
+        if (now - degradedSince < sustainMs || now - lastTrigger < cooldownMs) {
+            return null;
+        }
+        triggers++;
+        lastTrigger = now;
+        return reason;
+    }
+
+    private void suspect() {
+        intervalMs = activeIntervalMs;
+        cleanStreak = 0;
+    }
+
+    // 到下一次探测的间隔：连续正常时每次翻倍，直到 idleIntervalMs
+    public synchronized long nextInterval() {
+        long current = intervalMs;
+        if (degradedSince < 0 && cleanStreak >= MIN_SAMPLES) {
+            intervalMs = Math.min(idleIntervalMs, intervalMs * 2);
+        }
+        return current;
+    }
+
+    public synchronized void getQuality(Quality out) {
+        int samples = 0;
+        int lost = 0;
+        long sum = 0;
+        long min = Long.MAX_VALUE;
+        long max = -1;
+        for (int i = 0; i < WINDOW; i++) {
+            long rtt = rtts[i];
+            if (rtt == EMPTY || rtt == PENDING) {
+                continue;
+            }
+            samples++;
+            if (rtt == LOST) {
+                lost++;
+            } else {
+                sum += rtt;
+                min = Math.min(min, rtt);
+                max = Math.max(max, rtt);
+            }
+        }
+        out.samples = samples;
+        out.lost = lost;
+        out.rttMs = samples > lost ? sum / (samples - lost) : -1;
+        out.minRttMs = max >= 0 ? min : -1;
+        out.maxRttMs = max;
+        out.jitterMs = lastRtt >= 0 ? Math.round(jitter) : -1;
+        out.lossPercent = samples > 0 ? lost * 100 / samples : 0;
+        out.degraded = degradedSince >= 0;
+        out.intervalMs = intervalMs;
+        out.probesSent = probesSent;
+        out.triggers = triggers;
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.openvpn;
+
+import android.os.Handler;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// 重连引擎：带上限的指数退避 + 抖动；新网络可用时立即重连；记录断线到恢复的耗时
+// 所有方法都应在 handler 所在线程调用
+public class ReconnectEngine {
+    private static final String TAG = "ReconnectEngine";
+
+    static final long BASE_DELAY_MS = 500;
+    static final long MAX_DELAY_MS = 30_000;
+    // 超过该次数后不再定时重试，等待下一次网络可用事件
+    static final int MAX_TIMED_ATTEMPTS = 10;
+    // 单次重连既没成功也没报错时，超过该时间视为失败
+    static final long ATTEMPT_TIMEOUT_MS = 20_000;
+    private static final int RECOVERY_HISTORY = 32;
+
+    public interface Callback {
+        // 到了重连时间，attempt 从1开始
+        void onReconnect(int attempt);
+
+        // 定时重试次数用尽
+        void onGiveUp();
+    }
+
+    private final Handler handler;
+    private final Callback callback;
+    private final Random random;
+    private final Runnable attemptRunnable = this::attempt;
+
+    private boolean recovering;
+    private boolean waitingForNetwork;
+    private int attempts;
+    private long outageStart;
+
+    // 恢复耗时统计
+    private long recoveries;
+    private long lastRecoveryMs;
+    private long maxRecoveryMs;
+    private long totalRecoveryMs;
+    private final long[] recentRecoveries = new long[RECOVERY_HISTORY];
+    private final long[] sortScratch = new long[RECOVERY_HISTORY];
+
+    public ReconnectEngine(Handler handler, Callback callback) {
+        this(handler, callback, new Random());
+    }
+
+    ReconnectEngine(Handler handler, Callback callback, Random random) {
+        this.handler = handler;
+        this.callback = callback;
+        this.random = random;
+    }
+
+    // 隧道异常断开
+    public void onFailure(long now) {
+        if (!recovering) {
+            recovering = true;
+            outageStart = now;
+            attempts = 0;
+        }
+        if (waitingForNetwork) {
+            return;
+        }
+        scheduleNext();
+    }
+
+    // 有新的可用网络，取消等待中的退避立即重连
+    public void onNetworkAvailable() {
+        if (!recovering) {
+            return;
+        }
+        handler.removeCallbacks(attemptRunnable);
+        waitingForNetwork = false;
+        attempts = 0;
+        attempt();
+    }
+
+    // 隧道已恢复
+    public void onConnected(long now) {
+        handler.removeCallbacks(attemptRunnable);
+        if (recovering) {
+            recordRecovery(now - outageStart);
+        }
+        recovering = false;
+        waitingForNetwork = false;
+        attempts = 0;
+    }
+
+    // 用户主动断开，放弃恢复
+    public void cancel() {
+        handler.removeCallbacks(attemptRunnable);
+        recovering = false;
+        waitingForNetwork = false;
+        attempts = 0;
+    }
+
+    public boolean isRecovering() {
+        return recovering;
+    }
+
+    private void scheduleNext() {
+        handler.removeCallbacks(attemptRunnable);
+        if (attempts >= MAX_TIMED_ATTEMPTS) {
+            Log.d(TAG, "已达到最大重连次数，等待网络变化");
+            waitingForNetwork = true;
+            callback.onGiveUp();
+            return;
+        }
+        long delay = backoffDelay(attempts, random);
+        Log.d(TAG, "调度重连，尝试 " + (attempts + 1) + "，延迟 " + delay + "ms");
+        handler.postDelayed(attemptRunnable, delay);
+    }
+
+    private void attempt() {
+        if (!recovering) {
+            return;
+        }
+        if (attempts >= MAX_TIMED_ATTEMPTS) {
+            scheduleNext();
+            return;
+        }
+        attempts++;
+        callback.onReconnect(attempts);
+        // 若本次重连卡住，超时后继续下一次
+        handler.postDelayed(attemptRunnable, ATTEMPT_TIMEOUT_MS);
+    }
+
+    // 第 attempt 次（从0开始）的退避时间：在 [d/2, d] 内随机，d = min(上限, 基数 * 2^attempt)
+    static long backoffDelay(int attempt, Random random) {
+        long delay = BASE_DELAY_MS << Math.min(attempt, 16);
+        delay = Math.min(MAX_DELAY_MS, delay);
+        long half = delay / 2;
+        return half + (long) (random.nextDouble() * (delay - half));
+    }
+
+    private void recordRecovery(long durationMs) {
+        recentRecoveries[(int) (recoveries % RECOVERY_HISTORY)] = durationMs;
+        recoveries++;
+        lastRecoveryMs = durationMs;
+        maxRecoveryMs = Math.max(maxRecoveryMs, durationMs);
+        totalRecoveryMs += durationMs;
+    }
+
+    public long getRecoveries() {
+        return recoveries;
+    }
+
+    public long getLastRecoveryMs() {
+        return lastRecoveryMs;
+    }
+
+    public long getMaxRecoveryMs() {
+        return maxRecoveryMs;
+    }
+
+    public long getAverageRecoveryMs() {
+        return recoveries == 0 ? 0 : totalRecoveryMs / recoveries;
+    }
+
+    // 最近若干次恢复耗时的中位数
+    public long getMedianRecoveryMs() {
+        int n = (int) Math.min(recoveries, RECOVERY_HISTORY);
+        if (n == 0) {
+            return 0;
+        }
+        System.arraycopy(recentRecoveries, 0, sortScratch, 0, n);
+        Arrays.sort(sortScratch, 0, n);
+        return sortScratch[(n - 1) / 2];
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.openvpn;
+
+import android.util.Log;
+
+import com.example.openvpn.models.Connection;
+import com.example.openvpn.models.Profile;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// 连接前并发探测配置中的所有 remote，按实测 RTT 重新排列连接顺序
+// TCP 测量握手耗时；UDP 发送 OpenVPN 硬重置包并等待服务端回应
+public class RemoteProber {
+    private static final String TAG = "RemoteProber";
+
+    static final int DEFAULT_DEADLINE_MS = 1500;
+    // 探测结果：>=0 为 RTT(ms)
+    static final long RESULT_UNKNOWN = -1; // 无回应（启用 tls-auth 的 UDP 服务端会静默丢弃）
+    static final long RESULT_FAILED = -2;  // 域名无法解析、连接被拒绝等明确失败
+    // 历史 RTT 的平滑系数
+    private static final double HISTORY_WEIGHT = 0.3;
+
+    // 探测和域名解析各用一个有界线程池；队列也满时该 remote 记为无回应
+    static final int MAX_PROBE_THREADS = 8;
+    static final int MAX_RESOLVE_THREADS = 4;
+    private static final int MAX_QUEUED = 32;
+    private static final ThreadPoolExecutor PROBE_POOL = newPool("vpn-probe", MAX_PROBE_THREADS);
+    // getByName 无法设置超时，放到单独的线程上解析，探测线程最多等到截止时间
+    private static final ThreadPoolExecutor RESOLVE_POOL = newPool("vpn-resolve", MAX_RESOLVE_THREADS);
+
+    // P_CONTROL_HARD_RESET_CLIENT_V2 (opcode 7, key_id 0) + 随机 session id + 空 ack + packet id 0
+    private static final byte[] HARD_RESET_TEMPLATE = new byte[14];
+
+    static {
+        HARD_RESET_TEMPLATE[0] = (byte) (7 << 3);
+    }
+
+    // 每个 remote 的历史 RTT（指数平滑），用于下一次连接时参考
+    private final Map<String, Long> rttHistory = new HashMap<>();
+    private volatile SocketProtector protector;
+
+    private static ThreadPoolExecutor newPool(String name, int threads) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(MAX_QUEUED), r -> {
+                    Thread thread = new Thread(r, name);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // 空闲时不保留线程
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    // 设置后探测 socket 绕过隧道
+    public void setProtector(SocketProtector protector) {
+        this.protector = protector;
+    }
+
+    // 探测并按结果重排 profile 的连接列表
+    public void reorder(Profile profile) {
+        reorder(profile, DEFAULT_DEADLINE_MS);
+    }
+
+    public void reorder(Profile profile, int deadlineMs) {
+        Connection[] connections = profile.mConnections;
+        if (connections == null || connections.length < 2) {
+            return;
+        }
+
+        int count = connections.length;
+        String[] hosts = new String[count];
+        int[] ports = new int[count];
+        boolean[] udp = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            hosts[i] = connections[i].mServerName;
+            ports[i] = parsePort(connections[i].mServerPort);
+            udp[i] = connections[i].mUseUdp;
+        }
+
+        long[] results = probeAll(hosts, ports, udp, deadlineMs);
+        // 连接已被取消：未完成的探测不计入历史，也不再调整顺序
+        if (Thread.currentThread().isInterrupted()) {
+            return;
+        }
+        long[] scores = new long[count];
+        for (int i = 0; i < count; i++) {
+            scores[i] = updateHistory(key(hosts[i], ports[i], udp[i]), results[i]);
+        }
+
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        // 稳定排序：可达的按分数升序，无回应的次之（有历史记录的在前），明确失败的放最后，同分保持原顺序
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int byRank = Integer.compare(rank(results[a]), rank(results[b]));
+                if (byRank != 0 || results[a] == RESULT_FAILED) {
+                    return byRank;
+                }
+                return Long.compare(scores[a], scores[b]);
+            }
+        });
+
+        Connection[] reordered = new Connection[count];
+        for (int i = 0; i < count; i++) {
+            reordered[i] = connections[order[i]];
+        }
+        profile.mConnections = reordered;
+        Log.d(TAG, "remote探测完成，首选 " + reordered[0].mServerName);
+    }
+
+    // 并发探测所有地址，整体不超过 deadlineMs；未按时完成的记为无回应
+    public long[] probeAll(String[] hosts, int[] ports, boolean[] udp, int deadlineMs) {
+        int count = hosts.length;
+        long[] results = new long[count];
+        Arrays.fill(results, RESULT_UNKNOWN);
+        CountDownLatch done = new CountDownLatch(count);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        SocketProtector protector = this.protector;
+
+        for (int i = 0; i < count; i++) {
+            final int index = i;
+            try {
+                PROBE_POOL.execute(() -> {
+                    try {
+                        long result = probe(hosts[index], ports[index], udp[index], deadline, protector);
+                        synchronized (results) {
+                            results[index] = result;
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                done.countDown();
+            }
+        }
+
+        try {
+            done.await(deadlineMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (results) {
+            return results.clone();
+        }
+    }
+
+    static long probe(String host, int port, boolean udp, long deadlineNanos, SocketProtector protector) {
+        try {
+            InetAddress address = resolve(host, deadlineNanos);
+            if (address == null) {
+                return RESULT_UNKNOWN;
+            }
+            int timeout = remainingMillis(deadlineNanos);
+            if (timeout <= 0) {
+                return RESULT_UNKNOWN;
+            }
+            return udp ? probeUdp(address, port, timeout, protector) : probeTcp(address, port, timeout, protector);
+        } catch (SocketTimeoutException e) {
+            return RESULT_UNKNOWN;
+        } catch (IOException e) {
+            return RESULT_FAILED;
+        }
+    }
+
+    // 在截止时间内解析域名，超时或解析线程已满时返回 null（记为无回应）
+    private static InetAddress resolve(String host, long deadlineNanos) throws IOException {
+        Future<InetAddress> future;
+        try {
+            future = RESOLVE_POOL.submit(() -> InetAddress.getByName(host));
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+        try {
+            return future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return null;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            return null;
+        }
+    }
+
+    private static long probeTcp(InetAddress address, int port, int timeout, SocketProtector protector)
+            throws IOException {
+        long start = System.nanoTime();
+        try (Socket socket = new Socket()) {
+            if (protector != null) {
+                protector.protect(socket);
+            }
+            socket.connect(new InetSocketAddress(address, port), timeout);
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+    }
+
+    private static long probeUdp(InetAddress address, int port, int timeout, SocketProtector protector)
+            throws IOException {
+        byte[] packet = HARD_RESET_TEMPLATE.clone();
+        long sessionId = Double.doubleToLongBits(Math.random()) ^ System.nanoTime();
+        for (int i = 0; i < 8; i++) {
+            packet[1 + i] = (byte) (sessionId >>> (i * 8));
+        }
+
+        try (DatagramSocket socket = new DatagramSocket()) {
+            if (protector != null) {
+                protector.protect(socket);
+            }
+            // connect 后才能收到 ICMP 端口不可达
+            socket.connect(address, port);
+            socket.setSoTimeout(timeout);
+            byte[] reply = new byte[256];
+            long start = System.nanoTime();
+            socket.send(new DatagramPacket(packet, packet.length));
+            socket.receive(new DatagramPacket(reply, reply.length));
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        } catch (PortUnreachableException e) {
+            return RESULT_FAILED;
+        }
+    }
+
+    // 更新历史并返回用于排序的分数
+    private synchronized long updateHistory(String key, long rtt) {
+        Long previous = rttHistory.get(key);
+        if (rtt < 0) {
+            return previous != null ? previous : Long.MAX_VALUE;
+        }
+        long score = previous == null ? rtt : Math.round(rtt * (1 - HISTORY_WEIGHT) + previous * HISTORY_WEIGHT);
+        rttHistory.put(key, score);
+        return score;
+    }
+
+    // 某个 remote 的历史 RTT，没有记录时返回 -1
+    public synchronized long getHistoricalRtt(String host, int port, boolean udp) {
+        Long value = rttHistory.get(key(host, port, udp));
+        return value != null ? value : -1;
+    }
+
+    private static int rank(long result) {
+        if (result >= 0) {
+            return 0;
+        }
+        return result == RESULT_UNKNOWN ? 1 : 2;
+    }
+
+    private static String key(String host, int port, boolean udp) {
+        return (udp ? "udp:" : "tcp:") + host + ":" + port;
+    }
+
+    private static int parsePort(String port) {
+        try {
+            return Integer.parseInt(port.trim());
+        } catch (Exception e) {
+            return 1194;
+        }
+    }
+
+    private static int remainingMillis(long deadlineNanos) {
+        return (int) TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.openvpn;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+
+// 分流路由的前缀树（二进制 radix trie），节点存放在 int 数组中，同一棵树只处理一种地址族
+// 查询按最长前缀匹配判断目的地址是否走隧道，耗时与前缀长度成正比且不分配对象
+// minimalRoutes() 合并相邻前缀并扣除排除的网段，得到需要交给 VpnService.Builder 的最少路由
+public class RouteTrie {
+    public static final int IPV4_BITS = 32;
+    public static final int IPV6_BITS = 128;
+
+    private static final byte NONE = 0;
+    private static final byte INCLUDE = 1;
+    private static final byte EXCLUDE = 2;
+
+    // 子树状态
+    private static final byte EMPTY = 0;
+    private static final byte FULL = 1;
+    private static final byte MIXED = 2;
+
+    private final int bits;
+    private int[] zero = new int[64];
+    private int[] one = new int[64];
+    private byte[] marks = new byte[64];
+    private int size = 1; // 0 号为根节点；子节点下标为0表示不存在
+    private int prefixes;
+
+    public RouteTrie(int bits) {
+        if (bits != IPV4_BITS && bits != IPV6_BITS) {
+            throw new IllegalArgumentException("bits: " + bits);
+        }
+        this.bits = bits;
+    }
+
+    public int getBits() {
+        return bits;
+    }
+
+    // 已加入的前缀数（重复的只计一次）
+    public int getPrefixCount() {
+        return prefixes;
+    }
+
+    // 加入一个前缀，include 为 false 表示排除；同一前缀后加入的覆盖先加入的
+    public void add(byte[] address, int prefixLength, boolean include) {
+        if (address.length * 8 != bits || prefixLength < 0 || prefixLength > bits) {
+            throw new IllegalArgumentException("prefix: " + prefixLength);
+        }
+        int node = 0;
+        for (int i = 0; i < prefixLength; i++) {
+            int b = bit(address, i);
+            int child = b == 0 ? zero[node] : one[node];
+            if (child == 0) {
+                // newNode 可能扩容，之后再写入子节点下标
+                child = newNode();
+                if (b == 0) {
+                    zero[node] = child;
+                } else {
+                    one[node] = child;
+                }
+            }
+            node = child;
+        }
+        if (marks[node] == NONE) {
+            prefixes++;
+        }
+        marks[node] = include ? INCLUDE : EXCLUDE;
+    }
+
+    // 加入 "地址/前缀长度" 形式的路由，省略长度时视为主机路由；格式错误或地址族不符时返回 false
+    public boolean add(String cidr, boolean include) {
+        int slash = cidr.indexOf('/');
+        byte[] address = parseAddress(slash < 0 ? cidr : cidr.substring(0, slash));
+        if (address == null || address.length * 8 != bits) {
+            return false;
+        }
+        int length = bits;
+        if (slash >= 0) {
+            try {
+                length = Integer.parseInt(cidr.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            if (length < 0 || length > bits) {
+                return false;
+            }
+        }
+        add(address, length, include);
+        return true;
+    }
+
+    // 加入以空白、逗号或分号分隔的一组路由，返回成功加入的数量
+    public int addAll(String routes, boolean include) {
+        if (routes == null) {
+            return 0;
+        }
+        int added = 0;
+        int start = -1;
+        for (int i = 0; i <= routes.length(); i++) {
+            boolean separator = i == routes.length() || isSeparator(routes.charAt(i));
+            if (!separator && start < 0) {
+                start = i;
+            } else if (separator && start >= 0) {
+                if (add(routes.substring(start, i), include)) {
+                    added++;
+                }
+                start = -1;
+            }
+        }
+        return added;
+    }
+
+    // 最长前缀匹配：目的地址是否应走隧道
+    public boolean isTunneled(byte[] address) {
+        int node = 0;
+        byte decision = marks[0];
+        for (int i = 0; i < bits; i++) {
+            node = bit(address, i) == 0 ? zero[node] : one[node];
+            if (node == 0) {
+                break;
+            }
+            if (marks[node] != NONE) {
+                decision = marks[node];
+            }
+        }
+        return decision == INCLUDE;
+    }
+
+    // IPv4 地址以 int 表示时的查询
+    public boolean isTunneledV4(int address) {
+        int node = 0;
+        byte decision = marks[0];
+        for (int i = 0; i < IPV4_BITS; i++) {
+            node = ((address >>> (31 - i)) & 1) == 0 ? zero[node] : one[node];
+            if (node == 0) {
+                break;
+            }
+            if (marks[node] != NONE) {
+                decision = marks[node];
+            }
+        }
+        return decision == INCLUDE;
+    }
+
+    // 与最长前缀匹配结果等价的最少不重叠路由（CIDR 字符串）
+    public List<String> minimalRoutes() {
+        byte[] states = new byte[size];
+        state(0, NONE, states);
+        List<String> routes = new ArrayList<>();
+        emit(0, NONE, 0, new byte[bits / 8], states, routes);
+        return routes;
+    }
+
+    // 计算子树状态：整棵子树都走隧道、都不走，或混合
+    private byte state(int node, byte inherited, byte[] states) {
+        byte effective = marks[node] != NONE ? marks[node] : inherited;
+        byte uniform = effective == INCLUDE ? FULL : EMPTY;
+        byte left = zero[node] != 0 ? state(zero[node], effective, states) : uniform;
+        byte right = one[node] != 0 ? state(one[node], effective, states) : uniform;
+        byte result = left == right && left != MIXED ? left : MIXED;
+        states[node] = result;
+        return result;
+    }
+
+    private void emit(int node, byte inherited, int depth, byte[] path, byte[] states, List<String> routes) {
+        if (states[node] == FULL) {
+            routes.add(format(path, depth));
+            return;
+        }
+        if (states[node] == EMPTY) {
+            return;
+        }
+        byte effective = marks[node] != NONE ? marks[node] : inherited;
+        for (int side = 0; side < 2; side++) {
+            setBit(path, depth, side);
+            int child = side == 0 ? zero[node] : one[node];
+            if (child != 0) {
+                emit(child, effective, depth + 1, path, states, routes);
+            } else if (effective == INCLUDE) {
+                routes.add(format(path, depth + 1));
+            }
+        }
+        setBit(path, depth, 0);
+    }
+
+    private int newNode() {
+        if (size == zero.length) {
+            int capacity = size * 2;
+            int[] newZero = new int[capacity];
+            int[] newOne = new int[capacity];
+            byte[] newMarks = new byte[capacity];
+            System.arraycopy(zero, 0, newZero, 0, size);
+            System.arraycopy(one, 0, newOne, 0, size);
+            System.arraycopy(marks, 0, newMarks, 0, size);
+            zero = newZero;
+            one = newOne;
+            marks = newMarks;
+        }
+        return size++;
+    }
+
+    private static int bit(byte[] address, int index) {
+        return (address[index >> 3] >> (7 - (index & 7))) & 1;
+    }
+
+    private static void setBit(byte[] address, int index, int value) {
+        int mask = 1 << (7 - (index & 7));
+        if (value == 0) {
+            address[index >> 3] &= ~mask;
+        } else {
+            address[index >> 3] |= mask;
+        }
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == ',' || c == ';';
+    }
+
+    private static String format(byte[] path, int length) {
+        if (path.length == 4) {
+            return (path[0] & 0xff) + "." + (path[1] & 0xff) + "." + (path[2] & 0xff) + "." + (path[3] & 0xff)
+                    + "/" + length;
+        }
+        try {
+            return InetAddress.getByAddress(path).getHostAddress() + "/" + length;
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // 解析 IPv4/IPv6 字面量，不做 DNS 查询；无法解析时返回 null
+    static byte[] parseAddress(String text) {
+        if (text.indexOf(':') >= 0) {
+            try {
+                // 含冒号的只能是 IPv6 字面量，getByName 不会发起查询
+                byte[] address = InetAddress.getByName(text).getAddress();
+                return address.length == 16 ? address : null;
+            } catch (UnknownHostException | SecurityException e) {
+                return null;
+            }
+        }
+        byte[] address = new byte[4];
+        int part = 0;
+        int value = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : '.';
+            if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                if (value > 255) {
+                    return null;
+                }
+            } else if (c == '.' && value >= 0 && part < 4) {
+                address[part++] = (byte) value;
+                value = -1;
+            } else {
+                return null;
+            }
+        }
+        return part == 4 ? address : null;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.openvpn;
+
+import java.net.DatagramSocket;
+import java.net.Socket;
+
+// 让连接前的探测 socket 绕过隧道（即 VpnService.protect），否则重连时探测包会走正在重建的隧道
+public interface SocketProtector {
+    boolean protect(Socket socket);
+
+    boolean protect(DatagramSocket socket);
+}
@@ -0,0 +1,188 @@
+package com.example.openvpn;
+
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.openvpn.NetworkStatsMonitor.NetworkStats;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// 自适应的流量统计调度器，替代每次连接都新建线程的 java.util.Timer
+// 有流量时按最短间隔采样，空闲或熄屏时逐步拉长间隔；变化量低于阈值时不推送
+public class StatsScheduler {
+    private static final String TAG = "StatsScheduler";
+
+    static final long MIN_INTERVAL_MS = 1000;
+    static final long IDLE_INTERVAL_MS = 30_000;
+    static final long SCREEN_OFF_INTERVAL_MS = 60_000;
+    // 字节变化低于该值时视为空闲，不推送
+    static final long DELIVERY_THRESHOLD_BYTES = 1024;
+    // 即使没有流量，也至少隔这么久推送一次，让前端的连接时长保持更新
+    static final long HEARTBEAT_MS = 60_000;
+
+    // 所有实例默认共用一个调度线程
+    static final ScheduledExecutorService SHARED = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "vpn-stats");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public interface Listener {
+        // 当前是否需要采样（例如仅在已连接时）
+        boolean isActive();
+
+        void onStats(NetworkStats stats);
+
+        // 每次采样都会调用（包括不推送的），参数为距上次采样的接收/发送字节数
+        void onSample(long now, long rxDelta, long txDelta);
+    }
+
+    private final NetworkStatsMonitor monitor;
+    private final PowerManager powerManager;
+    private final Listener listener;
+    private final ScheduledExecutorService executor;
+
+    private ScheduledFuture<?> pending;
+    private int generation;
+    private long intervalMs = MIN_INTERVAL_MS;
+    private long lastSampleRx;
+    private long lastSampleTx;
+    private long lastDeliveredRx = -1;
+    private long lastDeliveredTx = -1;
+    private long lastDeliveryTime;
+
+    // 计数器，用于评估唤醒次数和推送次数
+    private long wakeups;
+    private long deliveries;
+
+    public StatsScheduler(NetworkStatsMonitor monitor, PowerManager powerManager, Listener listener) {
+        this(monitor, powerManager, SHARED, listener);
+    }
+
+    public StatsScheduler(NetworkStatsMonitor monitor, PowerManager powerManager,
+                          ScheduledExecutorService executor, Listener listener) {
+        this.monitor = monitor;
+        this.powerManager = powerManager;
+        this.executor = executor;
+        this.listener = listener;
+    }
+
+    // 启动监控；已在运行时会替换旧的循环，保证同一时刻只有一个
+    public synchronized void start() {
+        cancelPending();
+        generation++;
+        intervalMs = MIN_INTERVAL_MS;
+        lastSampleRx = 0;
+        lastSampleTx = 0;
+        lastDeliveredRx = -1;
+        lastDeliveredTx = -1;
+        schedule(0);
+    }
+
+    public synchronized void stop() {
+        cancelPending();
+        generation++;
+    }
+
+    public synchronized boolean isRunning() {
+        return pending != null;
+    }
+
+    // 有新的流量迹象（如状态变化）时立即采样，并回到最短间隔
+    public synchronized void poke() {
+        if (pending == null) {
+            return;
+        }
+        cancelPending();
+        intervalMs = MIN_INTERVAL_MS;
+        schedule(0);
+    }
+
+    public synchronized long getWakeups() {
+        return wakeups;
+    }
+
+    public synchronized long getDeliveries() {
+        return deliveries;
+    }
+
+    private void schedule(long delayMs) {
+        final int gen = generation;
+        pending = executor.schedule(() -> tick(gen), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelPending() {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    private void tick(int gen) {
+        NetworkStats stats = null;
+        synchronized (this) {
+            if (gen != generation) {
+                return; // 已被新的循环取代
+            }
+            wakeups++;
+            try {
+                if (listener.isActive()) {
+                    NetworkStats sample = monitor.getVPNNetworkStats();
+                    // 累计值变小说明统计重新开始（如重连后），当前值即为增量
+                    long rxDelta = sample.bytesReceived >= lastSampleRx
+                            ? sample.bytesReceived - lastSampleRx : sample.bytesReceived;
+                    long txDelta = sample.bytesSent >= lastSampleTx
+                            ? sample.bytesSent - lastSampleTx : sample.bytesSent;
+                    long delta = rxDelta + txDelta;
+                    lastSampleRx = sample.bytesReceived;
+                    lastSampleTx = sample.bytesSent;
+                    intervalMs = nextInterval(intervalMs, delta, isScreenOn());
+
+                    long now = SystemClock.elapsedRealtime();
+                    listener.onSample(now, rxDelta, txDelta);
+                    long deliveredDelta = lastDeliveredRx < 0 ? Long.MAX_VALUE
+                            : (sample.bytesReceived - lastDeliveredRx) + (sample.bytesSent - lastDeliveredTx);
+                    if (shouldDeliver(deliveredDelta, now - lastDeliveryTime)) {
+                        lastDeliveredRx = sample.bytesReceived;
+                        lastDeliveredTx = sample.bytesSent;
+                        lastDeliveryTime = now;
+                        deliveries++;
+                        stats = sample;
+                    }
+                } else {
+                    intervalMs = nextInterval(intervalMs, 0, isScreenOn());
+                    listener.onSample(SystemClock.elapsedRealtime(), 0, 0);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "网络监控失败", e);
+            }
+            schedule(intervalMs);
+        }
+
+        // 在锁外回调，避免监听方阻塞调度
+        if (stats != null) {
+            listener.onStats(stats);
+        }
+    }
+
+    private boolean isScreenOn() {
+        return powerManager == null || powerManager.isInteractive();
+    }
+
+    // 有流量时回到最短间隔，否则每次翻倍，上限取决于屏幕状态
+    static long nextInterval(long currentMs, long deltaBytes, boolean screenOn) {
+        if (deltaBytes >= DELIVERY_THRESHOLD_BYTES) {
+            return MIN_INTERVAL_MS;
+        }
+        long max = screenOn ? IDLE_INTERVAL_MS : SCREEN_OFF_INTERVAL_MS;
+        return Math.min(max, Math.max(MIN_INTERVAL_MS, currentMs * 2));
+    }
+
+    static boolean shouldDeliver(long deltaBytes, long sinceLastDeliveryMs) {
+        return deltaBytes >= DELIVERY_THRESHOLD_BYTES || sinceLastDeliveryMs >= HEARTBEAT_MS;
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.openvpn;
+
+import java.util.Arrays;
+
+// 固定容量的吞吐量时间序列，基于 long[] 环形缓冲区保存 (时间, 累计接收, 累计发送)
+// 写入样本不分配对象；速率单位均为 字节/秒
+public class ThroughputSeries {
+    private static final long DEFAULT_EWMA_TAU_MS = 10_000;
+
+    private final int capacity;
+    private final long[] times;
+    private final long[] rxTotals;
+    private final long[] txTotals;
+    // 查询百分位时复用的临时数组
+    private final long[] rxScratch;
+    private final long[] txScratch;
+    private final long ewmaTauMs;
+
+    private int head; // 下一个写入位置
+    private int count;
+    private double ewmaRx;
+    private double ewmaTx;
+
+    public ThroughputSeries(int capacity) {
+        this(capacity, DEFAULT_EWMA_TAU_MS);
+    }
+
+    public ThroughputSeries(int capacity, long ewmaTauMs) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity must be >= 2");
+        }
+        this.capacity = capacity;
+        this.times = new long[capacity];
+        this.rxTotals = new long[capacity];
+        this.txTotals = new long[capacity];
+        this.rxScratch = new long[capacity];
+        this.txScratch = new long[capacity];
+        this.ewmaTauMs = ewmaTauMs;
+    }
+
+    public void clear() {
+        head = 0;
+        count = 0;
+        ewmaRx = 0;
+        ewmaTx = 0;
+    }
+
+    // 记录一个累计值样本；时间不递增或计数回退时分别忽略/重新开始
+    public void record(long timeMs, long rxTotal, long txTotal) {
+        if (count > 0) {
+            int last = index(count - 1);
+            long dt = timeMs - times[last];
+            if (dt <= 0) {
+                return;
+            }
+            if (rxTotal < rxTotals[last] || txTotal < txTotals[last]) {
+                clear();
+            } else {
+                double rxRate = (rxTotal - rxTotals[last]) * 1000.0 / dt;
+                double txRate = (txTotal - txTotals[last]) * 1000.0 / dt;
+                if (count == 1) {
+                    ewmaRx = rxRate;
+                    ewmaTx = txRate;
+                } else {
+                    // 按实际采样间隔计算平滑系数，采样不均匀时也能保持同样的时间常数
+                    double alpha = 1.0 - Math.exp(-(double) dt / ewmaTauMs);
+                    ewmaRx += alpha * (rxRate - ewmaRx);
+                    ewmaTx += alpha * (txRate - ewmaTx);
+                }
+            }
+        }
+
+        times[head] = timeMs;
+        rxTotals[head] = rxTotal;
+        txTotals[head] = txTotal;
+        head = (head + 1) % capacity;
+        if (count < capacity) {
+            count++;
+        }
+    }
+
+    // 计算最近 windowMs 内的速率统计，结果写入调用方提供的对象
+    public void query(long windowMs, Throughput out) {
+        out.reset();
+        if (count < 2) {
+            return;
+        }
+
+        int last = index(count - 1);
+        int prev = index(count - 2);
+        long lastDt = times[last] - times[prev];
+        out.rxRate = (rxTotals[last] - rxTotals[prev]) * 1000 / lastDt;
+        out.txRate = (txTotals[last] - txTotals[prev]) * 1000 / lastDt;
+        out.rxEwmaRate = (long) ewmaRx;
+        out.txEwmaRate = (long) ewmaTx;
+
+        long since = times[last] - windowMs;
+        int intervals = 0;
+        for (int i = count - 1; i > 0; i--) {
+            int cur = index(i);
+            int before = index(i - 1);
+            if (times[before] < since) {
+                break;
+            }
+            long dt = times[cur] - times[before];
+            long rxRate = (rxTotals[cur] - rxTotals[before]) * 1000 / dt;
+            long txRate = (txTotals[cur] - txTotals[before]) * 1000 / dt;
+            rxScratch[intervals] = rxRate;
+            txScratch[intervals] = txRate;
+            intervals++;
+        }
+        if (intervals == 0) {
+            // 窗口比采样间隔还短时退回到最近一个区间
+            rxScratch[0] = out.rxRate;
+            txScratch[0] = out.txRate;
+            intervals = 1;
+        }
+
+        out.samples = intervals;
+        Arrays.sort(rxScratch, 0, intervals);
+        Arrays.sort(txScratch, 0, intervals);
+        out.rxPeakRate = rxScratch[intervals - 1];
+        out.txPeakRate = txScratch[intervals - 1];
+        out.rxP50Rate = percentile(rxScratch, intervals, 50);
+        out.txP50Rate = percentile(txScratch, intervals, 50);
+        out.rxP95Rate = percentile(rxScratch, intervals, 95);
+        out.txP95Rate = percentile(txScratch, intervals, 95);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // 最近一次样本的时间，没有样本时返回-1
+    public long lastSampleTime() {
+        return count == 0 ? -1 : times[index(count - 1)];
+    }
+
+    private int index(int logical) {
+        return (head - count + logical + capacity) % capacity;
+    }
+
+    // 最近秩法，数组已排序
+    private static long percentile(long[] sorted, int length, int pct) {
+        int rank = (int) Math.ceil(pct / 100.0 * length);
+        return sorted[Math.max(0, Math.min(length, rank) - 1)];
+    }
+
+    // 速率查询结果，调用方可复用同一实例
+    public static class Throughput {
+        public int samples;
+        public long rxRate;
+        public long txRate;
+        public long rxEwmaRate;
+        public long txEwmaRate;
+        public long rxPeakRate;
+        public long txPeakRate;
+        public long rxP50Rate;
+        public long txP50Rate;
+        public long rxP95Rate;
+        public long txP95Rate;
+
+        void reset() {
+            samples = 0;
+            rxRate = txRate = 0;
+            rxEwmaRate = txEwmaRate = 0;
+            rxPeakRate = txPeakRate = 0;
+            rxP50Rate = txP50Rate = 0;
+            rxP95Rate = txP95Rate = 0;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.example.openvpn;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 隧道限速和流量配额
+// 限速：两个方向共用一个令牌桶（rate 字节/秒，容量 burst），作为数据包引擎的处理器，超出的包直接丢弃（TCP 随之降速）；
+// 这是丢包限速（policing）而不是整形（shaping）：引擎的处理器不能阻塞，也没有延迟队列，超出速率的包不排队、不延后发送。
+// 对 TCP 实际吞吐会低于 rate，突发大于 burst 的 UDP 流量会丢包
+// 配额：每个会话或每天/每月的总字节数（收+发），用量越过设定的百分比时回调一次；用尽后按 action 断开或降到 throttleRate
+// 记账在数据包引擎运行时按包进行（I/O 线程），否则按流量采样进行（统计线程）；每个包/每次采样只做原子加和几次比较，不加锁不分配
+public class TrafficShaper implements PacketEngine.Handler {
+    public static final String PERIOD_SESSION = "session";
+    public static final String PERIOD_DAY = "day";
+    public static final String PERIOD_MONTH = "month";
+    public static final String ACTION_STOP = "stop";
+    public static final String ACTION_THROTTLE = "throttle";
+
+    // 令牌以 1/NANOS 字节为单位累计，低速率下逐包补充也不会因取整丢失
+    private static final long NANOS = 1_000_000_000L;
+    // 令牌桶容量上限，保证按纳秒计的令牌数不溢出
+    static final long MAX_BURST = 1L << 30;
+
+    public interface Listener {
+        // 用量越过 percent（100 表示配额用尽）时调用，每个周期每个百分比一次；在记账线程上调用，不能阻塞
+        void onThreshold(int percent, long used, long quota);
+    }
+
+    // 配置整体替换，热路径只读一次 volatile
+    static final class Config {
+        final long rate;
+        final long burst;
+        final long quota;
+        final String period;
+        final String action;
+        final long throttleRate;
+        final int[] percents;
+        final long[] thresholds;
+
+        Config(long rate, long burst, long quota, String period, String action, long throttleRate, int[] percents) {
+            this.rate = Math.max(0, rate);
+            this.burst = this.rate == 0 ? 0 : Math.min(MAX_BURST, Math.max(burst, 1500));
+            this.quota = Math.max(0, quota);
+            this.period = period;
+            this.action = action;
+            this.throttleRate = Math.max(0, throttleRate);
+            this.percents = percents;
+            this.thresholds = new long[percents.length];
+            for (int i = 0; i < percents.length; i++) {
+                thresholds[i] = this.quota / 100 * percents[i] + this.quota % 100 * percents[i] / 100;
+            }
+        }
+    }
+
+    private volatile Config config = new Config(0, 0, 0, PERIOD_SESSION, ACTION_STOP, 0, new int[]{100});
+    private final Listener listener;
+
+    // 令牌桶状态，只在 I/O 线程上访问
+    private long tokens;
+    private long lastRefill;
+    private long bucketRate = -1;
+
+    private final AtomicLong used = new AtomicLong();
+    private final AtomicInteger nextThreshold = new AtomicInteger();
+    // 当前周期（日/月序号，会话为会话ID）
+    private volatile long periodKey;
+    private volatile boolean exhausted;
+    // 数据包引擎按包记账时为 true，此时忽略采样
+    private volatile boolean countingPackets;
+
+    // 统计值仅由 I/O 线程写入，其它线程读取
+    private volatile long passedBytes;
+    private volatile long droppedPackets;
+    private volatile long droppedBytes;
+
+    public TrafficShaper(Listener listener) {
+        this.listener = listener;
+    }
+
+    // rate <= 0 表示不限速，burst 为令牌桶容量（字节）；超出的包直接丢弃，不做排队整形
+    public synchronized void setRateLimit(long rate, long burst) {
+        Config current = config;
+        config = new Config(rate, burst, current.quota, current.period, current.action, current.throttleRate,
+                current.percents);
+    }
+
+    // quota <= 0 表示不限量；thresholds 为回调的百分比，始终包含 100；用尽后 action 为 stop 时丢弃所有包，throttle 时降到 throttleRate
+    public synchronized void setQuota(long quota, String period, String action, long throttleRate, int[] thresholds) {
+        int[] percents = Arrays.copyOf(thresholds, thresholds.length + 1);
+        percents[thresholds.length] = 100;
+        Arrays.sort(percents);
+        int count = 0;
+        for (int percent : percents) {
+            if (percent > 0 && percent <= 100 && (count == 0 || percents[count - 1] != percent)) {
+                percents[count++] = percent;
+            }
+        }
+        Config current = config;
+        Config next = new Config(current.rate, current.burst, quota, period, action, throttleRate,
+                Arrays.copyOf(percents, count));
+        config = next;
+        // 改了配额后按当前用量重新定位阈值，已经越过的不再回调
+        rewind(next, used.get());
+    }
+
+    // 新的会话或周期开始：base 为本周期已用的字节数（如当天之前会话的用量）
+    public void reset(long key, long base) {
+        periodKey = key;
+        used.set(base);
+        rewind(config, base);
+    }
+
+    private void rewind(Config config, long total) {
+        int index = 0;
+        while (index < config.thresholds.length && config.quota > 0 && total >= config.thresholds[index]) {
+            index++;
+        }
+        nextThreshold.set(index);
+        exhausted = config.quota > 0 && total >= config.quota;
+    }
+
+    public void setCountingPackets(boolean countingPackets) {
+        this.countingPackets = countingPackets;
+    }
+
+    public boolean isCountingPackets() {
+        return countingPackets;
+    }
+
+    @Override
+    public int onPacket(int direction, ByteBuffer packet) {
+        return admit(direction, packet.remaining(), System.nanoTime());
+    }
+
+    // 在 I/O 线程上调用：记账并判断是否放行
+    // 入站的包已经用掉了计费流量，丢弃也计入；出站的包丢弃后不会发出，只计放行的
+    public int admit(int direction, int length, long nowNanos) {
+        Config config = this.config;
+        boolean counting = countingPackets;
+        if (counting && direction == PacketEngine.INBOUND) {
+            account(config, length);
+        }
+        int verdict = police(config, length, nowNanos);
+        if (counting && direction == PacketEngine.OUTBOUND && verdict == PacketEngine.PASS) {
+            account(config, length);
+        }
+        return verdict;
+    }
+
+    private int police(Config config, int length, long nowNanos) {
+        long rate = config.rate;
+        if (exhausted && config.quota > 0) {
+            if (ACTION_STOP.equals(config.action)) {
+                return drop(length);
+            }
+            rate = config.throttleRate;
+        }
+        if (rate <= 0) {
+            passedBytes = passedBytes + length;
+            return PacketEngine.PASS;
+        }
+
+        // 降速时桶的容量不超过一秒的量；速率变化（如开始降速）时桶从满开始
+        long burst = rate == config.rate ? config.burst
+                : Math.max(1500, config.burst > 0 ? Math.min(config.burst, rate) : rate);
+        long capacity = Math.min(MAX_BURST, burst) * NANOS;
+        if (rate != bucketRate) {
+            bucketRate = rate;
+            tokens = capacity;
+            lastRefill = nowNanos;
+        } else {
+            long elapsed = nowNanos - lastRefill;
+            lastRefill = nowNanos;
+            if (elapsed > 0) {
+                // 补满所需的时间以内才需要相乘，避免溢出
+                tokens = elapsed >= capacity / rate ? capacity : Math.min(capacity, tokens + elapsed * rate);
+            }
+        }
+        long cost = length * NANOS;
+        if (tokens < cost) {
+            return drop(length);
+        }
+        tokens -= cost;
+        passedBytes = passedBytes + length;
+        return PacketEngine.PASS;
+    }
+
+    // 在统计线程上调用，数据包引擎未按包记账时用采样增量记账
+    public void onSample(long bytes) {
+        if (!countingPackets && bytes > 0) {
+            account(config, bytes);
+        }
+    }
+
+    private void account(Config config, long bytes) {
+        long total = used.addAndGet(bytes);
+        if (config.quota <= 0) {
+            return;
+        }
+        long[] thresholds = config.thresholds;
+        int index = nextThreshold.get();
+        while (index < thresholds.length && total >= thresholds[index]) {
+            if (nextThreshold.compareAndSet(index, index + 1)) {
+                if (config.percents[index] == 100) {
+                    exhausted = true;
+                }
+                listener.onThreshold(config.percents[index], total, config.quota);
+            }
+            index = nextThreshold.get();
+        }
+    }
+
+    private int drop(int length) {
+        droppedPackets = droppedPackets + 1;
+        droppedBytes = droppedBytes + length;
+        return PacketEngine.DROP;
+    }
+
+    public long getPeriodKey() {
+        return periodKey;
+    }
+
+    public String getPeriod() {
+        return config.period;
+    }
+
+    public String getAction() {
+        return config.action;
+    }
+
+    public long getRate() {
+        return config.rate;
+    }
+
+    public long getBurst() {
+        return config.burst;
+    }
+
+    public long getQuota() {
+        return config.quota;
+    }
+
+    public long getThrottleRate() {
+        return config.throttleRate;
+    }
+
+    public int[] getThresholds() {
+        return config.percents.clone();
+    }
+
+    public long getUsed() {
+        return used.get();
+    }
+
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    // 需要数据包引擎：设置了限速，或配额用尽后降速
+    public boolean needsPacketEngine() {
+        Config config = this.config;
+        return config.rate > 0 || (config.quota > 0 && ACTION_THROTTLE.equals(config.action));
+    }
+
+    public long getPassedBytes() {
+        return passedBytes;
+    }
+
+    public long getDroppedPackets() {
+        return droppedPackets;
+    }
+
+    public long getDroppedBytes() {
+        return droppedBytes;
+    }
+}
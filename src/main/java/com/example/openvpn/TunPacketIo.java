@@ -0,0 +1,133 @@
+package com.example.openvpn;
+
+import android.os.ParcelFileDescriptor;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+import android.system.StructPollfd;
+import android.util.Log;
+
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+// PacketEngine 在 Android 上的读写端：一端是系统 tun，另一端是交给 OpenVPN 核心的 socketpair（SOCK_SEQPACKET，保留包边界）
+// 读之前先 poll 确认可读，兼容阻塞和非阻塞的描述符；等待时同时 poll 两个来源端和唤醒管道
+public class TunPacketIo implements PacketEngine.Io {
+    private static final String TAG = "TunPacketIo";
+
+    private final ParcelFileDescriptor core;
+    private final FileChannel tunIn;
+    private final FileChannel tunOut;
+    private final FileChannel coreIn;
+    private final FileChannel coreOut;
+    private final FileDescriptor wakeRead;
+    private final FileDescriptor wakeWrite;
+
+    // poll 参数全部预先分配，转发过程中复用
+    private final StructPollfd[] tunCheck = new StructPollfd[1];
+    private final StructPollfd[] coreCheck = new StructPollfd[1];
+    private final StructPollfd[] waitSet = new StructPollfd[3];
+    private final byte[] wakeByte = new byte[1];
+    private final byte[] wakeDrain = new byte[64];
+
+    // tun 由 OpenVPNService 管理生命周期，这里只负责关闭与核心相连的一端
+    public TunPacketIo(ParcelFileDescriptor tun, ParcelFileDescriptor core) throws IOException {
+        this.core = core;
+        this.tunIn = new FileInputStream(tun.getFileDescriptor()).getChannel();
+        this.tunOut = new FileOutputStream(tun.getFileDescriptor()).getChannel();
+        this.coreIn = new FileInputStream(core.getFileDescriptor()).getChannel();
+        this.coreOut = new FileOutputStream(core.getFileDescriptor()).getChannel();
+        try {
+            FileDescriptor[] pipe = Os.pipe();
+            wakeRead = pipe[0];
+            wakeWrite = pipe[1];
+        } catch (ErrnoException e) {
+            throw new IOException("创建唤醒管道失败", e);
+        }
+
+        tunCheck[0] = pollFd(tun.getFileDescriptor());
+        coreCheck[0] = pollFd(core.getFileDescriptor());
+        waitSet[0] = pollFd(tun.getFileDescriptor());
+        waitSet[1] = pollFd(core.getFileDescriptor());
+        waitSet[2] = pollFd(wakeRead);
+    }
+
+    @Override
+    public int read(int direction, ByteBuffer dst) throws IOException {
+        boolean outbound = direction == PacketEngine.OUTBOUND;
+        StructPollfd[] check = outbound ? tunCheck : coreCheck;
+        if (!poll(check, 0)) {
+            return 0;
+        }
+        if ((check[0].revents & (OsConstants.POLLHUP | OsConstants.POLLERR)) != 0
+                && (check[0].revents & OsConstants.POLLIN) == 0) {
+            return -1;
+        }
+        return (outbound ? tunIn : coreIn).read(dst);
+    }
+
+    @Override
+    public int write(int direction, ByteBuffer src) throws IOException {
+        // 出站写给核心，入站写回 tun；socketpair 写满时会阻塞，核心读取很快，这里不再单独等待
+        return (direction == PacketEngine.OUTBOUND ? coreOut : tunOut).write(src);
+    }
+
+    @Override
+    public void await(long timeoutMs) throws IOException {
+        if (poll(waitSet, (int) timeoutMs) && (waitSet[2].revents & OsConstants.POLLIN) != 0) {
+            try {
+                Os.read(wakeRead, wakeDrain, 0, wakeDrain.length);
+            } catch (ErrnoException e) {
+                throw new IOException("读取唤醒管道失败", e);
+            }
+        }
+    }
+
+    @Override
+    public void wakeup() {
+        try {
+            Os.write(wakeWrite, wakeByte, 0, 1);
+        } catch (ErrnoException | InterruptedIOException e) {
+            Log.e(TAG, "唤醒失败", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            core.close();
+        } catch (IOException e) {
+            Log.e(TAG, "关闭核心端失败", e);
+        }
+        try {
+            Os.close(wakeRead);
+            Os.close(wakeWrite);
+        } catch (ErrnoException e) {
+            Log.e(TAG, "关闭唤醒管道失败", e);
+        }
+    }
+
+    // 返回是否有就绪的描述符
+    private static boolean poll(StructPollfd[] fds, int timeoutMs) throws IOException {
+        try {
+            return Os.poll(fds, timeoutMs) > 0;
+        } catch (ErrnoException e) {
+            if (e.errno == OsConstants.EINTR) {
+                return false;
+            }
+            throw new IOException("poll失败", e);
+        }
+    }
+
+    private static StructPollfd pollFd(FileDescriptor fd) {
+        StructPollfd pollFd = new StructPollfd();
+        pollFd.fd = fd;
+        pollFd.events = (short) OsConstants.POLLIN;
+        return pollFd;
+    }
+}
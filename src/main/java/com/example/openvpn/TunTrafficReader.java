@@ -0,0 +1,239 @@
+package com.example.openvpn;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+
+// 按网卡读取 tun 接口的收发字节数（/proc/net/dev 格式）
+// 文件句柄和读缓冲区复用，解析过程不分配对象；
+// 计数器重置、重连后接口更名（tun0 -> tun1）都折算为增量累加
+public class TunTrafficReader {
+    private static final String DEFAULT_PATH = "/proc/net/dev";
+    private static final int MAX_INTERFACES = 8;
+    private static final int MAX_NAME_LENGTH = 16;
+    // /proc/net/dev 中 Receive 段的 bytes 是第 0 列，Transmit 段的 bytes 是第 8 列
+    private static final int RX_BYTES_COLUMN = 0;
+    private static final int TX_BYTES_COLUMN = 8;
+
+    private final String path;
+    private final byte[] prefix;
+    private byte[] buffer = new byte[4096];
+    private RandomAccessFile file;
+
+    // 已知接口的槽位，按名字匹配
+    private final byte[][] names = new byte[MAX_INTERFACES][MAX_NAME_LENGTH];
+    private final int[] nameLengths = new int[MAX_INTERFACES];
+    private final long[] lastRx = new long[MAX_INTERFACES];
+    private final long[] lastTx = new long[MAX_INTERFACES];
+    private final boolean[] used = new boolean[MAX_INTERFACES];
+    private final boolean[] seen = new boolean[MAX_INTERFACES];
+
+    // 单次解析的临时结果
+    private final long[] columns = new long[TX_BYTES_COLUMN + 1];
+
+    private long totalRx;
+    private long totalTx;
+    private boolean baselinePending = true;
+
+    public TunTrafficReader() {
+        this(DEFAULT_PATH, "tun");
+    }
+
+    public TunTrafficReader(String path, String interfacePrefix) {
+        this.path = path;
+        this.prefix = interfacePrefix.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // 以当前计数作为基线，之后的累计值从0开始
+    public void reset() {
+        totalRx = 0;
+        totalTx = 0;
+        baselinePending = true;
+        for (int i = 0; i < MAX_INTERFACES; i++) {
+            used[i] = false;
+        }
+    }
+
+    // 读取一次计数器并累加增量；文件不可读时返回false，调用方应退回到其他统计方式
+    public boolean sample() {
+        int length;
+        try {
+            length = readFile();
+        } catch (IOException e) {
+            close();
+            return false;
+        }
+        if (length <= 0) {
+            return false;
+        }
+        return parse(buffer, length);
+    }
+
+    // 解析一份 /proc/net/dev 内容，独立出来便于在 JVM 上用样例文件验证
+    // 返回是否有匹配前缀的接口；文件可读但没有 tun 接口（隧道不在本网络命名空间等）时同样应退回到其他统计方式
+    public boolean parse(byte[] data, int length) {
+        for (int i = 0; i < MAX_INTERFACES; i++) {
+            seen[i] = false;
+        }
+
+        int pos = 0;
+        while (pos < length) {
+            int lineEnd = pos;
+            while (lineEnd < length && data[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            parseLine(data, pos, lineEnd);
+            pos = lineEnd + 1;
+        }
+
+        // 本次未出现的接口视为已销毁，释放槽位；重建后的同名接口会从0重新计数
+        boolean found = false;
+        for (int i = 0; i < MAX_INTERFACES; i++) {
+            if (used[i] && !seen[i]) {
+                used[i] = false;
+            }
+            found |= seen[i];
+        }
+        baselinePending = false;
+        return found;
+    }
+
+    private void parseLine(byte[] data, int start, int end) {
+        int pos = start;
+        while (pos < end && data[pos] == ' ') {
+            pos++;
+        }
+        int nameStart = pos;
+        while (pos < end && data[pos] != ':') {
+            pos++;
+        }
+        // 表头行没有冒号
+        if (pos >= end) {
+            return;
+        }
+        int nameLength = pos - nameStart;
+        if (nameLength > MAX_NAME_LENGTH || !startsWith(data, nameStart, nameLength, prefix)) {
+            return;
+        }
+
+        pos++;
+        for (int column = 0; column <= TX_BYTES_COLUMN; column++) {
+            while (pos < end && data[pos] == ' ') {
+                pos++;
+            }
+            if (pos >= end) {
+                return;
+            }
+            long value = 0;
+            while (pos < end && data[pos] >= '0' && data[pos] <= '9') {
+                value = value * 10 + (data[pos] - '0');
+                pos++;
+            }
+            columns[column] = value;
+        }
+
+        accumulate(data, nameStart, nameLength, columns[RX_BYTES_COLUMN], columns[TX_BYTES_COLUMN]);
+    }
+
+    private void accumulate(byte[] data, int nameStart, int nameLength, long rx, long tx) {
+        int slot = findSlot(data, nameStart, nameLength);
+        if (slot < 0) {
+            slot = allocateSlot(data, nameStart, nameLength);
+            if (slot < 0) {
+                return;
+            }
+            // 开始跟踪时已存在的接口以当前值为基线；跟踪期间新出现的接口从0开始计
+            if (baselinePending) {
+                lastRx[slot] = rx;
+                lastTx[slot] = tx;
+            } else {
+                lastRx[slot] = 0;
+                lastTx[slot] = 0;
+            }
+        }
+        seen[slot] = true;
+
+        // 计数变小说明接口重建或计数器被重置，当前值即为新增量
+        totalRx += rx >= lastRx[slot] ? rx - lastRx[slot] : rx;
+        totalTx += tx >= lastTx[slot] ? tx - lastTx[slot] : tx;
+        lastRx[slot] = rx;
+        lastTx[slot] = tx;
+    }
+
+    private int findSlot(byte[] data, int nameStart, int nameLength) {
+        for (int i = 0; i < MAX_INTERFACES; i++) {
+            if (used[i] && nameLengths[i] == nameLength
+                    && regionEquals(data, nameStart, names[i], nameLength)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int allocateSlot(byte[] data, int nameStart, int nameLength) {
+        for (int i = 0; i < MAX_INTERFACES; i++) {
+            if (!used[i]) {
+                System.arraycopy(data, nameStart, names[i], 0, nameLength);
+                nameLengths[i] = nameLength;
+                used[i] = true;
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(byte[] data, int start, int length, byte[] expected) {
+        return length >= expected.length && regionEquals(data, start, expected, expected.length);
+    }
+
+    private static boolean regionEquals(byte[] data, int start, byte[] expected, int length) {
+        for (int i = 0; i < length; i++) {
+            if (data[start + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int readFile() throws IOException {
+        if (file == null) {
+            file = new RandomAccessFile(path, "r");
+        }
+        // procfs 文件在 seek(0) 后重新生成内容，无需每次重新打开
+        file.seek(0);
+        int total = 0;
+        while (true) {
+            if (total == buffer.length) {
+                // 只在接口很多时扩容一次，之后复用
+                byte[] larger = new byte[buffer.length * 2];
+                System.arraycopy(buffer, 0, larger, 0, total);
+                buffer = larger;
+            }
+            int read = file.read(buffer, total, buffer.length - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    public void close() {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                // 忽略关闭异常
+            }
+            file = null;
+        }
+    }
+
+    public long getTotalRxBytes() {
+        return totalRx;
+    }
+
+    public long getTotalTxBytes() {
+        return totalTx;
+    }
+}
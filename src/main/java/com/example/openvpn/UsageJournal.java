@@ -0,0 +1,390 @@
+package com.example.openvpn;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.TimeZone;
+
+// 流量使用日志：定长记录追加写入内存映射文件，进程被杀或重连后数据不丢失
+// 同时在内存中增量维护按天/按月的汇总，查询时直接读汇总而不扫描日志
+// 记录格式（40字节，小端）：时间戳(ms) | 会话ID | 接收增量 | 发送增量 | 校验和 | 记录标记
+// 日志超过 COMPACT_SIZE 时压缩：今天以前的记录合并为每天一条，超出按天保留范围的合并为每月一条，
+// 超出按月保留范围的丢弃，文件大小和打开时的回放量都有上限
+public class UsageJournal {
+    private static final String TAG = "UsageJournal";
+
+    private static final int FILE_MAGIC = 0x4F56554A; // "OVUJ"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 40;
+    private static final int RECORD_MAGIC = 0x52454331; // "REC1"
+    // 每次扩容映射的大小
+    private static final int CHUNK_SIZE = 64 * 1024;
+    // 待写入的增量至少攒这么久再落盘一条记录
+    static final long APPEND_INTERVAL_MS = 60_000;
+    // 映射内容强制刷到存储的间隔
+    static final long FORCE_INTERVAL_MS = 5 * 60_000;
+
+    // 汇总保留范围
+    static final int DAY_SLOTS = 400;
+    static final int MONTH_SLOTS = 60;
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+    // 日志超过这个大小时压缩；压缩后最多 DAY_SLOTS + MONTH_SLOTS 条合并记录加上当天的记录，远小于这个值
+    static final int COMPACT_SIZE = 4 * CHUNK_SIZE;
+
+    private final File file;
+    private final TimeZone timeZone = TimeZone.getDefault();
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int position;
+
+    // 按天汇总：槽位 = 本地日序号 % DAY_SLOTS，key 用来判断槽位是否属于该天
+    private final long[] dayKeys = new long[DAY_SLOTS];
+    private final long[] dayRx = new long[DAY_SLOTS];
+    private final long[] dayTx = new long[DAY_SLOTS];
+    // 按月汇总：key = 年 * 12 + (月 - 1)
+    private final long[] monthKeys = new long[MONTH_SLOTS];
+    private final long[] monthRx = new long[MONTH_SLOTS];
+    private final long[] monthTx = new long[MONTH_SLOTS];
+
+    // 尚未写入日志的增量
+    private long pendingSession;
+    private long pendingRx;
+    private long pendingTx;
+    private long lastAppendTime;
+    private long lastForceTime;
+    private boolean dirty;
+
+    public UsageJournal(File file) {
+        this.file = file;
+        for (int i = 0; i < DAY_SLOTS; i++) {
+            dayKeys[i] = Long.MIN_VALUE;
+        }
+        for (int i = 0; i < MONTH_SLOTS; i++) {
+            monthKeys[i] = Long.MIN_VALUE;
+        }
+    }
+
+    public void open() throws IOException {
+        open(System.currentTimeMillis());
+    }
+
+    // 打开日志并从中重建汇总；末尾写了一半的记录会被截掉，日志过大时压缩
+    public synchronized void open(long nowMs) throws IOException {
+        if (buffer != null) {
+            return;
+        }
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+        long length = raf.length();
+        map(Math.max(CHUNK_SIZE, roundUp(length)));
+
+        if (length < HEADER_SIZE || buffer.getInt(0) != FILE_MAGIC) {
+            buffer.putInt(0, FILE_MAGIC);
+            buffer.putInt(4, VERSION);
+            position = HEADER_SIZE;
+            return;
+        }
+
+        position = HEADER_SIZE;
+        int recovered = 0;
+        while (position + RECORD_SIZE <= buffer.capacity() && isValidRecord(position)) {
+            long timestamp = buffer.getLong(position);
+            addToRollups(timestamp, buffer.getLong(position + 16), buffer.getLong(position + 24));
+            position += RECORD_SIZE;
+            recovered++;
+        }
+        // 清掉残缺的尾部记录，避免之后被误认为有效
+        if (position + RECORD_SIZE <= buffer.capacity()) {
+            for (int i = 0; i < RECORD_SIZE; i++) {
+                buffer.put(position + i, (byte) 0);
+            }
+        }
+        Log.d(TAG, "恢复使用记录 " + recovered + " 条");
+        if (position > COMPACT_SIZE) {
+            compact(nowMs);
+        }
+    }
+
+    // 记录条数（含文件头以外的全部有效记录），用于观察压缩效果
+    public synchronized int getRecordCount() {
+        return (position - HEADER_SIZE) / RECORD_SIZE;
+    }
+
+    // 记录一次流量增量；先计入汇总，攒够时间后再追加一条日志记录
+    public synchronized void addUsage(long sessionId, long nowMs, long rxDelta, long txDelta) {
+        if (rxDelta <= 0 && txDelta <= 0) {
+            maybeAppend(nowMs);
+            return;
+        }
+        if (pendingSession != sessionId && (pendingRx != 0 || pendingTx != 0)) {
+            append(nowMs);
+        }
+        pendingSession = sessionId;
+        pendingRx += Math.max(0, rxDelta);
+        pendingTx += Math.max(0, txDelta);
+        addToRollups(nowMs, Math.max(0, rxDelta), Math.max(0, txDelta));
+        maybeAppend(nowMs);
+    }
+
+    // 立即写入待定增量并刷盘（断开连接、插件销毁时调用）
+    public synchronized void flush(long nowMs) {
+        append(nowMs);
+        force(nowMs);
+    }
+
+    public synchronized void close(long nowMs) {
+        if (buffer == null) {
+            return;
+        }
+        flush(nowMs);
+        try {
+            channel.close();
+            raf.close();
+        } catch (IOException e) {
+            Log.e(TAG, "关闭使用记录失败", e);
+        }
+        buffer = null;
+    }
+
+    // 某本地日的汇总写入 out[0]=接收, out[1]=发送；超出保留范围时为0
+    public synchronized void getDayUsage(long day, long[] out) {
+        int slot = (int) floorMod(day, DAY_SLOTS);
+        boolean hit = dayKeys[slot] == day;
+        out[0] = hit ? dayRx[slot] : 0;
+        out[1] = hit ? dayTx[slot] : 0;
+    }
+
+    // 某月（年*12 + 月-1）的汇总
+    public synchronized void getMonthUsage(long month, long[] out) {
+        int slot = (int) floorMod(month, MONTH_SLOTS);
+        boolean hit = monthKeys[slot] == month;
+        out[0] = hit ? monthRx[slot] : 0;
+        out[1] = hit ? monthTx[slot] : 0;
+    }
+
+    // 本地日序号（自 1970-01-01 起）
+    public long localDay(long timeMs) {
+        return floorDiv(timeMs + timeZone.getOffset(timeMs), DAY_MS);
+    }
+
+    // 某本地日序号对应的 UTC 起始时间
+    public long dayStartMs(long day) {
+        long approx = day * DAY_MS;
+        return approx - timeZone.getOffset(approx);
+    }
+
+    // 本地日序号 -> 年*12 + (月-1)，公历换算，不分配对象
+    public static long monthKey(long epochDay) {
+        long z = epochDay + 719468;
+        long era = floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 12 + (month - 1);
+    }
+
+    private void addToRollups(long timeMs, long rx, long tx) {
+        long day = localDay(timeMs);
+        int daySlot = (int) floorMod(day, DAY_SLOTS);
+        if (dayKeys[daySlot] != day) {
+            if (dayKeys[daySlot] > day) {
+                return; // 比保留范围更早的数据
+            }
+            dayKeys[daySlot] = day;
+            dayRx[daySlot] = 0;
+            dayTx[daySlot] = 0;
+        }
+        dayRx[daySlot] += rx;
+        dayTx[daySlot] += tx;
+
+        long month = monthKey(day);
+        int monthSlot = (int) floorMod(month, MONTH_SLOTS);
+        if (monthKeys[monthSlot] != month) {
+            if (monthKeys[monthSlot] > month) {
+                return;
+            }
+            monthKeys[monthSlot] = month;
+            monthRx[monthSlot] = 0;
+            monthTx[monthSlot] = 0;
+        }
+        monthRx[monthSlot] += rx;
+        monthTx[monthSlot] += tx;
+    }
+
+    private void maybeAppend(long nowMs) {
+        if (nowMs - lastAppendTime >= APPEND_INTERVAL_MS) {
+            append(nowMs);
+        }
+        if (dirty && nowMs - lastForceTime >= FORCE_INTERVAL_MS) {
+            force(nowMs);
+        }
+    }
+
+    private void append(long nowMs) {
+        lastAppendTime = nowMs;
+        if (buffer == null || (pendingRx == 0 && pendingTx == 0)) {
+            return;
+        }
+        try {
+            if (position > COMPACT_SIZE && position + RECORD_SIZE > buffer.capacity()) {
+                compact(nowMs);
+            }
+            if (position + RECORD_SIZE > buffer.capacity()) {
+                map(buffer.capacity() + CHUNK_SIZE);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "扩展使用记录失败", e);
+            return;
+        }
+
+        buffer.putLong(position, nowMs);
+        buffer.putLong(position + 8, pendingSession);
+        buffer.putLong(position + 16, pendingRx);
+        buffer.putLong(position + 24, pendingTx);
+        buffer.putInt(position + 32, checksum(buffer, position));
+        // 标记最后写入，标记完整即表示记录完整
+        buffer.putInt(position + 36, RECORD_MAGIC);
+        position += RECORD_SIZE;
+        pendingRx = 0;
+        pendingTx = 0;
+        dirty = true;
+    }
+
+    // 按保留范围合并旧记录，写入临时文件后整体替换，压缩中途被杀也不会留下重复计数的日志
+    // 合并不改变任何一天/一个月的总量，内存中的汇总不需要重建
+    private void compact(long nowMs) throws IOException {
+        long today = localDay(nowMs);
+        long thisMonth = monthKey(today);
+        int before = (position - HEADER_SIZE) / RECORD_SIZE;
+        ByteBuffer out = ByteBuffer.allocate(position).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(0, FILE_MAGIC);
+        out.putInt(4, VERSION);
+        int written = HEADER_SIZE;
+
+        // 正在合并的一条：bucket 为日序号或月份（月份取负数以区分），记录时间用桶内第一条的时间
+        long bucket = Long.MIN_VALUE;
+        long bucketTime = 0;
+        long bucketRx = 0;
+        long bucketTx = 0;
+        for (int offset = HEADER_SIZE; offset < position; offset += RECORD_SIZE) {
+            long timestamp = buffer.getLong(offset);
+            long day = localDay(timestamp);
+            long key;
+            if (day >= today) {
+                key = Long.MIN_VALUE; // 当天的记录原样保留
+            } else if (day > today - DAY_SLOTS) {
+                key = day;
+            } else {
+                long month = monthKey(day);
+                if (month <= thisMonth - MONTH_SLOTS) {
+                    continue;
+                }
+                key = -1 - month;
+            }
+            if (key != bucket || key == Long.MIN_VALUE) {
+                written = writeRecord(out, written, bucketTime, 0, bucketRx, bucketTx);
+                bucket = key;
+                bucketTime = timestamp;
+                bucketRx = 0;
+                bucketTx = 0;
+            }
+            bucketRx += buffer.getLong(offset + 16);
+            bucketTx += buffer.getLong(offset + 24);
+            if (key == Long.MIN_VALUE) {
+                written = writeRecord(out, written, timestamp, buffer.getLong(offset + 8), bucketRx, bucketTx);
+                bucket = Long.MIN_VALUE;
+                bucketRx = 0;
+                bucketTx = 0;
+            }
+        }
+        written = writeRecord(out, written, bucketTime, 0, bucketRx, bucketTx);
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (RandomAccessFile target = new RandomAccessFile(tmp, "rw")) {
+            target.setLength(0);
+            target.write(out.array(), 0, written);
+            target.getFD().sync();
+        }
+        channel.close();
+        raf.close();
+        buffer = null;
+        if (!tmp.renameTo(file)) {
+            Log.e(TAG, "替换使用记录失败");
+            tmp.delete();
+            written = position;
+        }
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+        map(Math.max(CHUNK_SIZE, roundUp(written + RECORD_SIZE)));
+        position = written;
+        // 映射扩出来的部分内容为0，不会被当作有效记录
+        Log.d(TAG, "压缩使用记录 " + before + " -> " + (position - HEADER_SIZE) / RECORD_SIZE + " 条");
+    }
+
+    // 没有累计流量时不写
+    private static int writeRecord(ByteBuffer out, int offset, long timestamp, long session, long rx, long tx) {
+        if (rx == 0 && tx == 0) {
+            return offset;
+        }
+        out.putLong(offset, timestamp);
+        out.putLong(offset + 8, session);
+        out.putLong(offset + 16, rx);
+        out.putLong(offset + 24, tx);
+        out.putInt(offset + 32, checksum(out, offset));
+        out.putInt(offset + 36, RECORD_MAGIC);
+        return offset + RECORD_SIZE;
+    }
+
+    private void force(long nowMs) {
+        lastForceTime = nowMs;
+        if (buffer != null && dirty) {
+            buffer.force();
+            dirty = false;
+        }
+    }
+
+    private boolean isValidRecord(int offset) {
+        return buffer.getInt(offset + 36) == RECORD_MAGIC && buffer.getInt(offset + 32) == checksum(buffer, offset);
+    }
+
+    // 对记录前32字节做 FNV-1a 风格的混合
+    private static int checksum(ByteBuffer data, int offset) {
+        int hash = 0x811C9DC5;
+        for (int i = 0; i < 4; i++) {
+            long value = data.getLong(offset + i * 8);
+            hash = (hash ^ (int) value) * 0x01000193;
+            hash = (hash ^ (int) (value >>> 32)) * 0x01000193;
+        }
+        return hash;
+    }
+
+    private void map(long size) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // Math.floorDiv/floorMod 需要 API 24，这里自行实现
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        return (x % y != 0 && (x ^ y) < 0) ? q - 1 : q;
+    }
+
+    private static long floorMod(long x, long y) {
+        return x - floorDiv(x, y) * y;
+    }
+
+    private static long roundUp(long length) {
+        return (length + CHUNK_SIZE - 1) / CHUNK_SIZE * CHUNK_SIZE;
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.openvpn;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Handler;
+import android.os.SystemClock;
+
+import androidx.core.app.NotificationCompat;
+
+import java.util.Locale;
+
+// 前台通知管理：通知渠道只创建一次，复用 Builder 和停止意图
+// 只有显示内容变化时才重新发布，并限制发布频率；可选显示实时上下行速率
+public class VpnNotificationController {
+    // 两次发布之间的最小间隔，期间的更新合并为一次
+    static final long MIN_UPDATE_INTERVAL_MS = 1000;
+
+    private final Context context;
+    private final Handler handler;
+    private final String channelId;
+    private final int notificationId;
+    private final String stopAction;
+    private final Runnable flushRunnable = this::flush;
+
+    private NotificationManager notificationManager;
+    private NotificationCompat.Builder builder;
+    private Service foregroundService;
+    private boolean showRates;
+
+    // 期望显示的内容
+    private String title;
+    private String text;
+    private String ratesText;
+    // 已发布的内容
+    private String postedTitle;
+    private String postedText;
+    private String postedRatesText;
+    private long lastPostTime;
+    private boolean flushPending;
+    private long posts;
+
+    public VpnNotificationController(Context context, Handler handler, String channelId,
+                                     int notificationId, String stopAction) {
+        this.context = context;
+        this.handler = handler;
+        this.channelId = channelId;
+        this.notificationId = notificationId;
+        this.stopAction = stopAction;
+    }
+
+    public synchronized void setShowRates(boolean showRates) {
+        this.showRates = showRates;
+        if (!showRates) {
+            ratesText = null;
+        }
+        requestFlush();
+    }
+
+    // 显示/更新通知；service 为空时暂不发布，等服务创建后再调用
+    public synchronized void show(Service service, String title, String text) {
+        if (service == null) {
+            return;
+        }
+        if (foregroundService != service) {
+            // 换了服务实例需要重新进入前台
+            foregroundService = service;
+            postedTitle = null;
+            postedText = null;
+            postedRatesText = null;
+        }
+        this.title = title;
+        this.text = text;
+        requestFlush();
+    }
+
+    // 更新实时速率（字节/秒）；按档位取整，细微波动不会触发重新发布
+    public synchronized void updateRates(long rxBytesPerSec, long txBytesPerSec) {
+        if (!showRates || foregroundService == null) {
+            return;
+        }
+        ratesText = "↓ " + formatRate(rxBytesPerSec) + "  ↑ " + formatRate(txBytesPerSec);
+        requestFlush();
+    }
+
+    public synchronized void stop() {
+        handler.removeCallbacks(flushRunnable);
+        flushPending = false;
+        if (foregroundService != null) {
+            foregroundService.stopForeground(true);
+            foregroundService = null;
+        }
+        title = null;
+        text = null;
+        ratesText = null;
+        postedTitle = null;
+        postedText = null;
+        postedRatesText = null;
+    }
+
+    // 实际发布次数，用于评估通知开销
+    public synchronized long getPostCount() {
+        return posts;
+    }
+
+    private void requestFlush() {
+        if (foregroundService == null || title == null || !isChanged() || flushPending) {
+            return;
+        }
+        long wait = lastPostTime + MIN_UPDATE_INTERVAL_MS - SystemClock.elapsedRealtime();
+        if (wait <= 0 || postedTitle == null) {
+            // 首次进入前台必须立即发布
+            post();
+        } else {
+            flushPending = true;
+            handler.postDelayed(flushRunnable, wait);
+        }
+    }
+
+    private synchronized void flush() {
+        flushPending = false;
+        if (foregroundService != null && title != null && isChanged()) {
+            post();
+        }
+    }
+
+    private boolean isChanged() {
+        return !title.equals(postedTitle) || !equals(text, postedText) || !equals(ratesText, postedRatesText);
+    }
+
+    private void post() {
+        NotificationCompat.Builder b = getBuilder();
+        b.setContentTitle(title)
+                .setContentText(text)
+                .setSubText(ratesText);
+        Notification notification = b.build();
+
+        if (postedTitle == null) {
+            // 启动前台服务，确保后台运行
+            foregroundService.startForeground(notificationId, notification);
+        } else {
+            notificationManager.notify(notificationId, notification);
+        }
+        postedTitle = title;
+        postedText = text;
+        postedRatesText = ratesText;
+        lastPostTime = SystemClock.elapsedRealtime();
+        posts++;
+    }
+
+    private NotificationCompat.Builder getBuilder() {
+        if (builder != null) {
+            return builder;
+        }
+        notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        createNotificationChannel();
+
+        // 停止VPN的意图
+        Intent stopIntent = new Intent(stopAction);
+        PendingIntent stopPendingIntent = PendingIntent.getBroadcast(
+                context, 0, stopIntent, PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT
+        );
+
+        builder = new NotificationCompat.Builder(context, channelId)
+                .setSmallIcon(R.drawable.ic_vpn)
+                .addAction(R.drawable.ic_stop, "断开连接", stopPendingIntent)
+                .setPriority(NotificationCompat.PRIORITY_DEFAULT)
+                .setOnlyAlertOnce(true)
+                .setOngoing(true);
+        return builder;
+    }
+
+    // 创建通知渠道
+    private void createNotificationChannel() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            CharSequence name = "VPN通知";
+            String description = "OpenVPN连接状态通知";
+            int importance = NotificationManager.IMPORTANCE_DEFAULT;
+            NotificationChannel channel = new NotificationChannel(channelId, name, importance);
+            channel.setDescription(description);
+            notificationManager.createNotificationChannel(channel);
+        }
+    }
+
+    static String formatRate(long bytesPerSec) {
+        double bits = bytesPerSec * 8.0;
+        if (bits >= 1_000_000) {
+            return String.format(Locale.US, bits >= 10_000_000 ? "%.0f Mbps" : "%.1f Mbps", bits / 1_000_000);
+        }
+        if (bits >= 1_000) {
+            return String.format(Locale.US, bits >= 10_000 ? "%.0f Kbps" : "%.1f Kbps", bits / 1_000);
+        }
+        return String.format(Locale.US, "%.0f bps", bits);
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.openvpn;
+
+import android.os.PowerManager;
+import android.util.Log;
+
+// 按连接阶段和隧道流量持有唤醒锁，替代每次连接固定持有10分钟
+// 握手期间和有流量时持有；空闲超过 idleWindowMs 后释放；流量恢复时重新获取
+public class WakeLockScheduler {
+    private static final String TAG = "WakeLockScheduler";
+
+    static final long DEFAULT_IDLE_WINDOW_MS = 60_000;
+    // 每次获取都带超时，防止异常路径下永久持有；持有超过一半时续期
+    static final long HOLD_TIMEOUT_MS = 10 * 60 * 1000L;
+    // 每次采样的字节变化超过该值视为有流量
+    static final long ACTIVITY_THRESHOLD_BYTES = 1024;
+
+    private final PowerManager.WakeLock wakeLock;
+    private long idleWindowMs = DEFAULT_IDLE_WINDOW_MS;
+
+    private boolean handshaking;
+    private long lastActivity;
+    private boolean held;
+    private long heldSince;
+    private long lastRenew;
+
+    // 持有时长统计
+    private long heldTotalMs;
+    private long acquisitions;
+
+    public WakeLockScheduler(PowerManager.WakeLock wakeLock) {
+        this.wakeLock = wakeLock;
+        // 非引用计数，重复 acquire 只会刷新超时
+        this.wakeLock.setReferenceCounted(false);
+    }
+
+    public synchronized void setIdleWindowMs(long idleWindowMs) {
+        this.idleWindowMs = Math.max(0, idleWindowMs);
+    }
+
+    public synchronized long getIdleWindowMs() {
+        return idleWindowMs;
+    }
+
+    // 开始握手（连接/重连），握手期间始终持有
+    public synchronized void onHandshakeStarted(long now) {
+        handshaking = true;
+        lastActivity = now;
+        hold(now);
+    }
+
+    // 握手结束（已连接或出错），之后按流量决定
+    public synchronized void onHandshakeFinished(long now) {
+        handshaking = false;
+        lastActivity = now;
+        evaluate(now);
+    }
+
+    // 每次流量采样时调用
+    public synchronized void onTraffic(long now, long deltaBytes) {
+        if (deltaBytes >= ACTIVITY_THRESHOLD_BYTES) {
+            lastActivity = now;
+            hold(now);
+        } else {
+            evaluate(now);
+        }
+    }
+
+    // 断开连接时立即释放
+    public synchronized void stop(long now) {
+        handshaking = false;
+        release(now);
+    }
+
+    private void evaluate(long now) {
+        if (handshaking || now - lastActivity < idleWindowMs) {
+            hold(now);
+        } else {
+            release(now);
+        }
+    }
+
+    private void hold(long now) {
+        if (!held) {
+            wakeLock.acquire(HOLD_TIMEOUT_MS);
+            held = true;
+            heldSince = now;
+            lastRenew = now;
+            acquisitions++;
+            Log.d(TAG, "获取唤醒锁");
+        } else if (now - lastRenew >= HOLD_TIMEOUT_MS / 2) {
+            // 长时间会话中续期，避免超时后隧道在锁屏时被挂起
+            wakeLock.acquire(HOLD_TIMEOUT_MS);
+            lastRenew = now;
+        }
+    }
+
+    private void release(long now) {
+        if (!held) {
+            return;
+        }
+        if (wakeLock.isHeld()) {
+            wakeLock.release();
+        }
+        held = false;
+        heldTotalMs += now - heldSince;
+        Log.d(TAG, "释放唤醒锁");
+    }
+
+    public synchronized boolean isHeld() {
+        return held;
+    }
+
+    // 累计持有时长，包括当前正在持有的部分
+    public synchronized long getHeldTimeMs(long now) {
+        return held ? heldTotalMs + (now - heldSince) : heldTotalMs;
+    }
+
+    public synchronized long getAcquisitions() {
+        return acquisitions;
+    }
+}
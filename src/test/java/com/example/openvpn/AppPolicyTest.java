@@ -0,0 +1,113 @@
+package com.example.openvpn;
+
+import android.content.pm.PackageManager;
+
+import io.dcloud.feature.uniapp.bridge.UniJSCallback;
+
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+// 按应用分流：包名解析和策略比较，以及通过 getNetworkStats 测出切换策略前后节省的发送量
+public class AppPolicyTest {
+    private static final UniJSCallback IGNORE = result -> { };
+    private static final String STORE = "com.android.vending";
+    private static final String VIDEO = "com.google.android.youtube";
+    private static final String MAIL = "com.example.mail";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static PackageManager installed(String... packages) {
+        PackageManager packageManager = new PackageManager();
+        for (String name : packages) {
+            packageManager.addPackage(name);
+        }
+        return packageManager;
+    }
+
+    @Test
+    public void resolveDropsMissingPackages() {
+        AppPolicy policy = AppPolicy.resolve(installed(STORE, VIDEO), AppPolicy.MODE_DENY,
+                STORE + ", " + VIDEO + " com.missing " + STORE);
+        assertEquals(new HashSet<>(Arrays.asList(STORE, VIDEO)), policy.packages);
+        assertEquals(Arrays.asList("com.missing"), policy.missing);
+        assertTrue(policy.sameAs(AppPolicy.resolve(installed(STORE, VIDEO), AppPolicy.MODE_DENY, VIDEO + "," + STORE)));
+        assertFalse(policy.sameAs(AppPolicy.resolve(installed(STORE, VIDEO), AppPolicy.MODE_ALLOW, STORE + "," + VIDEO)));
+    }
+
+    @Test
+    public void rejectsInvalidPolicies() {
+        try {
+            AppPolicy.resolve(installed(STORE), "split", STORE);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // 模式无效
+        }
+        try {
+            AppPolicy.resolve(installed(STORE), AppPolicy.MODE_ALLOW, "com.missing");
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // 允许列表为空会让所有应用都走隧道，与调用方的意图相反
+        }
+    }
+
+    // 全部走隧道 10 分钟（每秒 100 KB 上行，其中商店和视频占 90 KB），然后排除这两个应用再跑 10 分钟
+    @Test
+    public void sendSavingsAreReportedThroughStats() throws Exception {
+        PluginSimulation simulation = PluginSimulation.open(1, folder.newFolder());
+        try {
+            simulation.getContext().getPackageManager().addPackage(STORE);
+            simulation.getContext().getPackageManager().addPackage(VIDEO);
+            simulation.getContext().getPackageManager().addPackage(MAIL);
+            OpenVPNPlugin plugin = simulation.getPlugin();
+
+            plugin.setAppPolicy(AppPolicy.MODE_ALL, null, IGNORE);
+            plugin.connect("user", "secret", PluginSimulation.CONFIG, IGNORE);
+            simulation.advance(5_000);
+            for (int i = 0; i < 600; i++) {
+                simulation.traffic(200 * 1024, 100 * 1024);
+                simulation.advance(1_000);
+            }
+
+            AtomicReference<Object> changed = new AtomicReference<>();
+            plugin.setAppPolicy(AppPolicy.MODE_DENY, STORE + "," + VIDEO, changed::set);
+            simulation.advance(5_000);
+            assertTrue(((JSONObject) changed.get()).getBoolean("changed"));
+            // 只重建隧道接口：交给 core 的 profile 带上了排除列表
+            assertEquals(new HashSet<>(Arrays.asList(STORE, VIDEO)), simulation.getStartedProfile().mAllowedAppsVpn);
+            assertTrue(simulation.getStartedProfile().mAllowedAppsVpnAreDisallowed);
+
+            for (int i = 0; i < 600; i++) {
+                simulation.traffic(20 * 1024, 10 * 1024);
+                simulation.advance(1_000);
+            }
+
+            AtomicReference<Object> result = new AtomicReference<>();
+            plugin.getNetworkStats(result::set);
+            JSONObject stats = ((JSONObject) result.get()).getJSONObject("appPolicy");
+            assertEquals(AppPolicy.MODE_DENY, stats.getString("mode"));
+            long sendRate = stats.getLong("sendRate");
+            long previousSendRate = stats.getLong("previousSendRate");
+            // 重连和采样间隔会摊薄平均速率，允许 10% 的偏差
+            assertTrue("sendRate " + sendRate, sendRate > 9 * 1024 && sendRate <= 10 * 1024);
+            assertTrue("previousSendRate " + previousSendRate,
+                    previousSendRate > 90 * 1024 && previousSendRate <= 100 * 1024);
+            assertTrue(stats.getLong("bytesSent") > 550 * 10 * 1024);
+            // 节省的上行约为原来的 90%
+            assertTrue(previousSendRate - sendRate > 80 * 1024);
+        } finally {
+            simulation.close();
+        }
+    }
+}
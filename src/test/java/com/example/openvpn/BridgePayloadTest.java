@@ -0,0 +1,103 @@
+package com.example.openvpn;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// 统计事件的两种编码与原来的 {status, networkStats: {...}} 载荷字段一致，发布复用的事件不分配
+public class BridgePayloadTest {
+    private static final int EVENTS = 100_000;
+    private static final String[] STATS_KEYS = {"bytesSent", "bytesReceived", "timeConnected"};
+
+    private static void fill(BridgePayload payload) {
+        payload.set(BridgePayload.STATUS, "CONNECTED")
+                .set(BridgePayload.BYTES_SENT, 123_456_789L)
+                .set(BridgePayload.BYTES_RECEIVED, 987_654_321L)
+                .set(BridgePayload.TIME_CONNECTED, 3600);
+    }
+
+    @Test
+    public void objectEncodingCarriesLegacyFields() throws Exception {
+        EventStream stream = new EventStream();
+        EventStream.Subscription subscription = stream.subscribe("stats", null, 0, null,
+                EventStream.ENCODING_OBJECT, 0, (s, events, count, dropped) -> {
+                });
+        EventStream.Event[] held = {stream.obtain(EventStream.TYPE_STATS)};
+        fill(held[0].payload);
+
+        JSONObject item = EventStream.toBatch(subscription, held, 1, 0).getJSONArray("events").getJSONObject(0);
+        assertEquals("stats", item.getString("type"));
+        assertEquals("CONNECTED", item.getString("status"));
+        assertEquals(123_456_789L, item.getLong("bytesSent"));
+        assertEquals(987_654_321L, item.getLong("bytesReceived"));
+        assertEquals(3600, item.getLong("timeConnected"));
+    }
+
+    // 紧凑编码为 [type, time, 值...]，值按 describe 给出的字段顺序排列
+    @Test
+    public void packedEncodingFollowsDescribedOrder() throws Exception {
+        EventStream stream = new EventStream();
+        EventStream.Subscription objects = stream.subscribe("stats", null, 0, null,
+                EventStream.ENCODING_OBJECT, 0, (s, events, count, dropped) -> {
+                });
+        EventStream.Subscription packed = stream.subscribe("stats", null, 0, null,
+                EventStream.ENCODING_PACKED, 0, (s, events, count, dropped) -> {
+                });
+        EventStream.Event[] held = {stream.obtain(EventStream.TYPE_STATS)};
+        fill(held[0].payload);
+
+        JSONObject item = EventStream.toBatch(objects, held, 1, 0).getJSONArray("events").getJSONObject(0);
+        JSONArray row = (JSONArray) EventStream.toBatch(packed, held, 1, 0).getJSONArray("events").get(0);
+        JSONArray keys = EventStream.describe(packed).getJSONObject("fields").getJSONArray("stats");
+        assertEquals(EventStream.TYPE_STATS, ((Number) row.get(0)).intValue());
+        assertEquals(keys.length() + 2, row.length());
+        for (int i = 0; i < keys.length(); i++) {
+            assertEquals(String.valueOf(item.opt((String) keys.get(i))), String.valueOf(row.get(i + 2)));
+        }
+        for (String key : STATS_KEYS) {
+            assertTrue(key, contains(keys, key));
+        }
+    }
+
+    // 稳定后发布一个统计事件不分配：事件和载荷都从 EventStream 复用
+    @Test
+    public void publishingReusedEventsDoesNotAllocate() {
+        EventStream stream = new EventStream();
+        stream.subscribe("stats", null, 0, EventStream.POLICY_LATEST, 0, (s, events, count, dropped) -> {
+        });
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        publish(stream, EVENTS);
+
+        long before = threads.getThreadAllocatedBytes(id);
+        publish(stream, EVENTS);
+        long perEvent = (threads.getThreadAllocatedBytes(id) - before) / EVENTS;
+        assertTrue("每个事件分配 " + perEvent + " 字节", perEvent < 16);
+    }
+
+    // 每 64 个事件模拟一帧投递
+    private static void publish(EventStream stream, int events) {
+        for (long now = 1; now <= events; now++) {
+            EventStream.Event event = stream.obtain(EventStream.TYPE_STATS);
+            fill(event.payload);
+            stream.publish(event, now);
+            if ((now & 63) == 0) {
+                stream.flush(now);
+            }
+        }
+    }
+
+    private static boolean contains(JSONArray array, String value) throws Exception {
+        for (int i = 0; i < array.length(); i++) {
+            if (value.equals(array.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.openvpn;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// 用假的服务回放几百组随机的 connect/disconnect 命令交错，期间还有定时器线程随机触发重连
+// legacy 为原来的做法（断开在调用线程上执行，连接和重连在 executor 上），pipeline 使用 CommandPipeline
+public class CommandPipelineTest {
+    private static final int SEQUENCES = 500;
+    // 假连接各步骤的耗时：解析配置、探测 remote
+    private static final long RESOLVE_MS = 1;
+    private static final long PROBE_MS = 8;
+
+    @Test
+    public void pipelineEndsInLastCommandState() throws Exception {
+        Result result = interleave("pipeline", SEQUENCES, 42);
+        assertTrue("应覆盖足够多的连接中途断开: " + result.latencies.length, result.latencies.length > 50);
+        assertEquals("最终状态应与最后一个命令一致", 0, result.mismatches);
+        assertEquals("断开后不应再启动隧道", 0, result.staleStarts);
+        // 探测被中断，不用等到探测结束
+        long p50 = percentile(result.latencies, 50);
+        assertTrue("断开应立即取消进行中的连接: " + p50 + "µs", p50 < PROBE_MS * 1000 / 2);
+    }
+
+    // 同样的回放能发现原做法的问题，说明上面的结果不是因为场景覆盖不到
+    @Test
+    public void legacyFlowStartsTunnelAfterDisconnect() throws Exception {
+        Result result = interleave("legacy", SEQUENCES, 42);
+        assertTrue(result.latencies.length > 50);
+        assertTrue("原做法应出现断开后隧道又被启动", result.staleStarts > 0);
+    }
+
+    private static final class Result {
+        int mismatches;
+        int staleStarts;
+        long[] latencies;
+    }
+
+    private static Result interleave(String mode, int sequences, long seed) throws Exception {
+        Random random = new Random(seed);
+        FakePlugin plugin = new FakePlugin(mode, random.nextLong());
+        Result result = new Result();
+        long[] latencies = new long[sequences * 4];
+        int latencyCount = 0;
+        try {
+            for (int s = 0; s < sequences; s++) {
+                int length = 2 + random.nextInt(5);
+                boolean wantUp = false;
+                for (int i = 0; i < length; i++) {
+                    // 多数组合以 connect 开头，随后随机交错
+                    boolean connect = i == 0 || random.nextInt(100) < 45;
+                    if (connect) {
+                        plugin.connect();
+                    } else {
+                        boolean midConnect = plugin.connecting;
+                        long start = System.nanoTime();
+                        long done = plugin.disconnect();
+                        if (midConnect) {
+                            if (done < 0) {
+                                // 断开排队中：等它完成
+                                done = plugin.awaitDisconnect();
+                            }
+                            latencies[latencyCount++] = (done - start) / 1_000L;
+                        }
+                    }
+                    wantUp = connect;
+                    Thread.sleep(random.nextInt((int) PROBE_MS + 4));
+                }
+                plugin.quiesce();
+                if (plugin.tunnelUp != wantUp) {
+                    result.mismatches++;
+                }
+                // 下一组从断开状态开始
+                if (plugin.tunnelUp || plugin.reconnectEnabled) {
+                    plugin.disconnect();
+                    plugin.quiesce();
+                }
+            }
+        } finally {
+            plugin.shutdown();
+        }
+        result.staleStarts = plugin.staleStarts.get();
+        result.latencies = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(result.latencies);
+        return result;
+    }
+
+    private static long percentile(long[] sorted, int p) {
+        if (sorted.length == 0) {
+            return -1;
+        }
+        return sorted[Math.min(sorted.length - 1, sorted.length * p / 100)];
+    }
+
+    // 插件中连接/断开/重连的粘合逻辑，服务、remote 探测和重连引擎都是假的
+    private static final class FakePlugin {
+        final String mode;
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final CommandPipeline commands = new CommandPipeline(executor);
+        // 重连引擎的定时器线程，模拟隧道建立后随机发生的网络丢失
+        final ScheduledThreadPoolExecutor timers = new ScheduledThreadPoolExecutor(1);
+        final Random random;
+        final AtomicInteger staleStarts = new AtomicInteger();
+
+        volatile boolean reconnectEnabled;
+        volatile long sessionGeneration;
+        volatile boolean tunnelUp;
+        volatile boolean connecting;
+        // 最近一次用户命令是断开且已完成
+        volatile boolean disconnected = true;
+        volatile long disconnectedAt;
+
+        FakePlugin(String mode, long seed) {
+            this.mode = mode;
+            this.random = new Random(seed);
+        }
+
+        void connect() {
+            reconnectEnabled = true;
+            disconnected = false;
+            if (mode.equals("pipeline")) {
+                commands.submit("connect", token -> {
+                    sessionGeneration = token.generation;
+                    connecting = true;
+                    try {
+                        Thread.sleep(RESOLVE_MS);
+                        token.checkpoint();
+                        token.interruptibly(() -> probe(PROBE_MS));
+                        token.checkpoint();
+                        startVPN();
+                    } finally {
+                        connecting = false;
+                    }
+                });
+                return;
+            }
+            // 原做法：不可取消
+            executor.execute(() -> {
+                connecting = true;
+                try {
+                    Thread.sleep(RESOLVE_MS);
+                    probe(PROBE_MS);
+                    startVPN();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    connecting = false;
+                }
+            });
+        }
+
+        // 返回断开完成的时间，断开排队中时返回 -1
+        long disconnect() {
+            reconnectEnabled = false;
+            if (mode.equals("legacy")) {
+                stopVPN();
+                return System.nanoTime();
+            }
+            disconnectedAt = -1;
+            Runnable stop = this::stopVPN;
+            if (mode.equals("pipeline")) {
+                commands.submit("disconnect", token -> stop.run());
+            } else {
+                executor.execute(stop);
+            }
+            return -1;
+        }
+
+        long awaitDisconnect() throws InterruptedException {
+            while (disconnectedAt < 0) {
+                Thread.sleep(0, 100_000);
+            }
+            return disconnectedAt;
+        }
+
+        void reconnect() {
+            if (!reconnectEnabled) {
+                return;
+            }
+            if (mode.equals("pipeline")) {
+                commands.submitIf(sessionGeneration, "reconnect", token -> {
+                    token.checkpoint();
+                    startVPN();
+                });
+            } else {
+                executor.execute(this::startVPN);
+            }
+        }
+
+        private void startVPN() {
+            if (disconnected) {
+                staleStarts.incrementAndGet();
+            }
+            tunnelUp = true;
+            // 三成的连接随后遇到网络丢失，由重连引擎在 0-4ms 后重连
+            if (random.nextInt(10) < 3) {
+                timers.schedule(this::reconnect, random.nextInt(5), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void stopVPN() {
+            tunnelUp = false;
+            disconnected = true;
+            disconnectedAt = System.nanoTime();
+        }
+
+        // 假的 remote 探测：和 RemoteProber 一样在等待中响应中断
+        private static void probe(long ms) {
+            try {
+                Thread.sleep(ms);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // 等 executor 和定时器都空闲
+        void quiesce() throws Exception {
+            while (true) {
+                Thread.sleep(6);
+                executor.submit(() -> {
+                }).get();
+                if (timers.getQueue().isEmpty() && timers.getActiveCount() == 0) {
+                    executor.submit(() -> {
+                    }).get();
+                    return;
+                }
+            }
+        }
+
+        void shutdown() {
+            executor.shutdownNow();
+            timers.shutdownNow();
+        }
+    }
+}
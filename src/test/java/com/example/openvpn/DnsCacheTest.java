@@ -0,0 +1,110 @@
+package com.example.openvpn;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// 查询经过数据包引擎，“核心”一端接本地的 DNS 替身服务器
+public class DnsCacheTest {
+    private PacketEngine engine;
+    private DnsCache cache;
+    private DnsStubServer server;
+    private DatagramChannel app;
+    private final ByteBuffer received = ByteBuffer.allocate(2048);
+
+    @Before
+    public void setUp() throws IOException {
+        DatagramChannel tunSide = LoopbackIo.open();
+        DatagramChannel coreSide = LoopbackIo.open();
+        app = LoopbackIo.open();
+        DatagramChannel serverSide = LoopbackIo.open();
+        LoopbackIo.connect(tunSide, app);
+        LoopbackIo.connect(coreSide, serverSide);
+
+        engine = new PacketEngine();
+        cache = new DnsCache(engine);
+        engine.addHandler(cache);
+        engine.start(new LoopbackIo(tunSide, coreSide));
+        server = new DnsStubServer(serverSide);
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        engine.stop();
+        server.close();
+        app.close();
+    }
+
+    @Test
+    public void hitIsAnsweredLocallyWithQueryId() throws IOException {
+        assertEquals(1, query("cached.example.com", 1));
+        assertEquals(1, server.queries);
+        assertEquals(1, cache.getMisses());
+
+        // 域名大小写不同也命中，应答的 ID 改写为本次查询的 ID
+        assertEquals(2, query("CACHED.example.com", 2));
+        assertEquals(1, server.queries);
+        assertEquals(1, cache.getHits());
+        assertTrue("命中的 TTL: " + ttl(), ttl() > 0 && ttl() <= 300);
+    }
+
+    @Test
+    public void identicalQueriesInFlightAreCoalesced() throws IOException {
+        // 服务器延迟应答期间的相同查询只转发一次
+        for (int id = 10; id < 13; id++) {
+            app.write(DnsStubServer.query("slow.example.com", id));
+        }
+        for (int i = 0; i < 3; i++) {
+            receive();
+        }
+        assertEquals(1, server.queries);
+        assertEquals(2, cache.getCoalesced());
+    }
+
+    @Test
+    public void expiredEntryIsServedStaleAndRefreshed() throws Exception {
+        // TTL 为1秒的条目过期后先返回旧应答，并在后台刷新
+        query("short.example.com", 20);
+        Thread.sleep(1100);
+        assertEquals(21, query("short.example.com", 21));
+        assertEquals(30, ttl());
+        Thread.sleep(100);
+        assertEquals(2, server.queries);
+        assertEquals(1, cache.getStaleHits());
+        assertEquals(1, cache.getRefreshes());
+
+        // 刷新的应答只更新缓存，不再交给应用
+        app.configureBlocking(false);
+        received.clear();
+        assertEquals(0, app.read(received));
+    }
+
+    // 发出查询并等待应答，返回应答中的 DNS ID
+    private int query(String name, int id) throws IOException {
+        app.write(DnsStubServer.query(name, id));
+        return receive();
+    }
+
+    private int receive() throws IOException {
+        received.clear();
+        app.read(received);
+        return received.getShort(28) & 0xffff;
+    }
+
+    // 最近一次应答中第一条记录的 TTL
+    private int ttl() {
+        int p = 28 + 12;
+        while (received.get(p) != 0) {
+            p += 1 + received.get(p);
+        }
+        return received.getInt(p + 5 + 6);
+    }
+}
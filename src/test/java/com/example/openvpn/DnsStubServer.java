@@ -0,0 +1,119 @@
+package com.example.openvpn;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+
+// 本地 DNS 替身：收到 IPv4/UDP 查询后回一条 A 记录；slow 开头的域名延迟应答，short 开头的 TTL 为1秒
+// DnsCache 的单元测试和基准测试共用
+public final class DnsStubServer extends Thread {
+    private final DatagramChannel channel;
+    public volatile int queries;
+
+    public DnsStubServer(DatagramChannel channel) {
+        super("dns-stub");
+        this.channel = channel;
+        setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+        ByteBuffer packet = ByteBuffer.allocate(2048);
+        try {
+            while (true) {
+                packet.clear();
+                channel.read(packet);
+                queries++;
+                String label = firstLabel(packet);
+                if (label.equals("slow")) {
+                    Thread.sleep(50);
+                }
+                channel.write(respond(packet, label.equals("short") ? 1 : 300));
+            }
+        } catch (Exception e) {
+            // 关闭时退出
+        }
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public static ByteBuffer query(String name, int id) {
+        byte[] qname = encodeName(name);
+        int dnsLength = 12 + qname.length + 4;
+        ByteBuffer packet = ByteBuffer.allocate(28 + dnsLength);
+        packet.put(0, (byte) 0x45);
+        packet.putShort(2, (short) (28 + dnsLength));
+        packet.put(8, (byte) 64);
+        packet.put(9, (byte) 17);
+        packet.putInt(12, 0x0a080002); // 10.8.0.2
+        packet.putInt(16, 0x0a080001); // 10.8.0.1
+        packet.putShort(20, (short) 40000);
+        packet.putShort(22, (short) 53);
+        packet.putShort(24, (short) (8 + dnsLength));
+        packet.putShort(28, (short) id);
+        packet.putShort(30, (short) 0x0100);
+        packet.putShort(32, (short) 1);
+        packet.position(40);
+        packet.put(qname);
+        packet.putShort((short) 1);
+        packet.putShort((short) 1);
+        packet.clear();
+        return packet;
+    }
+
+    private static ByteBuffer respond(ByteBuffer query, int ttl) {
+        int questionEnd = 40;
+        while (query.get(questionEnd) != 0) {
+            questionEnd += 1 + query.get(questionEnd);
+        }
+        questionEnd += 5;
+        int dnsLength = questionEnd - 28 + 16;
+        ByteBuffer packet = ByteBuffer.allocate(28 + dnsLength);
+        for (int i = 0; i < questionEnd; i++) {
+            packet.put(i, query.get(i));
+        }
+        packet.putShort(2, (short) (28 + dnsLength));
+        packet.putInt(12, query.getInt(16));
+        packet.putInt(16, query.getInt(12));
+        packet.putShort(20, query.getShort(22));
+        packet.putShort(22, query.getShort(20));
+        packet.putShort(24, (short) (8 + dnsLength));
+        packet.putShort(26, (short) 0);
+        packet.putShort(30, (short) 0x8180);
+        packet.putShort(34, (short) 1);
+        packet.position(questionEnd);
+        packet.putShort((short) 0xc00c);
+        packet.putShort((short) 1);
+        packet.putShort((short) 1);
+        packet.putInt(ttl);
+        packet.putShort((short) 4);
+        packet.putInt(0x5db8d822);
+        packet.clear();
+        return packet;
+    }
+
+    private static String firstLabel(ByteBuffer packet) {
+        int length = packet.get(40);
+        byte[] label = new byte[length];
+        for (int i = 0; i < length; i++) {
+            label[i] = packet.get(41 + i);
+        }
+        return new String(label, StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] encodeName(String name) {
+        ByteBuffer out = ByteBuffer.allocate(name.length() + 2);
+        for (String label : name.split("\\.")) {
+            out.put((byte) label.length());
+            out.put(label.getBytes(StandardCharsets.US_ASCII));
+        }
+        out.put((byte) 0);
+        byte[] bytes = new byte[out.position()];
+        out.flip();
+        out.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.openvpn;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EventStreamTest {
+    private static final int PUBLISHERS = 4;
+    private static final int EVENTS_PER_PUBLISHER = 50_000;
+
+    // 多个线程高速发布，“主线程”每帧 flush 一次，其中一个订阅者每批要处理 40ms
+    @Test
+    public void queuesStayBoundedUnderLoad() throws Exception {
+        EventStream stream = new EventStream();
+        AtomicLong fastBatches = new AtomicLong();
+        AtomicLong slowEvents = new AtomicLong();
+        AtomicLong slowDropped = new AtomicLong();
+        AtomicLong limitedBatches = new AtomicLong();
+        AtomicLong filteredBad = new AtomicLong();
+
+        EventStream.Subscription fast = stream.subscribe(null, null, 0, EventStream.POLICY_LATEST, 0,
+                (subscription, events, count, dropped) -> fastBatches.incrementAndGet());
+        EventStream.Subscription slow = stream.subscribe("stats", null, 0, EventStream.POLICY_DROP_OLDEST, 16,
+                (subscription, events, count, dropped) -> {
+                    slowEvents.addAndGet(count);
+                    slowDropped.addAndGet(dropped);
+                    Thread.sleep(40);
+                });
+        EventStream.Subscription limited = stream.subscribe("status", null, 5, EventStream.POLICY_LATEST, 0,
+                (subscription, events, count, dropped) -> limitedBatches.incrementAndGet());
+        EventStream.Subscription filtered = stream.subscribe("stats", "bytesSent", 0, EventStream.POLICY_LATEST, 0,
+                (subscription, events, count, dropped) -> {
+                    JSONObject batch = EventStream.toBatch(subscription, events, count, dropped);
+                    JSONObject item = batch.getJSONArray("events").getJSONObject(0);
+                    if (item.length() != 3 || !item.has("bytesSent")) {
+                        filteredBad.incrementAndGet();
+                    }
+                });
+
+        // “主线程”：按 flush 的返回值和发布请求安排下一帧，统计 post 次数
+        AtomicLong posts = new AtomicLong();
+        AtomicLong statsPublished = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(PUBLISHERS);
+        for (int p = 0; p < PUBLISHERS; p++) {
+            new Thread(() -> {
+                for (int i = 0; i < EVENTS_PER_PUBLISHER; i++) {
+                    boolean isStats = (i & 1) == 0;
+                    if (isStats) {
+                        statsPublished.incrementAndGet();
+                    }
+                    EventStream.Event event = isStats ? stats(stream, "CONNECTED", i) : status(stream, "CONNECTED");
+                    if (stream.publish(event, System.currentTimeMillis())) {
+                        posts.incrementAndGet();
+                    }
+                    // 每 100 个事件歇一下，让发布持续约一秒
+                    if (i % 100 == 0) {
+                        sleepQuietly(2);
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+
+        long start = System.nanoTime();
+        int frames = 0;
+        long delay = 0;
+        while (done.getCount() > 0 || delay >= 0 || slow.getQueued() + fast.getQueued() + filtered.getQueued() > 0) {
+            int queued = Math.max(slow.getQueued(), fast.getQueued());
+            assertTrue("队列超过上限: " + queued, queued <= 16);
+            delay = stream.flush(millis(start));
+            frames++;
+            if (delay >= 0) {
+                posts.incrementAndGet();
+            }
+            Thread.sleep(EventStream.FRAME_MS);
+        }
+        long elapsedMs = millis(start);
+
+        // latest 队列每种类型至多一条，dropOldest 队列不超过上限
+        assertTrue(fast.getMaxQueued() <= 2);
+        assertTrue(limited.getMaxQueued() <= 1);
+        assertTrue(filtered.getMaxQueued() <= 1);
+        assertTrue(slow.getMaxQueued() <= 16);
+        assertTrue("每帧至多投递一批", fastBatches.get() <= frames + 2);
+        assertTrue("超过了频率限制: " + limitedBatches.get(), limitedBatches.get() <= elapsedMs / 200 + 2);
+        assertTrue("慢订阅者应有丢弃", slowDropped.get() > 0);
+        assertEquals("投递数加丢弃数应等于发布数", statsPublished.get(), slowEvents.get() + slowDropped.get());
+        assertEquals("字段过滤", 0, filteredBad.get());
+        // 原做法每个事件一次主线程 post
+        assertTrue("主线程投递请求应按帧合并: " + posts.get(), posts.get() <= frames + 2);
+    }
+
+    @Test
+    public void deliversLatestPerTypeWithSubscribedFields() throws Exception {
+        EventStream stream = new EventStream();
+        JSONObject[] delivered = new JSONObject[1];
+        EventStream.Subscription subscription = stream.subscribe("status, stats", "status", 0, null, 0,
+                (s, events, count, dropped) -> delivered[0] = EventStream.toBatch(s, events, count, dropped));
+        stream.publish(stats(stream, "A", 1), 1);
+        stream.publish(status(stream, "B"), 2);
+        stream.publish(stats(stream, "C", 2), 3);
+        // 没有限频时不需要再次 flush
+        assertEquals(-1, stream.flush(0));
+
+        JSONArray events = delivered[0].getJSONArray("events");
+        assertEquals(subscription.id, delivered[0].getInt("subscription"));
+        // latest 每种类型一条，按发布顺序投递
+        assertEquals(2, events.length());
+        assertEquals("B", events.getJSONObject(0).getString("status"));
+        assertEquals("C", events.getJSONObject(1).getString("status"));
+        // 只保留订阅的字段
+        assertEquals("stats", events.getJSONObject(1).getString("type"));
+        assertFalse(events.getJSONObject(1).has("bytesSent"));
+
+        assertTrue(stream.unsubscribe(subscription.id));
+        assertFalse(stream.hasSubscribers(EventStream.TYPE_STATUS));
+    }
+
+    @Test
+    public void unknownTypeIsRejected() {
+        EventStream stream = new EventStream();
+        try {
+            stream.subscribe("bogus", null, 0, null, 0, (s, events, count, dropped) -> {
+            });
+            fail("未知类型应被拒绝");
+        } catch (IllegalArgumentException expected) {
+            // 预期
+        }
+    }
+
+    private static EventStream.Event stats(EventStream stream, String status, long bytesSent) {
+        EventStream.Event event = stream.obtain(EventStream.TYPE_STATS);
+        event.payload.set(BridgePayload.STATUS, status)
+                .set(BridgePayload.BYTES_SENT, bytesSent)
+                .set(BridgePayload.BYTES_RECEIVED, 2);
+        return event;
+    }
+
+    private static EventStream.Event status(EventStream stream, String status) {
+        EventStream.Event event = stream.obtain(EventStream.TYPE_STATUS);
+        event.payload.set(BridgePayload.STATUS, status);
+        return event;
+    }
+
+    private static long millis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000L;
+    }
+
+    private static void sleepQuietly(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.openvpn;
+
+import android.os.Handler;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// 网络切换的脚本化模拟：假的 ConnectivityManager 按脚本上报网络事件，假的隧道在默认网络上握手
+// useHandover 为 false 时按原来的做法处理（网络丢失即 ERROR，再由重连引擎退避重连）
+// run 返回脚本期间隧道实际不通的总时长；NetworkHandover 的单元测试和基准测试共用
+public final class HandoverSimulation {
+    public static final long HANDSHAKE_MS = 800;
+    // 脚本开始前隧道已在蜂窝或 Wi-Fi 上建立
+    static final long SCRIPT_START = 10_000;
+    static final long SCRIPT_END = SCRIPT_START + 60_000;
+    // 切到 Wi-Fi 后系统保留蜂窝网络的时间
+    static final long LINGER_MS = 30_000;
+
+    final Handler handler = new Handler();
+    final boolean useHandover;
+    final Map<String, FakeNetwork> networks = new LinkedHashMap<>();
+    final ReconnectEngine reconnectEngine;
+    final NetworkHandover networkHandover;
+
+    String state = "DISCONNECTED";
+    public int handovers;
+
+    // 隧道
+    FakeNetwork tunnelNetwork;
+    boolean tunnelUp;
+    boolean passing;
+    long downSince;
+    long outage;
+    boolean measuring;
+    int connectGeneration;
+
+    public HandoverSimulation(boolean useHandover) {
+        this.useHandover = useHandover;
+        reconnectEngine = new ReconnectEngine(handler, new ReconnectEngine.Callback() {
+            @Override
+            public void onReconnect(int attempt) {
+                reconnect();
+            }
+
+            @Override
+            public void onGiveUp() {
+            }
+        });
+        networkHandover = new NetworkHandover(handler, new NetworkHandover.Callback() {
+            @Override
+            public void onHandover(boolean proactive) {
+                handovers++;
+                if (state.equals("CONNECTED") || state.equals("CONNECTING") || state.equals("RECONNECTING")) {
+                    reconnect();
+                }
+            }
+
+            @Override
+            public void onAllNetworksLost() {
+                if (!state.equals("DISCONNECTED") && !state.equals("ERROR")) {
+                    onError();
+                }
+            }
+        });
+    }
+
+    // scenario: wifiJoin、wifiLeave、wifiDegrade 或 flapping
+    public long run(String scenario) {
+        boolean startOnWifi = scenario.equals("wifiLeave") || scenario.equals("wifiDegrade");
+        at(0, () -> {
+            up("cell", NetworkHandover.TRANSPORT_CELLULAR);
+            validate("cell", true);
+            if (startOnWifi) {
+                up("wifi", NetworkHandover.TRANSPORT_WIFI);
+                validate("wifi", true);
+            }
+        });
+        at(100, () -> {
+            state = "CONNECTING";
+            connect();
+        });
+        at(SCRIPT_START, () -> {
+            measuring = true;
+            downSince = handler.now();
+        });
+
+        long t = SCRIPT_START;
+        switch (scenario) {
+            case "wifiJoin":
+                // 走进 Wi-Fi 覆盖区：Wi-Fi 出现、验证通过，蜂窝在保留期后断开
+                at(t, () -> up("wifi", NetworkHandover.TRANSPORT_WIFI));
+                at(t + 300, () -> validate("wifi", true));
+                at(t + 300 + LINGER_MS, () -> lose("cell"));
+                break;
+            case "wifiLeave":
+                // 突然离开 Wi-Fi，蜂窝一直可用
+                at(t, () -> lose("wifi"));
+                break;
+            case "wifiDegrade":
+                // Wi-Fi 信号变差：先失去验证，5 秒后才断开
+                at(t, () -> validate("wifi", false));
+                at(t + 5_000, () -> lose("wifi"));
+                break;
+            case "flapping":
+                // 隧道在蜂窝上，Wi-Fi 每 700ms 验证通过/失败一次
+                at(t, () -> up("wifi", NetworkHandover.TRANSPORT_WIFI));
+                for (int i = 0; i < 14; i++) {
+                    boolean validated = i % 2 == 0;
+                    at(t + 700L * i, () -> validate("wifi", validated));
+                }
+                at(t + 700L * 14, () -> lose("wifi"));
+                break;
+        }
+        handler.advanceTo(SCRIPT_END);
+        if (!passing) {
+            outage += SCRIPT_END - downSince;
+        }
+        return outage;
+    }
+
+    private void at(long time, Runnable action) {
+        handler.postDelayed(action, time - handler.now());
+    }
+
+    // ---- 假的 ConnectivityManager ----
+
+    private void up(String id, int transport) {
+        FakeNetwork network = new FakeNetwork(id, transport);
+        networks.put(id, network);
+        long now = handler.now();
+        if (useHandover) {
+            networkHandover.onAvailable(id, now);
+            networkHandover.onCapabilitiesChanged(id, transport, false, transport == NetworkHandover.TRANSPORT_WIFI, now);
+            networkHandover.onLinkPropertiesChanged(id, true, now);
+        }
+        if (state.equals("ERROR") || state.equals("RECONNECTING")) {
+            reconnectEngine.onNetworkAvailable();
+        }
+        updatePassing();
+    }
+
+    private void validate(String id, boolean validated) {
+        FakeNetwork network = networks.get(id);
+        network.validated = validated;
+        if (useHandover) {
+            networkHandover.onCapabilitiesChanged(id, network.transport, validated,
+                    network.transport == NetworkHandover.TRANSPORT_WIFI, handler.now());
+        }
+        updatePassing();
+    }
+
+    private void lose(String id) {
+        FakeNetwork network = networks.remove(id);
+        network.alive = false;
+        updatePassing();
+        if (useHandover) {
+            networkHandover.onLost(id, handler.now());
+        } else if (!state.equals("DISCONNECTED")) {
+            // 原来的做法：任何网络丢失都进入 ERROR
+            onError();
+        }
+    }
+
+    // 系统的默认网络：验证通过的网络中最好的
+    private FakeNetwork defaultNetwork() {
+        FakeNetwork best = null;
+        for (FakeNetwork network : networks.values()) {
+            if (network.validated && (best == null || network.transport > best.transport)) {
+                best = network;
+            }
+        }
+        return best;
+    }
+
+    // ---- 假的隧道：在默认网络上握手 HANDSHAKE_MS ----
+
+    private void connect() {
+        int generation = ++connectGeneration;
+        tunnelUp = false;
+        tunnelNetwork = defaultNetwork();
+        updatePassing();
+        handler.postDelayed(() -> {
+            if (generation != connectGeneration) {
+                return;
+            }
+            if (tunnelNetwork != null && tunnelNetwork.alive && tunnelNetwork.validated) {
+                tunnelUp = true;
+                updatePassing();
+                onConnected();
+            } else {
+                onError();
+            }
+        }, HANDSHAKE_MS);
+    }
+
+    private void updatePassing() {
+        boolean now = tunnelUp && tunnelNetwork != null && tunnelNetwork.alive && tunnelNetwork.validated;
+        if (now == passing) {
+            return;
+        }
+        passing = now;
+        if (!measuring) {
+            return;
+        }
+        if (now) {
+            outage += handler.now() - downSince;
+        } else {
+            downSince = handler.now();
+        }
+    }
+
+    // ---- 插件中的粘合逻辑 ----
+
+    private void reconnect() {
+        state = "RECONNECTING";
+        connect();
+    }
+
+    private void onConnected() {
+        state = "CONNECTED";
+        reconnectEngine.onConnected(handler.now());
+        if (useHandover) {
+            networkHandover.onTunnelConnected(handler.now());
+        }
+    }
+
+    private void onError() {
+        state = "ERROR";
+        connectGeneration++;
+        tunnelUp = false;
+        updatePassing();
+        if (useHandover) {
+            networkHandover.onTunnelFailed();
+        }
+        reconnectEngine.onFailure(handler.now());
+    }
+
+    private static final class FakeNetwork {
+        final String id;
+        final int transport;
+        boolean validated;
+        boolean alive = true;
+
+        FakeNetwork(String id, int transport) {
+            this.id = id;
+            this.transport = transport;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.openvpn;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+// 延迟直方图：1-2-5 分桶、桶内插值的百分位、均值/最大值、重置，以及空直方图、单个值、超出最高桶和 0/100 百分位
+public class LatencyHistogramTest {
+    private static final long[] STEPS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1_000, 2_000, 5_000, 10_000, 20_000,
+            50_000, 100_000};
+
+    // 只有一个值时，0 百分位为所在桶的下界，100 百分位为该值本身
+    @Test
+    public void bucketsFollowOneTwoFive() {
+        long lower = 0;
+        for (long bound : STEPS) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(bound);
+            assertEquals("bound " + bound, lower, histogram.percentile(0));
+            assertEquals(bound, histogram.percentile(100));
+
+            histogram = new LatencyHistogram();
+            histogram.record(bound + 1);
+            assertEquals("above " + bound, bound, histogram.percentile(0));
+            lower = bound;
+        }
+    }
+
+    @Test
+    public void interpolatesWithinBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 50; i++) {
+            histogram.record(15);
+            histogram.record(40);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(27, histogram.getMean());
+        assertEquals(40, histogram.getMax());
+        // 前 50 个落在 (10, 20]，后 50 个落在 (20, 50]，最高桶的上界截到最大值 40
+        assertEquals(10, histogram.percentile(0));
+        assertEquals(15, histogram.percentile(25));
+        assertEquals(20, histogram.percentile(50));
+        assertEquals(30, histogram.percentile(75));
+        assertEquals(38, histogram.percentile(95));
+        assertEquals(40, histogram.percentile(100));
+    }
+
+    @Test
+    public void emptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMean());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.percentile(0));
+        assertEquals(0, histogram.percentile(50));
+        assertEquals(0, histogram.percentile(100));
+    }
+
+    @Test
+    public void singleValue() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(7);
+        assertEquals(7, histogram.getMean());
+        assertEquals(7, histogram.getMax());
+        // (5, 10] 桶的上界截到 7
+        assertEquals(5, histogram.percentile(0));
+        assertEquals(6, histogram.percentile(50));
+        assertEquals(7, histogram.percentile(100));
+        // 负值忽略
+        histogram.record(-1);
+        assertEquals(1, histogram.getCount());
+    }
+
+    @Test
+    public void valuesAboveTopBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(200_000);
+        histogram.record(300_000);
+        assertEquals(250_000, histogram.getMean());
+        assertEquals(300_000, histogram.getMax());
+        // 最后一个桶没有上界，插值以最大值为上界
+        assertEquals(100_000, histogram.percentile(0));
+        assertEquals(200_000, histogram.percentile(50));
+        assertEquals(300_000, histogram.percentile(100));
+    }
+
+    @Test
+    public void resetClearsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3);
+        histogram.record(3_000);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMean());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.percentile(95));
+
+        histogram.record(8);
+        assertEquals(8, histogram.getMax());
+        assertEquals(8, histogram.percentile(100));
+        assertEquals(5, histogram.percentile(0));
+    }
+}
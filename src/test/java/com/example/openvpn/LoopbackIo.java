@@ -0,0 +1,72 @@
+package com.example.openvpn;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+
+// PacketEngine 在 JVM 上的读写端：两对相连的回环 UDP socket 代替 tun 和核心 socketpair（同样保留包边界）
+// 基于 Selector 的非阻塞实现，对应 Android 上基于 poll 的 TunPacketIo；单元测试和基准测试共用
+public final class LoopbackIo implements PacketEngine.Io {
+    private final DatagramChannel tun;
+    private final DatagramChannel core;
+    private final Selector selector;
+
+    public LoopbackIo(DatagramChannel tun, DatagramChannel core) throws IOException {
+        this.tun = tun;
+        this.core = core;
+        this.selector = Selector.open();
+        tun.configureBlocking(false);
+        core.configureBlocking(false);
+        tun.register(selector, SelectionKey.OP_READ);
+        core.register(selector, SelectionKey.OP_READ);
+    }
+
+    public static DatagramChannel open() throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        channel.setOption(StandardSocketOptions.SO_RCVBUF, 1 << 20);
+        channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        return channel;
+    }
+
+    public static void connect(DatagramChannel a, DatagramChannel b) throws IOException {
+        a.connect(b.getLocalAddress());
+        b.connect(a.getLocalAddress());
+    }
+
+    @Override
+    public int read(int direction, ByteBuffer dst) throws IOException {
+        return (direction == PacketEngine.OUTBOUND ? tun : core).read(dst);
+    }
+
+    @Override
+    public int write(int direction, ByteBuffer src) throws IOException {
+        return (direction == PacketEngine.OUTBOUND ? core : tun).write(src);
+    }
+
+    @Override
+    public void await(long timeoutMs) throws IOException {
+        selector.select(timeoutMs);
+        selector.selectedKeys().clear();
+    }
+
+    @Override
+    public void wakeup() {
+        selector.wakeup();
+    }
+
+    @Override
+    public void close() {
+        try {
+            selector.close();
+            tun.close();
+            core.close();
+        } catch (IOException e) {
+            // 忽略
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.openvpn;
+
+import com.example.openvpn.models.Profile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// 按缩短的参数探测本机回显替身：每个尺寸最多等 50ms，重试 2 次
+public class MtuDiscoveryTest {
+    private static final int TIMEOUT_MS = 50;
+    // 与 MtuDiscovery 的二分精度一致
+    private static final int STEP = 8;
+
+    private MtuStandIn server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MtuStandIn();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void fullPathIsProbedOnceAndLeavesProfileAlone() {
+        server.pathMtu = 1500;
+        MtuDiscovery discovery = discovery(server.port());
+        Profile profile = udpProfile();
+        assertEquals(1500, discovery.applyTo(profile, udpProfile(), "cellular:46000", 0, true));
+        assertEquals(1, discovery.getProbesSent());
+        assertEquals(0, profile.mMssFix);
+        assertEquals(0, profile.mTunMtu);
+    }
+
+    @Test
+    public void reducedPathsAreFoundWithinOneStep() {
+        for (int pathMtu : new int[]{1492, 1400, 1280, 1000, 576}) {
+            server.pathMtu = pathMtu;
+            MtuDiscovery discovery = discovery(server.port());
+            Profile profile = udpProfile();
+            int mtu = discovery.applyTo(profile, udpProfile(), "cellular:46000", 0, true);
+            assertTrue("路径MTU " + pathMtu + " 的探测结果 " + mtu, mtu <= pathMtu && mtu > pathMtu - STEP);
+            // mssfix 为路径 MTU 减去 IP/UDP 头，tun-mtu 更小
+            assertEquals(mtu - MtuStandIn.HEADER, profile.mMssFix);
+            assertTrue("tun-mtu " + profile.mTunMtu, profile.mTunMtu < profile.mMssFix);
+        }
+    }
+
+    // 同一网络再次连接直接用缓存，换了网络才重新探测
+    @Test
+    public void sameNetworkHitsCache() {
+        server.pathMtu = 1400;
+        MtuDiscovery discovery = discovery(server.port());
+        Profile original = udpProfile();
+        Profile profile = udpProfile();
+        int mtu = discovery.applyTo(profile, original, "cellular:46000", 0, true);
+        long probes = discovery.getProbesSent();
+
+        Profile again = udpProfile();
+        assertEquals(mtu, discovery.applyTo(again, original, "cellular:46000", 60_000, true));
+        assertEquals(probes, discovery.getProbesSent());
+        assertEquals(1, discovery.getCacheHits());
+        assertEquals(profile.mMssFix, again.mMssFix);
+        // 未探测过的网络只查缓存时不应用
+        assertEquals(-1, discovery.applyTo(udpProfile(), original, "cellular:46001", 60_000, false));
+    }
+
+    // 回显服务不可达：不缓存、不改动配置
+    @Test
+    public void unreachableTargetChangesNothing() throws Exception {
+        int port;
+        try (DatagramSocket closed = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            port = closed.getLocalPort();
+        }
+        MtuDiscovery discovery = discovery(port);
+        Profile profile = udpProfile();
+        assertEquals(-1, discovery.applyTo(profile, udpProfile(), "wifi:\"x\"", 0, true));
+        assertEquals(0, profile.mMssFix);
+        assertEquals(0, discovery.getCacheSize());
+    }
+
+    @Test
+    public void tcpProfileIsNotProbed() {
+        MtuDiscovery discovery = discovery(server.port());
+        Profile profile = Profile.parseVpnProfile("remote vpn.example.com 443 tcp\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals(-1, discovery.applyTo(profile, profile, "wifi:\"x\"", 0, true));
+        assertEquals(0, discovery.getProbesSent());
+    }
+
+    private static MtuDiscovery discovery(int port) {
+        MtuDiscovery discovery = new MtuDiscovery(TIMEOUT_MS, 2, 3000);
+        discovery.setTarget("127.0.0.1", port);
+        return discovery;
+    }
+
+    private static Profile udpProfile() {
+        return Profile.parseVpnProfile("remote vpn.example.com 1194 udp\n".getBytes(StandardCharsets.UTF_8));
+    }
+}
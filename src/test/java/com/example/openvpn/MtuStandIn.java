@@ -0,0 +1,43 @@
+package com.example.openvpn;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+
+// 本机 UDP 回显替身：IP/UDP 头加载荷超过 pathMtu 的包直接丢弃（相当于路径上设置了 DF 的大包被丢弃），其余原样返回
+// MtuDiscovery 的单元测试和基准测试共用
+public final class MtuStandIn implements AutoCloseable {
+    public static final int HEADER = 28;
+
+    private final DatagramSocket socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+    public volatile int pathMtu = 1500;
+
+    public MtuStandIn() throws Exception {
+        Thread thread = new Thread(() -> {
+            byte[] buffer = new byte[2048];
+            while (!socket.isClosed()) {
+                try {
+                    DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                    socket.receive(packet);
+                    if (packet.getLength() + HEADER > pathMtu) {
+                        continue;
+                    }
+                    socket.send(packet);
+                } catch (Exception e) {
+                    return;
+                }
+            }
+        }, "mtu-stand-in");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public int port() {
+        return socket.getLocalPort();
+    }
+
+    @Override
+    public void close() {
+        socket.close();
+    }
+}
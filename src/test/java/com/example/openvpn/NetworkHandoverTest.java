@@ -0,0 +1,49 @@
+package com.example.openvpn;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// 各场景回放多次（重连引擎的退避带随机抖动），比较每次切换期间隧道实际不通的平均时长
+public class NetworkHandoverTest {
+    private static final int RUNS = 200;
+    private static final long HANDSHAKE_MS = HandoverSimulation.HANDSHAKE_MS;
+
+    @Test
+    public void joiningWifiInterruptsOneHandshake() {
+        assertEquals(HANDSHAKE_MS, outage("wifiJoin", true));
+        // 原来还要加上退避
+        assertTrue(outage("wifiJoin", false) >= HANDSHAKE_MS + 250);
+    }
+
+    @Test
+    public void leavingWifiInterruptsOneHandshake() {
+        assertEquals(HANDSHAKE_MS, outage("wifiLeave", true));
+        assertTrue(outage("wifiLeave", false) >= HANDSHAKE_MS + 250);
+    }
+
+    // Wi-Fi 失去验证后稳定期结束即切换，不再等到 Wi-Fi 彻底断开
+    @Test
+    public void degradedWifiIsLeftAfterSettlePeriod() {
+        assertEquals(1_500 + HANDSHAKE_MS, outage("wifiDegrade", true));
+        assertTrue(outage("wifiDegrade", false) > 5_000);
+    }
+
+    @Test
+    public void flappingWifiDoesNotTriggerHandover() {
+        for (int i = 0; i < RUNS; i++) {
+            HandoverSimulation simulation = new HandoverSimulation(true);
+            assertEquals(0, simulation.run("flapping"));
+            assertEquals(0, simulation.handovers);
+        }
+    }
+
+    private static long outage(String scenario, boolean handover) {
+        long total = 0;
+        for (int i = 0; i < RUNS; i++) {
+            total += new HandoverSimulation(handover).run(scenario);
+        }
+        return total / RUNS;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.openvpn;
+
+import com.example.openvpn.core.VpnStatus;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+// 读不到 tun 计数时，统计改用 core 上报的本次连接字节数，而不是整机总流量
+public class NetworkStatsMonitorTest {
+    private NetworkStatsMonitor monitor;
+
+    @Before
+    public void setUp() {
+        VpnStatus.reset();
+        monitor = new NetworkStatsMonitor(null, new TunTrafficReader("/nonexistent", "tun"));
+    }
+
+    @After
+    public void tearDown() {
+        monitor.stopTracking();
+        VpnStatus.reset();
+    }
+
+    @Test
+    public void fallsBackToCoreByteCounts() {
+        monitor.startTracking();
+        VpnStatus.updateByteCount(1000, 200);
+        VpnStatus.updateByteCount(4000, 700);
+
+        NetworkStatsMonitor.NetworkStats stats = monitor.getVPNNetworkStats();
+        // 注册时回放的上一次计数（连接开始时为0）作为基线
+        assertEquals(4000, stats.bytesReceived);
+        assertEquals(700, stats.bytesSent);
+    }
+
+    @Test
+    public void earlierCoreCountsAreBaseline() {
+        VpnStatus.updateByteCount(50000, 9000);
+        monitor.startTracking();
+        VpnStatus.updateByteCount(50100, 9050);
+
+        NetworkStatsMonitor.NetworkStats stats = monitor.getVPNNetworkStats();
+        assertEquals(100, stats.bytesReceived);
+        assertEquals(50, stats.bytesSent);
+    }
+
+    @Test
+    public void coreCounterResetCountsNewValue() {
+        monitor.startTracking();
+        VpnStatus.updateByteCount(1000, 100);
+        VpnStatus.updateByteCount(3000, 300);
+        // 重连后 core 从0重新计数
+        VpnStatus.updateByteCount(400, 40);
+
+        NetworkStatsMonitor.NetworkStats stats = monitor.getVPNNetworkStats();
+        assertEquals(3400, stats.bytesReceived);
+        assertEquals(340, stats.bytesSent);
+    }
+
+    @Test
+    public void stopTrackingDetachesListener() {
+        monitor.startTracking();
+        VpnStatus.updateByteCount(1000, 100);
+        monitor.stopTracking();
+        VpnStatus.updateByteCount(9000, 900);
+
+        monitor.startTracking();
+        VpnStatus.updateByteCount(9500, 950);
+        NetworkStatsMonitor.NetworkStats stats = monitor.getVPNNetworkStats();
+        assertEquals(500, stats.bytesReceived);
+        assertEquals(50, stats.bytesSent);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.openvpn;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OvpnConfigReaderTest {
+    private static final String PEM = "-----BEGIN CERTIFICATE-----\nMIIB\n-----END CERTIFICATE-----\n";
+    private static final String CONFIG = "client\n"
+            + "dev tun\n"
+            + "# 注释行\n"
+            + "; 另一种注释\n"
+            + "\n"
+            + "remote vpn.example.com 1194 udp\n"
+            + "<ca>\n" + PEM + "</ca>\n"
+            + "<cert>\n" + PEM + "</cert>\n"
+            + "cipher AES-256-GCM\n";
+
+    @Test
+    public void readsDirectivesAndInlineBlocks() throws ConfigParseException {
+        OvpnConfigReader reader = new OvpnConfigReader(CONFIG);
+        StringBuilder names = new StringBuilder();
+        int inline = 0;
+        while (reader.next()) {
+            names.append(reader.name()).append(' ');
+            if (reader.isInline()) {
+                inline++;
+                assertTrue(reader.inlineContent().toString().startsWith("-----BEGIN"));
+            }
+        }
+        assertEquals("client dev remote ca cert cipher ", names.toString());
+        assertEquals(2, inline);
+    }
+
+    @Test
+    public void reportsArgumentsAndLines() throws ConfigParseException {
+        OvpnConfigReader reader = new OvpnConfigReader(CONFIG);
+        while (reader.next() && !reader.name().toString().equals("remote")) {
+            // 跳到 remote
+        }
+        assertEquals(6, reader.line());
+        assertEquals(3, reader.argCount());
+        assertEquals("vpn.example.com", reader.arg(0).toString());
+        assertEquals("udp", reader.arg(2).toString());
+    }
+
+    @Test
+    public void handlesQuotesAndTrailingComments() throws ConfigParseException {
+        OvpnConfigReader reader = new OvpnConfigReader("remote \"a b\" 1194 # 注释\r\n");
+        assertTrue(reader.next());
+        assertEquals(2, reader.argCount());
+        assertEquals("a b", reader.arg(0).toString());
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void validateReportsErrorLine() {
+        expectError("client\nremote a.example 70000\n", 2);
+        expectError("client\n\n<ca>\n-----BEGIN CERTIFICATE-----\n", 3);
+        expectError("<connection>\nremote b.example 1194\nproto sctp\n</connection>\n", 3);
+        expectError("client\n<cert>\nnot pem\n</cert>\n", 2);
+        expectError("setenv FOO \"bar\n", 1);
+        expectError("</ca>\n", 1);
+    }
+
+    @Test
+    public void validateAcceptsWellFormedConfig() throws ConfigParseException {
+        OvpnConfigReader.validate(CONFIG);
+    }
+
+    private static void expectError(String text, int line) {
+        try {
+            OvpnConfigReader.validate(text);
+        } catch (ConfigParseException e) {
+            assertEquals("出错行号: " + text, line, e.getLine());
+            return;
+        }
+        fail("未检测到错误: " + text);
+    }
+}
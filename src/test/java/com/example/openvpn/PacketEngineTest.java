@@ -0,0 +1,200 @@
+package com.example.openvpn;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+// 数据包引擎：两对回环 UDP socket 分别代替 tun 和核心，检查双向转发、处理器的放行/丢弃、计数、缓冲区归还和 stop
+public class PacketEngineTest {
+    private static final int POOL_SIZE = 8;
+    private static final long RECEIVE_TIMEOUT_MS = 5_000;
+
+    private PacketEngine engine;
+    private DatagramChannel app;
+    private DatagramChannel core;
+    private final ByteBuffer received = ByteBuffer.allocate(4096);
+
+    @Before
+    public void setUp() throws IOException {
+        engine = new PacketEngine(2048, POOL_SIZE);
+        engine.start(newIo());
+    }
+
+    // 每次新建一组 socket，重新 start 时也用这个
+    private LoopbackIo newIo() throws IOException {
+        DatagramChannel tunSide = LoopbackIo.open();
+        DatagramChannel coreSide = LoopbackIo.open();
+        app = LoopbackIo.open();
+        core = LoopbackIo.open();
+        LoopbackIo.connect(tunSide, app);
+        LoopbackIo.connect(coreSide, core);
+        app.configureBlocking(false);
+        core.configureBlocking(false);
+        return new LoopbackIo(tunSide, coreSide);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        engine.stop();
+        app.close();
+        core.close();
+    }
+
+    // 长度和内容都由序号决定
+    private static byte[] packet(int marker, int n) {
+        byte[] data = new byte[20 + n * 13 % 1400];
+        data[0] = (byte) marker;
+        for (int i = 1; i < data.length; i++) {
+            data[i] = (byte) (n * 31 + i);
+        }
+        return data;
+    }
+
+    @Test
+    public void forwardsBothWaysUnchanged() throws IOException {
+        // 包数远多于缓冲池，缓冲区必须在写出后归还才能继续转发
+        long outBytes = 0;
+        long inBytes = 0;
+        for (int n = 0; n < 200; n++) {
+            byte[] sent = packet(0, n);
+            app.write(ByteBuffer.wrap(sent));
+            assertArrayEquals(sent, receive(core));
+            outBytes += sent.length;
+
+            byte[] reply = packet(2, n + 1000);
+            core.write(ByteBuffer.wrap(reply));
+            assertArrayEquals(reply, receive(app));
+            inBytes += reply.length;
+        }
+        assertEquals(200, engine.getPackets(PacketEngine.OUTBOUND));
+        assertEquals(200, engine.getPackets(PacketEngine.INBOUND));
+        assertEquals(outBytes, engine.getBytes(PacketEngine.OUTBOUND));
+        assertEquals(inBytes, engine.getBytes(PacketEngine.INBOUND));
+        assertEquals(0, engine.getDrops(PacketEngine.OUTBOUND));
+        assertEquals(0, engine.getDrops(PacketEngine.INBOUND));
+    }
+
+    @Test
+    public void handlerVerdicts() throws IOException {
+        AtomicIntegerArray seen = new AtomicIntegerArray(2);
+        // 出站首字节为 1 的包丢弃；入站的包截掉最后 10 字节后放行
+        engine.addHandler((direction, packet) -> {
+            if (direction == PacketEngine.OUTBOUND && packet.get(0) == 1) {
+                return PacketEngine.DROP;
+            }
+            if (direction == PacketEngine.INBOUND) {
+                packet.limit(packet.limit() - 10);
+            }
+            return PacketEngine.PASS;
+        });
+        // 排在后面的处理器看不到已丢弃的包；抛异常视为放行
+        engine.addHandler((direction, packet) -> {
+            seen.incrementAndGet(direction);
+            throw new IllegalStateException("handler failure");
+        });
+
+        for (int n = 0; n < 10; n++) {
+            app.write(ByteBuffer.wrap(packet(n % 2, n)));
+        }
+        for (int n = 0; n < 10; n += 2) {
+            assertArrayEquals(packet(0, n), receive(core));
+        }
+        byte[] reply = packet(2, 7);
+        core.write(ByteBuffer.wrap(reply));
+        assertArrayEquals(Arrays.copyOf(reply, reply.length - 10), receive(app));
+
+        assertEquals(10, engine.getPackets(PacketEngine.OUTBOUND));
+        assertEquals(5, engine.getDrops(PacketEngine.OUTBOUND));
+        assertEquals(1, engine.getPackets(PacketEngine.INBOUND));
+        assertEquals(0, engine.getDrops(PacketEngine.INBOUND));
+        assertEquals(5, seen.get(PacketEngine.OUTBOUND));
+        assertEquals(1, seen.get(PacketEngine.INBOUND));
+        // 丢弃的包没有写到核心
+        assertEquals(0, poll(core));
+    }
+
+    @Test
+    public void injectedPacketsAreWritten() throws IOException {
+        byte[] answer = packet(3, 5);
+        assertTrue(engine.inject(PacketEngine.INBOUND, ByteBuffer.wrap(answer)));
+        assertArrayEquals(answer, receive(app));
+        assertEquals(1, engine.getInjections());
+        // 注入的包不经过处理链，也不计入读取的包数
+        assertEquals(0, engine.getPackets(PacketEngine.INBOUND));
+        assertFalse(engine.inject(PacketEngine.INBOUND, ByteBuffer.allocate(4096)));
+    }
+
+    @Test
+    public void stopJoinsIoThreadAndReturnsBuffers() throws IOException {
+        for (int n = 0; n < 50; n++) {
+            app.write(ByteBuffer.wrap(packet(0, n)));
+        }
+        for (int n = 0; n < 50; n++) {
+            receive(core);
+        }
+        assertTrue(engine.isRunning());
+
+        engine.stop();
+        assertFalse(engine.isRunning());
+        // stop 返回时 I/O 线程已经退出，缓冲区全部回到池中
+        assertFalse(ioThreadAlive());
+        assertEquals(POOL_SIZE, engine.getFreeBuffers());
+        assertFalse(engine.inject(PacketEngine.INBOUND, ByteBuffer.wrap(packet(3, 1))));
+        // 重复 stop 无副作用
+        engine.stop();
+
+        // 重新 start 后用新的读写端继续转发
+        app.close();
+        core.close();
+        engine.start(newIo());
+        byte[] sent = packet(0, 99);
+        app.write(ByteBuffer.wrap(sent));
+        assertArrayEquals(sent, receive(core));
+        assertEquals(51, engine.getPackets(PacketEngine.OUTBOUND));
+        engine.stop();
+        assertFalse(ioThreadAlive());
+        assertEquals(POOL_SIZE, engine.getFreeBuffers());
+    }
+
+    private static boolean ioThreadAlive() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if ("vpn-packet-io".equals(thread.getName()) && thread.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 等待一个包，超时则失败
+    private byte[] receive(DatagramChannel channel) throws IOException {
+        long deadline = System.currentTimeMillis() + RECEIVE_TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            int n = poll(channel);
+            if (n > 0) {
+                return Arrays.copyOf(received.array(), n);
+            }
+            Thread.yield();
+        }
+        fail("没有收到包");
+        return null;
+    }
+
+    // 非阻塞读一个包，没有数据返回0
+    private int poll(DatagramChannel channel) throws IOException {
+        received.clear();
+        channel.read(received);
+        return received.position();
+    }
+}
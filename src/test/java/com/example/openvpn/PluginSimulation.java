@@ -0,0 +1,774 @@
+package com.example.openvpn;
+
+import android.app.NotificationManager;
+import android.app.Service;
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.LinkAddress;
+import android.net.LinkProperties;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+
+import com.example.openvpn.core.OpenVPNService;
+import com.example.openvpn.core.VpnStatus;
+import com.example.openvpn.models.Profile;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import io.dcloud.feature.uniapp.bridge.UniJSCallback;
+
+// 插件的确定性模拟：主线程、命令线程和统计线程都跑在同一个虚拟时钟的 Looper 上，
+// 用替身 ConnectivityManager、VpnStatus、PowerManager 和一个假的 core 驱动完整的 OpenVPNPlugin
+// 按种子生成事件序列（用户连接/断开、Wi-Fi/蜂窝上下线和验证、隧道中断、流量、亮灭屏），同一种子的回放结果完全相同
+// 统计回调次数、重复的状态上报、通知发布、唤醒锁持有时长、新建线程和断线恢复耗时
+public final class PluginSimulation {
+    public static final String CONFIG = "client\ndev tun\nproto udp\nremote vpn.example.com 1194\n";
+
+    // 事件之间的虚拟间隔上限
+    static final long MAX_GAP_MS = 20_000;
+    // 序列结束后断开并等待的时长，之后检查资源是否都已释放
+    static final long SETTLE_MS = 120_000;
+    // 有可用网络后中断应在这个期限内恢复：最长的重连退避加一次连接超时
+    static final long RECOVERY_DEADLINE_MS = ReconnectEngine.MAX_DELAY_MS + ReconnectEngine.ATTEMPT_TIMEOUT_MS;
+
+    // 假 core 的时序：上报 CONNECTING 的延迟、握手耗时范围、无网络时的握手超时、网络丢失后的检测时间、停止耗时
+    static final long CORE_STARTING_MS = 5;
+    static final long HANDSHAKE_MIN_MS = 200;
+    static final long HANDSHAKE_MAX_MS = 900;
+    static final long HANDSHAKE_TIMEOUT_MS = 5_000;
+    static final long PING_TIMEOUT_MS = 3_000;
+    static final long CORE_STOP_MS = 20;
+
+    private enum Action {
+        WARM_UP(1), CONNECT(4), DISCONNECT(2), WIFI_UP(4), WIFI_VALIDATED(3), WIFI_LOST(4), CELL_UP(2), CELL_LOST(2),
+        TUNNEL_DROP(3), TUNNEL_ERROR(2), TRAFFIC(6), SCREEN(2), IDLE(4);
+
+        final int weight;
+
+        Action(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private static final Action[] ACTIONS = Action.values();
+    private static final int TOTAL_WEIGHT;
+
+    static {
+        int total = 0;
+        for (Action action : ACTIONS) {
+            total += action.weight;
+        }
+        TOTAL_WEIGHT = total;
+    }
+
+    // 多个序列的汇总结果
+    public static final class Report {
+        public long sequences;
+        public long events;
+        public long virtualMs;
+        // 插件发出的所有 JS 回调（命令结果、状态回调、订阅批次）
+        public long callbacks;
+        // 按顺序订阅收到的状态事件，以及与上一条状态和错误信息都相同的重复上报
+        public long statusEvents;
+        public long duplicateStatus;
+        // 前台通知的发布次数（进入前台 + 更新）
+        public long notifications;
+        public long wakeLockAcquires;
+        public long wakeLockMs;
+        // 用户未要求连接期间仍持有唤醒锁的时长，以及结束时未释放的唤醒锁/前台服务
+        public long idleWakeLockMs;
+        public long leakedWakeLocks;
+        public long leakedForeground;
+        // core 的启动次数和统计调度的唤醒次数
+        public long coreStarts;
+        public long statsWakeups;
+        // 新建的线程数（由调用方在整批回放前后统计）
+        public long threads;
+        // 恢复耗时：从隧道中断且有可用网络起，到 core 重新 CONNECTED
+        public final LatencyHistogram recovery = new LatencyHistogram();
+        // 序列结束时有可用网络已超过 RECOVERY_DEADLINE_MS 仍未恢复的中断；还在期限内的不计入
+        public long unrecovered;
+
+        @Override
+        public String toString() {
+            return sequences + " 个序列 / " + events + " 个事件 / 虚拟 " + virtualMs / 3_600_000 + " 小时\n"
+                    + "  回调 " + callbacks + "，状态事件 " + statusEvents + "，重复状态 " + duplicateStatus + "\n"
+                    + "  通知 " + notifications + "，core 启动 " + coreStarts + "，统计唤醒 " + statsWakeups + "\n"
+                    + "  唤醒锁获取 " + wakeLockAcquires + "，持有 " + wakeLockMs / 1000 + "s（未连接期间 "
+                    + idleWakeLockMs / 1000 + "s），结束时未释放 " + leakedWakeLocks + "，前台未退出 " + leakedForeground + "\n"
+                    + "  新建线程 " + threads + "\n"
+                    + "  恢复 " + recovery.getCount() + " 次：p50 " + recovery.percentile(50) + "ms，p90 "
+                    + recovery.percentile(90) + "ms，p99 " + recovery.percentile(99) + "ms，最长 " + recovery.getMax()
+                    + "ms；未恢复 " + unrecovered;
+        }
+    }
+
+    // 回放 count 个随机序列（种子 firstSeed 起连续编号），每个序列 events 个事件
+    public static Report replay(long firstSeed, int count, int events, File filesDir) {
+        Report report = new Report();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long startedBefore = threads.getTotalStartedThreadCount();
+        for (int i = 0; i < count; i++) {
+            new PluginSimulation(firstSeed + i, filesDir, report).run(events);
+        }
+        report.threads = threads.getTotalStartedThreadCount() - startedBefore;
+        return report;
+    }
+
+    private final Random random;
+    private final long seed;
+    private final File filesDir;
+    private final Report report;
+
+    private Looper looper;
+    private Handler handler;
+    private Context context;
+    private ConnectivityManager connectivity;
+    private PowerManager power;
+    private NotificationManager notifications;
+    private VirtualTimeExecutor executor;
+    private OpenVPNPlugin plugin;
+    private final FakeCore core = new FakeCore();
+    private final List<Service> services = new ArrayList<>();
+    private final UniJSCallback ignore;
+
+    private Network wifi;
+    private Network cell;
+    private int nextNetId = 100;
+    private boolean wantConnected;
+    private String lastStatus;
+    // 当前中断的起点，-1 表示没有中断
+    private long outageSince = -1;
+
+    private PluginSimulation(long seed, File filesDir, Report report) {
+        this.seed = seed;
+        this.random = new Random(seed);
+        this.filesDir = filesDir;
+        this.report = report;
+        this.ignore = data -> report.callbacks++;
+    }
+
+    // 按脚本使用：建立环境并初始化插件（已有一个验证通过的蜂窝网络），用完后调用 close
+    public static PluginSimulation open(long seed, File filesDir) {
+        PluginSimulation simulation = new PluginSimulation(seed, filesDir, new Report());
+        simulation.begin();
+        return simulation;
+    }
+
+    public OpenVPNPlugin getPlugin() {
+        return plugin;
+    }
+
+    public long now() {
+        return looper.now();
+    }
+
+    public Context getContext() {
+        return context;
+    }
+
+    // 已连接时由假 core 上报本次连接新增的流量
+    public void traffic(long in, long out) {
+        core.traffic(in, out);
+    }
+
+    // 最近一次交给 core 的 profile
+    public Profile getStartedProfile() {
+        return core.profile;
+    }
+
+    // 断开、检查资源并销毁插件
+    public Report close() {
+        try {
+            tearDown();
+        } finally {
+            end();
+        }
+        return report;
+    }
+
+    private void run(int events) {
+        begin();
+        try {
+            for (int i = 0; i < events; i++) {
+                apply(pick());
+                advance(1 + (long) (random.nextDouble() * random.nextDouble() * MAX_GAP_MS));
+            }
+            tearDown();
+            report.sequences++;
+            report.events += events;
+            report.virtualMs += looper.now();
+        } finally {
+            end();
+        }
+    }
+
+    private void begin() {
+        looper = Looper.prepareMainLooper();
+        handler = new Handler(looper);
+        SystemClock.useVirtualClock(looper);
+        VpnStatus.reset();
+        OpenVPNService.setBackend(core);
+        setUp();
+    }
+
+    private void end() {
+        OpenVPNService.setBackend(null);
+        SystemClock.useVirtualClock(null);
+        new File(filesDir, "usage.journal").delete();
+    }
+
+    private void setUp() {
+        context = new Context();
+        context.setFilesDir(filesDir);
+        connectivity = new ConnectivityManager();
+        power = new PowerManager();
+        notifications = new NotificationManager();
+        context.putSystemService(Context.CONNECTIVITY_SERVICE, connectivity);
+        context.putSystemService(Context.POWER_SERVICE, power);
+        context.putSystemService(Context.NOTIFICATION_SERVICE, notifications);
+
+        executor = new VirtualTimeExecutor(handler);
+        plugin = new OpenVPNPlugin(executor, executor, new Random(seed));
+        plugin.attachContext(context);
+        plugin.init(ignore);
+        plugin.setStatusCallback(ignore);
+        // 按顺序接收全部状态事件，用来发现重复上报
+        plugin.subscribe("status", "status,error", 0, EventStream.POLICY_DROP_OLDEST, this::onStatusBatch);
+        cell = addNetwork(NetworkCapabilities.TRANSPORT_CELLULAR, true);
+        advance(1_000);
+    }
+
+    private void tearDown() {
+        endOutage();
+        wantConnected = false;
+        plugin.disconnect(ignore);
+        advance(SETTLE_MS);
+        for (PowerManager.WakeLock wakeLock : power.getWakeLocks()) {
+            report.wakeLockMs += wakeLock.getHeldTimeMs();
+            report.wakeLockAcquires += wakeLock.getAcquires();
+            if (wakeLock.isHeld()) {
+                report.leakedWakeLocks++;
+            }
+        }
+        for (Service service : services) {
+            report.notifications += service.getForegroundStarts();
+            if (service.isForeground()) {
+                report.leakedForeground++;
+            }
+        }
+        report.notifications += notifications.getNotifyCount();
+        report.statsWakeups += executor.scheduled;
+        plugin.onDestroy();
+        advance(1_000);
+    }
+
+    private Action pick() {
+        int r = random.nextInt(TOTAL_WEIGHT);
+        for (Action action : ACTIONS) {
+            r -= action.weight;
+            if (r < 0) {
+                return action;
+            }
+        }
+        return Action.IDLE;
+    }
+
+    private void apply(Action action) {
+        switch (action) {
+            case WARM_UP:
+                plugin.warmUp(CONFIG, ignore);
+                break;
+            case CONNECT:
+                wantConnected = true;
+                plugin.connect("user", "secret", CONFIG, ignore);
+                break;
+            case DISCONNECT:
+                wantConnected = false;
+                discardOutage();
+                plugin.disconnect(ignore);
+                break;
+            case WIFI_UP:
+                if (wifi == null) {
+                    // 新连上的 Wi-Fi 先不带 VALIDATED，验证通过由 WIFI_VALIDATED 或 1-3 秒后自动完成
+                    wifi = addNetwork(NetworkCapabilities.TRANSPORT_WIFI, false);
+                    Network network = wifi;
+                    handler.postDelayed(() -> validate(network), 1_000 + random.nextInt(2_000));
+                }
+                break;
+            case WIFI_VALIDATED:
+                if (wifi != null) {
+                    validate(wifi);
+                }
+                break;
+            case WIFI_LOST:
+                if (wifi != null) {
+                    connectivity.removeNetwork(wifi);
+                    wifi = null;
+                    core.onNetworkLost();
+                }
+                break;
+            case CELL_UP:
+                if (cell == null) {
+                    cell = addNetwork(NetworkCapabilities.TRANSPORT_CELLULAR, true);
+                    onNetworkUsable();
+                }
+                break;
+            case CELL_LOST:
+                if (cell != null) {
+                    connectivity.removeNetwork(cell);
+                    cell = null;
+                    core.onNetworkLost();
+                }
+                break;
+            case TUNNEL_DROP:
+                core.drop();
+                break;
+            case TUNNEL_ERROR:
+                core.fail();
+                break;
+            case TRAFFIC:
+                long bytes = 4_096 + random.nextInt(512 * 1024);
+                core.traffic(bytes, bytes / 8);
+                break;
+            case SCREEN:
+                power.setInteractive(!power.isInteractive());
+                break;
+            case IDLE:
+                break;
+        }
+    }
+
+    private Network addNetwork(int transport, boolean validated) {
+        Network network = new Network(nextNetId++);
+        NetworkCapabilities caps = new NetworkCapabilities()
+                .addTransportType(transport)
+                .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                .addCapability(NetworkCapabilities.NET_CAPABILITY_NOT_VPN);
+        if (transport == NetworkCapabilities.TRANSPORT_WIFI) {
+            caps.addCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+        }
+        if (validated) {
+            caps.addCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+        }
+        connectivity.addNetwork(network, caps, new LinkProperties().addLinkAddress(new LinkAddress("10.0.0.2/24")));
+        return network;
+    }
+
+    private void validate(Network network) {
+        NetworkCapabilities caps = connectivity.getNetworkCapabilities(network);
+        if (caps == null || caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED)) {
+            return;
+        }
+        connectivity.updateCapabilities(network, caps.addCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED));
+        onNetworkUsable();
+    }
+
+    private boolean hasUsableNetwork() {
+        return isUsable(wifi) || isUsable(cell);
+    }
+
+    private boolean isUsable(Network network) {
+        if (network == null) {
+            return false;
+        }
+        NetworkCapabilities caps = connectivity.getNetworkCapabilities(network);
+        return caps != null && caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+    }
+
+    // 中断期间网络恢复可用：恢复耗时从这里开始计算（此前没有网络，无法恢复）
+    private void onNetworkUsable() {
+        if (outageSince >= 0 && !core.connected) {
+            outageSince = Math.max(outageSince, looper.now());
+        }
+    }
+
+    private void openOutage() {
+        if (wantConnected && outageSince < 0) {
+            outageSince = looper.now();
+        }
+    }
+
+    // core 重新 CONNECTED，记入恢复耗时
+    private void closeOutage() {
+        if (outageSince >= 0) {
+            report.recovery.record(looper.now() - outageSince);
+            outageSince = -1;
+        }
+    }
+
+    // 用户断开后不再需要恢复，不计入统计
+    private void discardOutage() {
+        outageSince = -1;
+    }
+
+    // 序列结束时仍未恢复的中断：还在恢复期限内的可能只是来不及恢复，不计入；超过期限的记为未恢复
+    private void endOutage() {
+        if (outageSince >= 0 && looper.now() - outageSince > RECOVERY_DEADLINE_MS) {
+            report.unrecovered++;
+        }
+        outageSince = -1;
+    }
+
+    // 推进虚拟时间并执行到期的任务；区间内用户意图不变，据此归类唤醒锁持有时长
+    public void advance(long millis) {
+        long heldBefore = heldMs();
+        boolean idle = !wantConnected;
+        looper.advanceBy(millis);
+        if (idle) {
+            report.idleWakeLockMs += heldMs() - heldBefore;
+        }
+        // 没有可用网络时恢复无从开始，起点随时间后移
+        if (outageSince >= 0 && !hasUsableNetwork()) {
+            outageSince = looper.now();
+        }
+    }
+
+    private long heldMs() {
+        long total = 0;
+        for (PowerManager.WakeLock wakeLock : power.getWakeLocks()) {
+            total += wakeLock.getHeldTimeMs();
+        }
+        return total;
+    }
+
+    private void onStatusBatch(Object data) {
+        report.callbacks++;
+        JSONArray events = ((JSONObject) data).optJSONArray("events");
+        if (events == null) {
+            return;
+        }
+        for (int i = 0; i < events.length(); i++) {
+            JSONObject event = events.optJSONObject(i);
+            String status = event.optString("status") + "/" + event.optString("error");
+            report.statusEvents++;
+            if (status.equals(lastStatus)) {
+                report.duplicateStatus++;
+            }
+            lastStatus = status;
+        }
+    }
+
+    // 假的 OpenVPN core：startVPN 后上报 CONNECTING，握手时有验证通过的网络则 CONNECTED，否则超时后 ERROR；
+    // 隧道所在网络全部丢失后经过 ping 超时转入 RECONNECTING 并重新握手；stopVPN 后上报 DISCONNECTED
+    // 状态都在主 Looper 上异步上报，每次启动/停止换一个会话号，旧会话的事件作废
+    private final class FakeCore implements OpenVPNService.Backend {
+        int session;
+        boolean running;
+        boolean connected;
+        Profile profile;
+        // 本次连接的累计字节数，和 core 一样通过 VpnStatus 上报
+        long bytesIn;
+        long bytesOut;
+
+        @Override
+        public void start(OpenVPNService service, Profile profile) {
+            if (!services.contains(service)) {
+                services.add(service);
+            }
+            report.coreStarts++;
+            this.profile = profile;
+            if (connected) {
+                openOutage();
+            }
+            int current = ++session;
+            running = true;
+            connected = false;
+            bytesIn = 0;
+            bytesOut = 0;
+            handler.postDelayed(() -> {
+                if (current == session) {
+                    VpnStatus.updateStateString("CONNECTING", "");
+                    handshake(current, looper.now());
+                }
+            }, CORE_STARTING_MS);
+        }
+
+        @Override
+        public void stop(OpenVPNService service) {
+            int current = ++session;
+            boolean wasRunning = running;
+            running = false;
+            connected = false;
+            if (wasRunning) {
+                handler.postDelayed(() -> {
+                    if (current == session) {
+                        VpnStatus.updateStateString("DISCONNECTED", "");
+                    }
+                }, CORE_STOP_MS);
+            }
+        }
+
+        private void handshake(int current, long startedAt) {
+            handler.postDelayed(() -> {
+                if (current != session) {
+                    return;
+                }
+                if (hasUsableNetwork()) {
+                    connected = true;
+                    closeOutage();
+                    VpnStatus.updateStateString("CONNECTED", "");
+                } else if (looper.now() - startedAt >= HANDSHAKE_TIMEOUT_MS) {
+                    running = false;
+                    session++;
+                    openOutage();
+                    VpnStatus.updateStateString("ERROR", "连接超时");
+                } else {
+                    handshake(current, startedAt);
+                }
+            }, HANDSHAKE_MIN_MS + random.nextInt((int) (HANDSHAKE_MAX_MS - HANDSHAKE_MIN_MS)));
+        }
+
+        void traffic(long in, long out) {
+            if (!connected) {
+                return;
+            }
+            bytesIn += in;
+            bytesOut += out;
+            VpnStatus.updateByteCount(bytesIn, bytesOut);
+        }
+
+        // 链路中断（如服务器重启）：core 自己转入 RECONNECTING 并重新握手
+        void drop() {
+            if (!connected) {
+                return;
+            }
+            connected = false;
+            openOutage();
+            int current = session;
+            VpnStatus.updateStateString("RECONNECTING", "ping-restart");
+            handshake(current, looper.now());
+        }
+
+        // 不可恢复的错误（如认证失败）：core 停止，由插件负责重连
+        void fail() {
+            if (!running) {
+                return;
+            }
+            running = false;
+            connected = false;
+            session++;
+            openOutage();
+            VpnStatus.updateStateString("ERROR", "服务器断开连接");
+        }
+
+        // 已没有可用网络时，ping 超时后转入重连
+        void onNetworkLost() {
+            if (!connected || hasUsableNetwork()) {
+                return;
+            }
+            int current = session;
+            handler.postDelayed(() -> {
+                if (current == session && connected && !hasUsableNetwork()) {
+                    drop();
+                }
+            }, PING_TIMEOUT_MS);
+        }
+    }
+
+    // 在 Looper 上按虚拟时间执行的 executor，同时作为插件的命令线程和统计调度线程
+    static final class VirtualTimeExecutor extends AbstractExecutorService implements ScheduledExecutorService {
+        private final Handler handler;
+        private volatile boolean shutdown;
+        // 定时任务数，即统计调度的唤醒次数
+        long scheduled;
+
+        VirtualTimeExecutor(Handler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (shutdown) {
+                throw new RejectedExecutionException("executor 已关闭");
+            }
+            handler.post(command);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            return schedule(Executors.callable(command), delay, unit);
+        }
+
+        @Override
+        public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+            return post(new VirtualFuture<>(callable, handler.now() + unit.toMillis(delay), 0));
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+            if (period <= 0) {
+                throw new IllegalArgumentException("period 必须大于0");
+            }
+            return post(new VirtualFuture<>(Executors.callable(command), handler.now() + unit.toMillis(initialDelay),
+                    unit.toMillis(period)));
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay,
+                                                         TimeUnit unit) {
+            if (delay <= 0) {
+                throw new IllegalArgumentException("delay 必须大于0");
+            }
+            return post(new VirtualFuture<>(Executors.callable(command), handler.now() + unit.toMillis(initialDelay),
+                    -unit.toMillis(delay)));
+        }
+
+        // 每次排进 Looper 都算一次唤醒（周期任务每次执行前重新排入）
+        private <V> VirtualFuture<V> post(VirtualFuture<V> future) {
+            if (shutdown) {
+                throw new RejectedExecutionException("executor 已关闭");
+            }
+            scheduled++;
+            handler.postDelayed(future, Math.max(0, future.when - handler.now()));
+            return future;
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+
+        // period > 0 为固定频率，< 0 为固定间隔，0 为只执行一次；任务抛出异常后不再重复
+        // 虚拟时钟和任务在同一个线程上，get 不能等待，未完成时直接报错
+        private final class VirtualFuture<V> implements ScheduledFuture<V>, Runnable {
+            private final Callable<V> task;
+            private final long period;
+            private long when;
+            private boolean done;
+            private boolean cancelled;
+            private V result;
+            private Throwable failure;
+
+            VirtualFuture(Callable<V> task, long when, long period) {
+                this.task = task;
+                this.when = when;
+                this.period = period;
+            }
+
+            @Override
+            public void run() {
+                if (done) {
+                    return;
+                }
+                try {
+                    V value = task.call();
+                    if (period == 0) {
+                        result = value;
+                        done = true;
+                        return;
+                    }
+                } catch (Throwable t) {
+                    failure = t;
+                    done = true;
+                    return;
+                }
+                // 任务在执行中取消了自己，或 executor 已关闭
+                if (done || shutdown) {
+                    done = true;
+                    return;
+                }
+                when = period > 0 ? when + period : handler.now() - period;
+                post(this);
+            }
+
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                if (done) {
+                    return false;
+                }
+                done = true;
+                cancelled = true;
+                handler.removeCallbacks(this);
+                return true;
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return cancelled;
+            }
+
+            @Override
+            public boolean isDone() {
+                return done;
+            }
+
+            @Override
+            public V get() throws ExecutionException {
+                if (cancelled) {
+                    throw new CancellationException();
+                }
+                if (!done) {
+                    throw new IllegalStateException("虚拟时钟上的任务尚未执行，不能阻塞等待");
+                }
+                if (failure != null) {
+                    throw new ExecutionException(failure);
+                }
+                return result;
+            }
+
+            @Override
+            public V get(long timeout, TimeUnit unit) throws ExecutionException, TimeoutException {
+                if (!done) {
+                    throw new TimeoutException();
+                }
+                return get();
+            }
+
+            @Override
+            public long getDelay(TimeUnit unit) {
+                return unit.convert(when - handler.now(), TimeUnit.MILLISECONDS);
+            }
+
+            @Override
+            public int compareTo(Delayed other) {
+                return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+            }
+        }
+    }
+}
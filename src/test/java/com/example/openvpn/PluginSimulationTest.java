@@ -0,0 +1,38 @@
+package com.example.openvpn;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// 在虚拟时钟上回放随机事件序列（连接/断开、网络上下线、隧道中断、流量、亮灭屏）
+public class PluginSimulationTest {
+    private static final int SEQUENCES = 2_000;
+    private static final int EVENTS = 40;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replayIsDeterministic() throws Exception {
+        String first = PluginSimulation.replay(1, 50, EVENTS, folder.newFolder()).toString();
+        String second = PluginSimulation.replay(1, 50, EVENTS, folder.newFolder()).toString();
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void randomSequencesKeepPluginInvariants() throws Exception {
+        PluginSimulation.Report report = PluginSimulation.replay(1, SEQUENCES, EVENTS, folder.newFolder());
+        assertEquals("重复的状态上报", 0, report.duplicateStatus);
+        assertEquals("断开后仍持有唤醒锁", 0, report.leakedWakeLocks);
+        assertEquals("断开后仍在前台", 0, report.leakedForeground);
+        assertEquals("新建了线程", 0, report.threads);
+        // 有网络时中断都能在期限内恢复；序列结束时还在期限内的中断不计入
+        assertTrue(report.recovery.getCount() > 0);
+        assertEquals("中断未能恢复", 0, report.unrecovered);
+        assertTrue("最长恢复 " + report.recovery.getMax(),
+                report.recovery.getMax() <= PluginSimulation.RECOVERY_DEADLINE_MS);
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.openvpn;
+
+import android.content.Context;
+
+import com.example.openvpn.models.Profile;
+import com.example.openvpn.models.ProfileManager;
+
+import io.dcloud.feature.uniapp.bridge.UniJSCallback;
+
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+// 配置缓存：句柄与 LRU 淘汰、副本与保存次数；注册时整理路由（合并相邻前缀、扣除排除网段），以及插件按缓存条目回答 checkRoute
+public class ProfileCacheTest {
+    private static final UniJSCallback IGNORE = result -> { };
+
+    // 两个相邻的 /25、一个 /16 及其中排除的 /24；IPv6 为两个相邻的 /33 及其中排除的 /48
+    private static final String SPLIT = "client\ndev tun\nremote vpn.example.com 1194\n"
+            + "route 10.0.0.0 255.255.255.128\n"
+            + "route 10.0.0.128 255.255.255.128\n"
+            + "route 10.1.0.0 255.255.0.0\n"
+            + "route 10.1.2.0 255.255.255.0 net_gateway\n"
+            + "route-ipv6 2001:db8::/33\n"
+            + "route-ipv6 2001:db8:8000::/33\n"
+            + "route-ipv6 2001:db8:1::/48 net_gateway\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Context context = new Context();
+
+    private static String config(int n) {
+        return "client\ndev tun\nremote vpn" + n + ".example.com 1194 udp\n";
+    }
+
+    // ProfileManager 替身是全局单例，只看差值
+    private static long saves() {
+        return ProfileManager.getInstance(null).getSaveCount();
+    }
+
+    @Test
+    public void sameConfigSameHandle() throws Exception {
+        ProfileCache cache = new ProfileCache(context);
+        ProfileCache.Entry entry = cache.register(config(1));
+        assertTrue(ProfileCache.isHandle(entry.handle));
+        assertSame(entry, cache.register(config(1)));
+        assertSame(entry, cache.resolve(config(1)));
+        assertSame(entry, cache.resolve(entry.handle));
+        assertEquals(1, cache.getParseCount());
+
+        ProfileCache.Entry other = cache.register(config(2));
+        assertNotSame(entry, other);
+        assertFalse(entry.handle.equals(other.handle));
+        // 句柄只取决于内容，换一个缓存实例也一样
+        assertEquals(entry.handle, new ProfileCache(context).register(config(1)).handle);
+
+        assertNull(cache.register("client\ndev tun\n"));
+        assertNull(cache.resolve("ovpn:unknown"));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws Exception {
+        ProfileCache cache = new ProfileCache(context);
+        String[] handles = new String[9];
+        for (int i = 0; i < 8; i++) {
+            handles[i] = cache.register(config(i)).handle;
+        }
+        // 访问第 0 个后它变为最近使用，加入第 9 个时淘汰第 1 个
+        cache.resolve(handles[0]);
+        handles[8] = cache.register(config(8)).handle;
+        assertNotNull(cache.resolve(handles[0]));
+        assertNull(cache.resolve(handles[1]));
+        for (int i = 2; i < 9; i++) {
+            assertNotNull(cache.resolve(handles[i]));
+        }
+        // 被淘汰的配置再次传入时重新解析
+        long parses = cache.getParseCount();
+        cache.register(config(1));
+        assertEquals(parses + 1, cache.getParseCount());
+    }
+
+    @Test
+    public void activeEntryIsNotEvicted() throws Exception {
+        ProfileCache cache = new ProfileCache(context);
+        ProfileCache.Entry active = cache.register(config(0));
+        cache.checkout(active, "user", "secret");
+        // 之后注册的配置都比正在使用的条目更新，正在使用的条目仍然保留，其余按 8 个的容量淘汰
+        String[] handles = new String[20];
+        for (int i = 0; i < handles.length; i++) {
+            handles[i] = cache.register(config(100 + i)).handle;
+        }
+        assertSame(active, cache.resolve(active.handle));
+        for (int i = 0; i < handles.length; i++) {
+            assertEquals("handle " + i, i >= handles.length - 7, cache.resolve(handles[i]) != null);
+        }
+    }
+
+    @Test
+    public void checkoutReturnsIndependentCopy() throws Exception {
+        ProfileCache cache = new ProfileCache(context);
+        ProfileCache.Entry entry = cache.register(config(1));
+        Profile copy = cache.checkout(entry, "user", "secret");
+        assertNotSame(entry.profile, copy);
+        assertEquals("user", copy.mUsername);
+        assertEquals("secret", copy.mPassword);
+
+        copy.mConnections[0].mServerName = "other.example.com";
+        copy.mAllowedAppsVpn.add("com.example.mail");
+        copy.mCustomRoutes = "10.0.0.0/8";
+        copy.mTunMtu = 1280;
+        assertEquals("vpn1.example.com", entry.profile.mConnections[0].mServerName);
+        assertTrue(entry.profile.mAllowedAppsVpn.isEmpty());
+        assertEquals("", entry.profile.mCustomRoutes);
+        assertEquals(0, entry.profile.mTunMtu);
+
+        // 下一次取得的副本不受上一次修改的影响
+        Profile next = cache.checkout(entry, "user", "secret");
+        assertEquals("vpn1.example.com", next.mConnections[0].mServerName);
+        assertTrue(next.mAllowedAppsVpn.isEmpty());
+    }
+
+    @Test
+    public void savesOnlyWhenCredentialsChange() throws Exception {
+        ProfileCache cache = new ProfileCache(context);
+        ProfileCache.Entry entry = cache.register(config(1));
+        long before = saves();
+        cache.checkout(entry, "user", "secret");
+        assertEquals(before + 1, saves());
+
+        // 内容和认证信息都没变时不保存
+        cache.checkout(entry, "user", "secret");
+        cache.checkout(cache.resolve(config(1)), "user", "secret");
+        cache.checkout(cache.resolve(entry.handle), "user", "secret");
+        assertEquals(before + 1, saves());
+
+        // 密码通过摘要比较，变化时保存
+        cache.checkout(entry, "user", "secret2");
+        assertEquals(before + 2, saves());
+        cache.checkout(entry, "user", "secret2");
+        assertEquals(before + 2, saves());
+        cache.checkout(entry, "admin", "secret2");
+        assertEquals(before + 3, saves());
+        cache.checkout(entry, "admin", null);
+        assertEquals(before + 4, saves());
+        cache.checkout(entry, "admin", null);
+        assertEquals(before + 4, saves());
+    }
+
+    @Test
+    public void registerMergesRoutesAndKeepsExclusions() throws Exception {
+        ProfileCache cache = new ProfileCache(context);
+        ProfileCache.Entry entry = cache.register(SPLIT);
+        Profile profile = entry.profile;
+        assertEquals("10.0.0.0/24 10.1.0.0/23 10.1.3.0/24 10.1.4.0/22 10.1.8.0/21 10.1.16.0/20 10.1.32.0/19"
+                + " 10.1.64.0/18 10.1.128.0/17", profile.mCustomRoutes);
+        // 排除项原样保留，核心还要用它们扣除服务器推送的路由
+        assertEquals("10.1.2.0/24", profile.mExcludedRoutes);
+
+        String[] routes6 = profile.mCustomRoutesv6.split(" ");
+        // /32 内扣掉一个 /48 剩 16 个前缀
+        assertEquals(16, routes6.length);
+        assertEquals("2001:db8:0:0:0:0:0:0/48", routes6[0]);
+        assertEquals("2001:db8:2:0:0:0:0:0/47", routes6[1]);
+        assertEquals("2001:db8:8000:0:0:0:0:0/33", routes6[15]);
+        assertEquals("2001:db8:1::/48", profile.mExcludedRoutesv6);
+
+        assertTrue(entry.isTunneled("10.0.0.200"));
+        assertTrue(entry.isTunneled("10.1.200.1"));
+        assertFalse(entry.isTunneled("10.1.2.3"));
+        assertFalse(entry.isTunneled("10.2.0.1"));
+        assertTrue(entry.isTunneled("2001:db8:ffff::1"));
+        assertFalse(entry.isTunneled("2001:db8:1::1"));
+        assertNull(entry.isTunneled("vpn.example.com"));
+        assertFalse(entry.isRouteSetComplete());
+
+        // 连接时取得的副本带着整理后的路由
+        Profile copy = cache.checkout(entry, "user", "secret");
+        assertEquals(profile.mCustomRoutes, copy.mCustomRoutes);
+        assertEquals(profile.mExcludedRoutes, copy.mExcludedRoutes);
+    }
+
+    // 使用默认路由时不改写路由，排除项仍然生效
+    @Test
+    public void defaultRouteKeepsConfiguredRoutes() throws Exception {
+        ProfileCache.Entry entry = new ProfileCache(context).register("client\nremote vpn.example.com 1194\n"
+                + "redirect-gateway def1\n"
+                + "route 192.168.0.0 255.255.0.0 net_gateway\n"
+                + "route-nopull\n");
+        assertTrue(entry.profile.mUseDefaultRoute);
+        assertEquals("", entry.profile.mCustomRoutes);
+        assertEquals("192.168.0.0/16", entry.profile.mExcludedRoutes);
+        assertTrue(entry.isTunneled("8.8.8.8"));
+        assertFalse(entry.isTunneled("192.168.1.1"));
+        assertTrue(entry.isTunneled("2001:4860::8888"));
+        assertTrue(entry.isRouteSetComplete());
+    }
+
+    @Test
+    public void checkRouteAnswersFromLastConfig() throws Exception {
+        PluginSimulation simulation = PluginSimulation.open(1, folder.newFolder());
+        try {
+            OpenVPNPlugin plugin = simulation.getPlugin();
+            JSONObject result = checkRoute(simulation, "10.0.0.1");
+            assertFalse(result.getBoolean("success"));
+            assertEquals("尚未加载配置", result.getString("message"));
+
+            plugin.connect("user", "secret", SPLIT, IGNORE);
+            simulation.advance(5_000);
+            // 交给 core 的是整理后的路由
+            assertEquals("10.1.2.0/24", simulation.getStartedProfile().mExcludedRoutes);
+            assertTrue(simulation.getStartedProfile().mCustomRoutes.startsWith("10.0.0.0/24 10.1.0.0/23 "));
+
+            result = checkRoute(simulation, "10.0.0.1");
+            assertEquals("10.0.0.1", result.getString("address"));
+            assertTrue(result.getBoolean("tunneled"));
+            // 未设 route-nopull，服务器推送的路由还可能让其它地址走隧道
+            assertFalse(result.getBoolean("complete"));
+            assertFalse(checkRoute(simulation, "10.1.2.3").getBoolean("tunneled"));
+            assertTrue(checkRoute(simulation, "2001:db8:4000::1").getBoolean("tunneled"));
+            result = checkRoute(simulation, "not-an-address");
+            assertFalse(result.getBoolean("success"));
+            assertEquals("无效的IP地址: not-an-address", result.getString("message"));
+
+            plugin.connect("user", "secret", SPLIT + "route-nopull\n", IGNORE);
+            simulation.advance(5_000);
+            result = checkRoute(simulation, "10.2.0.1");
+            assertFalse(result.getBoolean("tunneled"));
+            assertTrue(result.getBoolean("complete"));
+        } finally {
+            simulation.close();
+        }
+    }
+
+    // 错误回调经主线程投递，执行到当前时刻后取结果
+    private static JSONObject checkRoute(PluginSimulation simulation, String address) {
+        AtomicReference<Object> result = new AtomicReference<>();
+        simulation.getPlugin().checkRoute(address, result::set);
+        simulation.advance(0);
+        return (JSONObject) result.get();
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.openvpn;
+
+import org.junit.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketAddress;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+// 用本机的 UDP 回显替身（可注入丢包、时延和抖动）驱动 EchoProber，按缩短的时间参数运行
+public class QualityMonitorTest {
+    // 缩短后的参数：20ms 探测一次，超时 100ms，持续 300ms 触发
+    private static final long ACTIVE_MS = 20;
+    private static final long RUN_MS = 1500;
+
+    @Test
+    public void healthyLinkDoesNotDegrade() throws Exception {
+        Report healthy = run(0, 5, 0);
+        assertNull(healthy.reason);
+        assertEquals(0, healthy.quality.lossPercent);
+        assertTrue("时延应约为 5ms: " + healthy.quality.rttMs,
+                healthy.quality.rttMs >= 4 && healthy.quality.rttMs <= 15);
+    }
+
+    @Test
+    public void lossTriggersDegradation() throws Exception {
+        Report lossy = run(40, 5, 0);
+        assertNotNull(lossy.reason);
+        assertTrue(lossy.reason, lossy.reason.startsWith("丢包率"));
+        assertTrue("丢包率应约为 40%: " + lossy.quality.lossPercent,
+                lossy.quality.lossPercent >= 20 && lossy.quality.lossPercent <= 65);
+    }
+
+    @Test
+    public void latencyTriggersDegradation() throws Exception {
+        Report slow = run(0, 60, 0);
+        assertNotNull(slow.reason);
+        assertTrue(slow.reason, slow.reason.startsWith("时延"));
+    }
+
+    @Test
+    public void jitterTriggersDegradation() throws Exception {
+        Report jittery = run(0, 2, 40);
+        assertNotNull(jittery.reason);
+        assertTrue(jittery.reason, jittery.reason.startsWith("抖动"));
+        // 平均时延没有超过阈值，触发的只能是抖动
+        assertTrue(jittery.quality.rttMs < 40);
+    }
+
+    // 虚拟时间 10 分钟：无流量时间隔逐步拉长到 30 秒，一直有流量时保持 2 秒（固定 2 秒间隔为 300 次）
+    @Test
+    public void idleLinkIsProbedLessOften() {
+        long idle = countProbes(false);
+        long busy = countProbes(true);
+        assertTrue("空闲时应降低探测频率: " + idle, idle <= 40);
+        assertTrue("有流量时应保持最短间隔: " + busy, busy >= 290);
+    }
+
+    private static final class Report {
+        String reason;
+        final QualityMonitor.Quality quality = new QualityMonitor.Quality();
+    }
+
+    private static Report run(int lossPercent, long delayMs, long jitterMs) throws Exception {
+        QualityMonitor monitor = new QualityMonitor(ACTIVE_MS, ACTIVE_MS * 10, 100, 300, 10_000);
+        monitor.setThresholds(40, 10, 20);
+        Report report = new Report();
+        AtomicReference<String> reason = new AtomicReference<>();
+        try (EchoServer server = new EchoServer(lossPercent, delayMs, jitterMs)) {
+            EchoProber prober = new EchoProber(monitor, "127.0.0.1", server.port(), r -> reason.compareAndSet(null, r));
+            prober.start();
+            Thread.sleep(RUN_MS);
+            prober.stop();
+        }
+        report.reason = reason.get();
+        monitor.getQuality(report.quality);
+        return report;
+    }
+
+    private static long countProbes(boolean traffic) {
+        QualityMonitor monitor = new QualityMonitor();
+        long now = 0;
+        long probes = 0;
+        while (now < 600_000) {
+            long seq = monitor.onProbeSent(now);
+            probes++;
+            monitor.onProbeReply(seq, now + 20);
+            monitor.evaluate(now + 20);
+            if (traffic) {
+                monitor.onTraffic(64 * 1024);
+            }
+            now += monitor.nextInterval();
+        }
+        return probes;
+    }
+
+    // 本机 UDP 回显替身：按比例丢弃请求，其余在 delay + [0, jitter) 毫秒后原样返回
+    private static final class EchoServer implements AutoCloseable {
+        private final DatagramSocket socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        private final ScheduledExecutorService delayer = Executors.newSingleThreadScheduledExecutor();
+        private final Thread thread;
+
+        EchoServer(int lossPercent, long delayMs, long jitterMs) throws Exception {
+            Random random = new Random(7);
+            thread = new Thread(() -> {
+                byte[] buffer = new byte[64];
+                while (!socket.isClosed()) {
+                    try {
+                        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                        socket.receive(packet);
+                        if (random.nextInt(100) < lossPercent) {
+                            continue;
+                        }
+                        byte[] data = new byte[packet.getLength()];
+                        System.arraycopy(buffer, 0, data, 0, data.length);
+                        SocketAddress from = packet.getSocketAddress();
+                        long delay = delayMs + (jitterMs > 0 ? random.nextInt((int) jitterMs) : 0);
+                        delayer.schedule(() -> {
+                            try {
+                                socket.send(new DatagramPacket(data, data.length, from));
+                            } catch (Exception ignored) {
+                                // 已关闭
+                            }
+                        }, delay, TimeUnit.MILLISECONDS);
+                    } catch (Exception e) {
+                        return;
+                    }
+                }
+            }, "echo-stand-in");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int port() {
+            return socket.getLocalPort();
+        }
+
+        @Override
+        public void close() {
+            socket.close();
+            delayer.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.openvpn;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// 虚拟时钟下模拟网络抖动：隧道中断的同时网络断开 0.2-3 秒，统计从中断到重新连上的耗时
+// 原来的 scheduleReconnect 固定等 5 秒再走完整的 connect()，最多 5 次，恢复耗时不会低于 5 秒
+public class ReconnectEngineTest {
+    private static final int FLAPS = 200;
+    private static final long HANDSHAKE_MS = 500;
+    // 没有网络时 core 报错的耗时
+    private static final long NO_NETWORK_FAIL_MS = 1_000;
+    private static final long LEGACY_DELAY_MS = 5_000;
+    private static final int LEGACY_MAX_ATTEMPTS = 5;
+
+    private Looper looper;
+    private Handler handler;
+    private boolean networkUp;
+    private boolean connected;
+    // 每次尝试换一个会话号，旧尝试的结果作废
+    private int session;
+
+    @Before
+    public void setUp() {
+        looper = Looper.prepareMainLooper();
+        handler = new Handler(looper);
+    }
+
+    // 假隧道：网络可用时握手成功，否则稍后报错
+    private void handshake(Runnable onConnected, Runnable onFailure) {
+        final int current = ++session;
+        final boolean ok = networkUp;
+        handler.postDelayed(() -> {
+            if (current != session) {
+                return;
+            }
+            connected = ok;
+            (ok ? onConnected : onFailure).run();
+        }, ok ? HANDSHAKE_MS : NO_NETWORK_FAIL_MS);
+    }
+
+    // 回放 FLAPS 次抖动，返回每次的恢复耗时（未恢复记为 Long.MAX_VALUE）
+    private long[] replay(Recovery recovery, boolean signalNetwork) {
+        Random random = new Random(42);
+        long[] recoveries = new long[FLAPS];
+        for (int i = 0; i < FLAPS; i++) {
+            long outage = 200 + random.nextInt(2_800);
+            long start = looper.now();
+            networkUp = false;
+            connected = false;
+            recovery.onFailure(start);
+            looper.advanceBy(outage);
+            networkUp = true;
+            if (signalNetwork) {
+                recovery.onNetworkAvailable();
+            }
+            long deadline = start + 120_000;
+            while (!connected && looper.now() < deadline) {
+                looper.advanceBy(50);
+            }
+            recoveries[i] = connected ? looper.now() - start : Long.MAX_VALUE;
+            // 两次抖动之间稳定一段时间
+            looper.advanceBy(10_000);
+        }
+        return recoveries;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[(sorted.length - 1) / 2];
+    }
+
+    private interface Recovery {
+        void onFailure(long now);
+
+        void onNetworkAvailable();
+    }
+
+    // 原来的做法：固定延迟后重新 connect()，不关心网络回调
+    private final class LegacyRecovery implements Recovery {
+        private int attempts;
+
+        @Override
+        public void onFailure(long now) {
+            if (attempts >= LEGACY_MAX_ATTEMPTS) {
+                return;
+            }
+            attempts++;
+            handler.postDelayed(() -> handshake(() -> attempts = 0, () -> onFailure(looper.now())),
+                    LEGACY_DELAY_MS);
+        }
+
+        @Override
+        public void onNetworkAvailable() {
+        }
+    }
+
+    private final class EngineRecovery implements Recovery, ReconnectEngine.Callback {
+        final ReconnectEngine engine = new ReconnectEngine(handler, this, new Random(7));
+
+        @Override
+        public void onFailure(long now) {
+            engine.onFailure(now);
+        }
+
+        @Override
+        public void onNetworkAvailable() {
+            engine.onNetworkAvailable();
+        }
+
+        @Override
+        public void onReconnect(int attempt) {
+            handshake(() -> engine.onConnected(looper.now()), () -> engine.onFailure(looper.now()));
+        }
+
+        @Override
+        public void onGiveUp() {
+        }
+    }
+
+    @Test
+    public void legacyRecoveryHasFiveSecondFloor() {
+        long[] recoveries = replay(new LegacyRecovery(), true);
+        for (long recovery : recoveries) {
+            assertTrue(recovery >= LEGACY_DELAY_MS + HANDSHAKE_MS);
+        }
+    }
+
+    @Test
+    public void networkCallbackRecoversImmediately() {
+        EngineRecovery recovery = new EngineRecovery();
+        long[] recoveries = replay(recovery, true);
+        long median = median(recoveries);
+        // 恢复耗时 ≈ 断网时长（平均 1.6 秒）+ 一次握手
+        assertTrue("中位数 " + median + "ms", median < LEGACY_DELAY_MS / 2);
+        assertTrue(Arrays.stream(recoveries).max().getAsLong() <= 3_000 + HANDSHAKE_MS + 50);
+        assertEquals(FLAPS, recovery.engine.getRecoveries());
+        // 引擎自己统计的中位数（最近 32 次）与模拟结果一致
+        assertTrue(recovery.engine.getMedianRecoveryMs() < LEGACY_DELAY_MS / 2);
+    }
+
+    @Test
+    public void backoffAloneBeatsFixedDelay() {
+        // 收不到网络回调时只靠指数退避：前几次重试都在 5 秒内
+        long[] engine = replay(new EngineRecovery(), false);
+        long[] legacy = replay(new LegacyRecovery(), false);
+        long median = median(engine);
+        assertTrue("中位数 " + median + "ms", median < LEGACY_DELAY_MS);
+        assertTrue(median * 2 < median(legacy));
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.openvpn;
+
+import com.example.openvpn.models.Connection;
+import com.example.openvpn.models.Profile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// 本地回环上的替身服务端：UDP 服务端收到硬重置包后按注入的延迟回应（或不回应），关闭的端口返回 ICMP 不可达
+public class RemoteProberTest {
+    private static final String LOOPBACK = "127.0.0.1";
+
+    private final List<UdpStandIn> servers = new ArrayList<>();
+    private RemoteProber prober;
+
+    // 延迟 delayMs 后回应；delayMs < 0 时静默丢弃（类似启用 tls-auth 的服务端）
+    private static final class UdpStandIn extends Thread {
+        final DatagramSocket socket;
+        volatile long delayMs;
+        volatile int received;
+
+        UdpStandIn(long delayMs) throws IOException {
+            super("udp-stand-in");
+            this.socket = new DatagramSocket(0, InetAddress.getByName(LOOPBACK));
+            this.delayMs = delayMs;
+            setDaemon(true);
+        }
+
+        int port() {
+            return socket.getLocalPort();
+        }
+
+        @Override
+        public void run() {
+            byte[] buffer = new byte[256];
+            try {
+                while (true) {
+                    DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                    socket.receive(packet);
+                    received++;
+                    // P_CONTROL_HARD_RESET_CLIENT_V2
+                    if (delayMs < 0 || packet.getLength() < 14 || (buffer[0] & 0xff) >> 3 != 7) {
+                        continue;
+                    }
+                    Thread.sleep(delayMs);
+                    byte[] reply = {(byte) (8 << 3)};
+                    socket.send(new DatagramPacket(reply, reply.length, packet.getSocketAddress()));
+                }
+            } catch (Exception e) {
+                // 关闭时退出
+            }
+        }
+    }
+
+    @Before
+    public void setUp() {
+        prober = new RemoteProber();
+    }
+
+    @After
+    public void tearDown() {
+        for (UdpStandIn server : servers) {
+            server.socket.close();
+        }
+    }
+
+    private UdpStandIn udp(long delayMs) throws IOException {
+        UdpStandIn server = new UdpStandIn(delayMs);
+        server.start();
+        servers.add(server);
+        return server;
+    }
+
+    // 绑定后立即释放的端口，之后的探测会收到端口不可达
+    private static int closedUdpPort() throws IOException {
+        try (DatagramSocket socket = new DatagramSocket(0, InetAddress.getByName(LOOPBACK))) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static Connection remote(int port, boolean udp) {
+        Connection connection = new Connection();
+        connection.mServerName = LOOPBACK;
+        connection.mServerPort = Integer.toString(port);
+        connection.mUseUdp = udp;
+        return connection;
+    }
+
+    @Test
+    public void reordersByMeasuredRtt() throws IOException {
+        UdpStandIn slow = udp(300);
+        UdpStandIn silent = udp(-1);
+        UdpStandIn fast = udp(0);
+        int closed = closedUdpPort();
+        UdpStandIn mid = udp(80);
+
+        Profile profile = new Profile();
+        profile.mConnections = new Connection[]{
+                remote(slow.port(), true), remote(silent.port(), true), remote(fast.port(), true),
+                remote(closed, true), remote(mid.port(), true)};
+        prober.reorder(profile, 1000);
+
+        // 可达的按 RTT 升序，无回应的次之，明确失败的最后
+        int[] expected = {fast.port(), mid.port(), slow.port(), silent.port(), closed};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(Integer.toString(expected[i]), profile.mConnections[i].mServerPort);
+        }
+        assertTrue(silent.received > 0);
+    }
+
+    @Test
+    public void probesRunConcurrentlyWithinDeadline() throws IOException {
+        int count = 4;
+        String[] hosts = new String[count + 1];
+        int[] ports = new int[count + 1];
+        boolean[] isUdp = new boolean[count + 1];
+        for (int i = 0; i < count; i++) {
+            hosts[i] = LOOPBACK;
+            ports[i] = udp(300).port();
+            isUdp[i] = true;
+        }
+        hosts[count] = LOOPBACK;
+        ports[count] = udp(-1).port();
+        isUdp[count] = true;
+
+        long start = System.nanoTime();
+        long[] results = prober.probeAll(hosts, ports, isUdp, 800);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        // 串行需要 4 x 300ms 再加上静默服务端的整段超时；并发时整体受截止时间约束
+        assertTrue("耗时 " + elapsedMs + "ms", elapsedMs < 800 + 200);
+        for (int i = 0; i < count; i++) {
+            assertTrue("RTT " + results[i], results[i] >= 300 && results[i] < 800);
+        }
+        assertEquals(RemoteProber.RESULT_UNKNOWN, results[count]);
+    }
+
+    @Test
+    public void tcpProbeMeasuresHandshakeAndDetectsRefusal() throws IOException {
+        try (ServerSocket listening = new ServerSocket(0, 8, InetAddress.getByName(LOOPBACK))) {
+            int refused;
+            try (ServerSocket closed = new ServerSocket(0, 1, InetAddress.getByName(LOOPBACK))) {
+                refused = closed.getLocalPort();
+            }
+            long[] results = prober.probeAll(new String[]{LOOPBACK, LOOPBACK},
+                    new int[]{listening.getLocalPort(), refused}, new boolean[]{false, false}, 1000);
+            assertTrue(results[0] >= 0 && results[0] < 1000);
+            assertEquals(RemoteProber.RESULT_FAILED, results[1]);
+        }
+    }
+
+    @Test
+    public void historySmoothsAndOrdersUnresponsiveRemotes() throws IOException {
+        UdpStandIn first = udp(200);
+        UdpStandIn second = udp(200);
+        Profile profile = new Profile();
+        profile.mConnections = new Connection[]{remote(first.port(), true), remote(second.port(), true)};
+        prober.reorder(profile, 1000);
+        long firstRtt = prober.getHistoricalRtt(LOOPBACK, first.port(), true);
+        assertTrue(firstRtt >= 200);
+
+        // 第二次连接时 first 变快：历史按权重平滑，不会直接跳到新值
+        first.delayMs = 0;
+        prober.reorder(profile, 1000);
+        long smoothed = prober.getHistoricalRtt(LOOPBACK, first.port(), true);
+        assertTrue("平滑后 " + smoothed, smoothed > 0 && smoothed < firstRtt);
+        assertEquals(Integer.toString(first.port()), profile.mConnections[0].mServerPort);
+
+        // 两个都不回应时，按历史 RTT 排序
+        first.delayMs = -1;
+        second.delayMs = -1;
+        profile.mConnections = new Connection[]{remote(second.port(), true), remote(first.port(), true)};
+        prober.reorder(profile, 300);
+        assertEquals(Integer.toString(first.port()), profile.mConnections[0].mServerPort);
+        assertEquals(smoothed, prober.getHistoricalRtt(LOOPBACK, first.port(), true));
+    }
+
+    @Test
+    public void protectorSeesEveryProbeSocket() throws IOException {
+        AtomicInteger udpSockets = new AtomicInteger();
+        AtomicInteger tcpSockets = new AtomicInteger();
+        prober.setProtector(new SocketProtector() {
+            @Override
+            public boolean protect(Socket socket) {
+                tcpSockets.incrementAndGet();
+                return true;
+            }
+
+            @Override
+            public boolean protect(DatagramSocket socket) {
+                udpSockets.incrementAndGet();
+                return true;
+            }
+        });
+        try (ServerSocket listening = new ServerSocket(0, 8, InetAddress.getByName(LOOPBACK))) {
+            prober.probeAll(new String[]{LOOPBACK, LOOPBACK, LOOPBACK},
+                    new int[]{udp(0).port(), udp(10).port(), listening.getLocalPort()},
+                    new boolean[]{true, true, false}, 1000);
+        }
+        assertEquals(2, udpSockets.get());
+        assertEquals(1, tcpSockets.get());
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.openvpn;
+
+import java.util.Random;
+
+// 路由前缀树的暴力对照实现：逐条扫描所有前缀做最长前缀匹配，用来核对 RouteTrie 的结果
+// 随机前缀集中在少数几个网段内，保证有大量重叠、相邻和排除；RouteTrie 的单元测试和基准测试共用
+public final class RouteOracle {
+    private static final int[] CLUSTERS_V4 = {10, 100, 172, 192};
+    private static final int[] CLUSTERS_V6 = {0x2001, 0x2400, 0x2a00, 0x2600};
+
+    private final int bits;
+    private final byte[][] addresses;
+    private final int[] lengths;
+    private final boolean[] includes;
+
+    private RouteOracle(int bits, byte[][] addresses, int[] lengths, boolean[] includes) {
+        this.bits = bits;
+        this.addresses = addresses;
+        this.lengths = lengths;
+        this.includes = includes;
+    }
+
+    // count 个随机前缀，约 1/8 为排除；IPv4 长度 8-32，IPv6 长度 16-64
+    public static RouteOracle random(int bits, int count, Random random) {
+        byte[][] addresses = new byte[count][];
+        int[] lengths = new int[count];
+        boolean[] includes = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            lengths[i] = bits == RouteTrie.IPV4_BITS ? 8 + random.nextInt(25) : 16 + random.nextInt(49);
+            addresses[i] = mask(clustered(bits, random), lengths[i]);
+            includes[i] = random.nextInt(8) != 0;
+        }
+        return new RouteOracle(bits, addresses, lengths, includes);
+    }
+
+    public RouteTrie build() {
+        RouteTrie trie = new RouteTrie(bits);
+        for (int i = 0; i < addresses.length; i++) {
+            trie.add(addresses[i], lengths[i], includes[i]);
+        }
+        return trie;
+    }
+
+    // 查询用的地址：一半落在前缀集中的网段内，一半完全随机
+    public byte[] sample(Random random) {
+        if (random.nextBoolean()) {
+            return clustered(bits, random);
+        }
+        byte[] address = new byte[bits / 8];
+        random.nextBytes(address);
+        return address;
+    }
+
+    // 最长前缀匹配，同一前缀以最后加入的为准
+    public boolean lookup(byte[] address) {
+        int bestLength = -1;
+        boolean result = false;
+        for (int i = 0; i < addresses.length; i++) {
+            if (lengths[i] >= bestLength && matches(address, addresses[i], lengths[i])) {
+                bestLength = lengths[i];
+                result = includes[i];
+            }
+        }
+        return result;
+    }
+
+    // address 的前 length 位是否等于 prefix
+    public static boolean matches(byte[] address, byte[] prefix, int length) {
+        for (int i = 0; i < length; i++) {
+            if (bit(address, i) != bit(prefix, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 清除 length 之后的主机位
+    public static byte[] mask(byte[] address, int length) {
+        byte[] masked = address.clone();
+        for (int i = length; i < masked.length * 8; i++) {
+            masked[i >> 3] &= ~(1 << (7 - (i & 7)));
+        }
+        return masked;
+    }
+
+    private static byte[] clustered(int bits, Random random) {
+        byte[] address = new byte[bits / 8];
+        random.nextBytes(address);
+        if (bits == RouteTrie.IPV4_BITS) {
+            address[0] = (byte) CLUSTERS_V4[random.nextInt(CLUSTERS_V4.length)];
+            address[1] &= 0x0f;
+        } else {
+            int cluster = CLUSTERS_V6[random.nextInt(CLUSTERS_V6.length)];
+            address[0] = (byte) (cluster >>> 8);
+            address[1] = (byte) cluster;
+            address[2] = 0;
+            address[3] &= 0x0f;
+        }
+        return address;
+    }
+
+    private static int bit(byte[] address, int index) {
+        return (address[index >> 3] >> (7 - (index & 7))) & 1;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.openvpn;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+// 路由前缀树：手写的包含/排除用例，以及与 RouteOracle 暴力实现对照的随机用例（IPv4 和 IPv6）
+public class RouteTrieTest {
+    private static RouteTrie trie(int bits, String includes, String excludes) {
+        RouteTrie trie = new RouteTrie(bits);
+        trie.addAll(includes, true);
+        trie.addAll(excludes, false);
+        return trie;
+    }
+
+    private static boolean tunneled(RouteTrie trie, String address) {
+        return trie.isTunneled(RouteTrie.parseAddress(address));
+    }
+
+    @Test
+    public void longestPrefixWinsV4() {
+        RouteTrie trie = trie(RouteTrie.IPV4_BITS, "10.0.0.0/8", "10.1.0.0/16");
+        trie.add("10.1.2.0/24", true);
+        assertTrue(tunneled(trie, "10.0.0.1"));
+        assertFalse(tunneled(trie, "10.1.0.1"));
+        assertTrue(tunneled(trie, "10.1.2.3"));
+        assertFalse(tunneled(trie, "10.1.3.3"));
+        assertFalse(tunneled(trie, "11.0.0.1"));
+        assertTrue(trie.isTunneledV4(0x0a010203));
+        assertFalse(trie.isTunneledV4(0x0a010303));
+
+        assertEquals(Arrays.asList("10.0.0.0/16", "10.1.2.0/24", "10.2.0.0/15", "10.4.0.0/14", "10.8.0.0/13",
+                "10.16.0.0/12", "10.32.0.0/11", "10.64.0.0/10", "10.128.0.0/9"), trie.minimalRoutes());
+        verify(trie, null, new Random(1), 0);
+    }
+
+    @Test
+    public void siblingsAreMerged() {
+        RouteTrie trie = trie(RouteTrie.IPV4_BITS, "10.0.0.0/25 10.0.0.128/25", null);
+        assertEquals(Collections.singletonList("10.0.0.0/24"), trie.minimalRoutes());
+        // 被排除网段覆盖、又整体重新包含的前缀不产生多余路由
+        trie = trie(RouteTrie.IPV4_BITS, "192.168.0.0/16 192.168.1.0/24", "192.168.0.0/17");
+        trie.add("192.168.0.0/17", true);
+        assertEquals(Collections.singletonList("192.168.0.0/16"), trie.minimalRoutes());
+    }
+
+    @Test
+    public void defaultRouteMinusExclusion() {
+        RouteTrie trie = trie(RouteTrie.IPV4_BITS, "0.0.0.0/0", "192.168.0.0/16");
+        assertTrue(tunneled(trie, "8.8.8.8"));
+        assertFalse(tunneled(trie, "192.168.1.1"));
+        assertTrue(tunneled(trie, "192.169.0.1"));
+        List<String> routes = trie.minimalRoutes();
+        // 从 /0 中扣除一个 /16 剩下 16 个前缀
+        assertEquals(16, routes.size());
+        assertTrue(routes.contains("0.0.0.0/1"));
+        assertTrue(routes.contains("192.169.0.0/16"));
+        assertTrue(routes.contains("192.170.0.0/15"));
+        assertFalse(routes.contains("192.168.0.0/16"));
+        verify(trie, null, new Random(2), 0);
+
+        // 全部排除时不产生路由
+        assertEquals(Collections.emptyList(), trie(RouteTrie.IPV4_BITS, null, "0.0.0.0/0").minimalRoutes());
+    }
+
+    @Test
+    public void longestPrefixWinsV6() {
+        RouteTrie trie = trie(RouteTrie.IPV6_BITS, "2001:db8::/32", "2001:db8:1::/48");
+        trie.add("2001:db8:1:2::/64", true);
+        assertTrue(tunneled(trie, "2001:db8::1"));
+        assertFalse(tunneled(trie, "2001:db8:1::1"));
+        assertTrue(tunneled(trie, "2001:db8:1:2::1"));
+        assertFalse(tunneled(trie, "2001:db9::1"));
+
+        List<String> routes = trie.minimalRoutes();
+        assertEquals("2001:db8:0:0:0:0:0:0/48", routes.get(0));
+        assertEquals("2001:db8:1:2:0:0:0:0/64", routes.get(1));
+        assertEquals("2001:db8:2:0:0:0:0:0/47", routes.get(2));
+        assertEquals("2001:db8:8000:0:0:0:0:0/33", routes.get(routes.size() - 1));
+        // /32 内扣掉一个 /48 剩 16 个前缀，再加上排除网段内重新包含的 /64
+        assertEquals(17, routes.size());
+        verify(trie, null, new Random(3), 0);
+    }
+
+    @Test
+    public void malformedRoutesAreRejected() {
+        RouteTrie trie = new RouteTrie(RouteTrie.IPV4_BITS);
+        assertFalse(trie.add("10.0.0.0/33", true));
+        assertFalse(trie.add("10.0.0/8", true));
+        assertFalse(trie.add("10.0.0.256/8", true));
+        assertFalse(trie.add("10.0.0.0/x", true));
+        assertFalse(trie.add("2001:db8::/32", true));
+        assertEquals(3, trie.addAll("10.0.0.0/8, 10.0.0.0/8;bogus 192.168.1.1", true));
+        // 重复加入的前缀在树中只计一次；省略长度视为主机路由
+        assertEquals(2, trie.getPrefixCount());
+        assertEquals(Arrays.asList("10.0.0.0/8", "192.168.1.1/32"), trie.minimalRoutes());
+
+        RouteTrie trie6 = new RouteTrie(RouteTrie.IPV6_BITS);
+        assertFalse(trie6.add("10.0.0.0/8", true));
+        assertFalse(trie6.add("2001:db8::/129", true));
+        assertTrue(trie6.add("2001:db8::1", true));
+        assertEquals(Collections.singletonList("2001:db8:0:0:0:0:0:1/128"), trie6.minimalRoutes());
+    }
+
+    @Test
+    public void matchesOracleV4() {
+        Random random = new Random(42);
+        RouteOracle oracle = RouteOracle.random(RouteTrie.IPV4_BITS, 2_000, random);
+        verify(oracle.build(), oracle, random, 2_000);
+    }
+
+    @Test
+    public void matchesOracleV6() {
+        Random random = new Random(42);
+        RouteOracle oracle = RouteOracle.random(RouteTrie.IPV6_BITS, 2_000, random);
+        verify(oracle.build(), oracle, random, 2_000);
+    }
+
+    // 最少路由集不含主机位、互不重叠、没有可合并的相邻前缀；抽样地址的查询结果与暴力实现一致，且与路由集的覆盖范围一致
+    private static void verify(RouteTrie trie, RouteOracle oracle, Random random, int samples) {
+        List<byte[]> addresses = new ArrayList<>();
+        List<Integer> lengths = new ArrayList<>();
+        for (String route : trie.minimalRoutes()) {
+            int slash = route.indexOf('/');
+            byte[] address = RouteTrie.parseAddress(route.substring(0, slash));
+            int length = Integer.parseInt(route.substring(slash + 1));
+            assertTrue(route, Arrays.equals(address, RouteOracle.mask(address, length)));
+            addresses.add(address);
+            lengths.add(length);
+        }
+
+        Integer[] order = new Integer[addresses.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> compare(addresses.get(a), addresses.get(b)));
+        for (int i = 1; i < order.length; i++) {
+            byte[] previous = addresses.get(order[i - 1]);
+            byte[] current = addresses.get(order[i]);
+            int previousLength = lengths.get(order[i - 1]);
+            int length = lengths.get(order[i]);
+            // 按起始地址排序后，重叠只可能是后一条落在前一条之内
+            assertFalse("路由重叠", RouteOracle.matches(current, previous, previousLength));
+            // 同长度的兄弟前缀在排序后一定相邻
+            assertFalse("存在可合并的相邻前缀",
+                    length == previousLength && RouteOracle.matches(current, previous, length - 1));
+        }
+
+        for (int n = 0; n < samples; n++) {
+            byte[] address = oracle.sample(random);
+            boolean expected = oracle.lookup(address);
+            assertEquals(expected, trie.isTunneled(address));
+            if (address.length == 4) {
+                int value = (address[0] & 0xff) << 24 | (address[1] & 0xff) << 16 | (address[2] & 0xff) << 8
+                        | (address[3] & 0xff);
+                assertEquals(expected, trie.isTunneledV4(value));
+            }
+            boolean covered = false;
+            for (int i = 0; i < addresses.size() && !covered; i++) {
+                covered = RouteOracle.matches(address, addresses.get(i), lengths.get(i));
+            }
+            assertEquals(expected, covered);
+        }
+    }
+
+    private static int compare(byte[] a, byte[] b) {
+        for (int i = 0; i < a.length; i++) {
+            int diff = (a[i] & 0xff) - (b[i] & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return 0;
+    }
+}
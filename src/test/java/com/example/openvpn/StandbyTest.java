@@ -0,0 +1,62 @@
+package com.example.openvpn;
+
+import io.dcloud.feature.uniapp.bridge.UniJSCallback;
+
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+
+// getPerfMetrics 按冷/热启动分别报告连接耗时
+public class StandbyTest {
+    private static final UniJSCallback IGNORE = result -> { };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // 断开后再次连接时服务和配置都已就绪，算作热启动
+    @Test
+    public void reconnectAfterColdStartIsWarm() throws Exception {
+        JSONObject metrics = connectTwice(false);
+        assertEquals(1, count(metrics, "coldConnecting"));
+        assertEquals(1, count(metrics, "warmConnecting"));
+        // time-to-CONNECTED 同样按冷/热分别统计
+        assertEquals(1, count(metrics, "coldConnect"));
+        assertEquals(1, count(metrics, "warmConnect"));
+    }
+
+    @Test
+    public void connectAfterWarmUpIsWarm() throws Exception {
+        JSONObject metrics = connectTwice(true);
+        assertEquals(0, count(metrics, "coldConnecting"));
+        assertEquals(2, count(metrics, "warmConnecting"));
+    }
+
+    // 连接、断开、再连接，返回 getPerfMetrics 的结果
+    private JSONObject connectTwice(boolean warmUp) throws Exception {
+        PluginSimulation simulation = PluginSimulation.open(1, folder.newFolder());
+        OpenVPNPlugin plugin = simulation.getPlugin();
+        if (warmUp) {
+            plugin.warmUp(PluginSimulation.CONFIG, IGNORE);
+            simulation.advance(1_000);
+        }
+        for (int i = 0; i < 2; i++) {
+            plugin.connect("user", "secret", PluginSimulation.CONFIG, IGNORE);
+            simulation.advance(5_000);
+            plugin.disconnect(IGNORE);
+            simulation.advance(1_000);
+        }
+        AtomicReference<Object> result = new AtomicReference<>();
+        plugin.getPerfMetrics(result::set);
+        simulation.close();
+        return (JSONObject) result.get();
+    }
+
+    private static long count(JSONObject metrics, String phase) {
+        return metrics.optJSONObject(phase).optLong("count");
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.openvpn;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+
+import com.example.openvpn.core.VpnStatus;
+
+import java.util.function.LongPredicate;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// 虚拟时钟下回放一小时的流量轨迹，统计调度器的唤醒次数和推送次数
+// 原来的 java.util.Timer 每 5 秒唤醒并推送一次，即每小时 720 次，与流量无关
+public class StatsSchedulerTest {
+    private static final long HOUR_MS = 3_600_000;
+    private static final long LEGACY_PER_HOUR = HOUR_MS / 5_000;
+
+    private Looper looper;
+    private PowerManager power;
+    private NetworkStatsMonitor monitor;
+    private StatsScheduler scheduler;
+    private long bytesIn;
+    private long bytesOut;
+    private long callbacks;
+
+    @Before
+    public void setUp() {
+        looper = Looper.prepareMainLooper();
+        SystemClock.useVirtualClock(looper);
+        VpnStatus.reset();
+        power = new PowerManager();
+        monitor = new NetworkStatsMonitor(null, new TunTrafficReader("/nonexistent", "tun"));
+        monitor.startTracking();
+        scheduler = new StatsScheduler(monitor, power, new PluginSimulation.VirtualTimeExecutor(new Handler(looper)),
+                new StatsScheduler.Listener() {
+                    @Override
+                    public boolean isActive() {
+                        return true;
+                    }
+
+                    @Override
+                    public void onStats(NetworkStatsMonitor.NetworkStats stats) {
+                        callbacks++;
+                    }
+
+                    @Override
+                    public void onSample(long now, long rxDelta, long txDelta) {
+                    }
+                });
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.stop();
+        monitor.stopTracking();
+        VpnStatus.reset();
+        SystemClock.useVirtualClock(null);
+    }
+
+    // 按秒推进一小时；busy 判断该秒是否有流量（每秒 64 KB 下行、8 KB 上行）
+    private void replayHour(LongPredicate busy) {
+        for (long second = 0; second < HOUR_MS / 1000; second++) {
+            if (busy.test(second)) {
+                bytesIn += 64 * 1024;
+                bytesOut += 8 * 1024;
+                VpnStatus.updateByteCount(bytesIn, bytesOut);
+            }
+            looper.advanceBy(1000);
+        }
+    }
+
+    @Test
+    public void idleTunnelWakesRarely() {
+        scheduler.start();
+        replayHour(second -> false);
+
+        // 间隔翻倍到 30 秒封顶：约 120 次唤醒；只剩每分钟一次的心跳推送
+        long wakeups = scheduler.getWakeups();
+        assertTrue("唤醒 " + wakeups, wakeups <= HOUR_MS / StatsScheduler.IDLE_INTERVAL_MS + 10);
+        assertTrue(wakeups * 5 < LEGACY_PER_HOUR);
+        assertEquals(scheduler.getDeliveries(), callbacks);
+        assertTrue("推送 " + callbacks, callbacks <= HOUR_MS / StatsScheduler.HEARTBEAT_MS + 2);
+    }
+
+    @Test
+    public void screenOffStretchesIdleInterval() {
+        power.setInteractive(false);
+        scheduler.start();
+        replayHour(second -> false);
+
+        long wakeups = scheduler.getWakeups();
+        assertTrue("唤醒 " + wakeups, wakeups <= HOUR_MS / StatsScheduler.SCREEN_OFF_INTERVAL_MS + 10);
+        assertTrue(callbacks <= HOUR_MS / StatsScheduler.HEARTBEAT_MS + 2);
+    }
+
+    @Test
+    public void burstyTrafficWakesLessThanTimer() {
+        scheduler.start();
+        // 每 5 分钟有 30 秒的浏览流量，其余时间空闲
+        replayHour(second -> second % 300 < 30);
+
+        long wakeups = scheduler.getWakeups();
+        // 有流量的 6 分钟按秒采样（360 次），空闲期间退避到 30 秒
+        assertTrue("唤醒 " + wakeups, wakeups < LEGACY_PER_HOUR);
+        assertTrue("唤醒 " + wakeups, wakeups >= 360);
+        assertEquals(scheduler.getDeliveries(), callbacks);
+        // 有流量的每一秒都推送，空闲时只有心跳
+        assertTrue("推送 " + callbacks, callbacks >= 360 && callbacks < 360 + 60);
+    }
+
+    @Test
+    public void busyTrafficIsDeliveredEverySecond() {
+        scheduler.start();
+        replayHour(second -> true);
+
+        // 持续有流量时以最短间隔采样，每次都推送：比原来的 5 秒更及时，换来的唤醒只发生在真正有流量时
+        assertEquals(HOUR_MS / StatsScheduler.MIN_INTERVAL_MS, scheduler.getWakeups(), 1);
+        assertEquals(scheduler.getWakeups(), callbacks, 1);
+    }
+
+    @Test
+    public void restartDoesNotDoubleWakeups() {
+        scheduler.start();
+        looper.advanceBy(10_000);
+        scheduler.start();
+        replayHour(second -> false);
+
+        assertTrue("唤醒 " + scheduler.getWakeups(),
+                scheduler.getWakeups() <= HOUR_MS / StatsScheduler.IDLE_INTERVAL_MS + 20);
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.openvpn;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+// 吞吐量序列：已知速率的固定样本轨迹，环形缓冲区回绕、窗口截取、EWMA、峰值和百分位，以及计数回退
+public class ThroughputSeriesTest {
+    private static final long TAU_MS = 10_000;
+
+    private final ThroughputSeries.Throughput out = new ThroughputSeries.Throughput();
+
+    // 每秒一个样本，第 i 个区间接收 i KB/s（i = 1..10），发送固定 500 B/s
+    private static ThroughputSeries rampTrace(int capacity) {
+        ThroughputSeries series = new ThroughputSeries(capacity, TAU_MS);
+        long rx = 0;
+        long tx = 0;
+        series.record(0, rx, tx);
+        for (int i = 1; i <= 10; i++) {
+            rx += i * 1000;
+            tx += 500;
+            series.record(i * 1000L, rx, tx);
+        }
+        return series;
+    }
+
+    @Test
+    public void fixedTraceRates() {
+        ThroughputSeries series = rampTrace(32);
+        assertEquals(11, series.size());
+        assertEquals(10_000, series.lastSampleTime());
+
+        series.query(60_000, out);
+        assertEquals(10, out.samples);
+        assertEquals(10_000, out.rxRate);
+        assertEquals(500, out.txRate);
+        assertEquals(10_000, out.rxPeakRate);
+        // 最近秩法：10 个区间的 p50 为第 5 小，p95 为第 10 小
+        assertEquals(5_000, out.rxP50Rate);
+        assertEquals(10_000, out.rxP95Rate);
+        assertEquals(500, out.txPeakRate);
+        assertEquals(500, out.txP50Rate);
+        assertEquals(500, out.txP95Rate);
+        // 发送速率恒定时 EWMA 与之相等
+        assertEquals(500, out.txEwmaRate);
+    }
+
+    @Test
+    public void windowClipsOldIntervals() {
+        ThroughputSeries series = rampTrace(32);
+        // 起点不早于 6 秒的区间：7、8、9、10 KB/s
+        series.query(4_000, out);
+        assertEquals(4, out.samples);
+        assertEquals(10_000, out.rxPeakRate);
+        assertEquals(8_000, out.rxP50Rate);
+        assertEquals(10_000, out.rxP95Rate);
+
+        // 窗口比采样间隔还短时退回到最近一个区间
+        series.query(500, out);
+        assertEquals(1, out.samples);
+        assertEquals(10_000, out.rxPeakRate);
+        assertEquals(10_000, out.rxP50Rate);
+    }
+
+    @Test
+    public void ringWrapsPastCapacity() {
+        ThroughputSeries series = rampTrace(4);
+        assertEquals(4, series.size());
+        assertEquals(10_000, series.lastSampleTime());
+        // 只保留最近 4 个样本，即最近 3 个区间：8、9、10 KB/s
+        series.query(60_000, out);
+        assertEquals(3, out.samples);
+        assertEquals(10_000, out.rxRate);
+        assertEquals(10_000, out.rxPeakRate);
+        assertEquals(9_000, out.rxP50Rate);
+        assertEquals(10_000, out.rxP95Rate);
+    }
+
+    @Test
+    public void ewmaFollowsSampleInterval() {
+        ThroughputSeries series = new ThroughputSeries(8, TAU_MS);
+        series.record(0, 0, 0);
+        // 第一个区间直接作为初值
+        series.record(1_000, 1_000, 0);
+        series.query(60_000, out);
+        assertEquals(1_000, out.rxEwmaRate);
+        series.record(2_000, 2_000, 0);
+        series.query(60_000, out);
+        assertEquals(1_000, out.rxEwmaRate);
+
+        // 间隔恰为一个时间常数、速率跳到 2 KB/s：1000 + (1 - e^-1) * 1000 = 1632
+        series.record(12_000, 22_000, 0);
+        series.query(60_000, out);
+        assertEquals(2_000, out.rxRate);
+        assertEquals(1_632, out.rxEwmaRate);
+
+        // 间隔为 0.1 个时间常数：1632.12 + (1 - e^-0.1) * (2000 - 1632.12) = 1667
+        series.record(13_000, 24_000, 0);
+        series.query(60_000, out);
+        assertEquals(1_667, out.rxEwmaRate);
+    }
+
+    @Test
+    public void counterResetRestartsSeries() {
+        ThroughputSeries series = rampTrace(32);
+        // 接收累计值回退（接口重建），之前的样本作废
+        series.record(11_000, 100, 5_000);
+        assertEquals(1, series.size());
+        series.query(60_000, out);
+        assertEquals(0, out.samples);
+        assertEquals(0, out.rxRate);
+        assertEquals(0, out.rxEwmaRate);
+
+        series.record(12_000, 3_100, 5_200);
+        series.query(60_000, out);
+        assertEquals(1, out.samples);
+        assertEquals(3_000, out.rxRate);
+        assertEquals(200, out.txRate);
+        // EWMA 也从新的基线重新开始
+        assertEquals(3_000, out.rxEwmaRate);
+        assertEquals(3_000, out.rxPeakRate);
+    }
+
+    @Test
+    public void ignoresNonIncreasingTime() {
+        ThroughputSeries series = rampTrace(32);
+        series.record(10_000, 1_000_000, 1_000_000);
+        series.record(9_000, 1_000_000, 1_000_000);
+        assertEquals(11, series.size());
+        series.query(60_000, out);
+        assertEquals(10_000, out.rxRate);
+
+        series.clear();
+        assertEquals(0, series.size());
+        assertEquals(-1, series.lastSampleTime());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTinyCapacity() {
+        new ThroughputSeries(1);
+    }
+}
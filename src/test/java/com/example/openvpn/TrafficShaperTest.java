@@ -0,0 +1,125 @@
+package com.example.openvpn;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+// 用虚拟时间（admit 的 nowNanos）送 1400 字节的出站包
+public class TrafficShaperTest {
+    private static final int PACKET_SIZE = 1400;
+    private static final long MB = 1024 * 1024;
+    private static final TrafficShaper.Listener IGNORE = (percent, used, quota) -> {
+    };
+
+    // 1 MB/s、突发 64 KB，以 10 倍速率送包 10 秒：放行量应为 速率 x 时间 + 突发
+    @Test
+    public void rateLimitPassesRateTimesTimePlusBurst() {
+        TrafficShaper shaper = new TrafficShaper(IGNORE);
+        shaper.setRateLimit(MB, 64 * 1024);
+        long passed = offer(shaper, 0, 10 * MB, 10);
+        long expected = 10 * MB + 64 * 1024;
+        assertTrue("放行 " + passed + " 字节", Math.abs(passed - expected) <= PACKET_SIZE * 2);
+        assertTrue(shaper.getDroppedPackets() > 0);
+    }
+
+    // 阈值按顺序各回调一次，改配额后已越过的不再回调，新周期重新开始
+    @Test
+    public void thresholdsFireOnceInOrder() {
+        List<Integer> fired = new ArrayList<>();
+        TrafficShaper shaper = new TrafficShaper((percent, used, quota) -> fired.add(percent));
+        shaper.setCountingPackets(true);
+        shaper.setQuota(10 * MB, TrafficShaper.PERIOD_SESSION, TrafficShaper.ACTION_THROTTLE, 100 * 1024,
+                new int[]{80, 50, 50, 0, 120});
+        shaper.reset(1, 0);
+        offer(shaper, 0, MB, 6);
+        assertEquals("[50]", fired.toString());
+
+        shaper.setQuota(10 * MB, TrafficShaper.PERIOD_SESSION, TrafficShaper.ACTION_THROTTLE, 100 * 1024,
+                new int[]{50, 80});
+        offer(shaper, 6 * TimeUnit.SECONDS.toNanos(1), MB, 5);
+        assertEquals("[50, 80, 100]", fired.toString());
+        assertTrue(shaper.isExhausted());
+
+        shaper.reset(2, 0);
+        assertFalse(shaper.isExhausted());
+        assertEquals(0, shaper.getUsed());
+    }
+
+    @Test
+    public void stopActionDropsEverythingOnceExhausted() {
+        TrafficShaper shaper = new TrafficShaper(IGNORE);
+        shaper.setCountingPackets(true);
+        shaper.setQuota(MB, TrafficShaper.PERIOD_SESSION, TrafficShaper.ACTION_STOP, 0, new int[0]);
+        long passed = offer(shaper, 0, MB, 3);
+        assertTrue("放行 " + passed + " 字节", passed <= MB + PACKET_SIZE && passed >= MB - PACKET_SIZE);
+        // 出站丢弃的包不计入用量
+        assertTrue(shaper.getUsed() <= MB + PACKET_SIZE);
+    }
+
+    // 用尽后降到 100 KB/s
+    @Test
+    public void throttleActionLimitsRateOnceExhausted() {
+        TrafficShaper shaper = new TrafficShaper(IGNORE);
+        shaper.setCountingPackets(true);
+        shaper.setQuota(MB, TrafficShaper.PERIOD_SESSION, TrafficShaper.ACTION_THROTTLE, 100 * 1024, new int[0]);
+        offer(shaper, 0, 2 * MB, 1);
+        assertTrue(shaper.isExhausted());
+        long passed = offer(shaper, TimeUnit.SECONDS.toNanos(1), MB, 10);
+        assertTrue("放行 " + passed + " 字节", passed >= 990 * 1024 && passed <= 1100 * 1024 + PACKET_SIZE * 2);
+    }
+
+    // 数据包引擎未运行时按采样记账，按包记账时忽略采样
+    @Test
+    public void samplesCountOnlyWithoutPacketAccounting() {
+        List<Integer> fired = new ArrayList<>();
+        TrafficShaper shaper = new TrafficShaper((percent, used, quota) -> fired.add(percent));
+        shaper.setQuota(10 * MB, TrafficShaper.PERIOD_DAY, TrafficShaper.ACTION_STOP, 0, new int[]{50});
+        shaper.reset(20_000, 4 * MB);
+        shaper.onSample(2 * MB);
+        // 采样计入当天已有用量
+        assertEquals("[50]", fired.toString());
+        assertEquals(6 * MB, shaper.getUsed());
+
+        shaper.setCountingPackets(true);
+        shaper.onSample(10 * MB);
+        assertEquals(6 * MB, shaper.getUsed());
+    }
+
+    @Test
+    public void admitDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        TrafficShaper shaper = new TrafficShaper(IGNORE);
+        shaper.setCountingPackets(true);
+        shaper.setRateLimit(10 * MB, MB);
+        shaper.setQuota(Long.MAX_VALUE / 2, TrafficShaper.PERIOD_SESSION, TrafficShaper.ACTION_THROTTLE, MB,
+                new int[]{50, 80});
+        offer(shaper, 0, 20 * MB, 1);
+        long id = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(id);
+        offer(shaper, TimeUnit.SECONDS.toNanos(1), 20 * MB, 5);
+        long allocated = threads.getThreadAllocatedBytes(id) - before;
+        assertTrue("分配 " + allocated + " 字节", allocated < 1024);
+    }
+
+    // 从 startNanos 开始以 offeredRate 字节/秒送包 seconds 秒，返回放行的字节数
+    private static long offer(TrafficShaper shaper, long startNanos, long offeredRate, int seconds) {
+        long interval = TimeUnit.SECONDS.toNanos(1) * PACKET_SIZE / offeredRate;
+        long packets = offeredRate * seconds / PACKET_SIZE;
+        long passed = 0;
+        long now = startNanos;
+        for (long i = 0; i < packets; i++) {
+            if (shaper.admit(PacketEngine.OUTBOUND, PACKET_SIZE, now) == PacketEngine.PASS) {
+                passed += PACKET_SIZE;
+            }
+            now += interval;
+        }
+        return passed;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.openvpn;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+// 用 /proc/net/dev 样例文件验证 tun 计数的解析和增量累加
+public class TunTrafficReaderTest {
+
+    private static byte[] fixture(String name) throws IOException {
+        InputStream in = TunTrafficReaderTest.class.getResourceAsStream(name);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void parse(TunTrafficReader reader, String name) throws IOException {
+        byte[] data = fixture(name);
+        reader.parse(data, data.length);
+    }
+
+    @Test
+    public void countsOnlyTunInterfacesFromBaseline() throws IOException {
+        TunTrafficReader reader = new TunTrafficReader("/nonexistent", "tun");
+        parse(reader, "net_dev_start.txt");
+        // 第一次读取只作为基线
+        assertEquals(0, reader.getTotalRxBytes());
+        assertEquals(0, reader.getTotalTxBytes());
+
+        parse(reader, "net_dev_later.txt");
+        // wlan0 和 lo 的增长不计入
+        assertEquals(5000, reader.getTotalRxBytes());
+        assertEquals(2000, reader.getTotalTxBytes());
+    }
+
+    @Test
+    public void counterResetCountsNewValueAsDelta() throws IOException {
+        TunTrafficReader reader = new TunTrafficReader("/nonexistent", "tun");
+        parse(reader, "net_dev_start.txt");
+        parse(reader, "net_dev_later.txt");
+        parse(reader, "net_dev_reset.txt");
+        assertEquals(5300, reader.getTotalRxBytes());
+        assertEquals(2100, reader.getTotalTxBytes());
+    }
+
+    @Test
+    public void renamedInterfaceCountsFromZero() throws IOException {
+        TunTrafficReader reader = new TunTrafficReader("/nonexistent", "tun");
+        parse(reader, "net_dev_start.txt");
+        parse(reader, "net_dev_later.txt");
+        // 重连后 tun0 消失、tun1 出现，tun1 的全部计数都是新流量
+        parse(reader, "net_dev_renamed.txt");
+        assertEquals(5700, reader.getTotalRxBytes());
+        assertEquals(2200, reader.getTotalTxBytes());
+    }
+
+    @Test
+    public void parsesValuesAdjacentToColon() throws IOException {
+        TunTrafficReader reader = new TunTrafficReader("/nonexistent", "tun");
+        parse(reader, "net_dev_start.txt");
+        // 计数很大时接口名和冒号后没有空格
+        parse(reader, "net_dev_wide.txt");
+        assertEquals(98765432109L - 1000, reader.getTotalRxBytes());
+        assertEquals(12345678901L - 500, reader.getTotalTxBytes());
+    }
+
+    @Test
+    public void resetStartsNewBaseline() throws IOException {
+        TunTrafficReader reader = new TunTrafficReader("/nonexistent", "tun");
+        parse(reader, "net_dev_start.txt");
+        parse(reader, "net_dev_later.txt");
+        reader.reset();
+        parse(reader, "net_dev_later.txt");
+        assertEquals(0, reader.getTotalRxBytes());
+        assertEquals(0, reader.getTotalTxBytes());
+    }
+
+    @Test
+    public void sampleReadsFile() throws IOException {
+        File file = File.createTempFile("net_dev", ".txt");
+        try {
+            java.nio.file.Files.write(file.toPath(), fixture("net_dev_start.txt"));
+            TunTrafficReader reader = new TunTrafficReader(file.getPath(), "tun");
+            assertTrue(reader.sample());
+            java.nio.file.Files.write(file.toPath(), fixture("net_dev_later.txt"));
+            assertTrue(reader.sample());
+            assertEquals(5000, reader.getTotalRxBytes());
+            reader.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void noTunInterfaceIsUnreadable() {
+        byte[] data = ("Inter-|   Receive                                                |  Transmit\n"
+                + " face |bytes    packets errs drop fifo frame compressed multicast|bytes    packets errs drop fifo colls carrier compressed\n"
+                + "    lo:    1200      10    0    0    0     0          0         0     1200      10    0    0    0     0       0          0\n"
+                + "  eth0:   90000     100    0    0    0     0          0         0    40000      80    0    0    0     0       0          0\n")
+                .getBytes();
+        TunTrafficReader reader = new TunTrafficReader("/proc/net/dev", "tun");
+        assertFalse(reader.parse(data, data.length));
+        assertEquals(0, reader.getTotalRxBytes());
+    }
+
+    @Test
+    public void missingFileIsUnreadable() {
+        TunTrafficReader reader = new TunTrafficReader("/nonexistent/net/dev", "tun");
+        assertFalse(reader.sample());
+    }
+}
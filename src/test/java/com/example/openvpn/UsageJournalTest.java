@@ -0,0 +1,155 @@
+package com.example.openvpn;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class UsageJournalTest {
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+    private static final long DAY_MS = 24 * HOUR_MS;
+    // 2026-01-01T00:00:00Z
+    private static final long START = 20454 * DAY_MS;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TimeZone savedZone;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        savedZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        file = new File(folder.getRoot(), "usage.journal");
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(savedZone);
+    }
+
+    private static long[] day(UsageJournal journal, long timeMs) {
+        long[] out = new long[2];
+        journal.getDayUsage(journal.localDay(timeMs), out);
+        return out;
+    }
+
+    @Test
+    public void reopenRebuildsRollups() throws IOException {
+        UsageJournal journal = new UsageJournal(file);
+        journal.open(START);
+        journal.addUsage(1, START + HOUR_MS, 1000, 100);
+        journal.addUsage(1, START + 2 * HOUR_MS, 2000, 200);
+        journal.close(START + 3 * HOUR_MS);
+
+        UsageJournal reopened = new UsageJournal(file);
+        reopened.open(START + 3 * HOUR_MS);
+        assertEquals(2, reopened.getRecordCount());
+        long[] usage = day(reopened, START);
+        assertEquals(3000, usage[0]);
+        assertEquals(300, usage[1]);
+        reopened.close(START + 4 * HOUR_MS);
+    }
+
+    @Test
+    public void tornRecordAtTailIsDropped() throws IOException {
+        UsageJournal journal = new UsageJournal(file);
+        journal.open(START);
+        journal.addUsage(1, START + HOUR_MS, 1000, 100);
+        journal.addUsage(1, START + 2 * HOUR_MS, 2000, 200);
+        journal.addUsage(1, START + 3 * HOUR_MS, 4000, 400);
+        journal.close(START + 3 * HOUR_MS);
+
+        // 模拟写最后一条记录时进程被杀：数据写了一半，记录标记还没写
+        int last = 16 + 2 * UsageJournal.RECORD_SIZE;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(last + 20);
+            raf.write(new byte[UsageJournal.RECORD_SIZE - 20]);
+        }
+
+        UsageJournal reopened = new UsageJournal(file);
+        reopened.open(START + 4 * HOUR_MS);
+        assertEquals(2, reopened.getRecordCount());
+        long[] usage = day(reopened, START);
+        assertEquals(3000, usage[0]);
+        assertEquals(300, usage[1]);
+
+        // 新记录覆盖残缺的尾部，之后能正常回放
+        reopened.addUsage(2, START + 5 * HOUR_MS, 8000, 800);
+        reopened.close(START + 5 * HOUR_MS);
+        UsageJournal again = new UsageJournal(file);
+        again.open(START + 6 * HOUR_MS);
+        assertEquals(3, again.getRecordCount());
+        assertEquals(11000, day(again, START)[0]);
+        again.close(START + 6 * HOUR_MS);
+    }
+
+    @Test
+    public void corruptedChecksumStopsReplay() throws IOException {
+        UsageJournal journal = new UsageJournal(file);
+        journal.open(START);
+        journal.addUsage(1, START + HOUR_MS, 1000, 100);
+        journal.addUsage(1, START + 2 * HOUR_MS, 2000, 200);
+        journal.close(START + 3 * HOUR_MS);
+
+        // 记录标记完整但内容被改写
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(16 + UsageJournal.RECORD_SIZE + 16);
+            raf.write(0x7F);
+        }
+
+        UsageJournal reopened = new UsageJournal(file);
+        reopened.open(START + 3 * HOUR_MS);
+        assertEquals(1, reopened.getRecordCount());
+        assertEquals(1000, day(reopened, START)[0]);
+        reopened.close(START + 3 * HOUR_MS);
+    }
+
+    @Test
+    public void compactionKeepsTotalsAndBoundsSize() throws IOException {
+        int days = UsageJournal.DAY_SLOTS + 200;
+        long end = START + days * DAY_MS;
+        UsageJournal journal = new UsageJournal(file);
+        journal.open(START);
+        // 每小时一条记录，远超过压缩阈值
+        for (long time = START; time < end; time += HOUR_MS) {
+            journal.addUsage(1, time, 1000, 10);
+        }
+        journal.flush(end);
+        // 共写入 days * 24 条，压缩后最多再增长一个映射块
+        int bound = (UsageJournal.COMPACT_SIZE + 64 * 1024) / UsageJournal.RECORD_SIZE;
+        assertTrue(days * 24 > bound);
+        assertTrue(journal.getRecordCount() <= bound);
+        assertTrue(file.length() <= UsageJournal.COMPACT_SIZE + 64 * 1024);
+
+        long lastDay = end - DAY_MS;
+        long[] recent = day(journal, lastDay);
+        assertEquals(24 * 1000, recent[0]);
+        long[] month = new long[2];
+        long lastMonth = UsageJournal.monthKey(journal.localDay(lastDay));
+        journal.getMonthUsage(lastMonth - 12, month);
+        long[] before = month.clone();
+        journal.close(end);
+
+        // 合并后的记录回放出的每天、每月总量不变
+        UsageJournal reopened = new UsageJournal(file);
+        reopened.open(end + DAY_MS);
+        assertEquals(24 * 1000, day(reopened, lastDay)[0]);
+        assertEquals(24 * 10, day(reopened, lastDay)[1]);
+        assertEquals(24 * 1000, day(reopened, end - 300 * DAY_MS)[0]);
+        reopened.getMonthUsage(lastMonth - 12, month);
+        assertEquals(before[0], month[0]);
+        assertEquals(before[1], month[1]);
+        reopened.close(end + DAY_MS);
+    }
+}
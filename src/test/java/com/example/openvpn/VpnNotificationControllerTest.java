@@ -0,0 +1,122 @@
+package com.example.openvpn;
+
+import android.app.NotificationManager;
+import android.app.Service;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+// 前台通知：虚拟时钟下检查内容不变时不重新发布、1 秒内的速率更新合并为一次发布、stop 取消尚未执行的发布
+public class VpnNotificationControllerTest {
+    private Looper looper;
+    private NotificationManager notifications;
+    private Service service;
+    private VpnNotificationController controller;
+
+    @Before
+    public void setUp() {
+        looper = Looper.prepareMainLooper();
+        SystemClock.useVirtualClock(looper);
+        looper.advanceBy(10_000);
+        Context context = new Context();
+        notifications = new NotificationManager();
+        context.putSystemService(Context.NOTIFICATION_SERVICE, notifications);
+        service = new Service();
+        controller = new VpnNotificationController(context, new Handler(looper), "vpn", 1, "stop");
+    }
+
+    @After
+    public void tearDown() {
+        SystemClock.useVirtualClock(null);
+    }
+
+    @Test
+    public void identicalContentIsNotReposted() {
+        // 首次进入前台立即发布
+        controller.show(service, "已连接", "vpn.example.com");
+        assertEquals(1, service.getForegroundStarts());
+        assertEquals(1, controller.getPostCount());
+
+        looper.advanceBy(5_000);
+        controller.show(service, "已连接", "vpn.example.com");
+        controller.show(service, "已连接", "vpn.example.com");
+        assertEquals(0, looper.pending());
+        assertEquals(1, controller.getPostCount());
+        assertEquals(0, notifications.getNotifyCount());
+
+        // 距上次发布已超过 1 秒，内容变化时立即更新
+        controller.show(service, "重新连接中", "vpn.example.com");
+        assertEquals(2, controller.getPostCount());
+        assertEquals(1, notifications.getNotifyCount());
+        assertEquals("重新连接中", notifications.getLastNotification().title);
+
+        // 换了服务实例需要重新进入前台，内容相同也要发布
+        Service restarted = new Service();
+        controller.show(restarted, "重新连接中", "vpn.example.com");
+        assertEquals(1, restarted.getForegroundStarts());
+        assertEquals(3, controller.getPostCount());
+    }
+
+    @Test
+    public void rateUpdatesWithinOneSecondAreCoalesced() {
+        controller.setShowRates(true);
+        controller.show(service, "已连接", "vpn.example.com");
+        assertEquals(1, controller.getPostCount());
+
+        // 发布后 1 秒内的 10 次速率变化只留下一次延迟发布
+        for (int i = 1; i <= 10; i++) {
+            controller.updateRates(i * 125_000L, 1_000);
+            looper.advanceBy(50);
+        }
+        assertEquals(1, controller.getPostCount());
+        assertEquals(1, looper.pending());
+
+        looper.advanceBy(500);
+        assertEquals(2, controller.getPostCount());
+        assertEquals(1, notifications.getNotifyCount());
+        // 发布的是最后一次的速率
+        assertEquals("↓ 10 Mbps  ↑ 8.0 Kbps", notifications.getLastNotification().subText);
+
+        // 同一档位内的细微波动不触发发布
+        looper.advanceBy(5_000);
+        controller.updateRates(1_250_100, 1_001);
+        assertEquals(0, looper.pending());
+        assertEquals(2, controller.getPostCount());
+
+        // 关闭速率显示后去掉速率
+        controller.setShowRates(false);
+        assertEquals(3, controller.getPostCount());
+        assertNull(notifications.getLastNotification().subText);
+    }
+
+    @Test
+    public void stopCancelsPendingPost() {
+        controller.show(service, "已连接", "vpn.example.com");
+        looper.advanceBy(100);
+        controller.show(service, "重新连接中", "vpn.example.com");
+        assertEquals(1, looper.pending());
+
+        controller.stop();
+        assertEquals(0, looper.pending());
+        assertEquals(1, service.getForegroundStops());
+        looper.advanceBy(5_000);
+        assertEquals(1, controller.getPostCount());
+        assertEquals(0, notifications.getNotifyCount());
+
+        // stop 之后的速率更新被忽略，再次 show 时重新进入前台
+        controller.setShowRates(true);
+        controller.updateRates(1_000, 1_000);
+        assertEquals(1, controller.getPostCount());
+        controller.show(service, "已连接", "vpn.example.com");
+        assertEquals(2, service.getForegroundStarts());
+        assertEquals(2, controller.getPostCount());
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.openvpn;
+
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+// 虚拟时钟下回放连接轨迹，对比原来的固定锁和按阶段/流量持有的唤醒锁时长
+// 原来的做法：连接时若未持有则 acquire(10 分钟)，不续期，断开或出错时释放
+public class WakeLockSchedulerTest {
+    private static final long MINUTE_MS = 60_000;
+    private static final long LEGACY_TIMEOUT_MS = 10 * MINUTE_MS;
+    private static final long HANDSHAKE_MS = 1_500;
+
+    private Looper looper;
+    private PowerManager.WakeLock legacy;
+    private PowerManager.WakeLock adaptiveLock;
+    private WakeLockScheduler adaptive;
+
+    @Before
+    public void setUp() {
+        looper = Looper.prepareMainLooper();
+        SystemClock.useVirtualClock(looper);
+        PowerManager power = new PowerManager();
+        legacy = power.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "legacy");
+        adaptiveLock = power.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "adaptive");
+        adaptive = new WakeLockScheduler(adaptiveLock);
+    }
+
+    @After
+    public void tearDown() {
+        SystemClock.useVirtualClock(null);
+    }
+
+    private void connect() {
+        if (!legacy.isHeld()) {
+            legacy.acquire(LEGACY_TIMEOUT_MS);
+        }
+        adaptive.onHandshakeStarted(looper.now());
+        looper.advanceBy(HANDSHAKE_MS);
+        adaptive.onHandshakeFinished(looper.now());
+    }
+
+    private void disconnect() {
+        if (legacy.isHeld()) {
+            legacy.release();
+        }
+        adaptive.stop(looper.now());
+    }
+
+    // 按秒推进，每秒报告一次采样（有流量时 32 KB）
+    private void run(long millis, boolean traffic) {
+        for (long t = 0; t < millis; t += 1000) {
+            looper.advanceBy(1000);
+            adaptive.onTraffic(looper.now(), traffic ? 32 * 1024 : 0);
+        }
+    }
+
+    @Test
+    public void shortSessionsHoldFarLess() {
+        // 一天 20 次连接：每次用 1 分钟，然后挂着 20 分钟不用再断开
+        for (int i = 0; i < 20; i++) {
+            connect();
+            run(MINUTE_MS, true);
+            run(20 * MINUTE_MS, false);
+            disconnect();
+            run(30 * MINUTE_MS, false);
+        }
+
+        long legacyMs = legacy.getHeldTimeMs();
+        long adaptiveMs = adaptiveLock.getHeldTimeMs();
+        // 原来每次连接固定 10 分钟；现在是握手 + 流量 + 1 分钟空闲窗口
+        assertEquals(20 * LEGACY_TIMEOUT_MS, legacyMs);
+        long perSession = HANDSHAKE_MS + MINUTE_MS + WakeLockScheduler.DEFAULT_IDLE_WINDOW_MS;
+        assertTrue("持有 " + adaptiveMs, adaptiveMs <= 20 * (perSession + 2_000));
+        assertTrue(adaptiveMs * 4 < legacyMs);
+        assertEquals(adaptiveMs, adaptive.getHeldTimeMs(looper.now()));
+        assertFalse(adaptiveLock.isHeld());
+    }
+
+    @Test
+    public void idleConnectionReleasesAfterWindow() {
+        connect();
+        run(WakeLockScheduler.DEFAULT_IDLE_WINDOW_MS - 5_000, false);
+        assertTrue(adaptiveLock.isHeld());
+        run(10_000, false);
+        assertFalse(adaptiveLock.isHeld());
+        // 原来的锁在连接后的 10 分钟内一直持有
+        assertTrue(legacy.isHeld());
+
+        // 流量恢复时重新获取
+        run(2_000, true);
+        assertTrue(adaptiveLock.isHeld());
+        assertEquals(2, adaptive.getAcquisitions());
+        disconnect();
+    }
+
+    @Test
+    public void longActiveSessionStaysCovered() {
+        connect();
+        // 持续 30 分钟的下载：原来的锁 10 分钟后超时，隧道在锁屏时可能被挂起；现在续期保持持有
+        run(30 * MINUTE_MS, true);
+        assertFalse(legacy.isHeld());
+        assertTrue(adaptiveLock.isHeld());
+        assertEquals(LEGACY_TIMEOUT_MS, legacy.getHeldTimeMs());
+        assertEquals(looper.now(), adaptiveLock.getHeldTimeMs());
+        assertEquals(1, adaptive.getAcquisitions());
+        disconnect();
+    }
+
+    @Test
+    public void reconnectHandshakeIsHeld() {
+        connect();
+        run(3 * MINUTE_MS, false);
+        assertFalse(adaptiveLock.isHeld());
+
+        // 网络切换引起的重连：握手期间即使没有流量也持有
+        adaptive.onHandshakeStarted(looper.now());
+        run(5_000, false);
+        assertTrue(adaptiveLock.isHeld());
+        adaptive.onHandshakeFinished(looper.now());
+        run(WakeLockScheduler.DEFAULT_IDLE_WINDOW_MS + 1_000, false);
+        assertFalse(adaptiveLock.isHeld());
+        disconnect();
+    }
+}